@@ -0,0 +1,219 @@
+package researchsim;
+
+import researchsim.entities.Entity;
+import researchsim.entities.User;
+import researchsim.logging.Logger;
+import researchsim.scenario.BinaryScenarioFormat;
+import researchsim.scenario.ParallelScenarioLoader;
+import researchsim.scenario.Scenario;
+import researchsim.simulation.BatchRun;
+import researchsim.simulation.ResearchPlanner;
+import researchsim.simulation.SeedSweep;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Entry point for running the Research Simulation without the GUI.
+ * <p>
+ * Each save file given is loaded and run for a number of turns, after which a throughput report
+ * is printed. Alternatively, each save file can be run under many seeds at once with
+ * {@link SeedSweep}, or its user can be played by a {@link ResearchPlanner}. This entry point
+ * does not require JavaFX.
+ */
+public class HeadlessLauncher {
+
+    /**
+     * The number of turns run when none is given.
+     */
+    private static final int DEFAULT_TURNS = 1000;
+
+    /**
+     * The number of turns planned ahead when none is given.
+     */
+    private static final int DEFAULT_HORIZON = 10;
+
+    /**
+     * Creates a new headless launcher.
+     */
+    private HeadlessLauncher() {}
+
+    /**
+     * Runs each of the given save files.
+     * <p>
+     * Usage: {@code [--turns N] [--seed S] [--sweep K] [--packed] [--parallel]
+     * [--log-capacity C] [--plan P] [--horizon H] save_file [save_file ...]}
+     * <p>
+     * Where
+     * <ul>
+     * <li>{@code N} is the number of turns to run each scenario for (default
+     * {@value #DEFAULT_TURNS})</li>
+     * <li>{@code S} is the random seed to run each scenario with, instead of the seed in its
+     * save file</li>
+     * <li>{@code K} is the number of seeds to sweep, starting from {@code S} (or the seed in the
+     * save file). When given, a summary of the runs of every seed is printed instead of the
+     * report of a single run</li>
+     * <li>{@code --packed} loads each scenario into a packed map, allowing larger maps</li>
+     * <li>{@code --parallel} moves the animals of each turn in parallel, see
+     * {@link researchsim.scenario.AnimalController#moveParallel()}. Ignored when sweeping</li>
+     * <li>{@code C} is the number of the most recent events to keep in each scenario's log
+     * (default every event)</li>
+     * <li>{@code P} is the time in milliseconds that a {@link ResearchPlanner} may take to
+     * plan each move of the first user of each scenario. When given, the user is played by the
+     * planner for each turn, and the points earned and rollouts played are printed instead of
+     * the report of a single run</li>
+     * <li>{@code H} is the number of turns the planner plans ahead (default
+     * {@value #DEFAULT_HORIZON})</li>
+     * <li>{@code save_file} is the path to the file containing the scenario, read as a
+     * {@link BinaryScenarioFormat binary save} if it ends with
+     * {@value BinaryScenarioFormat#EXTENSION}</li>
+     * </ul>
+     * The save files are parsed concurrently by a {@link ParallelScenarioLoader}, and the time
+     * taken to parse each is printed before the runs.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int turns = DEFAULT_TURNS;
+        Integer seed = null;
+        int sweep = 0;
+        boolean packed = false;
+        boolean parallel = false;
+        int logCapacity = Logger.UNBOUNDED;
+        int planMillis = 0;
+        int horizon = DEFAULT_HORIZON;
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--turns":
+                        turns = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Integer.parseInt(args[++i]);
+                        break;
+                    case "--sweep":
+                        sweep = Integer.parseInt(args[++i]);
+                        break;
+                    case "--packed":
+                        packed = true;
+                        break;
+                    case "--parallel":
+                        parallel = true;
+                        break;
+                    case "--log-capacity":
+                        logCapacity = Integer.parseInt(args[++i]);
+                        break;
+                    case "--plan":
+                        planMillis = Integer.parseInt(args[++i]);
+                        break;
+                    case "--horizon":
+                        horizon = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        files.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            files.clear();
+        }
+        if (files.isEmpty() || turns < 0 || sweep < 0 || logCapacity < 0 || planMillis < 0
+                || horizon < 1 || (seed != null && seed < 0)) {
+            System.err.println("Usage: [--turns N] [--seed S] [--sweep K] [--packed] [--parallel] "
+                + "[--log-capacity C] [--plan P] [--horizon H] save_file [save_file ...]");
+            System.err.println("Example: --turns 10000 --seed 4 saves/scenario1.txt");
+            System.err.println("Example: --turns 500 --sweep 1000 saves/scenario1.txt");
+            System.err.println("Example: --turns 20 --plan 500 saves/scenario1.txt");
+            System.exit(1);
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (String file : files) {
+            paths.add(Path.of(file));
+        }
+        ParallelScenarioLoader loader = new ParallelScenarioLoader(paths, packed);
+        List<Scenario> scenarios;
+        try {
+            scenarios = loader.load();
+        } catch (BadSaveException | IOException e) {
+            System.err.println("Error loading files. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+        System.out.println(loader);
+        System.out.println();
+
+        for (Scenario scenario : scenarios) {
+            if (sweep > 0) {
+                SeedSweep seedSweep = new SeedSweep(scenario, turns,
+                    seed == null ? scenario.getSeed() : seed, sweep);
+                try {
+                    seedSweep.run();
+                } catch (BadSaveException e) {
+                    System.err.println("Error copying " + scenario.getName()
+                        + ". Stack trace below:");
+                    e.printStackTrace();
+                    System.exit(1);
+                }
+                System.out.println(seedSweep);
+                System.out.println();
+                continue;
+            }
+            if (seed != null) {
+                scenario.setSeed(seed);
+            }
+            if (planMillis > 0) {
+                plan(scenario, turns, new ResearchPlanner(horizon, planMillis));
+                System.out.println();
+                continue;
+            }
+            scenario.getLog().setCapacity(logCapacity);
+            BatchRun run = new BatchRun(scenario, turns,
+                parallel ? ForkJoinPool.commonPool() : null);
+            run.run();
+            System.out.println(run);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Plays the first user of the given scenario with the given planner for the given number
+     * of turns, moving the animals after each of the user's turns, and prints the points earned
+     * and the rollouts played.
+     *
+     * @param scenario scenario to play
+     * @param turns    number of turns to play
+     * @param planner  planner that chooses the user's moves
+     */
+    private static void plan(Scenario scenario, int turns, ResearchPlanner planner) {
+        User user = null;
+        for (int i = 0; i < scenario.getSize() && user == null; i++) {
+            Entity occupant = scenario.occupantAt(i);
+            if (occupant instanceof User) {
+                user = (User) occupant;
+            }
+        }
+        if (user == null) {
+            System.out.println(scenario.getName() + " has no user to plan for");
+            return;
+        }
+        long rollouts = 0;
+        long nanos = 0;
+        for (int turn = 0; turn < turns; turn++) {
+            ResearchPlanner.Suggestion suggestion = planner.plan(user);
+            suggestion.apply(user);
+            scenario.getController().move();
+            rollouts += suggestion.getRollouts();
+            nanos += suggestion.getElapsedNanos();
+        }
+        System.out.printf("Planned %d turns of %s: %d points from %d entities collected "
+            + "(%d rollouts, %.0f rollouts/s)%n", turns, scenario.getName(),
+            scenario.getLog().getPointsEarned(), scenario.getLog().getEntitiesCollected(),
+            rollouts, nanos == 0 ? 0 : rollouts * 1e9 / nanos);
+    }
+}
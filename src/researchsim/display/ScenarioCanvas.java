@@ -14,7 +14,6 @@ import researchsim.logging.CollectEvent;
 import researchsim.logging.Event;
 import researchsim.logging.MoveEvent;
 import researchsim.map.Coordinate;
-import researchsim.map.Tile;
 import researchsim.map.TileType;
 import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
@@ -305,17 +304,17 @@ public class ScenarioCanvas extends Canvas {
      */
     private void drawLastEvent() {
         Scenario scenario = ScenarioManager.getInstance().getScenario();
-        List<Event> events = scenario.getLog().getEvents();
-        if (events.size() == 0) {
+        Iterator<Event> events = scenario.getLog().tailIterator();
+        if (!events.hasNext()) {
             return;
         }
-        int index = events.size() - 1;
         GraphicsContext gc = getGraphicsContext2D();
         gc.setLineWidth(2.0);
         setLineDashes();
 
-        do {
-            Event event = events.get(index);
+        // draw back from the last event until the last move made by the user
+        Event event = events.next();
+        while (true) {
             Color c = Color.BLACK;
             if (event instanceof MoveEvent) {
                 c = Color.AQUA;
@@ -331,11 +330,14 @@ public class ScenarioCanvas extends Canvas {
                 event.getInitialCoordinate().getY() * gridSize + offset,
                 event.getCoordinate().getX() * gridSize + offset,
                 event.getCoordinate().getY() * gridSize + offset);
-            if (events.get(index).getEntity() instanceof User) {
+            if (event.getEntity() instanceof User || !events.hasNext()) {
                 break;
             }
-            index--;
-        } while (index >= 0 && !(events.get(index).getEntity() instanceof User));
+            event = events.next();
+            if (event.getEntity() instanceof User) {
+                break;
+            }
+        }
         setLineSolid();
         gc.setLineWidth(1.0);
     }
@@ -363,12 +365,12 @@ public class ScenarioCanvas extends Canvas {
     private void drawTile(int x, int y) {
         GraphicsContext gc = getGraphicsContext2D();
         Scenario scenario = ScenarioManager.getInstance().getScenario();
-        Tile tile = scenario.getMapGrid()[Coordinate.convert(x, y)];
+        Entity entity = scenario.occupantAt(x, y);
 
         double gridSize = getGridSize();
 
         // draw sprite
-        gc.drawImage(tileSprites.get(tile.getType()),
+        gc.drawImage(tileSprites.get(scenario.terrainAt(x, y)),
             x * gridSize, y * gridSize, gridSize, gridSize);
         // draw grid
         if (viewModel.showGrid()) {
@@ -385,13 +387,7 @@ public class ScenarioCanvas extends Canvas {
 
         }
         // draw sub entities
-        if (tile.hasContents()) {
-            Entity entity = null;
-            try {
-                entity = tile.getContents();
-            } catch (NoSuchEntityException ignored) {
-                easterEgg();
-            }
+        if (entity != null) {
             this.drawnEntity.put(
                 new ClickableRegion(x * gridSize, y * gridSize, gridSize, gridSize),
                 entity);
@@ -517,8 +513,7 @@ public class ScenarioCanvas extends Canvas {
             areas.put(region, coordinate);
             drawnEntity.remove(region);
             boolean tileHasContents =
-                ScenarioManager.getInstance().getScenario()
-                    .getMapGrid()[Coordinate.convert(x, y)].hasContents();
+                ScenarioManager.getInstance().getScenario().occupantAt(x, y) != null;
             Color c = isMove && !tileHasContents ? Color.DARKORCHID : Color.RED;
             // DRAW
             gc.setStroke(c);
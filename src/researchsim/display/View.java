@@ -1,6 +1,7 @@
 package researchsim.display;
 
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
@@ -17,15 +18,11 @@ import researchsim.entities.Entity;
 import researchsim.entities.Fauna;
 import researchsim.entities.User;
 import researchsim.scenario.AnimalController;
-import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
 import researchsim.util.BadSaveException;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -205,7 +202,7 @@ public class View {
         turns.setSpacing(10);
 
         var endTurnButton = new Button("End _Turn");
-        endTurnButton.setPrefWidth(300);
+        endTurnButton.setPrefWidth(150);
         endTurnButton.setMnemonicParsing(true);
         endTurnButton.setAlignment(Pos.CENTER);
         endTurnButton.setOnAction((event) -> {
@@ -215,8 +212,35 @@ public class View {
             viewModel.setHasMoved(false);
         });
 
+        var suggestButton = new Button("_Suggest");
+        suggestButton.setPrefWidth(150);
+        suggestButton.setMnemonicParsing(true);
+        suggestButton.setAlignment(Pos.CENTER);
+        suggestButton.setOnAction((event) -> {
+            Entity entity = viewModel.getSelectedEntity().get();
+            if (!(entity instanceof User) || viewModel.getHasMoved()) {
+                return;
+            }
+            suggestButton.setDisable(true);
+            viewModel.suggestMove((User) entity).whenComplete((suggestion, error) ->
+                Platform.runLater(() -> {
+                    suggestButton.setDisable(false);
+                    if (error != null) {
+                        viewModel.createErrorDialog("Error suggesting a move",
+                            error.getMessage());
+                        return;
+                    }
+                    viewModel.createSuccessDialog("Suggested move", suggestion.toString());
+                }));
+        });
+
+        var turnSpace = new Region();
+        HBox.setHgrow(turnSpace, Priority.ALWAYS);
+
         endTurnButton.setAlignment(Pos.CENTER);
         turns.getChildren().add(endTurnButton);
+        turns.getChildren().add(turnSpace);
+        turns.getChildren().add(suggestButton);
 
         root.getChildren().add(turns);
 
@@ -239,17 +263,16 @@ public class View {
 
         MenuItem save = new MenuItem("_Save");
         save.setMnemonicParsing(true);
-        save.setOnAction(event -> {
-            try {
-                viewModel.save();
-            } catch (IOException e) {
-                viewModel.createErrorDialog("Error saving to file",
-                    e.getMessage());
-                return;
-            }
-            viewModel.createSuccessDialog("Saved successfully",
-                "Saved to default provided file locations successfully.");
-        });
+        save.setOnAction(event -> viewModel.save().whenComplete((file, error) ->
+            Platform.runLater(() -> {
+                if (error != null) {
+                    viewModel.createErrorDialog("Error saving to file",
+                        error.getMessage());
+                    return;
+                }
+                viewModel.createSuccessDialog("Saved successfully",
+                    "Saved to default provided file locations successfully.");
+            })));
 
         MenuItem exit = new MenuItem("_Exit");
         exit.setMnemonicParsing(true);
@@ -299,15 +322,16 @@ public class View {
             if (filename.isEmpty()) {
                 return;
             }
-            try {
-                viewModel.saveAs(new FileWriter(filename.get()));
-            } catch (IOException e) {
-                viewModel.createErrorDialog("Error saving to file",
-                    e.getMessage());
-                return;
-            }
-            viewModel.createSuccessDialog("Saved files successfully",
-                "Saved to \"" + filename.get() + "\" successfully.");
+            viewModel.saveAs(filename.get()).whenComplete((file, error) ->
+                Platform.runLater(() -> {
+                    if (error != null) {
+                        viewModel.createErrorDialog("Error saving to file",
+                            error.getMessage());
+                        return;
+                    }
+                    viewModel.createSuccessDialog("Saved files successfully",
+                        "Saved to \"" + filename.get() + "\" successfully.");
+                }));
         });
         saveAs.setAccelerator(KeyCombination.keyCombination("Shortcut+S"));
         return saveAs;
@@ -317,16 +341,19 @@ public class View {
     private List<MenuItem> createScenarioMenuItems() {
         List<MenuItem> items = new ArrayList<>();
         ScenarioManager manager = ScenarioManager.getInstance();
-        for (Map.Entry<String, Scenario> pairs :
-            manager.getLoadedScenarios().entrySet()) {
-            MenuItem item = new MenuItem("Scenario: _" + pairs.getKey());
+        for (String name : manager.getScenarioNames()) {
+            MenuItem item = new MenuItem("Scenario: _" + name);
             item.setMnemonicParsing(true);
             item.setOnAction(event -> {
                 try {
-                    manager.setScenario(pairs.getKey());
-                } catch (BadSaveException ignored) {
-                    // ignored
+                    manager.setScenario(name);
+                } catch (BadSaveException e) {
+                    // the scenario could not be loaded from its file
+                    viewModel.createErrorDialog("Error loading scenario", e.getMessage());
+                    return;
                 }
+                // autosave the newly selected scenario instead
+                viewModel.getAutosave();
                 viewModel.registerChange();
                 stage.titleProperty().bind(Bindings.concat("Research Simulation: "
                     + ScenarioManager.getInstance().getScenario().getName()));
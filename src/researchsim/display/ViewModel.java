@@ -4,16 +4,24 @@ import javafx.beans.property.*;
 import javafx.scene.control.Alert;
 import researchsim.entities.Entity;
 import researchsim.entities.Fauna;
+import researchsim.entities.User;
 import researchsim.logging.Event;
+import researchsim.logging.LogText;
 import researchsim.logging.Logger;
+import researchsim.map.Coordinate;
 import researchsim.map.TileType;
+import researchsim.scenario.BinaryScenarioFormat;
 import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
+import researchsim.simulation.AutosaveService;
+import researchsim.simulation.ResearchPlanner;
 import researchsim.util.BadSaveException;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * View model for the Research Simulation GUI.
@@ -59,6 +67,46 @@ public class ViewModel {
     private final StringProperty scenarioLogText = new SimpleStringProperty(
         "No events logged");
 
+    /**
+     * The largest number of events shown in the scenario log text box
+     */
+    private static final int LOG_HISTORY = 500;
+
+    /**
+     * The text of the most recent events of the current scenario's log
+     */
+    private final LogText logText = new LogText(LOG_HISTORY);
+
+    /**
+     * The file that the current scenario is saved to by {@link #save()}
+     */
+    private static final String DEFAULT_SAVE_FILE = "saves/_default_save.txt";
+
+    /**
+     * The file that the current scenario is saved to automatically
+     */
+    private static final String AUTOSAVE_FILE = "saves/_autosave.txt";
+
+    /**
+     * The number of turns between automatic saves of the current scenario
+     */
+    private static final int AUTOSAVE_TURNS = 10;
+
+    /**
+     * The number of turns planned ahead when suggesting a move
+     */
+    private static final int PLAN_TURNS = 10;
+
+    /**
+     * The time taken to suggest a move, in milliseconds
+     */
+    private static final long PLAN_MILLIS = 1000;
+
+    /**
+     * Saves the current scenario in the background, or null if it has not been created
+     */
+    private AutosaveService autosave;
+
     /**
      * The currently selected (clicked) entity
      */
@@ -69,24 +117,39 @@ public class ViewModel {
     private boolean hasMoved = false;
 
     /**
-     * Creates a new view model and constructs scenarios by reading from the given filenames.
+     * Creates a new view model and registers the scenarios in the given filenames.
+     * Files with the extension {@value BinaryScenarioFormat#EXTENSION} are read as binary
+     * saves, see {@link BinaryScenarioFormat}, and all other files as text saves.
+     * <p>
+     * Only the header of each file is read ({@link ScenarioManager#register(Path, boolean)}),
+     * and only the first scenario is loaded; the others are loaded when they are selected. The
+     * loaded scenarios are kept within half of the maximum heap size, and a scenario that is
+     * evicted to stay within it is first saved back to its file, so no progress is lost.
      *
      * @param filenames list of filenames specifying the path to: the scenario files
-     * @throws IOException      if loading from a file specified generates an
+     * @throws IOException      if reading from a file specified generates an
      *                          IOException
-     * @throws BadSaveException if any file is invalid according to
-     *                          {@link Scenario#load(Reader)}
+     * @throws BadSaveException if the header of any file, or the first file, is invalid
+     *                          according to {@link Scenario#load(Reader)} or
+     *                          {@link BinaryScenarioFormat#load(Path, boolean)}
      * @requires filenames != null &amp;&amp; filenames.size() >= 1
      * @given
      */
     public ViewModel(List<String> filenames) throws IOException, BadSaveException {
+        ScenarioManager manager = ScenarioManager.getInstance();
+        manager.setSaveOnEvict(true);
+        manager.setMemoryBudget(Runtime.getRuntime().maxMemory() / 2);
+        String first = null;
         for (String file : filenames) {
-            Scenario.load(new FileReader(file));
+            String name = manager.register(Path.of(file), false).getName();
+            if (first == null) {
+                first = name;
+            }
         }
 
         // make sure set scenario was first loaded
-        ScenarioManager manager = ScenarioManager.getInstance();
-        manager.setScenario(manager.getLoadedScenarios().values().iterator().next().getName());
+        manager.setScenario(first);
+        getAutosave();
 
         this.selectedEntity.addListener((observable, oldValue, newValue) -> {
             if (newValue == null) {
@@ -195,6 +258,9 @@ public class ViewModel {
      *   <li>{@code event2} is the {@link #toString()} of the second event in the log
      *   <li>And so on...</li>
      * </ul>
+     * Only the most recent {@value #LOG_HISTORY} events are shown. The text is updated
+     * incrementally ({@link LogText}), so only the events logged since the last update are
+     * formatted.
      * <p>
      * The contents of the statistics text should be updated to:
      * <pre>
@@ -233,10 +299,13 @@ public class ViewModel {
      */
     public void updateScenarioLog() {
         Logger log = ScenarioManager.getInstance().getScenario().getLog();
-        if (log.getEvents().size() == 0) {
+        if (log.getEventCount() == 0) {
             return;
         }
-        this.scenarioLogText.set(log.toString());
+        // only the events logged since the last update are formatted
+        if (logText.update(log)) {
+            this.scenarioLogText.set(logText.getText());
+        }
 
         // Update the contents of the statistics text
         StringJoiner statisticsInfo = new StringJoiner(System.lineSeparator());
@@ -268,13 +337,17 @@ public class ViewModel {
 
 
     /**
-     * Saves the current state of the research simulation to the file "_default_save.txt"
+     * Saves the current state of the research simulation to the file "_default_save.txt" in
+     * the background.
+     * <p>
+     * The scenario is copied immediately and written by the current scenario's
+     * {@link #getAutosave() autosave service}, so this returns without waiting for the disk.
      *
-     * @throws IOException if an IOException occurs when writing to the files
-     * @given
+     * @return a future completed with the save file once it has been written, or completed
+     *         exceptionally with the IOException if it could not be written
      */
-    public void save() throws IOException {
-        saveAs(new FileWriter("saves/_default_save.txt"));
+    public CompletableFuture<Path> save() {
+        return getAutosave().save(Path.of(DEFAULT_SAVE_FILE));
     }
 
     /**
@@ -351,17 +424,72 @@ public class ViewModel {
      * @param scenarioWriter writer to which the scenario will be written
      * @throws IOException if an IOException occurs when writing to the writer
      * @ass2
-     * @see Scenario#encode()
+     * @see Scenario#encodeTo(Appendable)
      */
     public void saveAs(Writer scenarioWriter) throws IOException {
-        try {
+        try (Writer writer = new BufferedWriter(scenarioWriter)) {
             Scenario scenario = ScenarioManager.getInstance().getScenario();
-            scenarioWriter.write(scenario.encode());
-            scenarioWriter.close();
-        } catch (IOException e) {
-            scenarioWriter.close();
-            throw e;
+            scenario.encodeTo(writer);
+        }
+    }
+
+    /**
+     * Saves the current state of the research simulation to the file with the given name in
+     * the background, as {@link #save()} does.
+     * <p>
+     * If the file name ends with {@value BinaryScenarioFormat#EXTENSION} the scenario is saved
+     * as a binary save, see {@link BinaryScenarioFormat}, otherwise it is saved as text as
+     * described by {@link #saveAs(Writer)}.
+     *
+     * @param filename name of the file to which the scenario will be written
+     * @return a future completed with the save file once it has been written, or completed
+     *         exceptionally with the IOException if it could not be written
+     */
+    public CompletableFuture<Path> saveAs(String filename) {
+        return getAutosave().save(Path.of(filename));
+    }
+
+    /**
+     * Returns the autosave service of the current scenario, which saves the scenario to
+     * "_autosave.txt" every {@value #AUTOSAVE_TURNS} turns.
+     *
+     * @return autosave service of the current scenario
+     */
+    public AutosaveService getAutosave() {
+        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        if (autosave == null || autosave.getScenario() != scenario) {
+            if (autosave != null) {
+                autosave.shutdown();
+            }
+            autosave = new AutosaveService(scenario, Path.of(AUTOSAVE_FILE));
+            autosave.setTurnInterval(AUTOSAVE_TURNS);
+        }
+        return autosave;
+    }
+
+    /**
+     * Suggests the next move of the given user in the background, planning
+     * {@value #PLAN_TURNS} turns ahead for {@value #PLAN_MILLIS} ms with a
+     * {@link ResearchPlanner}.
+     * <p>
+     * The scenario is forked immediately ({@link Scenario#fork()}) and the plan is made in the
+     * fork, so the scenario may be played while the suggestion is made. The suggestion should
+     * only be applied if the user has not moved since.
+     *
+     * @param user user to suggest a move for, which must be on the map of the current scenario
+     * @return a future completed with the suggested move
+     * @throws IllegalArgumentException if the user is not on the map of the current scenario
+     */
+    public CompletableFuture<ResearchPlanner.Suggestion> suggestMove(User user) {
+        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        Coordinate position = user.getCoordinate();
+        if (!position.isInBounds(scenario)
+                || scenario.occupantAt(position.getX(), position.getY()) != user) {
+            throw new IllegalArgumentException(user + " is not on the map of the scenario");
         }
+        User copy = (User) scenario.fork().occupantAt(position.getX(), position.getY());
+        return CompletableFuture.supplyAsync(
+            () -> new ResearchPlanner(PLAN_TURNS, PLAN_MILLIS).plan(copy));
     }
 
     /**
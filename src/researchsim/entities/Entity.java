@@ -1,6 +1,8 @@
 package researchsim.entities;
 
 import researchsim.map.Coordinate;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
 import researchsim.util.Encodable;
 import java.util.Objects;
 
@@ -12,7 +14,7 @@ import java.util.Objects;
  * @ass1_partial
  * @see researchsim.map.Tile
  */
-public abstract class Entity implements Encodable {
+public abstract class Entity implements Encodable, Cloneable {
 
     /**
      * Size associated with the entity.
@@ -26,6 +28,16 @@ public abstract class Entity implements Encodable {
      */
     private Coordinate coordinate;
 
+    /**
+     * The scenario this entity inhabits, or null if the entity has not been bound to one.
+     */
+    private Scenario scenario;
+
+    /**
+     * The identifier of this entity in the registry it belongs to, or -1 if it has none.
+     */
+    private int id;
+
     /**
      * Creates an entity with a given size and coordinate.
      *
@@ -36,6 +48,7 @@ public abstract class Entity implements Encodable {
     public Entity(Size size, Coordinate coordinate) {
         this.size = size;
         this.coordinate = coordinate;
+        this.id = -1;
     }
 
     /**
@@ -68,6 +81,77 @@ public abstract class Entity implements Encodable {
         this.coordinate = coordinate;
     }
 
+    /**
+     * Returns the scenario that this entity inhabits.
+     * <p>
+     * An entity is bound to a scenario when it is placed on the scenario's map or added to the
+     * scenario's animal controller. An entity that has not been bound to a scenario uses the
+     * current scenario of the {@link ScenarioManager}.
+     *
+     * @return the scenario this entity acts in
+     */
+    public Scenario getScenario() {
+        return scenario == null ? ScenarioManager.getInstance().getScenario() : scenario;
+    }
+
+    /**
+     * Binds this entity to the given scenario.
+     *
+     * @param scenario the scenario this entity inhabits, or null to use the current scenario of
+     *                 the {@link ScenarioManager}
+     */
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Returns the identifier of this entity.
+     * <p>
+     * Animals are given an identifier when they are added to an animal controller
+     * ({@link researchsim.scenario.AnimalRegistry}). Unlike the entity's coordinate, the
+     * identifier does not change while the entity is registered.
+     *
+     * @return identifier of this entity, or -1 if it has not been given one
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier of this entity.
+     * <p>
+     * Identifiers are managed by {@link researchsim.scenario.AnimalRegistry} and should not
+     * otherwise be changed.
+     *
+     * @param id the new identifier, or -1 to clear it
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a copy of this entity with the same size, coordinate and identifier, and the
+     * same state as this entity in every subclass.
+     * <p>
+     * The copy is not bound to a scenario until it is placed on a scenario's map or added to a
+     * scenario's animal controller, and changes to the copy do not affect this entity. This is
+     * used to copy the entities of a scenario when it is forked
+     * ({@link Scenario#fork()}).
+     *
+     * @return copy of this entity
+     */
+    public Entity copy() {
+        Entity copy;
+        try {
+            copy = (Entity) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // every entity is cloneable
+            throw new AssertionError(e);
+        }
+        copy.scenario = null;
+        return copy;
+    }
+
     /**
      * Returns the human-readable name of this entity.
      *
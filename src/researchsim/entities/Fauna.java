@@ -1,18 +1,15 @@
 package researchsim.entities;
 
-import javafx.util.Pair;
 import researchsim.logging.CollectEvent;
 import researchsim.logging.MoveEvent;
 import researchsim.map.Coordinate;
-import researchsim.map.Tile;
 import researchsim.map.TileType;
 import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
 import researchsim.util.Collectable;
 import researchsim.util.CoordinateOutOfBoundsException;
 import researchsim.util.Movable;
-import java.lang.Math;
-import java.util.ArrayList;
+import researchsim.util.MoveStencil;
 import java.util.List;
 import java.util.Objects;
 
@@ -220,18 +217,8 @@ public class Fauna extends Entity implements Movable, Collectable {
      * @return list of possible movements.
      */
     public List<Coordinate> getPossibleMoves() {
-        List<Coordinate> possibleMoves = new ArrayList<>();
-        List<Coordinate> inRangeMoves = this.checkRange(getSize().moveDistance, getCoordinate());
-        for (Coordinate coordinate : inRangeMoves) {
-            try {
-                if (this.canMove(coordinate)) {
-                    possibleMoves.add(coordinate);
-                }
-            } catch (CoordinateOutOfBoundsException e) {
-                // Ignore it because it won't be thrown
-            }
-        }
-        return possibleMoves;
+        return getScenario().getMovementEngine()
+            .getPossibleMoves(this);
     }
 
     /**
@@ -244,29 +231,38 @@ public class Fauna extends Entity implements Movable, Collectable {
      * @param coordinate The new coordinate to move to.
      */
     public void move(Coordinate coordinate) {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
-        scenario.getMapGrid()[getCoordinate().getIndex()].setContents(null);
-        scenario.getMapGrid()[coordinate.getIndex()].setContents(this);
+        Scenario scenario = getScenario();
+        scenario.setOccupant(getCoordinate().getIndex(scenario), null);
+        scenario.setOccupant(coordinate.getIndex(scenario), this);
 
         scenario.getLog().add(new MoveEvent(this, coordinate));
         this.setCoordinate(coordinate);
     }
 
     /**
-     * Return true if animal could move to the given coordinate in the path provided.
+     * Return true if animal could move along one of the paths to an offset in the stencil.
      *
-     * @param coordinate The new coordinate to move to.
-     * @param path The list of coordinates on the path.
+     * @param stencil the move stencil for this animal's move distance
+     * @param offset index of the offset to move to in the stencil
+     * @param horizontalFirst whether to take the path that moves horizontally first
      * @param scenario The current scenario
      *
-     * @return true if animal could move to the given coordinate in the path provided.
+     * @return true if animal could move to the offset along the path.
      */
-    private boolean validPath(List<Coordinate> path, Coordinate coordinate, Scenario scenario) {
-        if (path.size() == 0) {
+    private boolean validPath(MoveStencil stencil, int offset, boolean horizontalFirst,
+                              Scenario scenario) {
+        int length = stencil.getPathLength(offset);
+        if (length == 0) {
             return false;
         }
-        for (Coordinate coordinateOnPath : path) {
-            TileType typeOnPath = scenario.getMapGrid()[coordinateOnPath.getIndex()].getType();
+        for (int step = 0; step < length; step++) {
+            int x = getCoordinate().getX() + stencil.getPathDx(offset, step, horizontalFirst);
+            int y = getCoordinate().getY() + stencil.getPathDy(offset, step, horizontalFirst);
+            if (x < 0 || x >= scenario.getWidth() || y < 0 || y >= scenario.getHeight()) {
+                return false;
+            }
+            int index = x + y * scenario.getWidth();
+            TileType typeOnPath = scenario.terrainAt(index);
             // Check if the habitat type is valid
             boolean habitatTile;
             if (getHabitat() == TileType.OCEAN && typeOnPath == TileType.OCEAN) {
@@ -276,61 +272,13 @@ public class Fauna extends Entity implements Movable, Collectable {
             } else {
                 habitatTile = false;
             }
-            if (getCoordinate().equals(coordinateOnPath)
-                    || !coordinateOnPath.isInBounds()
-                    || !habitatTile
-                    || scenario.getMapGrid()[coordinateOnPath.getIndex()].hasContents()) {
+            if (!habitatTile || scenario.occupantAt(index) != null) {
                 return false;
             }
         }
         return true;
     }
 
-    /**
-     * Return the pair of the paths to the target destination.
-     * Each path is a list of coordinates on the path.
-     *
-     * @param target the target coordinate to move to
-     * @return the pair of paths to the target
-     */
-    private Pair<List<Coordinate>, List<Coordinate>> getPath(Coordinate target) {
-        int currentX = getCoordinate().getX();
-        int currentY = getCoordinate().getY();
-        int targetX = target.getX();
-        int targetY = target.getY();
-        int distanceX = targetX - currentX;
-        int distanceY = targetY - currentY;
-
-        List<Coordinate> pathHorizontal = new ArrayList<>();
-        List<Coordinate> pathVertical = new ArrayList<>();
-
-        // Check the target on the horizontal level, left or right
-        if (distanceX > 0) {
-            for (int x = distanceX; x > 0; x--) {
-                pathHorizontal.add(new Coordinate(currentX + x, currentY));
-                pathVertical.add(new Coordinate(currentX + x, targetY));
-            }
-        } else if (distanceX < 0) {
-            for (int x = distanceX; x < 0; x++) {
-                pathHorizontal.add(new Coordinate(currentX + x, currentY));
-                pathVertical.add(new Coordinate(currentX + x, targetY));
-            }
-        }
-        // Check the target on the vertical level, up or down
-        if (distanceY > 0) {
-            for (int y = distanceY; y > 0; y--) {
-                pathHorizontal.add(new Coordinate(targetX, currentY + y));
-                pathVertical.add(new Coordinate(currentX, currentY + y));
-            }
-        } else if (distanceY < 0) {
-            for (int y = distanceY; y < 0; y++) {
-                pathHorizontal.add(new Coordinate(targetX, currentY + y));
-                pathVertical.add(new Coordinate(currentX, currentY + y));
-            }
-        }
-        return new Pair<List<Coordinate>, List<Coordinate>>(pathHorizontal, pathVertical);
-    }
-
     /**
      * Determines if the animal can move to the new coordinate.
      * An animal can move to the new coordinate if ALL of the following conditions are satisfied:
@@ -364,16 +312,18 @@ public class Fauna extends Entity implements Movable, Collectable {
      * @throws CoordinateOutOfBoundsException if the coordinate given is out of bounds
      */
     public boolean canMove(Coordinate coordinate) throws CoordinateOutOfBoundsException {
-        if (!coordinate.isInBounds()) {
+        Scenario scenario = getScenario();
+        if (!coordinate.isInBounds(scenario)) {
             throw new CoordinateOutOfBoundsException();
         }
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
-        int distance = Math.abs(coordinate.getX() - this.getCoordinate().getX())
-                + Math.abs(coordinate.getY() - this.getCoordinate().getY());
-
-        return (validPath(getPath(coordinate).getKey(), coordinate, scenario)
-                    || validPath(getPath(coordinate).getValue(), coordinate, scenario))
-                && this.getSize().moveDistance >= distance;
+        MoveStencil stencil = MoveStencil.of(getSize().moveDistance);
+        int offset = stencil.indexOf(coordinate.getX() - this.getCoordinate().getX(),
+                coordinate.getY() - this.getCoordinate().getY());
+        if (offset < 0) {
+            return false;
+        }
+        return validPath(stencil, offset, true, scenario)
+                || validPath(stencil, offset, false, scenario);
     }
 
     /**
@@ -390,9 +340,9 @@ public class Fauna extends Entity implements Movable, Collectable {
      * @return points earned
      */
     public int collect(User user) {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        Scenario scenario = getScenario();
         scenario.getLog().add(new CollectEvent(user, this));
-        scenario.getMapGrid()[getCoordinate().getIndex()].setContents(null);
+        scenario.setOccupant(getCoordinate().getIndex(scenario), null);
         scenario.getController().removeAnimal(this);
         return this.getSize().points;
     }
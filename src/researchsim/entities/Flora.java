@@ -2,7 +2,6 @@ package researchsim.entities;
 
 import researchsim.logging.CollectEvent;
 import researchsim.map.Coordinate;
-import researchsim.map.Tile;
 import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
 import researchsim.util.Collectable;
@@ -89,10 +88,10 @@ public class Flora extends Entity implements Collectable {
      * @return points earned
      */
     public int collect(User user) {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        Scenario scenario = getScenario();
         CollectEvent collectEvent = new CollectEvent(user, this);
         scenario.getLog().add(collectEvent);
-        scenario.getMapGrid()[this.getCoordinate().getIndex()].setContents(null);
+        scenario.setOccupant(this.getCoordinate().getIndex(scenario), null);
         return this.getSize().points;
     }
 }
@@ -1,15 +1,14 @@
 package researchsim.entities;
 
-import javafx.util.Pair;
 import researchsim.logging.MoveEvent;
 import researchsim.map.Coordinate;
-import researchsim.map.Tile;
 import researchsim.map.TileType;
 import researchsim.scenario.Scenario;
 import researchsim.scenario.ScenarioManager;
 import researchsim.util.Collectable;
 import researchsim.util.CoordinateOutOfBoundsException;
 import researchsim.util.Movable;
+import researchsim.util.MoveStencil;
 import researchsim.util.NoSuchEntityException;
 
 import java.util.ArrayList;
@@ -126,17 +125,8 @@ public class User extends Entity implements Movable {
      * @return list of possible movements
      */
     public List<Coordinate> getPossibleMoves() {
-        List<Coordinate> possibleMoves = new ArrayList<>();
-        for (Coordinate coordinate : this.checkRange(getSize().moveDistance, getCoordinate())) {
-            try {
-                if (canMove(coordinate)) {
-                    possibleMoves.add(coordinate);
-                }
-            } catch (CoordinateOutOfBoundsException e) {
-                // Ignore it since we squash the exception thrown by canMove method
-            }
-        }
-        return possibleMoves;
+        return getScenario().getMovementEngine()
+            .getPossibleMoves(this);
     }
 
     /**
@@ -153,7 +143,7 @@ public class User extends Entity implements Movable {
      * @param coordinate The new coordinate to move to
      */
     public void move(Coordinate coordinate) {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        Scenario scenario = getScenario();
         scenario.getLog().add(new MoveEvent(this, coordinate));
 
         try {
@@ -161,77 +151,38 @@ public class User extends Entity implements Movable {
         } catch (NoSuchEntityException | CoordinateOutOfBoundsException e) {
             // Ignore it since exceptions that raised from collect should be suppressed
         }
-        scenario.getMapGrid()[this.getCoordinate().getIndex()].setContents(null);
-        scenario.getMapGrid()[coordinate.getIndex()].setContents(this);
+        scenario.setOccupant(this.getCoordinate().getIndex(scenario), null);
+        scenario.setOccupant(coordinate.getIndex(scenario), this);
         this.setCoordinate(coordinate);
     }
 
     /**
-     * Return true if user can move to the given coordinate in the given path
-     * @param path the given path to the destination
-     * @param coordinate the target coordinate to move to
+     * Return true if user can move along one of the paths to an offset in the stencil
+     * @param stencil the move stencil for the user's max move distance
+     * @param offset index of the offset to move to in the stencil
+     * @param horizontalFirst whether to take the path that moves horizontally first
      * @param scenario the current scenario
-     * @return true if user can move to the given coordinate in the given path
+     * @return true if user can move to the offset along the path
      */
-    private boolean validPath(List<Coordinate> path, Coordinate coordinate, Scenario scenario) {
-        if (path.size() == 0) {
+    private boolean validPath(MoveStencil stencil, int offset, boolean horizontalFirst,
+                              Scenario scenario) {
+        int length = stencil.getPathLength(offset);
+        if (length == 0) {
             return false;
         }
-        for (Coordinate coordinateOnPath : path) {
-            Tile tileOnPath  = scenario.getMapGrid()[coordinateOnPath.getIndex()];
-            if (this.getCoordinate().equals(coordinate)
-                    || !coordinateOnPath.isInBounds()
-                    || tileOnPath.getType().equals(TileType.OCEAN)
-                    || tileOnPath.getType().equals(TileType.MOUNTAIN)) {
+        for (int step = 0; step < length; step++) {
+            int x = getCoordinate().getX() + stencil.getPathDx(offset, step, horizontalFirst);
+            int y = getCoordinate().getY() + stencil.getPathDy(offset, step, horizontalFirst);
+            if (x < 0 || x >= scenario.getWidth() || y < 0 || y >= scenario.getHeight()) {
                 return false;
             }
-        }
-        return true;
-    }
-
-    /**
-     * Return the pair of the paths to the target destination.
-     * Each path is a list of coordinates on the path.
-     *
-     * @param target the target coordinate to move to
-     * @return the pair of paths to the target
-     */
-    private Pair<List<Coordinate>, List<Coordinate>> getPath(Coordinate target) {
-        int currentX = getCoordinate().getX();
-        int currentY = getCoordinate().getY();
-        int targetX = target.getX();
-        int targetY = target.getY();
-        int distanceX = targetX - currentX;
-        int distanceY = targetY - currentY;
-
-        List<Coordinate> pathHorizontal = new ArrayList<>();
-        List<Coordinate> pathVertical = new ArrayList<>();
-
-        // Check the target on the horizontal level, left or right
-        if (distanceX > 0) {
-            for (int x = distanceX; x > 0; x--) {
-                pathHorizontal.add(new Coordinate(currentX + x, currentY));
-                pathVertical.add(new Coordinate(currentX + x, targetY));
-            }
-        } else if (distanceX < 0) {
-            for (int x = distanceX; x < 0; x++) {
-                pathHorizontal.add(new Coordinate(currentX + x, currentY));
-                pathVertical.add(new Coordinate(currentX + x, targetY));
-            }
-        }
-        // Check the target on the vertical level, up or down
-        if (distanceY > 0) {
-            for (int y = distanceY; y > 0; y--) {
-                pathHorizontal.add(new Coordinate(targetX, currentY + y));
-                pathVertical.add(new Coordinate(currentX, currentY + y));
-            }
-        } else if (distanceY < 0) {
-            for (int y = distanceY; y < 0; y++) {
-                pathHorizontal.add(new Coordinate(targetX, currentY + y));
-                pathVertical.add(new Coordinate(currentX, currentY + y));
+            TileType typeOnPath = scenario.terrainAt(x + y * scenario.getWidth());
+            if (typeOnPath.equals(TileType.OCEAN)
+                    || typeOnPath.equals(TileType.MOUNTAIN)) {
+                return false;
             }
         }
-        return new Pair<List<Coordinate>, List<Coordinate>>(pathHorizontal, pathVertical);
+        return true;
     }
 
     /**
@@ -264,16 +215,18 @@ public class User extends Entity implements Movable {
      * @throws CoordinateOutOfBoundsException if the coordinate given is out of bounds
      */
     public boolean canMove(Coordinate coordinate) throws CoordinateOutOfBoundsException {
-        if (!coordinate.isInBounds()) {
+        Scenario scenario = getScenario();
+        if (!coordinate.isInBounds(scenario)) {
             throw new CoordinateOutOfBoundsException();
         }
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
-        int distance = Math.abs(coordinate.getX() - this.getCoordinate().getX())
-                + Math.abs(coordinate.getY() - this.getCoordinate().getY());
-
-        return (validPath(getPath(coordinate).getKey(), coordinate, scenario)
-                || validPath(getPath(coordinate).getValue(), coordinate, scenario))
-                && maxMoveDistance >= distance;
+        MoveStencil stencil = MoveStencil.of(maxMoveDistance);
+        int offset = stencil.indexOf(coordinate.getX() - this.getCoordinate().getX(),
+                coordinate.getY() - this.getCoordinate().getY());
+        if (offset < 0) {
+            return false;
+        }
+        return validPath(stencil, offset, true, scenario)
+                || validPath(stencil, offset, false, scenario);
     }
 
     /**
@@ -289,20 +242,15 @@ public class User extends Entity implements Movable {
      * @return list of possible collections
      */
     public List<Coordinate> getPossibleCollection() {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        Scenario scenario = getScenario();
         List<Coordinate> possibleCollect = new ArrayList<>();
         // Check if user could collect the entity on the tile on the coordinate in range
         for (Coordinate coordinateInRange : this.checkRange(1, getCoordinate())) {
-            try {
-                if (coordinateInRange.isInBounds()) {
-                    Tile tileCollected = scenario.getMapGrid()[coordinateInRange.getIndex()];
-                    if (tileCollected.getContents() instanceof Flora
-                            || tileCollected.getContents() instanceof Fauna) {
-                        possibleCollect.add(coordinateInRange);
-                    }
+            if (coordinateInRange.isInBounds(scenario)) {
+                Entity contents = scenario.occupantAt(coordinateInRange.getIndex(scenario));
+                if (contents instanceof Flora || contents instanceof Fauna) {
+                    possibleCollect.add(coordinateInRange);
                 }
-            } catch (NoSuchEntityException e) {
-                // Ignore it. We squash this exception
             }
         }
         return possibleCollect;
@@ -321,14 +269,14 @@ public class User extends Entity implements Movable {
      */
     public void collect(Coordinate coordinate)
             throws NoSuchEntityException, CoordinateOutOfBoundsException {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
-        Entity collectedItem = scenario.getMapGrid()[coordinate.getIndex()].getContents();
+        Scenario scenario = getScenario();
+        if (!coordinate.isInBounds(scenario)) {
+            throw new CoordinateOutOfBoundsException();
+        }
+        Entity collectedItem = scenario.occupantAt(coordinate.getIndex(scenario));
         if (collectedItem == null) {
             throw new NoSuchEntityException();
         }
-        if (!coordinate.isInBounds()) {
-            throw new CoordinateOutOfBoundsException();
-        }
         if (collectedItem instanceof Fauna || collectedItem instanceof Flora) {
             ((Collectable) collectedItem).collect(this);
         }
@@ -0,0 +1,489 @@
+package researchsim.logging;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An event store that records events as columns of primitive values.
+ * <p>
+ * For each event the store records its turn, type, the identifier ({@link Entity#getId()}) and
+ * description of the entity, the map indices it moved from and to, the identifier and
+ * description of the collected entity and the points earned. Descriptions (the class, size,
+ * habitat and name of an entity) are shared between every event with the same description.
+ * The columns grow in chunks of {@value #CHUNK_SIZE} events, and entities are not referenced by
+ * the store, so a collected entity can be garbage collected.
+ * <p>
+ * {@link Event} objects are created only when {@link #get(int)} is called, and a new event (with
+ * new entities matching the recorded descriptions) is created by every call. Only
+ * {@link MoveEvent}s and {@link CollectEvent}s of {@link Fauna}, {@link Flora} and
+ * {@link User}s can be recorded.
+ */
+public class ColumnarEventStore implements EventStore {
+
+    /**
+     * The type of a {@link MoveEvent}.
+     */
+    public static final int MOVE = 0;
+    /**
+     * The type of a {@link CollectEvent}.
+     */
+    public static final int COLLECT = 1;
+
+    /**
+     * The base 2 logarithm of the number of events in a chunk.
+     */
+    private static final int CHUNK_SHIFT = 13;
+    /**
+     * The number of events in a chunk.
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * Mask of the position of an event within its chunk.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The width of the map that events occur on, used to convert coordinates to indices.
+     */
+    private final int width;
+    /**
+     * The largest number of events kept, or {@link Logger#UNBOUNDED}.
+     */
+    private int capacity;
+
+    /**
+     * Chunks of kept events, the oldest first.
+     */
+    private final List<Chunk> chunks;
+    /**
+     * A discarded chunk that can be reused, or null.
+     */
+    private Chunk spare;
+    /**
+     * The number of the first chunk in {@link #chunks}, counting every chunk ever used.
+     */
+    private long firstChunk;
+    /**
+     * The number of the oldest kept event, counting every event ever added.
+     */
+    private long first;
+    /**
+     * The number of events ever added.
+     */
+    private long end;
+
+    /**
+     * Descriptions of entities, by their identifier in the columns.
+     */
+    private final List<Descriptor> descriptors;
+    /**
+     * Identifiers of the descriptions of entities.
+     */
+    private final Map<Descriptor, Integer> descriptorIds;
+
+    /**
+     * Creates a new store that keeps every event of a map with the given width.
+     *
+     * @param width width of the map that events occur on
+     * @throws IllegalArgumentException if width &lt; 1
+     */
+    public ColumnarEventStore(int width) {
+        this(width, Logger.UNBOUNDED);
+    }
+
+    /**
+     * Creates a new store that keeps at most the given number of the most recent events of a map
+     * with the given width.
+     *
+     * @param width    width of the map that events occur on
+     * @param capacity the largest number of events to keep, or {@link Logger#UNBOUNDED} to keep
+     *                 every event
+     * @throws IllegalArgumentException if width &lt; 1 or capacity &lt; 0
+     */
+    public ColumnarEventStore(int width, int capacity) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Width must be positive: " + width);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        }
+        this.width = width;
+        this.capacity = capacity;
+        this.chunks = new ArrayList<>();
+        this.descriptors = new ArrayList<>();
+        this.descriptorIds = new HashMap<>();
+    }
+
+    @Override
+    public void add(Event event, int turn) {
+        int type;
+        int target = -1;
+        int targetId = -1;
+        int points = 0;
+        if (event instanceof MoveEvent) {
+            type = MOVE;
+        } else if (event instanceof CollectEvent) {
+            type = COLLECT;
+            Entity collected = ((CollectEvent) event).getTarget();
+            target = describe(collected);
+            targetId = collected.getId();
+            points = collected.getSize().points;
+        } else {
+            throw new IllegalArgumentException("Can not record event: " + event);
+        }
+        int entity = describe(event.getEntity());
+        int from = toIndex(event.getInitialCoordinate());
+        int to = toIndex(event.getCoordinate());
+
+        if ((end & CHUNK_MASK) == 0) {
+            chunks.add(spare == null ? new Chunk() : spare);
+            spare = null;
+        }
+        Chunk chunk = chunks.get(chunks.size() - 1);
+        int position = (int) (end & CHUNK_MASK);
+        chunk.turns[position] = turn;
+        chunk.types[position] = (byte) type;
+        chunk.entities[position] = entity;
+        chunk.entityIds[position] = event.getEntity().getId();
+        chunk.from[position] = from;
+        chunk.to[position] = to;
+        chunk.targets[position] = target;
+        chunk.targetIds[position] = targetId;
+        chunk.points[position] = (byte) points;
+        end++;
+        if (capacity != Logger.UNBOUNDED) {
+            discard(end - capacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) (end - first);
+    }
+
+    @Override
+    public Event get(int index) {
+        Chunk chunk = chunk(index);
+        int position = position(index);
+        Coordinate from = toCoordinate(chunk.from[position]);
+        Coordinate to = toCoordinate(chunk.to[position]);
+        Entity entity = create(chunk.entities[position], chunk.entityIds[position], from);
+        if (chunk.types[position] == MOVE) {
+            Event event = new MoveEvent(entity, to);
+            entity.setCoordinate(to);
+            return event;
+        }
+        Entity target = create(chunk.targets[position], chunk.targetIds[position], to);
+        return new CollectEvent((User) entity, target);
+    }
+
+    @Override
+    public int getTurn(int index) {
+        return chunk(index).turns[position(index)];
+    }
+
+    /**
+     * Returns the type of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return {@link #MOVE} or {@link #COLLECT}
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getType(int index) {
+        return chunk(index).types[position(index)];
+    }
+
+    /**
+     * Returns the identifier of the entity of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return entity identifier, or -1 if the entity had none
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getEntityId(int index) {
+        return chunk(index).entityIds[position(index)];
+    }
+
+    /**
+     * Returns the map index that the entity of the kept event at the given index started at.
+     *
+     * @param index index of the event
+     * @return map index of the initial coordinate
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getFromIndex(int index) {
+        return chunk(index).from[position(index)];
+    }
+
+    /**
+     * Returns the map index of the coordinate of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return map index of the coordinate
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getToIndex(int index) {
+        return chunk(index).to[position(index)];
+    }
+
+    /**
+     * Returns the identifier of the entity collected in the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return collected entity identifier, or -1 if it had none or the event is not a collection
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getTargetId(int index) {
+        return chunk(index).targetIds[position(index)];
+    }
+
+    /**
+     * Returns the points earned in the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return points earned, 0 if the event is not a collection
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getPoints(int index) {
+        return chunk(index).points[position(index)];
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        if (capacity != Logger.UNBOUNDED) {
+            discard(end - capacity);
+        }
+    }
+
+    /**
+     * Discards the events before the given event number, releasing chunks that are no longer
+     * used.
+     *
+     * @param oldest number of the oldest event to keep
+     */
+    private void discard(long oldest) {
+        if (oldest <= first) {
+            return;
+        }
+        first = oldest;
+        while ((first >> CHUNK_SHIFT) > firstChunk) {
+            spare = chunks.remove(0);
+            firstChunk++;
+        }
+    }
+
+    /**
+     * Returns the chunk of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return chunk of the event
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    private Chunk chunk(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size()
+                + " events");
+        }
+        return chunks.get((int) (((first + index) >> CHUNK_SHIFT) - firstChunk));
+    }
+
+    /**
+     * Returns the position within its chunk of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return position in the chunk
+     */
+    private int position(int index) {
+        return (int) ((first + index) & CHUNK_MASK);
+    }
+
+    /**
+     * Converts a coordinate to a map index.
+     *
+     * @param coordinate coordinate to convert
+     * @return map index
+     * @throws IllegalArgumentException if the coordinate is not on a map of this store's width
+     */
+    private int toIndex(Coordinate coordinate) {
+        if (coordinate.getX() < 0 || coordinate.getX() >= width || coordinate.getY() < 0) {
+            throw new IllegalArgumentException("Can not record coordinate: " + coordinate);
+        }
+        return coordinate.getY() * width + coordinate.getX();
+    }
+
+    /**
+     * Converts a map index to a coordinate.
+     *
+     * @param index map index to convert
+     * @return coordinate
+     */
+    private Coordinate toCoordinate(int index) {
+        return new Coordinate(index % width, index / width);
+    }
+
+    /**
+     * Returns the identifier of the description of the given entity, adding the description if
+     * it has not been seen before.
+     *
+     * @param entity entity to describe
+     * @return description identifier
+     * @throws IllegalArgumentException if the entity is not a Fauna, Flora or User
+     */
+    private int describe(Entity entity) {
+        Descriptor descriptor;
+        if (entity instanceof Fauna) {
+            descriptor = new Descriptor(Fauna.class, entity.getSize(),
+                ((Fauna) entity).getHabitat(), null);
+        } else if (entity instanceof Flora) {
+            descriptor = new Descriptor(Flora.class, entity.getSize(), null, null);
+        } else if (entity instanceof User) {
+            descriptor = new Descriptor(User.class, entity.getSize(), null, entity.getName());
+        } else {
+            throw new IllegalArgumentException("Can not record entity: " + entity);
+        }
+        Integer id = descriptorIds.get(descriptor);
+        if (id == null) {
+            id = descriptors.size();
+            descriptors.add(descriptor);
+            descriptorIds.put(descriptor, id);
+        }
+        return id;
+    }
+
+    /**
+     * Creates a new entity from its recorded description.
+     *
+     * @param descriptor description identifier
+     * @param id         entity identifier
+     * @param coordinate coordinate of the new entity
+     * @return new entity
+     */
+    private Entity create(int descriptor, int id, Coordinate coordinate) {
+        Descriptor description = descriptors.get(descriptor);
+        Entity entity;
+        if (description.type == Fauna.class) {
+            entity = new Fauna(description.size, coordinate, description.habitat);
+        } else if (description.type == Flora.class) {
+            entity = new Flora(description.size, coordinate);
+        } else {
+            entity = new User(coordinate, description.name);
+        }
+        entity.setId(id);
+        return entity;
+    }
+
+    /**
+     * The columns of a chunk of events.
+     */
+    private static class Chunk {
+        /**
+         * Turn of each event.
+         */
+        private final int[] turns = new int[CHUNK_SIZE];
+        /**
+         * Type of each event.
+         */
+        private final byte[] types = new byte[CHUNK_SIZE];
+        /**
+         * Description of the entity of each event.
+         */
+        private final int[] entities = new int[CHUNK_SIZE];
+        /**
+         * Identifier of the entity of each event.
+         */
+        private final int[] entityIds = new int[CHUNK_SIZE];
+        /**
+         * Map index each event started at.
+         */
+        private final int[] from = new int[CHUNK_SIZE];
+        /**
+         * Map index of the coordinate of each event.
+         */
+        private final int[] to = new int[CHUNK_SIZE];
+        /**
+         * Description of the collected entity of each event.
+         */
+        private final int[] targets = new int[CHUNK_SIZE];
+        /**
+         * Identifier of the collected entity of each event.
+         */
+        private final int[] targetIds = new int[CHUNK_SIZE];
+        /**
+         * Points earned by each event.
+         */
+        private final byte[] points = new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * The description of an entity, from which an equal entity can be created.
+     */
+    private static class Descriptor {
+        /**
+         * Class of the entity.
+         */
+        private final Class<? extends Entity> type;
+        /**
+         * Size of the entity.
+         */
+        private final Size size;
+        /**
+         * Habitat of the entity, if it is a Fauna.
+         */
+        private final TileType habitat;
+        /**
+         * Name of the entity, if it is a User.
+         */
+        private final String name;
+
+        /**
+         * Creates a new description.
+         *
+         * @param type    class of the entity
+         * @param size    size of the entity
+         * @param habitat habitat of the entity, or null
+         * @param name    name of the entity, or null
+         */
+        private Descriptor(Class<? extends Entity> type, Size size, TileType habitat,
+                           String name) {
+            this.type = type;
+            this.size = size;
+            this.habitat = habitat;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, size, habitat, name);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Descriptor)) {
+                return false;
+            }
+            Descriptor descriptor = (Descriptor) other;
+            return type == descriptor.type && size == descriptor.size
+                && habitat == descriptor.habitat && Objects.equals(name, descriptor.name);
+        }
+    }
+}
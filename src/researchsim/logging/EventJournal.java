@@ -0,0 +1,419 @@
+package researchsim.logging;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only file of the events of a scenario, written as fixed-width binary records.
+ * <p>
+ * A journal is attached to a log with {@link Logger#addSink(EventSink)} and records every event
+ * added to the log afterwards. Records are collected in a buffer of {@value #BATCH_RECORDS}
+ * records, which is written to the file when it is full, or at the end of a turn if the buffer
+ * was last written more than {@value #WRITE_INTERVAL_MILLIS} milliseconds ago. Written records
+ * survive the process crashing. The file is forced to the storage device, so that records
+ * survive the machine failing, at most once every {@link #getSyncIntervalMillis()} milliseconds,
+ * and when the journal is synced ({@link #sync()}) or closed.
+ * <p>
+ * The file starts with a {@value #HEADER_BYTES} byte header: the magic number
+ * {@code RSJ1}, the record size, and the width and height of the map. Each record holds the
+ * turn, the event type, the kind, size, habitat and identifier of the entity, the map indices
+ * the event moved from and to, the kind, size, habitat and identifier of a collected entity,
+ * the points earned and a checksum. A record that was only partly written, for example because
+ * the process crashed, fails its checksum and ends the journal. Journals are read with
+ * {@link JournalReader}.
+ */
+public class EventJournal implements EventSink, Closeable {
+
+    /**
+     * The first four bytes of a journal file, "RSJ1".
+     */
+    public static final int MAGIC = 0x52534A31;
+    /**
+     * The size of the header of a journal file, in bytes.
+     */
+    public static final int HEADER_BYTES = 16;
+    /**
+     * The size of each record of a journal file, in bytes.
+     */
+    public static final int RECORD_BYTES = 32;
+
+    /**
+     * The type of a record of a {@link MoveEvent}.
+     */
+    public static final int MOVE = 0;
+    /**
+     * The type of a record of a {@link CollectEvent}.
+     */
+    public static final int COLLECT = 1;
+
+    /**
+     * The kind of an absent entity.
+     */
+    static final int NONE = 0;
+    /**
+     * The kind of a {@link Fauna}.
+     */
+    static final int FAUNA = 1;
+    /**
+     * The kind of a {@link Flora}.
+     */
+    static final int FLORA = 2;
+    /**
+     * The kind of a {@link User}.
+     */
+    static final int USER = 3;
+    /**
+     * The kind of any other entity.
+     */
+    static final int OTHER = 4;
+
+    /**
+     * The number of records buffered before they are written.
+     */
+    private static final int BATCH_RECORDS = 1024;
+    /**
+     * The largest time that records are buffered across the end of a turn.
+     */
+    private static final long WRITE_INTERVAL_MILLIS = 20;
+    /**
+     * The default largest time between forcing the file to storage.
+     */
+    private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The channel of the journal file.
+     */
+    private final FileChannel channel;
+    /**
+     * The width of the map, used to convert coordinates to indices.
+     */
+    private final int width;
+    /**
+     * Buffer of the records that have not been written.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The largest time between forcing the file to storage, in milliseconds.
+     */
+    private long syncIntervalMillis;
+    /**
+     * The time the file was last forced to storage, from {@link System#nanoTime()}.
+     */
+    private long lastSync;
+    /**
+     * The time the buffer was last written, from {@link System#nanoTime()}.
+     */
+    private long lastWrite;
+    /**
+     * The number of records in the journal, including buffered records.
+     */
+    private long records;
+
+    /**
+     * Opens a journal for a map of the given size, creating the file if it does not exist.
+     * <p>
+     * If the file already holds a journal then new records are appended to it, after removing
+     * any partly written record at its end.
+     *
+     * @param file   the journal file
+     * @param width  width of the map
+     * @param height height of the map
+     * @throws IOException if the file could not be opened, or holds a journal of a map of a
+     *                     different size or something other than a journal
+     */
+    public EventJournal(Path file, int width, int height) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.width = width;
+        this.buffer = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_BYTES);
+        this.syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+        try {
+            open(width, height);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.lastSync = System.nanoTime();
+        this.lastWrite = lastSync;
+    }
+
+    /**
+     * Writes the header of a new journal, or checks the header of an existing journal and
+     * removes any partly written record from its end.
+     *
+     * @param width  width of the map
+     * @param height height of the map
+     * @throws IOException if the file could not be read or written, or does not match
+     */
+    private void open(int width, int height) throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(RECORD_BYTES).putInt(width).putInt(height).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, HEADER_BYTES - header.remaining());
+            }
+            channel.force(true);
+            channel.position(HEADER_BYTES);
+            return;
+        }
+        ByteBuffer header = readHeader(channel);
+        if (header.getInt(8) != width || header.getInt(12) != height) {
+            throw new IOException("Journal is of a " + header.getInt(8) + "x"
+                + header.getInt(12) + " map, not " + width + "x" + height);
+        }
+        long size = channel.size();
+        records = validRecords((size - HEADER_BYTES) / RECORD_BYTES);
+        long end = HEADER_BYTES + records * RECORD_BYTES;
+        if (end < size) {
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    /**
+     * Returns the number of records at the start of the file before the first record that
+     * fails its checksum.
+     * <p>
+     * The records are read into the write buffer rather than mapped, as a file can not be
+     * truncated on some systems while any part of it is mapped.
+     *
+     * @param whole the number of whole records in the file
+     * @return number of valid records
+     * @throws IOException if the file could not be read
+     */
+    private long validRecords(long whole) throws IOException {
+        long record = 0;
+        try {
+            while (record < whole) {
+                long position = HEADER_BYTES + record * RECORD_BYTES;
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (whole - record) * RECORD_BYTES));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        return record;
+                    }
+                }
+                for (int start = 0; start < buffer.limit(); start += RECORD_BYTES) {
+                    if (checksum(buffer, start)
+                            != buffer.getInt(start + RECORD_BYTES - Integer.BYTES)) {
+                        return record;
+                    }
+                    record++;
+                }
+            }
+            return record;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Returns the number of records in the journal, including records that have not yet been
+     * written to the file.
+     *
+     * @return number of records
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Returns the largest time between forcing the file to storage.
+     *
+     * @return sync interval in milliseconds
+     */
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    /**
+     * Sets the largest time between forcing the file to storage.
+     * A shorter interval loses fewer events if the machine fails, but slows down writing.
+     *
+     * @param syncIntervalMillis sync interval in milliseconds, 0 to force after every write
+     * @throws IllegalArgumentException if syncIntervalMillis &lt; 0
+     */
+    public void setSyncIntervalMillis(long syncIntervalMillis) {
+        if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Interval can not be negative: "
+                + syncIntervalMillis);
+        }
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /**
+     * Appends a record of the event to the journal.
+     *
+     * @param event the new event
+     * @param turn  the turn the event occurred in
+     * @throws UncheckedIOException if the buffered records could not be written
+     */
+    @Override
+    public void eventAdded(Event event, int turn) {
+        int start = buffer.position();
+        Entity target = event instanceof CollectEvent ? ((CollectEvent) event).getTarget() : null;
+        buffer.putInt(turn);
+        buffer.put((byte) (target == null ? MOVE : COLLECT));
+        putEntity(event.getEntity());
+        buffer.putInt(event.getEntity().getId());
+        buffer.putInt(toIndex(event.getInitialCoordinate()));
+        buffer.putInt(toIndex(event.getCoordinate()));
+        buffer.putInt(target == null ? -1 : target.getId());
+        putEntity(target);
+        buffer.put((byte) (target == null ? 0 : target.getSize().points));
+        buffer.putInt(checksum(buffer, start));
+        records++;
+        if (!buffer.hasRemaining()) {
+            write(false);
+        }
+    }
+
+    /**
+     * Writes the buffered records if they have been buffered for too long.
+     *
+     * @param turn the turn that ended
+     * @throws UncheckedIOException if the buffered records could not be written
+     */
+    @Override
+    public void turnEnded(int turn) {
+        if (buffer.position() > 0
+                && System.nanoTime() - lastWrite >= WRITE_INTERVAL_MILLIS * 1_000_000L) {
+            write(false);
+        }
+    }
+
+    /**
+     * Writes the buffered records and forces the file to storage.
+     *
+     * @throws IOException if the records could not be written
+     */
+    public void sync() throws IOException {
+        try {
+            write(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the buffered records, forces the file to storage and closes the journal.
+     *
+     * @throws IOException if the records could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file, forcing the file to storage if the sync interval
+     * has passed.
+     *
+     * @param force true to force the file to storage regardless of the interval
+     * @throws UncheckedIOException if the records could not be written
+     */
+    private void write(boolean force) {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            long now = System.nanoTime();
+            lastWrite = now;
+            if (force || now - lastSync >= syncIntervalMillis * 1_000_000L) {
+                channel.force(false);
+                lastSync = now;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the kind, size and habitat of an entity to the buffer.
+     *
+     * @param entity entity to write, or null
+     */
+    private void putEntity(Entity entity) {
+        if (entity == null) {
+            buffer.put((byte) NONE).put((byte) 0).put((byte) 0);
+            return;
+        }
+        int kind = OTHER;
+        int habitat = 0;
+        if (entity instanceof Fauna) {
+            kind = FAUNA;
+            habitat = ((Fauna) entity).getHabitat().ordinal() + 1;
+        } else if (entity instanceof Flora) {
+            kind = FLORA;
+        } else if (entity instanceof User) {
+            kind = USER;
+        }
+        buffer.put((byte) kind).put((byte) entity.getSize().ordinal()).put((byte) habitat);
+    }
+
+    /**
+     * Converts a coordinate to a map index.
+     *
+     * @param coordinate coordinate to convert
+     * @return map index
+     */
+    private int toIndex(Coordinate coordinate) {
+        return coordinate.getY() * width + coordinate.getX();
+    }
+
+    /**
+     * Reads and checks the header of a journal file.
+     *
+     * @param channel the channel of the journal file
+     * @return the header, holding the magic number, record size, width and height
+     * @throws IOException if the file could not be read or is not a journal
+     */
+    static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Journal header is incomplete");
+            }
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_BYTES) {
+            throw new IOException("File is not an event journal");
+        }
+        return header;
+    }
+
+    /**
+     * Returns the checksum of the record that starts at the given position in a buffer.
+     * The checksum covers every byte of the record before the checksum itself.
+     *
+     * @param record buffer holding the record
+     * @param start  position of the record in the buffer
+     * @return checksum of the record
+     */
+    static int checksum(ByteBuffer record, int start) {
+        int hash = 0x811C9DC5;
+        for (int offset = 0; offset < RECORD_BYTES - Integer.BYTES; offset += Integer.BYTES) {
+            hash = (hash ^ record.getInt(start + offset)) * 0x01000193;
+        }
+        return hash;
+    }
+}
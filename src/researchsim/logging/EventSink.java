@@ -0,0 +1,25 @@
+package researchsim.logging;
+
+/**
+ * A receiver of the events added to a {@link Logger}.
+ *
+ * @see Logger#addSink(EventSink)
+ */
+public interface EventSink {
+
+    /**
+     * Called after an event is added to the log.
+     *
+     * @param event the new event
+     * @param turn  the turn the event occurred in
+     */
+    void eventAdded(Event event, int turn);
+
+    /**
+     * Called after the log advances to the next turn.
+     *
+     * @param turn the turn that ended
+     */
+    default void turnEnded(int turn) {
+    }
+}
@@ -0,0 +1,61 @@
+package researchsim.logging;
+
+/**
+ * Storage for the events kept by a {@link Logger}.
+ * <p>
+ * A store may be given a capacity, in which case it keeps only the most recent events and
+ * discards older events as new events are added.
+ */
+public interface EventStore {
+
+    /**
+     * Adds an event to the store, discarding the oldest event if the store is full.
+     *
+     * @param event the new event
+     * @param turn  the turn the event occurred in
+     * @throws IllegalArgumentException if the store can not record the event
+     */
+    void add(Event event, int turn);
+
+    /**
+     * Returns the number of events kept by the store.
+     *
+     * @return number of events kept
+     */
+    int size();
+
+    /**
+     * Returns the kept event at the given index, where the oldest kept event is at index 0.
+     *
+     * @param index index of the event
+     * @return event at the index
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    Event get(int index);
+
+    /**
+     * Returns the turn that the kept event at the given index occurred in.
+     *
+     * @param index index of the event
+     * @return turn of the event
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    int getTurn(int index);
+
+    /**
+     * Returns the largest number of events this store keeps.
+     *
+     * @return capacity, or {@link Logger#UNBOUNDED} if every event is kept
+     */
+    int getCapacity();
+
+    /**
+     * Sets the largest number of events this store keeps.
+     * If more events are kept than the new capacity, the oldest events are discarded.
+     *
+     * @param capacity the largest number of events to keep, or {@link Logger#UNBOUNDED} to keep
+     *                 every event
+     * @throws IllegalArgumentException if capacity &lt; 0
+     */
+    void setCapacity(int capacity);
+}
@@ -0,0 +1,371 @@
+package researchsim.logging;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.scenario.Scenario;
+import researchsim.util.BadSaveException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of an {@link EventJournal} by mapping the journal file into memory.
+ * <p>
+ * The journal ends at the first record that fails its checksum, so a record that was only
+ * partly written when the journal was last used is ignored. A journal can be replayed to rebuild
+ * the statistics of a log ({@link #replayStatistics()}) or to roll a scenario saved part way
+ * through the journal forward to the end of the journal ({@link #rollForward(Scenario, long)}).
+ */
+public class JournalReader implements Closeable {
+
+    /**
+     * The size of each mapped region of the file, a whole number of records.
+     */
+    private static final int REGION_BYTES = 1 << 30;
+
+    /**
+     * The channel of the journal file.
+     */
+    private final FileChannel channel;
+    /**
+     * The width of the map of the journal.
+     */
+    private final int width;
+    /**
+     * The height of the map of the journal.
+     */
+    private final int height;
+    /**
+     * The mapped regions of the records of the file.
+     */
+    private final MappedByteBuffer[] regions;
+    /**
+     * The number of valid records.
+     */
+    private final long records;
+
+    /**
+     * Opens the journal in the given file for reading.
+     *
+     * @param file the journal file
+     * @throws IOException if the file could not be read or is not a journal
+     */
+    public JournalReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = EventJournal.readHeader(channel);
+            this.width = header.getInt(8);
+            this.height = header.getInt(12);
+
+            long whole = (channel.size() - EventJournal.HEADER_BYTES) / EventJournal.RECORD_BYTES;
+            long bytes = whole * EventJournal.RECORD_BYTES;
+            this.regions = new MappedByteBuffer[(int) ((bytes + REGION_BYTES - 1) / REGION_BYTES)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = (long) i * REGION_BYTES;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    EventJournal.HEADER_BYTES + start, Math.min(REGION_BYTES, bytes - start));
+            }
+            this.records = validRecords(whole);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of records before the first record that fails its checksum.
+     *
+     * @param whole the number of whole records in the file
+     * @return number of valid records
+     */
+    private long validRecords(long whole) {
+        for (long record = 0; record < whole; record++) {
+            ByteBuffer region = region(record);
+            int offset = offset(record);
+            if (EventJournal.checksum(region, offset)
+                    != region.getInt(offset + EventJournal.RECORD_BYTES - Integer.BYTES)) {
+                return record;
+            }
+        }
+        return whole;
+    }
+
+    /**
+     * Returns the width of the map of the journal.
+     *
+     * @return map width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map of the journal.
+     *
+     * @return map height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of records in the journal.
+     *
+     * @return number of records
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Returns the turn of the given record.
+     *
+     * @param record index of the record
+     * @return turn of the event
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getTurn(long record) {
+        return region(check(record)).getInt(offset(record));
+    }
+
+    /**
+     * Returns the type of the given record.
+     *
+     * @param record index of the record
+     * @return {@link EventJournal#MOVE} or {@link EventJournal#COLLECT}
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getType(long record) {
+        return region(check(record)).get(offset(record) + 4);
+    }
+
+    /**
+     * Returns the identifier of the entity of the given record.
+     *
+     * @param record index of the record
+     * @return entity identifier, or -1 if the entity had none
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getEntityId(long record) {
+        return region(check(record)).getInt(offset(record) + 8);
+    }
+
+    /**
+     * Returns the map index that the entity of the given record started at.
+     *
+     * @param record index of the record
+     * @return map index of the initial coordinate
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getFromIndex(long record) {
+        return region(check(record)).getInt(offset(record) + 12);
+    }
+
+    /**
+     * Returns the map index of the coordinate of the given record.
+     *
+     * @param record index of the record
+     * @return map index of the coordinate
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getToIndex(long record) {
+        return region(check(record)).getInt(offset(record) + 16);
+    }
+
+    /**
+     * Returns the identifier of the entity collected in the given record.
+     *
+     * @param record index of the record
+     * @return collected entity identifier, or -1 if it had none or the event is not a collection
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getTargetId(long record) {
+        return region(check(record)).getInt(offset(record) + 20);
+    }
+
+    /**
+     * Returns the points earned in the given record.
+     *
+     * @param record index of the record
+     * @return points earned, 0 if the event is not a collection
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    public int getPoints(long record) {
+        return region(check(record)).get(offset(record) + 27);
+    }
+
+    /**
+     * Returns a new log with the statistics and turn of the journal's events.
+     * The events themselves are not kept by the log.
+     *
+     * @return log with the statistics of the journal
+     */
+    public Logger replayStatistics() {
+        Logger log = new Logger();
+        for (long record = 0; record < records; record++) {
+            ByteBuffer region = region(record);
+            int offset = offset(record);
+            boolean collect = region.get(offset + 4) == EventJournal.COLLECT;
+            int from = region.getInt(offset + 12);
+            int to = region.getInt(offset + 16);
+            int tiles = Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+            log.count(collect, tiles, region.get(offset + 27), region.getInt(offset));
+        }
+        return log;
+    }
+
+    /**
+     * Applies the events of the journal from the given record onwards to a scenario.
+     * <p>
+     * The scenario should be as it was when the given number of records had been written, for
+     * example a scenario loaded from a save made at that time. Each move record moves the entity
+     * at its initial coordinate, and each collect record collects the entity at its coordinate,
+     * adding the same events to the scenario's log as the original events. Before each record,
+     * turns are ended ({@link researchsim.scenario.AnimalController#endTurn()}) until the
+     * scenario's log reaches the turn of the record, which advances the turn of the scenario's
+     * controller with it.
+     * <p>
+     * The state of the scenario's random instance ({@link Scenario#getRandom()}) is not recorded
+     * in the journal and is not restored. A scenario that has been rolled forward moves its
+     * animals differently with {@link researchsim.scenario.AnimalController#move()} than the
+     * original run did from the same point. Parallel turns do not use the random instance and
+     * continue as the original run would.
+     * <p>
+     * The journal should not be attached to the scenario's log while rolling forward, or the
+     * events will be written to it again.
+     *
+     * @param scenario   the scenario to roll forward
+     * @param fromRecord index of the first record to apply
+     * @return the number of records applied
+     * @throws BadSaveException if the journal is of a map of a different size, or a record does
+     *                          not match the entities of the scenario
+     * @throws IndexOutOfBoundsException if fromRecord &lt; 0 or fromRecord &gt; getRecordCount()
+     */
+    public long rollForward(Scenario scenario, long fromRecord) throws BadSaveException {
+        if (fromRecord < 0 || fromRecord > records) {
+            throw new IndexOutOfBoundsException("Record " + fromRecord + " out of bounds for "
+                + records + " records");
+        }
+        if (scenario.getWidth() != width || scenario.getHeight() != height) {
+            throw new BadSaveException("Journal is of a " + width + "x" + height + " map");
+        }
+        Logger log = scenario.getLog();
+        for (long record = fromRecord; record < records; record++) {
+            while (log.getTurn() < getTurn(record)) {
+                scenario.getController().endTurn();
+            }
+            int from = getFromIndex(record);
+            int to = getToIndex(record);
+            if (getType(record) == EventJournal.COLLECT) {
+                collect(scenario, record);
+                continue;
+            }
+            Entity entity = occupant(scenario, from, record);
+            Coordinate target = new Coordinate(to % width, to / width);
+            log.add(new MoveEvent(entity, target));
+            // a user collects the entity it moves onto before moving
+            if (record + 1 < records && getType(record + 1) == EventJournal.COLLECT
+                    && getFromIndex(record + 1) == from && getToIndex(record + 1) == to) {
+                collect(scenario, ++record);
+            }
+            if (from != to) {
+                if (scenario.occupantAt(to) != null) {
+                    throw new BadSaveException("Journal record " + record
+                        + " moves onto an occupied tile");
+                }
+                scenario.moveOccupant(from, to);
+            }
+            entity.setCoordinate(target);
+        }
+        return records - fromRecord;
+    }
+
+    /**
+     * Applies a collect record to a scenario.
+     *
+     * @param scenario the scenario to apply the record to
+     * @param record   index of the collect record
+     * @throws BadSaveException if the record does not match the entities of the scenario
+     */
+    private void collect(Scenario scenario, long record) throws BadSaveException {
+        Entity user = occupant(scenario, getFromIndex(record), record);
+        Entity target = occupant(scenario, getToIndex(record), record);
+        if (!(user instanceof User)) {
+            throw new BadSaveException("Journal record " + record + " is not collected by a user");
+        }
+        scenario.getLog().add(new CollectEvent((User) user, target));
+        scenario.setOccupant(getToIndex(record), null);
+        if (target instanceof Fauna) {
+            scenario.getController().removeAnimal((Fauna) target);
+        }
+    }
+
+    /**
+     * Returns the occupant of a tile named by a record.
+     *
+     * @param scenario scenario to find the occupant in
+     * @param index    map index of the tile
+     * @param record   index of the record
+     * @return occupant of the tile
+     * @throws BadSaveException if the tile is not on the map or has no occupant
+     */
+    private Entity occupant(Scenario scenario, int index, long record) throws BadSaveException {
+        if (index < 0 || index >= scenario.getSize() || scenario.occupantAt(index) == null) {
+            throw new BadSaveException("Journal record " + record + " names an empty tile");
+        }
+        Entity entity = scenario.occupantAt(index);
+        return entity;
+    }
+
+    /**
+     * Closes this reader and the journal file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Checks that a record is in the journal.
+     *
+     * @param record index of the record
+     * @return the index
+     * @throws IndexOutOfBoundsException if record &lt; 0 or record &ge; getRecordCount()
+     */
+    private long check(long record) {
+        if (record < 0 || record >= records) {
+            throw new IndexOutOfBoundsException("Record " + record + " out of bounds for "
+                + records + " records");
+        }
+        return record;
+    }
+
+    /**
+     * Returns the mapped region that holds a record.
+     *
+     * @param record index of the record
+     * @return mapped region
+     */
+    private ByteBuffer region(long record) {
+        return regions[(int) (record * EventJournal.RECORD_BYTES / REGION_BYTES)];
+    }
+
+    /**
+     * Returns the offset of a record in its mapped region.
+     *
+     * @param record index of the record
+     * @return offset in the region
+     */
+    private int offset(long record) {
+        return (int) (record * EventJournal.RECORD_BYTES % REGION_BYTES);
+    }
+}
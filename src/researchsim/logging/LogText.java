@@ -0,0 +1,124 @@
+package researchsim.logging;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The text of the most recent events of a log, updated as events are added.
+ * <p>
+ * Each update formats only the events added to the log since the previous update, and the text
+ * holds at most a fixed number of events. The cost of an update therefore depends on the number
+ * of new events and the size of the history, not on the length of the log.
+ * <p>
+ * The text has the same format as {@link Logger#toString()}, for the events it holds.
+ */
+public class LogText {
+
+    /**
+     * The largest number of events held in the text.
+     */
+    private final int history;
+    /**
+     * The formatted text of the events held, the oldest first.
+     */
+    private final Deque<String> entries;
+    /**
+     * The log that was last read, or null if none has been read.
+     */
+    private Logger log;
+    /**
+     * The number of events in the log when it was last read.
+     */
+    private int eventCount;
+    /**
+     * The text of the events held, or null if it must be created again.
+     */
+    private String text;
+
+    /**
+     * Creates an empty log text that holds at most the given number of events.
+     *
+     * @param history the largest number of events to hold
+     * @throws IllegalArgumentException if history &lt; 1
+     */
+    public LogText(int history) {
+        if (history < 1) {
+            throw new IllegalArgumentException("History must hold at least one event: "
+                + history);
+        }
+        this.history = history;
+        this.entries = new ArrayDeque<>();
+        this.text = "";
+    }
+
+    /**
+     * Returns the largest number of events held in the text.
+     *
+     * @return history size
+     */
+    public int getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the number of events held in the text.
+     *
+     * @return events held
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Adds the events added to the given log since the last update, discarding the oldest events
+     * held if there are too many.
+     * <p>
+     * If the log is not the log of the last update then the text is started again from the most
+     * recent events of the new log.
+     *
+     * @param log the log to read
+     * @return true if the text changed
+     */
+    public boolean update(Logger log) {
+        if (log != this.log || log.getEventCount() < eventCount) {
+            this.log = log;
+            this.eventCount = 0;
+            if (!entries.isEmpty()) {
+                entries.clear();
+                text = null;
+            }
+        }
+        int added = log.getEventCount() - eventCount;
+        eventCount = log.getEventCount();
+        if (added == 0) {
+            return text == null;
+        }
+        List<Event> events = log.getLastEvents(Math.min(added, history));
+        for (Event event : events) {
+            entries.addLast(event.toString());
+        }
+        while (entries.size() > history) {
+            entries.removeFirst();
+        }
+        text = null;
+        return true;
+    }
+
+    /**
+     * Returns the text of the events held, separated by a system-dependent line separator.
+     *
+     * @return text of the most recent events
+     */
+    public String getText() {
+        if (text == null) {
+            StringJoiner joiner = new StringJoiner(System.lineSeparator());
+            for (String entry : entries) {
+                joiner.add(entry);
+            }
+            text = joiner.toString();
+        }
+        return text;
+    }
+}
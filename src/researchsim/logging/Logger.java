@@ -2,16 +2,31 @@ package researchsim.logging;
 
 import researchsim.map.Coordinate;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.StringJoiner;
 
 /**
  * A detailed log that contains a record of {@link Event}s and contains some event statistics.
+ * <p>
+ * A log may be given a capacity, in which case only the most recent events are kept and older
+ * events are discarded as new events are added. The statistics and {@link #getEventCount()}
+ * always count every event that has been added, including discarded events.
+ * <p>
+ * The events are kept in an {@link EventStore}. By default the events themselves are kept, but
+ * a {@link ColumnarEventStore} can be given to keep large logs compactly.
  *
  * @ass2
  */
 public class Logger {
+    /**
+     * The capacity of a log that keeps every event.
+     */
+    public static final int UNBOUNDED = 0;
+
     /**
      * The number of entities that have been collected
      */
@@ -25,9 +40,21 @@ public class Logger {
      */
     private int points;
     /**
-     * The list of events in the logger.
+     * The number of events that have been added, including discarded events.
      */
-    private List<Event> events;
+    private int total;
+    /**
+     * The current turn, recorded with each event added.
+     */
+    private int turn;
+    /**
+     * The store of the kept events.
+     */
+    private final EventStore events;
+    /**
+     * Receivers of the events added to this log.
+     */
+    private final List<EventSink> sinks;
 
     /**
      * Creates a new logger to maintain a list of events that occur in a scenario.
@@ -38,10 +65,123 @@ public class Logger {
      * The number of points that have been earned
      */
     public Logger() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * Creates a new logger that keeps at most the given number of the most recent events.
+     *
+     * @param capacity the largest number of events to keep, or {@link #UNBOUNDED} to keep every
+     *                 event
+     * @throws IllegalArgumentException if capacity &lt; 0
+     */
+    public Logger(int capacity) {
+        this(new RingEventStore(capacity));
+    }
+
+    /**
+     * Creates a new logger that keeps its events in the given store.
+     * The store should be empty.
+     *
+     * @param store the store to keep events in
+     */
+    public Logger(EventStore store) {
         this.entities = 0;
         this.tiles = 0;
         this.points = 0;
-        this.events = new ArrayList<>();
+        this.total = 0;
+        this.turn = 0;
+        this.events = store;
+        this.sinks = new ArrayList<>();
+    }
+
+    /**
+     * Returns the store that this log keeps its events in.
+     *
+     * @return event store
+     */
+    public EventStore getStore() {
+        return events;
+    }
+
+    /**
+     * Returns the largest number of events this log keeps.
+     *
+     * @return capacity, or {@link #UNBOUNDED} if every event is kept
+     */
+    public int getCapacity() {
+        return events.getCapacity();
+    }
+
+    /**
+     * Sets the largest number of events this log keeps.
+     * If more events are kept than the new capacity, the oldest events are discarded.
+     *
+     * @param capacity the largest number of events to keep, or {@link #UNBOUNDED} to keep every
+     *                 event
+     * @throws IllegalArgumentException if capacity &lt; 0
+     */
+    public void setCapacity(int capacity) {
+        events.setCapacity(capacity);
+    }
+
+    /**
+     * Returns the current turn, which is recorded with each event that is added.
+     * The turn is advanced each time the animals of the scenario are moved.
+     *
+     * @return current turn, starting at 0
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Advances the log to the next turn.
+     */
+    public void nextTurn() {
+        turn++;
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).turnEnded(turn - 1);
+        }
+    }
+
+    /**
+     * Adds a receiver to be given every event added to this log from now on, for example an
+     * {@link EventJournal}.
+     * Sinks are called on the thread that adds the event, after the event has been counted.
+     *
+     * @param sink receiver of events
+     */
+    public void addSink(EventSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Removes a receiver of events from this log.
+     *
+     * @param sink receiver to remove
+     */
+    public void removeSink(EventSink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Counts an event that is not kept, as when a log is rebuilt from a journal.
+     *
+     * @param collect true if the event is a collection, false if it is a move
+     * @param tiles   tiles traversed in the event
+     * @param points  points earned in the event
+     * @param turn    turn the event occurred in, at least the current turn
+     */
+    void count(boolean collect, int tiles, int points, int turn) {
+        if (collect) {
+            this.entities += 1;
+            this.points += points;
+        } else {
+            this.tiles += tiles;
+        }
+        this.total++;
+        this.turn = Math.max(this.turn, turn);
     }
 
     /**
@@ -74,11 +214,93 @@ public class Logger {
     /**
      * Returns all the events that have been logged.
      * Adding or removing elements from the returned list should not affect the original list.
+     * <p>
+     * If this log has a capacity, only the events that have been kept are returned.
      *
      * @return all events that have been logged
      */
     public List<Event> getEvents() {
-        return new ArrayList<Event>(this.events);
+        List<Event> copy = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            copy.add(events.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a read-only view of the most recent events, oldest first.
+     * <p>
+     * The view is not a copy; it always shows the (at most) {@code count} most recent events that
+     * are kept by this log, including events added after the view was created.
+     *
+     * @param count the largest number of events to view
+     * @return view of the most recent events
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public List<Event> getLastEvents(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count can not be negative: " + count);
+        }
+        return new AbstractList<Event>() {
+            @Override
+            public Event get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for "
+                        + size() + " events");
+                }
+                return events.get(events.size() - size() + index);
+            }
+
+            @Override
+            public int size() {
+                return Math.min(count, events.size());
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the kept events from the most recent to the oldest.
+     * <p>
+     * The iterator reads this log directly; the log should not be changed while it is in use.
+     *
+     * @return iterator from the most recent event
+     */
+    public Iterator<Event> tailIterator() {
+        return new Iterator<Event>() {
+            private int index = events.size() - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= 0;
+            }
+
+            @Override
+            public Event next() {
+                if (index < 0) {
+                    throw new NoSuchElementException();
+                }
+                return events.get(index--);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of events that have been logged, including events that were discarded
+     * because of this log's capacity.
+     *
+     * @return number of events
+     */
+    public int getEventCount() {
+        return this.total;
+    }
+
+    /**
+     * Returns the number of events that are kept by this log.
+     *
+     * @return number of events kept
+     */
+    public int getKeptEventCount() {
+        return events.size();
     }
 
     /**
@@ -87,10 +309,13 @@ public class Logger {
      * Additionally, the number of points for collecting that entity should be recorded.
      * If an event is a MoveEvent then the number of tiles traversed should be incremented
      * by the distance travelled in this event.
+     * The event is recorded as occurring in the current turn ({@link #getTurn()}).
      *
      * @param event the new event
+     * @throws IllegalArgumentException if this log's store can not record the event
      */
     public void add(Event event) {
+        this.events.add(event, turn);
         if (event instanceof CollectEvent) {
             this.entities += 1;
             this.points += ((CollectEvent) event).getTarget().getSize().points;
@@ -99,7 +324,10 @@ public class Logger {
             int distanceY = event.getInitialCoordinate().distance(event.getCoordinate()).getAbsY();
             this.tiles += distanceX + distanceY;
         }
-        this.events.add(event);
+        this.total++;
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).eventAdded(event, turn);
+        }
     }
 
     /**
@@ -108,7 +336,7 @@ public class Logger {
      *  logEntry
      *  ...
      * Where:
-     * logEntry is the Event.toString() of an event in the log
+     * logEntry is the Event.toString() of an event kept by the log
      * IMPORTANT: The log entries should appear in the order in which they were added.
      * Additionally, each entry should be separated by a system-dependent line separator.
      * For example:
@@ -125,8 +353,8 @@ public class Logger {
     @Override
     public String toString() {
         StringJoiner log = new StringJoiner(System.lineSeparator());
-        for (Event event : this.getEvents()) {
-            log.add(event.toString());
+        for (int i = 0; i < events.size(); i++) {
+            log.add(events.get(i).toString());
         }
         return log.toString();
     }
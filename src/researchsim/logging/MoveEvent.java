@@ -12,6 +12,11 @@ import java.util.StringJoiner;
  */
 public class MoveEvent extends Event {
 
+    /**
+     * The string representation of this event, or null if it has not been created yet
+     */
+    private String text;
+
     /**
      * Creates a new move event.
      * This is an event where an entity moves to another coordinate.
@@ -44,6 +49,9 @@ public class MoveEvent extends Event {
      * <p>
      * Each entry should be separated by a system-dependent line separator.
      * <p>
+     * As the string does not depend on the entity's current coordinate, it is created once and
+     * reused by later calls.
+     * <p>
      * For example:
      *
      * <pre>
@@ -57,6 +65,9 @@ public class MoveEvent extends Event {
      */
     @Override
     public String toString() {
+        if (text != null) {
+            return text;
+        }
         String entity = getEntity().toString();
         StringJoiner result = new StringJoiner(System.lineSeparator());
         result.add(
@@ -65,6 +76,7 @@ public class MoveEvent extends Event {
         result.add("MOVED TO " + getCoordinate().toString());
         result.add("-".repeat(5));
 
-        return result.toString();
+        text = result.toString();
+        return text;
     }
 }
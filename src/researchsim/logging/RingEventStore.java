@@ -0,0 +1,154 @@
+package researchsim.logging;
+
+/**
+ * An event store that keeps the events themselves in a ring buffer.
+ * <p>
+ * This is the store used by a {@link Logger} unless another is given. The events returned are
+ * the same objects that were added.
+ */
+public class RingEventStore implements EventStore {
+
+    /**
+     * The number of events that can be kept before the buffer must grow.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The largest number of events kept, or {@link Logger#UNBOUNDED}.
+     */
+    private int capacity;
+    /**
+     * Ring buffer of the kept events.
+     */
+    private Event[] events;
+    /**
+     * The turn of each kept event, in the same positions as {@link #events}.
+     */
+    private int[] turns;
+    /**
+     * Index in the buffer of the oldest kept event.
+     */
+    private int head;
+    /**
+     * The number of events kept.
+     */
+    private int size;
+
+    /**
+     * Creates a new store that keeps at most the given number of the most recent events.
+     *
+     * @param capacity the largest number of events to keep, or {@link Logger#UNBOUNDED} to keep
+     *                 every event
+     * @throws IllegalArgumentException if capacity &lt; 0
+     */
+    public RingEventStore(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        this.events = new Event[initialLength(capacity, 0)];
+        this.turns = new int[events.length];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    @Override
+    public void add(Event event, int turn) {
+        if (capacity != Logger.UNBOUNDED && size == capacity) {
+            events[head] = event;
+            turns[head] = turn;
+            head = (head + 1) % events.length;
+            return;
+        }
+        if (size == events.length) {
+            resize(capacity == Logger.UNBOUNDED ? size * 2 : Math.min(size * 2, capacity));
+        }
+        int position = (head + size) % events.length;
+        events[position] = event;
+        turns[position] = turn;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Event get(int index) {
+        return events[position(index)];
+    }
+
+    @Override
+    public int getTurn(int index) {
+        return turns[position(index)];
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        if (capacity != Logger.UNBOUNDED && size > capacity) {
+            // clear the discarded events so they can be garbage collected
+            for (int i = 0; i < size - capacity; i++) {
+                events[(head + i) % events.length] = null;
+            }
+            head = (head + size - capacity) % events.length;
+            size = capacity;
+        }
+        resize(initialLength(capacity, size));
+    }
+
+    /**
+     * Returns the length of a buffer for the given capacity that holds at least the given number
+     * of events.
+     *
+     * @param capacity capacity of the store
+     * @param size     number of events to hold
+     * @return buffer length
+     */
+    private static int initialLength(int capacity, int size) {
+        int length = capacity == Logger.UNBOUNDED ? INITIAL_CAPACITY
+            : Math.min(capacity, INITIAL_CAPACITY);
+        return Math.max(length, size);
+    }
+
+    /**
+     * Returns the position in the buffer of the kept event at the given index.
+     *
+     * @param index index of the event
+     * @return position in the buffer
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    private int position(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size
+                + " events");
+        }
+        return (head + index) % events.length;
+    }
+
+    /**
+     * Moves the kept events to the start of a new buffer of the given length.
+     *
+     * @param length length of the new buffer, at least the number of events kept
+     */
+    private void resize(int length) {
+        Event[] resizedEvents = new Event[length];
+        int[] resizedTurns = new int[length];
+        for (int i = 0; i < size; i++) {
+            resizedEvents[i] = events[(head + i) % events.length];
+            resizedTurns[i] = turns[(head + i) % events.length];
+        }
+        events = resizedEvents;
+        turns = resizedTurns;
+        head = 0;
+    }
+}
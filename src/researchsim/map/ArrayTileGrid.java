@@ -0,0 +1,123 @@
+package researchsim.map;
+
+import researchsim.entities.Entity;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A grid that stores every tile of the map as a {@link Tile} object.
+ * <p>
+ * This is the default storage for a scenario. It is only suited to small maps as every tile is
+ * a separate object on the heap.
+ * <p>
+ * The tiles stored in this grid belong to it, changing the contents of one of these tiles is the
+ * same as calling {@link #setOccupant(int, Entity)}.
+ */
+public class ArrayTileGrid extends TileGrid {
+
+    /**
+     * The tiles of the grid, a tile is null until it has been set.
+     */
+    private Tile[] tiles;
+
+    /**
+     * Creates a new grid with the given dimensions where no tiles have been set.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     */
+    public ArrayTileGrid(int width, int height) {
+        super(width, height);
+        this.tiles = new Tile[getSize()];
+    }
+
+    @Override
+    public TileType getType(int index) {
+        Tile tile = tiles[index];
+        return tile == null ? null : tile.getType();
+    }
+
+    @Override
+    protected void storeType(int index, TileType type) {
+        Tile replacement = new Tile(type);
+        if (tiles[index] != null) {
+            replacement.store(tiles[index].peekContents());
+            release(tiles[index]);
+        }
+        replacement.bind(this, index);
+        tiles[index] = replacement;
+    }
+
+    @Override
+    public Entity getOccupant(int index) {
+        Tile tile = tiles[index];
+        return tile == null ? null : tile.peekContents();
+    }
+
+    @Override
+    protected void storeOccupant(int index, Entity entity) {
+        tiles[index].store(entity);
+    }
+
+    @Override
+    public Tile getTile(int index) {
+        return tiles[index];
+    }
+
+    @Override
+    public Tile[] toTileArray() {
+        return Arrays.copyOf(tiles, getSize());
+    }
+
+    @Override
+    protected void storeTiles(Tile[] tiles) {
+        for (Tile tile : this.tiles) {
+            release(tile);
+        }
+        this.tiles = Arrays.copyOf(tiles, getSize());
+        for (int i = 0; i < this.tiles.length; i++) {
+            if (this.tiles[i] != null) {
+                this.tiles[i].bind(this, i);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every tile is copied, as the tiles of this grid can not be shared. This grid is only used
+     * for small maps, so this is cheap.
+     */
+    @Override
+    public ArrayTileGrid fork(UnaryOperator<Entity> copier) {
+        ArrayTileGrid fork = new ArrayTileGrid(getWidth(), getHeight());
+        Map<Entity, Entity> copies = new IdentityHashMap<>();
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == null) {
+                continue;
+            }
+            Tile tile = new Tile(tiles[i].getType());
+            Entity occupant = tiles[i].peekContents();
+            if (occupant != null) {
+                tile.store(copies.computeIfAbsent(occupant, copier));
+            }
+            tile.bind(fork, i);
+            fork.tiles[i] = tile;
+        }
+        return fork;
+    }
+
+    /**
+     * Unbinds a tile that is no longer stored by this grid.
+     *
+     * @param tile the removed tile
+     */
+    private void release(Tile tile) {
+        if (tile != null && tile.getGrid() == this) {
+            tile.bind(null, -1);
+        }
+    }
+}
@@ -61,7 +61,17 @@ public class Coordinate {
      * @ass1
      */
     public Coordinate(int index) {
-        int width = ScenarioManager.getInstance().getScenario().getWidth();
+        this(index, ScenarioManager.getInstance().getScenario());
+    }
+
+    /**
+     * Creates a new coordinate at the specified index of the given scenario's tile grid.
+     *
+     * @param index    index in the tile grid
+     * @param scenario scenario whose tile grid the index is in
+     */
+    public Coordinate(int index, Scenario scenario) {
+        int width = scenario.getWidth();
         this.xcoord = index % width;
         this.ycoord = index / width;
     }
@@ -119,14 +129,15 @@ public class Coordinate {
      * according to the rules above
      */
     public static Coordinate decode(String encoded) throws BadSaveException {
-        if (encoded.split(",", -1).length != 2) {
+        int comma = encoded.indexOf(',');
+        if (comma == -1 || encoded.indexOf(',', comma + 1) != -1) {
             throw new BadSaveException();
         }
         int xcoord;
         int ycoord;
         try {
-            xcoord = Integer.parseInt(encoded.split(",", -1)[0]);
-            ycoord = Integer.parseInt(encoded.split(",", -1)[1]);
+            xcoord = Integer.parseInt(encoded, 0, comma, 10);
+            ycoord = Integer.parseInt(encoded, comma + 1, encoded.length(), 10);
         } catch (NumberFormatException e) {
             throw new BadSaveException();
         }
@@ -229,6 +240,16 @@ public class Coordinate {
         return Coordinate.convert(xcoord, ycoord);
     }
 
+    /**
+     * The index in the given scenario's tile grid of this coordinate.
+     *
+     * @param scenario scenario whose tile grid to index
+     * @return the grid index
+     */
+    public int getIndex(Scenario scenario) {
+        return Coordinate.convert(xcoord, ycoord, scenario);
+    }
+
     /**
      * Determines if the coordinate in the bounds of the current scenario map
      *
@@ -238,7 +259,18 @@ public class Coordinate {
      * @ass1
      */
     public boolean isInBounds() {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        return isInBounds(ScenarioManager.getInstance().getScenario());
+    }
+
+    /**
+     * Determines if the coordinate in the bounds of the given scenario's map
+     *
+     * @param scenario scenario whose map to check
+     * @return true, if 0 &le; coordinate's x position &lt; scenario's width AND 0 &le;
+     * coordinate's y position &lt; scenario's height
+     * else, false
+     */
+    public boolean isInBounds(Scenario scenario) {
         return xcoord < scenario.getWidth() && xcoord >= 0
             && ycoord < scenario.getHeight() && ycoord >= 0;
     }
@@ -252,7 +284,20 @@ public class Coordinate {
      * @ass1
      */
     public static int convert(int xcoord, int ycoord) {
-        return xcoord + ycoord * ScenarioManager.getInstance().getScenario().getWidth();
+        return convert(xcoord, ycoord, ScenarioManager.getInstance().getScenario());
+    }
+
+    /**
+     * Utility method to convert an (x,y) integer pair to an array index location in the given
+     * scenario's tile grid.
+     *
+     * @param xcoord   the x portion of a coordinate
+     * @param ycoord   the y portion of a coordinate
+     * @param scenario scenario whose tile grid to index
+     * @return the converted index
+     */
+    public static int convert(int xcoord, int ycoord, Scenario scenario) {
+        return xcoord + ycoord * scenario.getWidth();
     }
 
     /**
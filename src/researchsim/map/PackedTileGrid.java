@@ -0,0 +1,331 @@
+package researchsim.map;
+
+import researchsim.entities.Entity;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * A grid that packs the map into primitive arrays.
+ * <p>
+ * The terrain of each tile is stored as a single byte (the {@link TileType} ordinal) and the
+ * inhabitant of each tile as an integer entity id, so a map costs five bytes per tile rather than
+ * a {@link Tile} object per tile. This allows maps far larger than
+ * {@value researchsim.scenario.Scenario#MAX_SIZE} x
+ * {@value researchsim.scenario.Scenario#MAX_SIZE}.
+ * <p>
+ * Entity ids are only meaningful to the grid that issued them. An id is issued to an entity when
+ * it first inhabits a tile of the grid and is released once it no longer inhabits any tile.
+ * <p>
+ * Tiles returned by {@link #getTile(int)} and {@link #toTileArray()} are views of the grid, they
+ * hold no state of their own.
+ * <p>
+ * A grid can be forked ({@link #fork(UnaryOperator)}) without copying its arrays. The terrain
+ * array is shared until either grid changes a tile type, and the inhabitant ids are stored in
+ * pages of {@value #PAGE_SIZE} tiles that are each shared until either grid changes a tile of
+ * the page. Entity ids are kept by the fork, so a shared page means the same in both grids.
+ */
+public class PackedTileGrid extends TileGrid {
+
+    /**
+     * Entity id of an empty tile.
+     */
+    public static final int EMPTY = 0;
+
+    /**
+     * All the tile types, indexed by ordinal.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * Initial capacity of the entity table.
+     */
+    private static final int INITIAL_ENTITIES = 16;
+
+    /**
+     * The number of bits of a tile index that give its position in a page of inhabitant ids.
+     */
+    private static final int PAGE_BITS = 12;
+    /**
+     * The number of tiles in a page of inhabitant ids.
+     * The value of this constant is {@value}
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /**
+     * The mask of the bits of a tile index that give its position in a page.
+     */
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * The tile type ordinal of each tile.
+     */
+    private byte[] terrain;
+    /**
+     * Whether the terrain array may be shared with a fork, and must be copied before it is
+     * changed.
+     */
+    private boolean terrainShared;
+    /**
+     * The id of the entity inhabiting each tile, or {@link #EMPTY}, in pages of
+     * {@link #PAGE_SIZE} tiles.
+     */
+    private final AtomicReferenceArray<int[]> occupants;
+    /**
+     * Whether each page of {@link #occupants} belongs to this grid alone (1), or may be shared
+     * with a fork and must be copied before it is changed (0).
+     */
+    private final AtomicIntegerArray ownedPages;
+    /**
+     * The entity issued each id, indexed by {@code id - 1}.
+     */
+    private Entity[] entities;
+    /**
+     * The number of tiles that refer to each id, indexed by {@code id - 1}.
+     */
+    private int[] references;
+    /**
+     * The id issued to each entity inhabiting this grid.
+     */
+    private final Map<Entity, Integer> ids;
+    /**
+     * Ids that have been released and can be issued again.
+     */
+    private int[] freeIds;
+    /**
+     * The number of ids in {@link #freeIds}.
+     */
+    private int freeCount;
+    /**
+     * The number of ids that have ever been issued.
+     */
+    private int issued;
+
+    /**
+     * Creates a new grid with the given dimensions where every tile is empty {@link TileType#LAND}.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     */
+    public PackedTileGrid(int width, int height) {
+        super(width, height);
+        this.terrain = new byte[getSize()];
+        this.terrainShared = false;
+        int pages = (getSize() + PAGE_MASK) >>> PAGE_BITS;
+        this.occupants = new AtomicReferenceArray<>(pages);
+        this.ownedPages = new AtomicIntegerArray(pages);
+        for (int page = 0; page < pages; page++) {
+            occupants.set(page, new int[Math.min(PAGE_SIZE, getSize() - (page << PAGE_BITS))]);
+            ownedPages.set(page, 1);
+        }
+        this.entities = new Entity[INITIAL_ENTITIES];
+        this.references = new int[INITIAL_ENTITIES];
+        this.ids = new IdentityHashMap<>();
+        this.freeIds = new int[INITIAL_ENTITIES];
+        this.freeCount = 0;
+        this.issued = 0;
+    }
+
+    /**
+     * Creates a fork of the given grid, sharing its terrain and pages of inhabitant ids.
+     *
+     * @param original grid to fork
+     * @param copier   function returning the copy of an inhabitant of the original grid
+     */
+    private PackedTileGrid(PackedTileGrid original, UnaryOperator<Entity> copier) {
+        super(original.getWidth(), original.getHeight());
+        original.terrainShared = true;
+        this.terrain = original.terrain;
+        this.terrainShared = true;
+        int pages = original.occupants.length();
+        this.occupants = new AtomicReferenceArray<>(pages);
+        this.ownedPages = new AtomicIntegerArray(pages);
+        for (int page = 0; page < pages; page++) {
+            original.ownedPages.set(page, 0);
+            occupants.set(page, original.occupants.get(page));
+        }
+        this.entities = new Entity[original.entities.length];
+        this.ids = new IdentityHashMap<>(original.ids.size());
+        for (int id = 1; id <= original.issued; id++) {
+            Entity entity = original.entities[id - 1];
+            if (entity != null) {
+                entities[id - 1] = copier.apply(entity);
+                ids.put(entities[id - 1], id);
+            }
+        }
+        this.references = original.references.clone();
+        this.freeIds = original.freeIds.clone();
+        this.freeCount = original.freeCount;
+        this.issued = original.issued;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The arrays of this grid are shared with the fork rather than copied, so a fork takes time
+     * in proportion to the number of inhabitants and the number of pages of
+     * {@value #PAGE_SIZE} tiles. A page of either grid is copied the first time that grid
+     * changes one of its tiles, and the terrain the first time that grid changes a tile type.
+     * <p>
+     * This must not be called while a turn is being moved in parallel.
+     */
+    @Override
+    public PackedTileGrid fork(UnaryOperator<Entity> copier) {
+        return new PackedTileGrid(this, copier);
+    }
+
+    @Override
+    public TileType getType(int index) {
+        return TYPES[terrain[index]];
+    }
+
+    @Override
+    protected void storeType(int index, TileType type) {
+        if (terrainShared) {
+            terrain = terrain.clone();
+            terrainShared = false;
+        }
+        terrain[index] = (byte) type.ordinal();
+    }
+
+    @Override
+    public Entity getOccupant(int index) {
+        int id = getOccupantId(index);
+        return id == EMPTY ? null : entities[id - 1];
+    }
+
+    /**
+     * Returns the id of the entity inhabiting the tile at the given index.
+     *
+     * @param index tile index
+     * @return entity id, or {@link #EMPTY} if the tile is empty
+     */
+    public int getOccupantId(int index) {
+        return occupants.get(index >>> PAGE_BITS)[index & PAGE_MASK];
+    }
+
+    @Override
+    protected void storeOccupant(int index, Entity entity) {
+        int id = entity == null ? EMPTY : acquire(entity);
+        release(getOccupantId(index));
+        writablePage(index)[index & PAGE_MASK] = id;
+    }
+
+    @Override
+    protected void storeMove(int from, int to) {
+        int id = getOccupantId(from);
+        release(getOccupantId(to));
+        writablePage(to)[to & PAGE_MASK] = id;
+        writablePage(from)[from & PAGE_MASK] = EMPTY;
+    }
+
+    /**
+     * Returns the page of inhabitant ids holding the given tile, copying the page first if it
+     * may be shared with a fork.
+     * <p>
+     * Tiles of one page may be changed by several threads during a parallel turn, so a shared
+     * page is copied under a lock and the copy published before the page is marked as owned.
+     *
+     * @param index tile index
+     * @return page that can be changed
+     */
+    private int[] writablePage(int index) {
+        int page = index >>> PAGE_BITS;
+        if (ownedPages.get(page) == 0) {
+            synchronized (ownedPages) {
+                if (ownedPages.get(page) == 0) {
+                    occupants.set(page, occupants.get(page).clone());
+                    ownedPages.set(page, 1);
+                }
+            }
+        }
+        return occupants.get(page);
+    }
+
+    @Override
+    public Tile getTile(int index) {
+        return new Tile(this, index);
+    }
+
+    @Override
+    public Tile[] toTileArray() {
+        Tile[] tiles = new Tile[getSize()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(this, i);
+        }
+        return tiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if any of the given tiles are null
+     */
+    @Override
+    protected void storeTiles(Tile[] tiles) {
+        // read everything first as the given tiles may be views of this grid
+        TileType[] types = new TileType[getSize()];
+        Entity[] contents = new Entity[getSize()];
+        for (int i = 0; i < types.length; i++) {
+            if (tiles[i] == null) {
+                throw new IllegalArgumentException("A packed grid can not contain a null tile.");
+            }
+            types[i] = tiles[i].getType();
+            contents[i] = tiles[i].peekContents();
+        }
+        for (int i = 0; i < types.length; i++) {
+            storeType(i, types[i]);
+            storeOccupant(i, contents[i]);
+        }
+    }
+
+    /**
+     * Returns the id of the given entity, issuing a new id if it does not have one.
+     * The number of tiles that refer to the id is incremented.
+     *
+     * @param entity entity to get the id of
+     * @return the entity's id
+     */
+    private int acquire(Entity entity) {
+        Integer existing = ids.get(entity);
+        int id;
+        if (existing != null) {
+            id = existing;
+        } else if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (issued == entities.length) {
+                entities = Arrays.copyOf(entities, issued * 2);
+                references = Arrays.copyOf(references, issued * 2);
+            }
+            id = ++issued;
+        }
+        if (existing == null) {
+            entities[id - 1] = entity;
+            ids.put(entity, id);
+        }
+        references[id - 1]++;
+        return id;
+    }
+
+    /**
+     * Decrements the number of tiles that refer to the given id, releasing the id if no tiles
+     * refer to it anymore.
+     *
+     * @param id the id to release
+     */
+    private void release(int id) {
+        if (id == EMPTY || --references[id - 1] > 0) {
+            return;
+        }
+        ids.remove(entities[id - 1]);
+        entities[id - 1] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+}
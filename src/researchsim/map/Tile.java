@@ -21,6 +21,19 @@ public class Tile {
      * The entity that is occupying the tile (if any)
      */
     private Entity contents;
+    /**
+     * Whether this tile is a view of a grid, rather than storing its own type and contents
+     */
+    private final boolean view;
+    /**
+     * The grid that this tile belongs to (if any), changes to the contents of the tile are made
+     * through this grid
+     */
+    private TileGrid grid;
+    /**
+     * The index of this tile in the grid it belongs to
+     */
+    private int index;
 
     /**
      * Creates a new tile with a given type.
@@ -32,6 +45,45 @@ public class Tile {
     public Tile(TileType type) {
         this.type = type;
         this.contents = null;
+        this.view = false;
+        this.grid = null;
+        this.index = -1;
+    }
+
+    /**
+     * Creates a tile that is a view of the tile at the given index of a grid.
+     * The type and contents of the tile are read from and written to the grid.
+     *
+     * @param grid  the grid the tile is a view of
+     * @param index the index of the tile in the grid
+     */
+    Tile(TileGrid grid, int index) {
+        this.type = null;
+        this.contents = null;
+        this.view = true;
+        this.grid = grid;
+        this.index = index;
+    }
+
+    /**
+     * Binds this tile to the given index of a grid that stores the tile itself.
+     * Changes to the contents of the tile will be made through the grid.
+     *
+     * @param grid  the grid the tile now belongs to, or null if it no longer belongs to a grid
+     * @param index the index of the tile in the grid
+     */
+    void bind(TileGrid grid, int index) {
+        this.grid = grid;
+        this.index = index;
+    }
+
+    /**
+     * Returns the grid this tile belongs to.
+     *
+     * @return grid, or null if the tile does not belong to a grid
+     */
+    TileGrid getGrid() {
+        return grid;
     }
 
     /**
@@ -41,7 +93,7 @@ public class Tile {
      * @ass1
      */
     public TileType getType() {
-        return type;
+        return view ? grid.getType(index) : type;
     }
 
     /**
@@ -55,7 +107,25 @@ public class Tile {
         if (!hasContents()) {
             throw new NoSuchEntityException("Attempted to get the entity at an empty Tile.");
         }
-        return contents;
+        return peekContents();
+    }
+
+    /**
+     * Returns the contents of the tile without checking if the tile is occupied.
+     *
+     * @return tile contents, or null if the tile is empty
+     */
+    Entity peekContents() {
+        return view ? grid.getOccupant(index) : contents;
+    }
+
+    /**
+     * Updates the contents stored by this tile, without going through the grid it belongs to.
+     *
+     * @param item new tile contents
+     */
+    void store(Entity item) {
+        this.contents = item;
     }
 
     /**
@@ -65,7 +135,11 @@ public class Tile {
      * @ass1
      */
     public void setContents(Entity item) {
-        this.contents = item;
+        if (grid == null) {
+            this.contents = item;
+        } else {
+            grid.setOccupant(index, item);
+        }
     }
 
     /**
@@ -75,7 +149,7 @@ public class Tile {
      * @ass1
      */
     public boolean hasContents() {
-        return contents != null;
+        return peekContents() != null;
     }
 
     /**
@@ -86,7 +160,7 @@ public class Tile {
      * @return hash code of this tile.
      */
     public int hashCode() {
-        return Objects.hash(this.type, this.contents);
+        return Objects.hash(getType(), peekContents());
     }
 
     /**
@@ -110,14 +184,15 @@ public class Tile {
 
         Tile otherTile = (Tile) other;
 
-        if (this.contents == null) {
-            if (otherTile.contents == null) {
+        Entity entity = peekContents();
+        if (entity == null) {
+            if (otherTile.peekContents() == null) {
                 return true;
             }
             return false;
         }
 
-        return this.contents.equals(otherTile.contents)
+        return entity.equals(otherTile.peekContents())
                 && getType().equals(otherTile.getType());
     }
 }
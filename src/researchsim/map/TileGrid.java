@@ -0,0 +1,262 @@
+package researchsim.map;
+
+import researchsim.entities.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The storage backend of a scenario map.
+ * <p>
+ * A grid records the {@link TileType} and inhabitant of every tile of a width x height map.
+ * Tiles are addressed by their index, which follows the same row-major ordering as
+ * {@link Coordinate#getIndex()} (i.e. {@code index = x + y * width}).
+ * <p>
+ * Every change made to a grid is reported to its {@link TileGridListener}s.
+ *
+ * @see ArrayTileGrid
+ * @see PackedTileGrid
+ */
+public abstract class TileGrid {
+
+    /**
+     * The width of the grid.
+     */
+    private final int width;
+    /**
+     * The height of the grid.
+     */
+    private final int height;
+    /**
+     * The listeners notified of changes to the grid.
+     */
+    private final List<TileGridListener> listeners;
+
+    /**
+     * Creates a new grid with the given dimensions.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     */
+    protected TileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Returns the width of the grid.
+     *
+     * @return grid width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the grid.
+     *
+     * @return grid height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of tiles in the grid.
+     *
+     * @return grid size
+     */
+    public int getSize() {
+        return width * height;
+    }
+
+    /**
+     * Returns the terrain type of the tile at the given index.
+     *
+     * @param index tile index
+     * @return tile type, or null if the tile has not been set
+     */
+    public abstract TileType getType(int index);
+
+    /**
+     * Updates the terrain type of the tile at the given index.
+     * The inhabitant of the tile (if any) is kept.
+     *
+     * @param index tile index
+     * @param type  the new tile type
+     */
+    public final void setType(int index, TileType type) {
+        TileType previous = getType(index);
+        storeType(index, type);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).typeChanged(index, previous, type);
+        }
+    }
+
+    /**
+     * Returns the inhabitant of the tile at the given index.
+     *
+     * @param index tile index
+     * @return inhabitant of the tile, or null if the tile is empty
+     */
+    public abstract Entity getOccupant(int index);
+
+    /**
+     * Updates the inhabitant of the tile at the given index.
+     *
+     * @param index  tile index
+     * @param entity the new inhabitant, or null to empty the tile
+     */
+    public final void setOccupant(int index, Entity entity) {
+        Entity previous = getOccupant(index);
+        storeOccupant(index, entity);
+        fireOccupantChanged(index, previous, entity);
+    }
+
+    /**
+     * Moves the inhabitant of one tile to another tile, leaving the first tile empty.
+     * Any inhabitant of the destination tile is replaced.
+     *
+     * @param from index of the tile to move the inhabitant from
+     * @param to   index of the tile to move the inhabitant to
+     */
+    public final void moveOccupant(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        Entity moving = getOccupant(from);
+        Entity replaced = getOccupant(to);
+        storeMove(from, to);
+        fireOccupantChanged(to, replaced, moving);
+        fireOccupantChanged(from, moving, null);
+    }
+
+    /**
+     * Performs the given action on each tile of this grid, in index order.
+     *
+     * @param visitor action to perform on each tile
+     */
+    public void forEachTile(TileVisitor visitor) {
+        for (int index = 0; index < getSize(); index++) {
+            visitor.visit(index, getType(index), getOccupant(index));
+        }
+    }
+
+    /**
+     * Returns the tile at the given index.
+     * <p>
+     * Changes made to the contents of the returned tile are made to this grid.
+     *
+     * @param index tile index
+     * @return tile at the index
+     */
+    public abstract Tile getTile(int index);
+
+    /**
+     * Returns every tile of this grid in index order.
+     * <p>
+     * Adding or removing elements from the returned array does not affect this grid, but changes
+     * made to the contents of the tiles in it are made to this grid.
+     *
+     * @return array of all tiles
+     */
+    public abstract Tile[] toTileArray();
+
+    /**
+     * Replaces the type and inhabitant of every tile in this grid with the given tiles.
+     *
+     * @param tiles the new tiles, must have a length equal to {@link #getSize()}
+     * @throws IllegalArgumentException if this grid can not store one of the given tiles
+     */
+    public final void setTiles(Tile[] tiles) {
+        storeTiles(tiles);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).tilesReplaced();
+        }
+    }
+
+    /**
+     * Returns a new grid with the same tiles as this grid, whose inhabitants are copies of the
+     * inhabitants of this grid. Changes made to either grid afterwards do not affect the other.
+     * <p>
+     * The given function is called once for each entity inhabiting this grid and returns the
+     * entity that inhabits the same tiles of the new grid. Listeners are not copied, and this
+     * grid's listeners are not notified.
+     *
+     * @param copier function returning the copy of an inhabitant
+     * @return independent copy of this grid
+     */
+    public abstract TileGrid fork(UnaryOperator<Entity> copier);
+
+    /**
+     * Adds a listener to be notified of every change made to this grid.
+     * <p>
+     * Listeners are notified on the thread that made the change. During a parallel turn
+     * ({@link researchsim.scenario.AnimalController#moveParallel()}) several threads move
+     * occupants at once, so listeners may be notified concurrently for tiles that are far apart.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(TileGridListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added to this grid.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(TileGridListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies every listener that the inhabitant of a tile has changed.
+     *
+     * @param index    index of the changed tile
+     * @param previous inhabitant before the change
+     * @param current  inhabitant after the change
+     */
+    private void fireOccupantChanged(int index, Entity previous, Entity current) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).occupantChanged(index, previous, current);
+        }
+    }
+
+    /**
+     * Stores the terrain type of the tile at the given index, without notifying listeners.
+     *
+     * @param index tile index
+     * @param type  the new tile type
+     */
+    protected abstract void storeType(int index, TileType type);
+
+    /**
+     * Stores the inhabitant of the tile at the given index, without notifying listeners.
+     *
+     * @param index  tile index
+     * @param entity the new inhabitant, or null to empty the tile
+     */
+    protected abstract void storeOccupant(int index, Entity entity);
+
+    /**
+     * Moves the inhabitant of one tile to another tile, without notifying listeners.
+     * The two indices are never equal.
+     *
+     * @param from index of the tile to move the inhabitant from
+     * @param to   index of the tile to move the inhabitant to
+     */
+    protected void storeMove(int from, int to) {
+        storeOccupant(to, getOccupant(from));
+        storeOccupant(from, null);
+    }
+
+    /**
+     * Stores the type and inhabitant of every tile in this grid, without notifying listeners.
+     *
+     * @param tiles the new tiles, must have a length equal to {@link #getSize()}
+     */
+    protected abstract void storeTiles(Tile[] tiles);
+}
@@ -0,0 +1,38 @@
+package researchsim.map;
+
+import researchsim.entities.Entity;
+
+/**
+ * A listener that is notified of changes made to a {@link TileGrid}.
+ * <p>
+ * Listeners are notified after the change has been made to the grid.
+ */
+public interface TileGridListener {
+
+    /**
+     * Called when the terrain type of a tile has changed.
+     *
+     * @param index    index of the changed tile
+     * @param previous type of the tile before the change, or null if the tile had not been set
+     * @param current  type of the tile after the change
+     */
+    default void typeChanged(int index, TileType previous, TileType current) {
+    }
+
+    /**
+     * Called when the inhabitant of a tile has changed.
+     *
+     * @param index    index of the changed tile
+     * @param previous inhabitant before the change, or null if the tile was empty
+     * @param current  inhabitant after the change, or null if the tile is now empty
+     */
+    default void occupantChanged(int index, Entity previous, Entity current) {
+    }
+
+    /**
+     * Called when every tile of the grid has been replaced at once.
+     * The state of the whole grid should be read again.
+     */
+    default void tilesReplaced() {
+    }
+}
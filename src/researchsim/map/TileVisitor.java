@@ -0,0 +1,20 @@
+package researchsim.map;
+
+import researchsim.entities.Entity;
+
+/**
+ * An action performed on each tile of a grid.
+ *
+ * @see TileGrid#forEachTile(TileVisitor)
+ */
+@FunctionalInterface
+public interface TileVisitor {
+    /**
+     * Performs this action on a tile.
+     *
+     * @param index    the index of the tile
+     * @param type     the type of the tile
+     * @param occupant the inhabitant of the tile, or null if the tile is empty
+     */
+    void visit(int index, TileType type, Entity occupant);
+}
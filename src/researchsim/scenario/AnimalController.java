@@ -3,6 +3,7 @@ package researchsim.scenario;
 import researchsim.entities.Fauna;
 import researchsim.entities.Flora;
 import researchsim.logging.Event;
+import researchsim.logging.MoveEvent;
 import researchsim.map.Coordinate;
 import researchsim.map.Tile;
 import researchsim.util.NoSuchEntityException;
@@ -10,6 +11,13 @@ import researchsim.util.NoSuchEntityException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 
 /**
  * Manager that facilitates the movement of animals on the map.
@@ -19,15 +27,104 @@ import java.util.Random;
 public class AnimalController {
 
     /**
-     * List of all the animals this manager knows about
+     * The width of the regions of the map that are moved concurrently in a parallel turn.
+     * This is a whole number of the words used by {@link MovementEngine}, so that threads never
+     * update the same word.
      */
-    private final List<Fauna> animals;
+    public static final int BLOCK_WIDTH = 128;
+    /**
+     * The height of the regions of the map that are moved concurrently in a parallel turn.
+     */
+    public static final int BLOCK_HEIGHT = 16;
+
+    /**
+     * The number of block colours. Blocks of the same colour are never next to each other.
+     */
+    private static final int COLOURS = 4;
+
+    /**
+     * All the animals this manager knows about
+     */
+    private final AnimalRegistry animals;
+
+    /**
+     * The number of turns that this controller has moved animals for
+     */
+    private int turn;
+
+    /**
+     * The scenario this controller moves animals in, or null to use the current scenario of the
+     * {@link ScenarioManager}
+     */
+    private final Scenario scenario;
 
     /**
      * Creates a new controller with an empty list of animals (Fauna) that it controls.
+     * The controller moves animals in the current scenario of the {@link ScenarioManager}.
      */
     public AnimalController() {
-        this.animals = new ArrayList<Fauna>();
+        this(null);
+    }
+
+    /**
+     * Creates a new controller with an empty list of animals (Fauna) that it controls, which
+     * moves animals in the given scenario.
+     * Animals added to the controller are bound to the scenario.
+     *
+     * @param scenario the scenario to move animals in
+     */
+    public AnimalController(Scenario scenario) {
+        this.animals = new AnimalRegistry();
+        this.scenario = scenario;
+        this.turn = 0;
+    }
+
+    /**
+     * Creates a controller for a fork of the scenario of the given controller
+     * ({@link Scenario#fork()}). The new controller manages copies of the animals of the given
+     * controller, in the same order and with the same identifiers, and has moved the same
+     * number of turns, so the fork's turns continue as the original's would.
+     *
+     * @param scenario the fork to move animals in
+     * @param original controller of the scenario that was forked
+     * @param copier   function returning the copy of an animal of the original controller
+     */
+    AnimalController(Scenario scenario, AnimalController original, UnaryOperator<Fauna> copier) {
+        this.animals = new AnimalRegistry(original.animals, copier);
+        this.scenario = scenario;
+        this.turn = original.turn;
+        animals.forEach(animal -> animal.setScenario(scenario));
+    }
+
+    /**
+     * Returns the scenario that this controller moves animals in.
+     *
+     * @return scenario of this controller
+     */
+    public Scenario getScenario() {
+        return scenario == null ? ScenarioManager.getInstance().getScenario() : scenario;
+    }
+
+    /**
+     * Returns the number of turns that this controller has moved animals for.
+     * Both {@link #move()} and {@link #moveParallel()} count as a turn, and end the turn
+     * ({@link #endTurn()}) once the animals have moved.
+     *
+     * @return turns moved
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Ends the current turn without moving any animals, advancing the turn of this controller
+     * and of the scenario's log ({@link researchsim.logging.Logger#nextTurn()}).
+     * The receivers of the log's events are told that the turn ended, so they see the scenario
+     * as it is at the end of the turn.
+     */
+    public void endTurn() {
+        turn++;
+        getScenario().getLog().nextTurn();
     }
 
     /**
@@ -37,15 +134,30 @@ public class AnimalController {
      * @return all animals that this instance manages
      */
     public List<Fauna> getAnimals() {
-        return new ArrayList<Fauna>(this.animals);
+        return animals.toList();
     }
 
     /**
-     * Adds an animal to records of the controller.
+     * Returns the registry of the animals that are under this instances control.
+     * Changes to the registry change the animals that this instance manages.
+     *
+     * @return registry of the animals this instance manages
+     */
+    public AnimalRegistry getRegistry() {
+        return animals;
+    }
+
+    /**
+     * Adds an animal to records of the controller, giving it an identifier
+     * ({@link Fauna#getId()}).
+     * If the animal is already managed by this controller then nothing should occur.
      *
      * @param animal animal that this instance will now manage
      */
     public void addAnimal(Fauna animal) {
+        if (scenario != null) {
+            animal.setScenario(scenario);
+        }
         this.animals.add(animal);
     }
 
@@ -56,9 +168,7 @@ public class AnimalController {
      * @param animal animal that should be removed
      */
     public void removeAnimal(Fauna animal) {
-        if (this.getAnimals().contains(animal)) {
-            this.animals.remove(animal);
-        }
+        animals.remove(animal);
     }
 
     /**
@@ -91,7 +201,8 @@ public class AnimalController {
      *          </ol>
      *     </li>
      * </ol>
-     * The random variable should be retrieved using {@link Scenario#getRandom()}.
+     * The random variable should be retrieved using {@link Scenario#getRandom()} of this
+     * controller's scenario ({@link #getScenario()}).
      *
      * @given
      * @see Random#nextInt(int)
@@ -99,7 +210,17 @@ public class AnimalController {
      * @see Fauna#getPossibleMoves()
      */
     public void move() {
-        Scenario scenario = ScenarioManager.getInstance().getScenario();
+        moveRandom(getScenario());
+        endTurn();
+    }
+
+    /**
+     * Attempts to move a selection of the animals as described by {@link #move()}, without
+     * ending the turn.
+     *
+     * @param scenario scenario of this controller
+     */
+    private void moveRandom(Scenario scenario) {
         if (animals.isEmpty()) {
             return;
         }
@@ -107,7 +228,7 @@ public class AnimalController {
         int num1 = rand.nextInt(animals.size());
 
         for (int i = 0; i <= num1; i++) {
-            Fauna animal = animals.get(rand.nextInt(animals.size()));
+            Fauna animal = animals.random(rand);
             List<Coordinate> possibleMoves = animal.getPossibleMoves();
             if (possibleMoves.isEmpty()) {
                 continue;
@@ -118,4 +239,184 @@ public class AnimalController {
             }
         }
     }
+
+    /**
+     * Attempts to move every animal, moving animals in separate regions of the map concurrently
+     * on the common {@link ForkJoinPool}.
+     *
+     * @see #moveParallel(ExecutorService)
+     */
+    public void moveParallel() {
+        moveParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Attempts to move every animal, moving animals in separate regions of the map concurrently
+     * on the given executor.
+     * <p>
+     * Unlike {@link #move()}, the scenario's random instance is not used. Instead each animal
+     * draws from its own random stream, which is derived from the scenario seed, the animal's
+     * identifier ({@link Fauna#getId()}) and the turn number ({@link #getTurn()}). Using its
+     * stream, each animal:
+     * <ol>
+     *     <li>decides whether to move this turn, with an even chance</li>
+     *     <li>if it moves, chooses a random coordinate from {@link Fauna#getPossibleMoves()}</li>
+     * </ol>
+     * <p>
+     * The map is divided into blocks of {@value #BLOCK_WIDTH} x {@value #BLOCK_HEIGHT} tiles and
+     * each animal is assigned to the block it is in at the start of the turn. The blocks are
+     * coloured like a chess board with four colours, so that blocks of one colour are far enough
+     * apart that no animal moves into the reach of an animal from another block of that colour.
+     * The blocks of each colour are moved concurrently, one colour after another. Within a block,
+     * animals are moved in the order of {@link #getAnimals()}, and the move events of each block
+     * are added to the log in block order. The result of a turn is therefore the same no matter
+     * how many threads the executor uses.
+     * <p>
+     * Listeners of the scenario's map grid are notified from the executor's threads, for tiles in
+     * separate blocks.
+     *
+     * @param executor executor to move the blocks of the map on
+     * @throws IllegalStateException if the thread is interrupted while waiting for the executor
+     */
+    public void moveParallel(ExecutorService executor) {
+        moveBlocks(getScenario(), executor);
+        endTurn();
+    }
+
+    /**
+     * Attempts to move every animal as described by {@link #moveParallel(ExecutorService)},
+     * without ending the turn.
+     *
+     * @param scenario scenario of this controller
+     * @param executor executor to move the blocks of the map on
+     * @throws IllegalStateException if the thread is interrupted while waiting for the executor
+     */
+    private void moveBlocks(Scenario scenario, ExecutorService executor) {
+        if (animals.isEmpty()) {
+            return;
+        }
+        int currentTurn = turn;
+        int blocksAcross = (scenario.getWidth() + BLOCK_WIDTH - 1) / BLOCK_WIDTH;
+        int blocksDown = (scenario.getHeight() + BLOCK_HEIGHT - 1) / BLOCK_HEIGHT;
+        int blockCount = blocksAcross * blocksDown;
+
+        // sort the animals by block, keeping the order of the animals list within each block
+        int[] blockOf = new int[animals.size()];
+        int[] blockStart = new int[blockCount + 1];
+        for (int i = 0; i < animals.size(); i++) {
+            Coordinate coordinate = animals.get(i).getCoordinate();
+            if (!coordinate.isInBounds(scenario)) {
+                blockOf[i] = -1;
+                continue;
+            }
+            blockOf[i] = coordinate.getX() / BLOCK_WIDTH
+                + (coordinate.getY() / BLOCK_HEIGHT) * blocksAcross;
+            blockStart[blockOf[i] + 1]++;
+        }
+        for (int block = 0; block < blockCount; block++) {
+            blockStart[block + 1] += blockStart[block];
+        }
+        int[] members = new int[blockStart[blockCount]];
+        int[] filled = new int[blockCount];
+        for (int i = 0; i < animals.size(); i++) {
+            if (blockOf[i] >= 0) {
+                members[blockStart[blockOf[i]] + filled[blockOf[i]]++] = i;
+            }
+        }
+
+        for (int colour = 0; colour < COLOURS; colour++) {
+            List<Callable<List<Event>>> tasks = new ArrayList<>();
+            for (int block = 0; block < blockCount; block++) {
+                int across = block % blocksAcross;
+                int down = block / blocksAcross;
+                if ((across % 2) + 2 * (down % 2) != colour
+                        || blockStart[block] == blockStart[block + 1]) {
+                    continue;
+                }
+                int from = blockStart[block];
+                int to = blockStart[block + 1];
+                tasks.add(() -> moveBlock(scenario, members, from, to, currentTurn));
+            }
+            if (tasks.isEmpty()) {
+                continue;
+            }
+            try {
+                for (Future<List<Event>> result : executor.invokeAll(tasks)) {
+                    for (Event event : result.get()) {
+                        scenario.getLog().add(event);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while moving animals.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Moves the animals of one block of the map for a parallel turn.
+     *
+     * @param scenario    the scenario to move the animals in
+     * @param members     indices of the animals of every block
+     * @param from        index in members of the first animal of the block
+     * @param to          index in members after the last animal of the block
+     * @param currentTurn the turn being moved
+     * @return the move events of the block, in the order they occurred
+     */
+    private List<Event> moveBlock(Scenario scenario, int[] members, int from, int to,
+                                  int currentTurn) {
+        List<Event> events = new ArrayList<>();
+        for (int member = from; member < to; member++) {
+            int index = members[member];
+            Fauna animal = animals.get(index);
+            SplittableRandom random = new SplittableRandom(
+                streamSeed(scenario.getSeed(), animals.getId(index), currentTurn));
+            if (!random.nextBoolean()) {
+                continue;
+            }
+            List<Coordinate> possibleMoves =
+                scenario.getMovementEngine().getPossibleMoves(animal);
+            if (possibleMoves.isEmpty()) {
+                continue;
+            }
+            Coordinate target = possibleMoves.size() == 1 ? possibleMoves.get(0)
+                : possibleMoves.get(random.nextInt(possibleMoves.size()));
+            events.add(new MoveEvent(animal, target));
+            scenario.moveOccupant(animal.getCoordinate().getIndex(scenario),
+                target.getIndex(scenario));
+            animal.setCoordinate(target);
+        }
+        return events;
+    }
+
+    /**
+     * Returns the seed of the random stream of an animal for a turn.
+     *
+     * @param seed   the scenario seed
+     * @param animal the animal's identifier
+     * @param turn   the turn number
+     * @return random stream seed
+     */
+    private static long streamSeed(long seed, long animal, long turn) {
+        long hash = mix(seed + 0x9E3779B97F4A7C15L);
+        hash = mix(hash ^ (animal * 0xC2B2AE3D27D4EB4FL));
+        return mix(hash ^ (turn * 0x165667B19E3779F9L));
+    }
+
+    /**
+     * Scrambles the bits of a value (the SplitMix64 finaliser).
+     *
+     * @param value value to scramble
+     * @return scrambled value
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
 }
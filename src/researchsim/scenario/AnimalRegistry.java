@@ -0,0 +1,311 @@
+package researchsim.scenario;
+
+import researchsim.entities.Fauna;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The set of animals managed by an {@link AnimalController}, stored as a slot map.
+ * <p>
+ * Every animal added is given an identifier ({@link Fauna#getId()}) that does not change while
+ * it is registered. The animals are kept packed in an array, and each identifier records where
+ * its animal is in that array, so adding, removing, looking up and choosing a random animal take
+ * constant time. Removing an animal moves the last animal into its place, so the order of the
+ * animals changes when an animal other than the last is removed.
+ * <p>
+ * Identifiers of removed animals are reused, most recently freed first. As identifiers are given
+ * out in a fixed order, the same sequence of additions and removals always gives the same
+ * identifiers.
+ */
+public class AnimalRegistry {
+
+    /**
+     * The number of animals that can be registered before the arrays must grow.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The registered animals, packed at the start of the array.
+     */
+    private Fauna[] animals;
+    /**
+     * The identifier of each registered animal, by its index in {@link #animals}.
+     */
+    private int[] ids;
+    /**
+     * The number of registered animals.
+     */
+    private int size;
+
+    /**
+     * The index in {@link #animals} of each identifier, or -1 if the identifier is free.
+     */
+    private int[] slots;
+    /**
+     * The number of identifiers that have ever been given out.
+     */
+    private int nextId;
+    /**
+     * Identifiers that have been freed, the most recently freed last.
+     */
+    private int[] freeIds;
+    /**
+     * The number of freed identifiers.
+     */
+    private int freeCount;
+
+    /**
+     * Creates an empty registry.
+     */
+    public AnimalRegistry() {
+        this.animals = new Fauna[INITIAL_CAPACITY];
+        this.ids = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY];
+        this.freeIds = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.nextId = 0;
+        this.freeCount = 0;
+    }
+
+    /**
+     * Creates a registry holding copies of the animals of the given registry, in the same order
+     * and with the same identifiers. Identifiers are given out afterwards as they would be by
+     * the original registry.
+     *
+     * @param original registry to copy
+     * @param copier   function returning the copy of an animal of the original registry
+     */
+    AnimalRegistry(AnimalRegistry original, UnaryOperator<Fauna> copier) {
+        this.animals = new Fauna[original.animals.length];
+        for (int i = 0; i < original.size; i++) {
+            animals[i] = copier.apply(original.animals[i]);
+            animals[i].setId(original.ids[i]);
+        }
+        this.ids = original.ids.clone();
+        this.size = original.size;
+        this.slots = original.slots.clone();
+        this.nextId = original.nextId;
+        this.freeIds = original.freeIds.clone();
+        this.freeCount = original.freeCount;
+    }
+
+    /**
+     * Returns the number of registered animals.
+     *
+     * @return number of animals
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if no animals are registered.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the animal at the given index, where animals are indexed from 0 to
+     * {@link #size()} - 1.
+     *
+     * @param index index of the animal
+     * @return animal at the index
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public Fauna get(int index) {
+        return animals[checkIndex(index)];
+    }
+
+    /**
+     * Returns the identifier of the animal at the given index.
+     *
+     * @param index index of the animal
+     * @return identifier of the animal at the index
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    public int getId(int index) {
+        return ids[checkIndex(index)];
+    }
+
+    /**
+     * Returns the animal with the given identifier.
+     *
+     * @param id identifier of the animal
+     * @return animal with the identifier, or null if no animal has it
+     */
+    public Fauna getById(int id) {
+        if (id < 0 || id >= nextId || slots[id] < 0) {
+            return null;
+        }
+        return animals[slots[id]];
+    }
+
+    /**
+     * Returns an animal chosen uniformly at random.
+     * <p>
+     * This makes <b>one</b> call to {@link Random#nextInt(int)}, with the number of animals as
+     * its bound.
+     *
+     * @param random random instance to choose with
+     * @return randomly chosen animal
+     * @throws IllegalArgumentException if no animals are registered
+     */
+    public Fauna random(Random random) {
+        return animals[random.nextInt(size)];
+    }
+
+    /**
+     * Registers an animal, giving it an identifier.
+     * <p>
+     * If this animal (the same object) is already registered then nothing occurs.
+     *
+     * @param animal animal to register
+     * @return identifier of the animal
+     */
+    public int add(Fauna animal) {
+        int index = registeredIndexOf(animal);
+        if (index >= 0) {
+            return ids[index];
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        if (size == animals.length) {
+            animals = Arrays.copyOf(animals, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        animals[size] = animal;
+        ids[size] = id;
+        slots[id] = size;
+        size++;
+        animal.setId(id);
+        return id;
+    }
+
+    /**
+     * Removes an animal from the registry, freeing its identifier.
+     * If the animal is not registered then nothing occurs.
+     *
+     * @param animal animal to remove
+     * @return true if the animal was removed
+     */
+    public boolean remove(Fauna animal) {
+        int index = indexOf(animal);
+        if (index < 0) {
+            return false;
+        }
+        int id = ids[index];
+        size--;
+        animals[index] = animals[size];
+        ids[index] = ids[size];
+        slots[ids[index]] = index;
+        animals[size] = null;
+
+        slots[id] = -1;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+        if (animal.getId() == id) {
+            animal.setId(-1);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the animal, or an animal equal to it, is registered.
+     *
+     * @param animal animal to find
+     * @return true if registered
+     */
+    public boolean contains(Fauna animal) {
+        return indexOf(animal) >= 0;
+    }
+
+    /**
+     * Performs the given action for each registered animal, in index order.
+     * The registry must not be changed by the action.
+     *
+     * @param action action to perform
+     */
+    public void forEach(Consumer<? super Fauna> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(animals[i]);
+        }
+    }
+
+    /**
+     * Returns a new list of the registered animals, in index order.
+     *
+     * @return list of animals
+     */
+    public List<Fauna> toList() {
+        return new ArrayList<>(Arrays.asList(animals).subList(0, size));
+    }
+
+    /**
+     * Returns the index of the given animal.
+     * <p>
+     * The animal is found by its identifier. If it is not registered under its identifier (for
+     * example it is a different object that is equal to a registered animal) the animals are
+     * searched for one equal to it.
+     *
+     * @param animal animal to find
+     * @return index of the animal, or -1 if it is not registered
+     */
+    private int indexOf(Fauna animal) {
+        int index = registeredIndexOf(animal);
+        if (index >= 0) {
+            return index;
+        }
+        for (int i = 0; i < size; i++) {
+            if (animals[i].equals(animal)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the given animal if it is registered under its identifier.
+     *
+     * @param animal animal to find
+     * @return index of the animal, or -1 if it is not registered under its identifier
+     */
+    private int registeredIndexOf(Fauna animal) {
+        int id = animal.getId();
+        if (id >= 0 && id < nextId && slots[id] >= 0 && animals[slots[id]] == animal) {
+            return slots[id];
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that an index refers to a registered animal.
+     *
+     * @param index index to check
+     * @return the index
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; size()
+     */
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size
+                + " animals");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,593 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Reads and writes scenarios in a compact binary save format, as an alternative to the text
+ * format of {@link Scenario#encode()}. Binary saves are recognised by the file extension
+ * {@value #EXTENSION}.
+ * <p>
+ * A binary save holds, in order and with every integer written big-endian:
+ * <ol>
+ * <li>a header: the magic number {@code RSIM}, the format version, the width, height and seed
+ * of the scenario, the number of entities, and the length of the name followed by the name in
+ * UTF-8</li>
+ * <li>the map, with the type of each tile in 2 bits, four tiles to a byte with the first tile in
+ * the lowest bits</li>
+ * <li>one record per entity, in order of the index of its tile: an integer holding the kind,
+ * size and habitat of the entity, and the index of its tile. The record of a user also holds
+ * the length of the user's name, and is followed by the name in UTF-8.</li>
+ * </ol>
+ * The name fields and the map are padded with zero bytes to a multiple of four bytes, so every
+ * integer is aligned.
+ * <p>
+ * Saves are read by mapping the file into memory. A binary save is invalid under the same
+ * rules as a text save ({@link Scenario#load(java.io.Reader)}), and also if it is not a binary
+ * save of a known version, or it ends early.
+ */
+public final class BinaryScenarioFormat {
+
+    /**
+     * The file extension of binary saves.
+     */
+    public static final String EXTENSION = ".rsim";
+    /**
+     * The first four bytes of a binary save, "RSIM".
+     */
+    public static final int MAGIC = 0x5253494D;
+    /**
+     * The version of the format written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The kind of a {@link Fauna} record.
+     */
+    private static final int FAUNA = ScenarioSnapshot.FAUNA;
+    /**
+     * The kind of a {@link Flora} record.
+     */
+    private static final int FLORA = ScenarioSnapshot.FLORA;
+    /**
+     * The kind of a {@link User} record.
+     */
+    private static final int USER = ScenarioSnapshot.USER;
+    /**
+     * The largest length of a user's name, in UTF-8 bytes.
+     */
+    private static final int MAX_USER_NAME_BYTES = (1 << 23) - 1;
+    /**
+     * The number of bytes in the header, not counting the name.
+     */
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+    /**
+     * The size of each mapped region of the file, a multiple of four bytes.
+     */
+    private static final int REGION_BYTES = 1 << 30;
+    /**
+     * The size of the buffer used to write a save.
+     */
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    /**
+     * The tile types in the order of their 2 bit codes.
+     */
+    private static final TileType[] TYPES = {
+        TileType.LAND, TileType.OCEAN, TileType.SAND, TileType.MOUNTAIN
+    };
+
+    /**
+     * Utility class, not to be instantiated.
+     */
+    private BinaryScenarioFormat() {
+    }
+
+    /**
+     * Returns whether the file with the given name is a binary save, by its extension.
+     *
+     * @param filename name of a save file
+     * @return true if the file name ends with {@value #EXTENSION}
+     */
+    public static boolean isBinary(String filename) {
+        return filename.endsWith(EXTENSION);
+    }
+
+    /**
+     * Writes a binary save of the scenario to the given file, replacing the file if it exists.
+     *
+     * @param scenario scenario to save
+     * @param file     the file to write to
+     * @throws IOException if the file could not be written
+     * @throws IllegalArgumentException if the scenario contains an entity that is not a
+     *                                  {@link Fauna}, {@link Flora} or {@link User}, or a
+     *                                  user whose name is longer than 8 MiB
+     */
+    public static void write(Scenario scenario, Path file) throws IOException {
+        write(ScenarioSnapshot.of(scenario), file);
+    }
+
+    /**
+     * Writes a binary save of the scenario to the given channel. The channel is not closed.
+     *
+     * @param scenario scenario to save
+     * @param channel  the channel to write to
+     * @throws IOException if the channel could not be written
+     * @throws IllegalArgumentException if the scenario contains an entity that is not a
+     *                                  {@link Fauna}, {@link Flora} or {@link User}, or a
+     *                                  user whose name is longer than 8 MiB
+     */
+    public static void write(Scenario scenario, WritableByteChannel channel) throws IOException {
+        write(ScenarioSnapshot.of(scenario), channel);
+    }
+
+    /**
+     * Writes a binary save of a snapshot of a scenario to the given file, replacing the file if
+     * it exists.
+     *
+     * @param snapshot snapshot to save
+     * @param file     the file to write to
+     * @throws IOException if the file could not be written
+     * @throws IllegalArgumentException if the snapshot contains an entity that is not a
+     *                                  {@link Fauna}, {@link Flora} or {@link User}, or a
+     *                                  user whose name is longer than 8 MiB
+     */
+    public static void write(ScenarioSnapshot snapshot, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(snapshot, channel);
+        }
+    }
+
+    /**
+     * Writes a binary save of a snapshot of a scenario to the given channel. The channel is not
+     * closed.
+     *
+     * @param snapshot snapshot to save
+     * @param channel  the channel to write to
+     * @throws IOException if the channel could not be written
+     * @throws IllegalArgumentException if the snapshot contains an entity that is not a
+     *                                  {@link Fauna}, {@link Flora} or {@link User}, or a
+     *                                  user whose name is longer than 8 MiB
+     */
+    public static void write(ScenarioSnapshot snapshot, WritableByteChannel channel)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        byte[] name = snapshot.getName().getBytes(StandardCharsets.UTF_8);
+        int size = snapshot.getWidth() * snapshot.getHeight();
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(snapshot.getWidth())
+            .putInt(snapshot.getHeight()).putInt(snapshot.getSeed())
+            .putInt(snapshot.getEntityCount()).putInt(name.length);
+        putPadded(buffer, channel, name);
+
+        int packed = 0;
+        for (int index = 0; index < size; index++) {
+            packed |= snapshot.getType(index).ordinal() << (index % 4 * 2);
+            if (index % 4 == 3) {
+                put(buffer, channel, (byte) packed);
+                packed = 0;
+            }
+        }
+        if (size % 4 != 0) {
+            put(buffer, channel, (byte) packed);
+        }
+        for (int i = (size + 3) / 4; i % 4 != 0; i++) {
+            put(buffer, channel, (byte) 0);
+        }
+
+        for (int i = 0; i < snapshot.getEntityCount(); i++) {
+            putEntity(buffer, channel, snapshot, i);
+        }
+        flush(buffer, channel);
+    }
+
+    /**
+     * Writes the record of an entity.
+     *
+     * @param buffer   the write buffer
+     * @param channel  the channel to write to when the buffer is full
+     * @param snapshot the snapshot holding the entity
+     * @param entity   the position of the entity in the snapshot
+     * @throws IOException if the channel could not be written
+     */
+    private static void putEntity(ByteBuffer buffer, WritableByteChannel channel,
+            ScenarioSnapshot snapshot, int entity) throws IOException {
+        byte[] name = null;
+        int header;
+        switch (snapshot.getKind(entity)) {
+            case FAUNA:
+                header = FAUNA | snapshot.getHabitat(entity).ordinal() << 4;
+                break;
+            case FLORA:
+                header = FLORA;
+                break;
+            case USER:
+                name = snapshot.getText(entity).getBytes(StandardCharsets.UTF_8);
+                if (name.length > MAX_USER_NAME_BYTES) {
+                    throw new IllegalArgumentException("User name is too long to save");
+                }
+                header = USER | name.length << 8;
+                break;
+            default:
+                throw new IllegalArgumentException("Can not save " + snapshot.getText(entity));
+        }
+        header |= snapshot.getSize(entity).ordinal() << 2;
+        if (buffer.remaining() < 2 * Integer.BYTES) {
+            flush(buffer, channel);
+        }
+        buffer.putInt(header).putInt(snapshot.getIndex(entity));
+        if (name != null) {
+            putPadded(buffer, channel, name);
+        }
+    }
+
+    /**
+     * Writes bytes followed by zero bytes up to a multiple of four bytes.
+     *
+     * @param buffer  the write buffer
+     * @param channel the channel to write to when the buffer is full
+     * @param bytes   bytes to write
+     * @throws IOException if the channel could not be written
+     */
+    private static void putPadded(ByteBuffer buffer, WritableByteChannel channel, byte[] bytes)
+            throws IOException {
+        for (byte value : bytes) {
+            put(buffer, channel, value);
+        }
+        for (int i = bytes.length; i % 4 != 0; i++) {
+            put(buffer, channel, (byte) 0);
+        }
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param buffer  the write buffer
+     * @param channel the channel to write to when the buffer is full
+     * @param value   byte to write
+     * @throws IOException if the channel could not be written
+     */
+    private static void put(ByteBuffer buffer, WritableByteChannel channel, byte value)
+            throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush(buffer, channel);
+        }
+        buffer.put(value);
+    }
+
+    /**
+     * Writes the contents of the buffer to the channel and empties the buffer.
+     *
+     * @param buffer  the write buffer
+     * @param channel the channel to write to
+     * @throws IOException if the channel could not be written
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Creates a Scenario instance by reading the binary save in the given file, and adds it to
+     * the {@link ScenarioManager}.
+     *
+     * @param file   the binary save
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario created by reading from the file
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the file is not a valid binary save
+     */
+    public static Scenario load(Path file, boolean packed) throws IOException, BadSaveException {
+        Scenario scenario = read(file, packed);
+        ScenarioManager.getInstance().addScenario(scenario);
+        return scenario;
+    }
+
+    /**
+     * Creates a Scenario instance by reading the binary save in the given file, without
+     * registering it with the {@link ScenarioManager}.
+     *
+     * @param file   the binary save
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario created by reading from the file
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the file is not a valid binary save
+     */
+    public static Scenario read(Path file, boolean packed) throws IOException, BadSaveException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(new Input(channel), packed);
+        }
+    }
+
+    /**
+     * Reads a scenario from a binary save.
+     *
+     * @param input  the contents of the save
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario that was read
+     * @throws IOException if the save could not be read
+     * @throws BadSaveException if the save is invalid
+     */
+    private static Scenario read(Input input, boolean packed)
+            throws IOException, BadSaveException {
+        int[] entityCount = new int[1];
+        ScenarioHeader saveHeader = readHeader(input, null, packed, entityCount);
+        int entities = entityCount[0];
+        Scenario scenario = new Scenario(saveHeader.getName(), saveHeader.getWidth(),
+            saveHeader.getHeight(), saveHeader.getSeed(), packed);
+        TileGrid grid = scenario.getTileGrid();
+        int size = grid.getSize();
+        int mapBytes = (size + 3) / 4;
+        if (input.remaining() < mapBytes) {
+            throw new BadSaveException();
+        }
+        for (int index = 0; index < size; index += 4) {
+            int packedTypes = input.get();
+            for (int i = index; i < Math.min(index + 4, size); i++) {
+                grid.setType(i, TYPES[packedTypes & 3]);
+                packedTypes >>= 2;
+            }
+        }
+        input.skip(-mapBytes & 3);
+
+        BitSet occupied = new BitSet(size);
+        for (int i = 0; i < entities; i++) {
+            if (input.remaining() < 2 * Integer.BYTES) {
+                throw new BadSaveException();
+            }
+            int header = input.getInt();
+            int index = input.getInt();
+            if (index < 0 || index >= size || occupied.get(index)) {
+                throw new BadSaveException();
+            }
+            Entity entity = readEntity(input, header, grid, index);
+            occupied.set(index);
+            grid.setOccupant(index, entity);
+            if (entity instanceof Fauna) {
+                scenario.getController().addAnimal((Fauna) entity);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Reads the header of the binary save in the given file, without reading the map or the
+     * entities.
+     *
+     * @param file   the binary save
+     * @param packed whether the scenario's map would be packed
+     * @return header of the save
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the file is not a binary save of a known version, or its
+     *                          header is invalid
+     */
+    public static ScenarioHeader readHeader(Path file, boolean packed)
+            throws IOException, BadSaveException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(new Input(channel), file, packed, new int[1]);
+        }
+    }
+
+    /**
+     * Reads the header of a binary save.
+     *
+     * @param input       the contents of the save
+     * @param file        the file the save is in, or null
+     * @param packed      whether the scenario's map would be packed
+     * @param entityCount set to the number of entities in the save
+     * @return header of the save
+     * @throws IOException if the save could not be read
+     * @throws BadSaveException if the header is invalid
+     */
+    private static ScenarioHeader readHeader(Input input, Path file, boolean packed,
+            int[] entityCount) throws IOException, BadSaveException {
+        if (input.remaining() < HEADER_BYTES || input.getInt() != MAGIC
+                || input.getInt() != VERSION) {
+            throw new BadSaveException();
+        }
+        int width = input.getInt();
+        int height = input.getInt();
+        int seed = input.getInt();
+        int entities = input.getInt();
+        String name = input.getString(input.getInt());
+        int maxSize = packed ? Scenario.MAX_PACKED_SIZE : Scenario.MAX_SIZE;
+        if (width > maxSize || width < Scenario.MIN_SIZE
+                || height > maxSize || height < Scenario.MIN_SIZE || seed < 0 || entities < 0) {
+            throw new BadSaveException();
+        }
+        entityCount[0] = entities;
+        return new ScenarioHeader(file, name, width, height, seed, packed);
+    }
+
+    /**
+     * Creates the entity of a record, checking that the tile it is placed on suits it.
+     *
+     * @param input  the contents of the save, positioned after the record's index
+     * @param header the kind, size and habitat of the record
+     * @param grid   the grid of the scenario
+     * @param index  the index of the entity's tile
+     * @return the entity of the record
+     * @throws IOException if the save could not be read
+     * @throws BadSaveException if the record is invalid, or the entity can not be placed on the
+     * tile
+     */
+    private static Entity readEntity(Input input, int header, TileGrid grid, int index)
+            throws IOException, BadSaveException {
+        Coordinate coordinate = new Coordinate(index % grid.getWidth(), index / grid.getWidth());
+        Size size = Size.values()[header >> 2 & 3];
+        TileType type = grid.getType(index);
+        switch (header & 3) {
+            case FAUNA:
+                TileType habitat = TYPES[header >> 4 & 3];
+                if (habitat == TileType.OCEAN ? type != TileType.OCEAN
+                        : habitat != TileType.LAND || type == TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+                return new Fauna(size, coordinate, habitat);
+            case FLORA:
+                if (type == TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+                return new Flora(size, coordinate);
+            case USER:
+                String name = input.getString(header >>> 8);
+                if (type == TileType.OCEAN || type == TileType.MOUNTAIN) {
+                    throw new BadSaveException();
+                }
+                return new User(coordinate, name);
+            default:
+                throw new BadSaveException();
+        }
+    }
+
+    /**
+     * The contents of a binary save file, mapped into memory one region at a time as they are
+     * read.
+     */
+    private static class Input {
+
+        /**
+         * The channel of the save file.
+         */
+        private final FileChannel channel;
+        /**
+         * The size of the save file.
+         */
+        private final long size;
+        /**
+         * The currently mapped region of the file.
+         */
+        private MappedByteBuffer region;
+        /**
+         * The position in the file of the start of the current region.
+         */
+        private long regionStart;
+
+        /**
+         * Maps the start of the file of the given channel.
+         *
+         * @param channel the channel of the save file
+         * @throws IOException if the file could not be mapped
+         */
+        private Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        /**
+         * Maps the region of the file starting at the given position.
+         *
+         * @param start position in the file
+         * @throws IOException if the file could not be mapped
+         */
+        private void map(long start) throws IOException {
+            regionStart = start;
+            region = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.min(REGION_BYTES, size - start));
+        }
+
+        /**
+         * Maps the next region if the current region has been read.
+         *
+         * @throws IOException if the file could not be mapped
+         */
+        private void advance() throws IOException {
+            if (!region.hasRemaining() && regionStart + region.limit() < size) {
+                map(regionStart + region.limit());
+            }
+        }
+
+        /**
+         * Returns the number of bytes left to read.
+         *
+         * @return bytes remaining
+         */
+        private long remaining() {
+            return size - regionStart - region.position();
+        }
+
+        /**
+         * Reads an unsigned byte.
+         *
+         * @return byte read
+         * @throws IOException if the file could not be mapped
+         * @throws BadSaveException if the file has ended
+         */
+        private int get() throws IOException, BadSaveException {
+            if (remaining() == 0) {
+                throw new BadSaveException();
+            }
+            advance();
+            return region.get() & 0xFF;
+        }
+
+        /**
+         * Reads an integer. Integers are aligned, so never cross the end of a region.
+         *
+         * @return integer read
+         * @throws IOException if the file could not be mapped
+         * @throws BadSaveException if the file ends before the integer
+         */
+        private int getInt() throws IOException, BadSaveException {
+            if (remaining() < Integer.BYTES) {
+                throw new BadSaveException();
+            }
+            advance();
+            return region.getInt();
+        }
+
+        /**
+         * Reads a UTF-8 string and the padding after it.
+         *
+         * @param length length of the string in bytes
+         * @return string read
+         * @throws IOException if the file could not be mapped
+         * @throws BadSaveException if the length is negative or the file ends before the string
+         */
+        private String getString(int length) throws IOException, BadSaveException {
+            // in long, as the padded length of a corrupt length can overflow an int
+            if (length < 0 || remaining() < (long) length + (-length & 3)) {
+                throw new BadSaveException();
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) get();
+            }
+            skip(-length & 3);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Skips bytes.
+         *
+         * @param count number of bytes to skip
+         * @throws IOException if the file could not be mapped
+         * @throws BadSaveException if the file ends before the bytes
+         */
+        private void skip(int count) throws IOException, BadSaveException {
+            for (int i = 0; i < count; i++) {
+                get();
+            }
+        }
+    }
+}
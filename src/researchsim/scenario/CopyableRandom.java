@@ -0,0 +1,102 @@
+package researchsim.scenario;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} whose state can be copied, so that a fork of a scenario
+ * ({@link Scenario#fork()}) draws the same numbers as the original would have.
+ * <p>
+ * The generator is the linear congruential generator described by {@link Random}, so it draws
+ * exactly the same numbers as a {@link Random} created with the same seed. Its state is kept
+ * here rather than in {@link Random}, which does not allow its state to be read.
+ */
+class CopyableRandom extends Random {
+
+    /**
+     * The version of the serialized form, which holds the state of the generator.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The multiplier of the generator.
+     */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /**
+     * The increment of the generator.
+     */
+    private static final long ADDEND = 0xBL;
+    /**
+     * The mask of the 48 bits of state.
+     */
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * The 48 bits of state of the generator.
+     */
+    private long state;
+    /**
+     * The second of the last pair of normally distributed numbers drawn.
+     */
+    private double nextNextGaussian;
+    /**
+     * Whether {@link #nextNextGaussian} has not been returned yet.
+     */
+    private boolean haveNextNextGaussian;
+
+    /**
+     * Creates a generator with the given seed.
+     *
+     * @param seed the initial seed
+     */
+    CopyableRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Returns a new generator in the same state as this generator, which draws the same
+     * numbers as this generator from now on.
+     *
+     * @return copy of this generator
+     */
+    synchronized CopyableRandom copy() {
+        CopyableRandom copy = new CopyableRandom(0);
+        copy.state = state;
+        copy.nextNextGaussian = nextNextGaussian;
+        copy.haveNextNextGaussian = haveNextNextGaussian;
+        return copy;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // called by the constructor of Random, before the fields of this class are initialised
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+        haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    @Override
+    public synchronized double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+}
@@ -0,0 +1,569 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.logging.Event;
+import researchsim.logging.EventSink;
+import researchsim.map.TileGrid;
+import researchsim.util.BadSaveException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves a scenario as a base save followed by a chain of {@link ScenarioDelta}s, so that each
+ * save after the base only writes the tiles that changed since the previous save.
+ * <p>
+ * A chain is kept in a directory of its own. A checkpoint ({@link #checkpoint()}) writes the
+ * whole scenario to a base save named {@code base.<generation>.txt}, or
+ * {@code base.<generation>.rsim} for a binary chain, and starts a new generation. Each delta
+ * save ({@link #saveDelta()}) then writes the tiles changed since the previous save of the
+ * generation to {@code delta.<generation>.<sequence>.rsd}. Once a base has been written, the
+ * files of older generations are deleted. Every file is written through {@link SaveFiles}, so a
+ * crash never leaves a partial file in the chain.
+ * <p>
+ * The chain is attached to the scenario's log as an {@link EventSink}, and saves a delta at
+ * the end of a turn once a number of turns ({@link #setTurnInterval(int)}) has passed since
+ * the last save. Deltas are written on the thread that runs the turns; as a delta holds only
+ * the tiles that changed, this is cheap even for large maps.
+ * <p>
+ * {@link #read(Path, boolean)} loads the newest base of a directory and applies its deltas in
+ * order, and {@link #compact(Path, boolean)} folds them into a new base.
+ */
+public class DeltaSaveChain implements EventSink, Closeable {
+
+    /**
+     * The start of the name of every base save.
+     */
+    private static final String BASE_PREFIX = "base.";
+    /**
+     * The start of the name of every delta.
+     */
+    private static final String DELTA_PREFIX = "delta.";
+    /**
+     * The extension of text base saves.
+     */
+    private static final String TEXT_EXTENSION = ".txt";
+
+    /**
+     * The scenario to save.
+     */
+    private final Scenario scenario;
+    /**
+     * The directory the chain is kept in.
+     */
+    private final Path directory;
+    /**
+     * Whether base saves are written in the binary format.
+     */
+    private final boolean binary;
+    /**
+     * The tiles changed since the last save.
+     */
+    private final DirtyTracker tracker;
+    /**
+     * The generation of the last base save.
+     */
+    private int generation;
+    /**
+     * The sequence number of the last delta of the generation, or 0 if there is none.
+     */
+    private int sequence;
+    /**
+     * The turn of the last save.
+     */
+    private int lastSaveTurn;
+    /**
+     * The number of turns between automatic delta saves, or 0 to not save automatically.
+     */
+    private int turnInterval;
+    /**
+     * Whether a save failed, so the next save must be a checkpoint.
+     */
+    private boolean broken;
+    /**
+     * The number of deltas written.
+     */
+    private int deltaCount;
+    /**
+     * The number of automatic saves that could not be written.
+     */
+    private int failures;
+    /**
+     * The number of bytes written to base saves.
+     */
+    private long baseBytes;
+    /**
+     * The number of bytes written to deltas.
+     */
+    private long deltaBytes;
+
+    /**
+     * Creates a chain of saves of the given scenario in the given directory, which is created
+     * if it does not exist, and writes its first base save. Any chain already in the directory
+     * is replaced.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns, between turns.
+     *
+     * @param scenario  scenario to save
+     * @param directory directory to keep the chain in
+     * @param binary    whether to write base saves in the binary format
+     * @throws IOException if the directory could not be created or the base save could not be
+     *                     written
+     */
+    public DeltaSaveChain(Scenario scenario, Path directory, boolean binary) throws IOException {
+        this.scenario = scenario;
+        this.directory = directory;
+        this.binary = binary;
+        Files.createDirectories(directory);
+        this.generation = newestGeneration(directory);
+        this.tracker = new DirtyTracker(scenario);
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            tracker.stop();
+            throw e;
+        }
+        scenario.getLog().addSink(this);
+    }
+
+    /**
+     * Returns the scenario that is saved.
+     *
+     * @return saved scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the directory the chain is kept in.
+     *
+     * @return chain directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the generation of the last base save.
+     *
+     * @return current generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the sequence number of the last delta of the current generation.
+     *
+     * @return sequence number, or 0 if no delta has been written since the last base save
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the number of turns between automatic delta saves.
+     *
+     * @return turn interval, or 0 if deltas are not saved automatically
+     */
+    public int getTurnInterval() {
+        return turnInterval;
+    }
+
+    /**
+     * Sets the number of turns between automatic delta saves.
+     *
+     * @param turnInterval turn interval, or 0 to not save automatically
+     * @throws IllegalArgumentException if turnInterval is negative
+     */
+    public void setTurnInterval(int turnInterval) {
+        if (turnInterval < 0) {
+            throw new IllegalArgumentException("Turn interval can not be negative");
+        }
+        this.turnInterval = turnInterval;
+    }
+
+    /**
+     * Does nothing, as saves are only made at the end of a turn.
+     *
+     * @param event the new event
+     * @param turn  the turn the event occurred in
+     */
+    @Override
+    public void eventAdded(Event event, int turn) {
+    }
+
+    /**
+     * Saves a delta if the turn interval has passed since the last save. If the last save
+     * failed a base save is written instead, as the chain is missing the changes of that save.
+     * A save that fails, whether it could not be written or the scenario holds an entity that
+     * can not be saved, is counted ({@link #getFailureCount()}) rather than thrown, so that a
+     * failed save does not stop the scenario.
+     *
+     * @param turn the turn that ended
+     */
+    @Override
+    public void turnEnded(int turn) {
+        if (turnInterval == 0
+                || scenario.getController().getTurn() - lastSaveTurn < turnInterval) {
+            return;
+        }
+        try {
+            if (broken) {
+                checkpoint();
+            } else {
+                saveDelta();
+            }
+        } catch (IOException | RuntimeException e) {
+            // the changes of this save may have been taken from the tracker
+            broken = true;
+            failures++;
+        }
+    }
+
+    /**
+     * Writes the whole scenario to a new base save, starting a new generation, and deletes
+     * the files of older generations.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns, between turns.
+     *
+     * @return the base save
+     * @throws IOException if the base save could not be written
+     */
+    public Path checkpoint() throws IOException {
+        broken = true;
+        tracker.clear();
+        ScenarioSnapshot snapshot = ScenarioSnapshot.of(scenario);
+        int next = generation + 1;
+        Path base = directory.resolve(BASE_PREFIX + next
+            + (binary ? BinaryScenarioFormat.EXTENSION : TEXT_EXTENSION));
+        SaveFiles.write(snapshot, base);
+        baseBytes += Files.size(base);
+        generation = next;
+        sequence = 0;
+        lastSaveTurn = snapshot.getTurn();
+        broken = false;
+        deleteOlderThan(directory, generation);
+        return base;
+    }
+
+    /**
+     * Writes the tiles changed since the last save to the next delta of the current generation.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns, between turns.
+     *
+     * @return the delta file
+     * @throws IOException if the delta could not be written, in which case the next save
+     *                     made by {@link #turnEnded(int)} is a base save
+     * @throws IllegalArgumentException if a changed tile holds an entity that can not be saved
+     *                                  in a delta
+     */
+    public Path saveDelta() throws IOException {
+        ScenarioDelta delta = ScenarioDelta.capture(scenario, tracker, generation, sequence + 1,
+            lastSaveTurn);
+        Path file = directory.resolve(deltaName(generation, sequence + 1));
+        try {
+            SaveFiles.replace(file, delta::write);
+        } catch (IOException e) {
+            // the tracker has been cleared, so these changes are only in the scenario
+            broken = true;
+            throw e;
+        }
+        deltaBytes += Files.size(file);
+        deltaCount++;
+        sequence++;
+        lastSaveTurn = delta.getToTurn();
+        return file;
+    }
+
+    /**
+     * Returns the number of deltas written.
+     *
+     * @return deltas written
+     */
+    public int getDeltaCount() {
+        return deltaCount;
+    }
+
+    /**
+     * Returns the number of automatic saves that could not be written.
+     *
+     * @return failed saves
+     */
+    public int getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Returns the number of bytes written to base saves.
+     *
+     * @return base save bytes
+     */
+    public long getBaseBytes() {
+        return baseBytes;
+    }
+
+    /**
+     * Returns the number of bytes written to deltas.
+     *
+     * @return delta bytes
+     */
+    public long getDeltaBytes() {
+        return deltaBytes;
+    }
+
+    /**
+     * Detaches the chain from the scenario's log and stops tracking changes to its map. The
+     * files of the chain are kept.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns.
+     */
+    @Override
+    public void close() {
+        scenario.getLog().removeSink(this);
+        tracker.stop();
+    }
+
+    /**
+     * Returns a summary of the saves made, such as:
+     * <pre>
+     * Generation 2: 14 deltas (3.1 KiB), bases 88.0 KiB, 0 failed
+     * </pre>
+     *
+     * @return save summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Generation %d: %d deltas (%.1f KiB), bases %.1f KiB, %d failed",
+            generation, deltaCount, deltaBytes / 1024.0, baseBytes / 1024.0, failures);
+    }
+
+    /**
+     * Creates a Scenario instance from the chain in the given directory, and adds it to the
+     * {@link ScenarioManager}.
+     *
+     * @param directory the chain directory
+     * @param packed    whether the created scenario's map should be packed
+     * @return scenario created from the chain
+     * @throws IOException if the chain could not be read
+     * @throws BadSaveException if a save in the chain is invalid
+     * @see #read(Path, boolean)
+     */
+    public static Scenario load(Path directory, boolean packed)
+            throws IOException, BadSaveException {
+        Scenario scenario = read(directory, packed);
+        ScenarioManager.getInstance().addScenario(scenario);
+        return scenario;
+    }
+
+    /**
+     * Creates a Scenario instance from the chain in the given directory, without registering
+     * it with the {@link ScenarioManager}.
+     * <p>
+     * The newest base save in the directory is read, and each delta of its generation is
+     * applied in order. The scenario's animals are in the order they would have if the
+     * scenario had been saved whole, so the result is the scenario that
+     * {@link Scenario#read(Reader, boolean)} would read from a full save made at the time of
+     * the last delta.
+     *
+     * @param directory the chain directory
+     * @param packed    whether the created scenario's map should be packed
+     * @return scenario created from the chain
+     * @throws IOException if the chain could not be read
+     * @throws NoSuchFileException if there is no base save in the directory
+     * @throws BadSaveException if a save in the chain is invalid, or a delta is missing or out
+     *                          of order
+     */
+    public static Scenario read(Path directory, boolean packed)
+            throws IOException, BadSaveException {
+        int generation = newestGeneration(directory);
+        Path base = findBase(directory, generation);
+        Scenario scenario;
+        if (BinaryScenarioFormat.isBinary(base.toString())) {
+            scenario = BinaryScenarioFormat.read(base, packed);
+        } else {
+            try (Reader reader = Files.newBufferedReader(base, StandardCharsets.UTF_8)) {
+                scenario = Scenario.read(reader, packed);
+            }
+        }
+
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                DELTA_PREFIX + generation + ".*" + ScenarioDelta.EXTENSION)) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        ScenarioDelta previous = null;
+        for (int sequence = 1; sequence <= count; sequence++) {
+            Path file = directory.resolve(deltaName(generation, sequence));
+            if (!Files.exists(file)) {
+                throw new BadSaveException("Delta " + file.getFileName() + " is missing");
+            }
+            ScenarioDelta delta = ScenarioDelta.read(file);
+            if (delta.getGeneration() != generation || delta.getSequence() != sequence
+                    || previous != null && delta.getFromTurn() != previous.getToTurn()) {
+                throw new BadSaveException("Delta " + file.getFileName() + " is out of order");
+            }
+            delta.applyTo(scenario);
+            previous = delta;
+        }
+        if (previous != null) {
+            sortAnimals(scenario);
+        }
+        return scenario;
+    }
+
+    /**
+     * Folds the deltas of the chain in the given directory into a new base save, in the format
+     * of the newest base save, and deletes the older files of the chain.
+     * <p>
+     * A directory should not be compacted while a chain is saving to it; the chain itself
+     * compacts whenever it writes a base save ({@link #checkpoint()}).
+     *
+     * @param directory the chain directory
+     * @param packed    whether to use a packed map while compacting
+     * @return the new base save
+     * @throws IOException if the chain could not be read or the base save written
+     * @throws BadSaveException if a save in the chain is invalid
+     */
+    public static Path compact(Path directory, boolean packed)
+            throws IOException, BadSaveException {
+        int generation = newestGeneration(directory);
+        boolean binary = BinaryScenarioFormat.isBinary(findBase(directory, generation).toString());
+        ScenarioSnapshot snapshot = ScenarioSnapshot.of(read(directory, packed));
+        Path base = directory.resolve(BASE_PREFIX + (generation + 1)
+            + (binary ? BinaryScenarioFormat.EXTENSION : TEXT_EXTENSION));
+        SaveFiles.write(snapshot, base);
+        deleteOlderThan(directory, generation + 1);
+        return base;
+    }
+
+    /**
+     * Re-adds the animals of a scenario to its controller in the order of their tiles, which
+     * is the order a full save would add them in.
+     *
+     * @param scenario scenario whose animals to sort
+     */
+    private static void sortAnimals(Scenario scenario) {
+        AnimalController controller = scenario.getController();
+        for (Fauna animal : controller.getAnimals()) {
+            controller.removeAnimal(animal);
+        }
+        TileGrid grid = scenario.getTileGrid();
+        for (int index = 0; index < grid.getSize(); index++) {
+            Entity entity = grid.getOccupant(index);
+            if (entity instanceof Fauna) {
+                controller.addAnimal((Fauna) entity);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a delta file.
+     *
+     * @param generation generation of the delta
+     * @param sequence   sequence number of the delta
+     * @return file name
+     */
+    private static String deltaName(int generation, int sequence) {
+        return DELTA_PREFIX + generation + "." + sequence + ScenarioDelta.EXTENSION;
+    }
+
+    /**
+     * Returns the generation of a file of a chain.
+     *
+     * @param file the file
+     * @return generation, or -1 if the file is not a base save or delta
+     */
+    private static int generationOf(Path file) {
+        String name = file.getFileName().toString();
+        int start;
+        if (name.startsWith(BASE_PREFIX) && (name.endsWith(TEXT_EXTENSION)
+                || name.endsWith(BinaryScenarioFormat.EXTENSION))) {
+            start = BASE_PREFIX.length();
+        } else if (name.startsWith(DELTA_PREFIX) && name.endsWith(ScenarioDelta.EXTENSION)) {
+            start = DELTA_PREFIX.length();
+        } else {
+            return -1;
+        }
+        int end = name.indexOf('.', start);
+        if (end < 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name, start, end, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the newest generation of the base saves in a directory.
+     *
+     * @param directory the chain directory
+     * @return newest generation, or 0 if there is no base save
+     * @throws IOException if the directory could not be listed
+     */
+    private static int newestGeneration(Path directory) throws IOException {
+        int newest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                BASE_PREFIX + "*")) {
+            for (Path file : files) {
+                newest = Math.max(newest, generationOf(file));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Returns the base save of a generation.
+     *
+     * @param directory  the chain directory
+     * @param generation generation of the base save
+     * @return the base save
+     * @throws NoSuchFileException if the generation has no base save
+     */
+    private static Path findBase(Path directory, int generation) throws NoSuchFileException {
+        String name = BASE_PREFIX + generation;
+        for (String extension : new String[] {TEXT_EXTENSION, BinaryScenarioFormat.EXTENSION}) {
+            Path base = directory.resolve(name + extension);
+            if (Files.exists(base)) {
+                return base;
+            }
+        }
+        throw new NoSuchFileException(directory.toString(), null, "No base save");
+    }
+
+    /**
+     * Deletes the base saves and deltas of every generation older than the given one.
+     *
+     * @param directory  the chain directory
+     * @param generation the oldest generation to keep
+     * @throws IOException if the directory could not be listed or a file deleted
+     */
+    private static void deleteOlderThan(Path directory, int generation) throws IOException {
+        List<Path> old = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                int fileGeneration = generationOf(file);
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    old.add(file);
+                }
+            }
+        }
+        for (Path file : old) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
+import researchsim.map.TileType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Records which tiles of a scenario's map have changed since the tracker was last cleared.
+ * <p>
+ * A tile is dirty once its type or its inhabitant has been set, even if it was set back to
+ * what it was. The tracker keeps one bit per tile, which is set atomically, so it may be
+ * notified by the threads of a parallel turn
+ * ({@link AnimalController#moveParallel(java.util.concurrent.ExecutorService)}).
+ */
+public class DirtyTracker implements TileGridListener {
+
+    /**
+     * The grid that is tracked.
+     */
+    private final TileGrid grid;
+    /**
+     * One bit per tile, set if the tile is dirty.
+     */
+    private final AtomicLongArray dirty;
+    /**
+     * The number of dirty tiles.
+     */
+    private final AtomicInteger count;
+    /**
+     * Whether every tile of the grid was replaced at once.
+     */
+    private volatile boolean allDirty;
+
+    /**
+     * Creates a tracker of the map of the given scenario, with no dirty tiles, and starts
+     * tracking changes.
+     *
+     * @param scenario scenario to track
+     */
+    public DirtyTracker(Scenario scenario) {
+        this.grid = scenario.getTileGrid();
+        this.dirty = new AtomicLongArray((grid.getSize() + Long.SIZE - 1) / Long.SIZE);
+        this.count = new AtomicInteger();
+        grid.addListener(this);
+    }
+
+    /**
+     * Returns whether the tile at the given index has changed since the tracker was cleared.
+     *
+     * @param index tile index
+     * @return true if the tile is dirty
+     */
+    public boolean isDirty(int index) {
+        return allDirty || (dirty.get(index / Long.SIZE) & 1L << index) != 0;
+    }
+
+    /**
+     * Returns the number of tiles that have changed since the tracker was cleared.
+     *
+     * @return number of dirty tiles
+     */
+    public int getDirtyCount() {
+        return allDirty ? grid.getSize() : count.get();
+    }
+
+    /**
+     * Performs the given action with the index of each dirty tile, in increasing order.
+     *
+     * @param action action to perform with each index
+     */
+    public void forEachDirty(IntConsumer action) {
+        if (allDirty) {
+            for (int index = 0; index < grid.getSize(); index++) {
+                action.accept(index);
+            }
+            return;
+        }
+        for (int word = 0; word < dirty.length(); word++) {
+            long bits = dirty.get(word);
+            while (bits != 0) {
+                action.accept(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Marks every tile as clean.
+     * <p>
+     * The tracker should not be notified of changes while it is cleared.
+     */
+    public void clear() {
+        for (int word = 0; word < dirty.length(); word++) {
+            if (dirty.get(word) != 0) {
+                dirty.set(word, 0);
+            }
+        }
+        count.set(0);
+        allDirty = false;
+    }
+
+    /**
+     * Stops tracking changes to the map.
+     */
+    public void stop() {
+        grid.removeListener(this);
+    }
+
+    /**
+     * Marks the tile at the given index as dirty.
+     *
+     * @param index tile index
+     */
+    private void mark(int index) {
+        long bit = 1L << index;
+        long previous = dirty.getAndAccumulate(index / Long.SIZE, bit, (a, b) -> a | b);
+        if ((previous & bit) == 0) {
+            count.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void typeChanged(int index, TileType previous, TileType current) {
+        mark(index);
+    }
+
+    @Override
+    public void occupantChanged(int index, Entity previous, Entity current) {
+        mark(index);
+    }
+
+    @Override
+    public void tilesReplaced() {
+        allDirty = true;
+    }
+}
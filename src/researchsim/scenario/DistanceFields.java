@@ -0,0 +1,888 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
+import researchsim.map.TileType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps distance fields of a scenario's map, which give the number of steps a user needs to
+ * take from any tile to reach the nearest entity it can collect.
+ * <p>
+ * A step moves a user one tile horizontally or vertically onto a tile it can walk over, which
+ * is any tile that is not ocean or mountain. Entities in the way do not block a user. A user
+ * can collect an entity from the entity's tile or from the four tiles next to it
+ * ({@link researchsim.entities.User#getPossibleCollection()}), so the field of an entity is
+ * 0 on those tiles. There is one field for each {@link Kind} of entity, computed by a breadth
+ * first search from the tiles of every entity of that kind at once.
+ * <p>
+ * The fields are built when the service is created and then kept up to date as entities are
+ * placed, moved and collected. The changes are recorded as they are made and applied the next
+ * time the fields are read: a new entity lowers the field around it, and an entity that is
+ * gone raises only the tiles that were nearest to it, which are searched again from the tiles
+ * around them. Changing whether a tile can be walked over, or changing more tiles than the map
+ * has between reads, rebuilds the fields when they are next read instead.
+ * <p>
+ * The fields answer which entities can be collected within a number of steps, and which entity
+ * is worth the most points per step, by searching out from the user only as far as the fields
+ * show an entity can still be reached. The fields are read and changed under the lock of the
+ * service, so it may be notified by the threads of a parallel turn
+ * ({@link AnimalController#moveParallel(java.util.concurrent.ExecutorService)}).
+ */
+public class DistanceFields implements TileGridListener {
+
+    /**
+     * The distance of a tile from which no entity can be reached.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * The distance stored for a tile from which no entity can be reached.
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * The largest number of points an entity is worth.
+     */
+    private static final int MAX_POINTS = Size.GIANT.points;
+
+    /**
+     * The kinds of entity a user can collect, each of which has its own distance field.
+     */
+    public enum Kind {
+        /**
+         * Plants, see {@link Flora}.
+         */
+        FLORA,
+        /**
+         * Animals whose habitat is land, see {@link Fauna#getHabitat()}.
+         */
+        LAND_FAUNA,
+        /**
+         * Animals whose habitat is ocean, see {@link Fauna#getHabitat()}.
+         */
+        OCEAN_FAUNA;
+
+        /**
+         * Returns the kind of the given entity.
+         *
+         * @param entity entity to classify
+         * @return kind of the entity, or null if it can not be collected
+         */
+        public static Kind of(Entity entity) {
+            if (entity instanceof Flora) {
+                return FLORA;
+            }
+            if (entity instanceof Fauna) {
+                return ((Fauna) entity).getHabitat() == TileType.OCEAN ? OCEAN_FAUNA : LAND_FAUNA;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The grid the fields are kept for.
+     */
+    private final TileGrid grid;
+    /**
+     * Width of the map.
+     */
+    private final int width;
+    /**
+     * Height of the map.
+     */
+    private final int height;
+    /**
+     * One bit per tile, set if a user can walk over the tile.
+     */
+    private final long[] walkable;
+    /**
+     * For each kind, the number of steps from each tile to the nearest entity of that kind, or
+     * {@link #INFINITY}.
+     */
+    private final int[][] distances;
+    /**
+     * For each kind, the number of entities of that kind that can be collected from each tile.
+     */
+    private final byte[][] counts;
+    /**
+     * For each kind, the tiles from which an entity of that kind may have become collectable or
+     * stopped being collectable since the field was last updated.
+     */
+    private final IntList[] changed;
+    /**
+     * Whether the fields must be rebuilt before they are read.
+     */
+    private boolean stale;
+
+    /**
+     * Tiles waiting to be searched, as pairs of a tile and its distance.
+     */
+    private final IntList queue = new IntList();
+    /**
+     * Tiles whose distances are being repaired, as pairs of a tile and its old distance.
+     */
+    private final IntList raised = new IntList();
+    /**
+     * The number of the current search, which marks the tiles it has visited.
+     */
+    private int search;
+    /**
+     * For each tile, the number of the last search that visited it.
+     */
+    private int[] visited;
+    /**
+     * For each tile, the number of the last search that found its inhabitant.
+     */
+    private int[] found;
+
+    /**
+     * Builds the distance fields of the map of the given scenario, and keeps them up to date as
+     * the map changes.
+     *
+     * @param scenario scenario whose map to keep fields for
+     */
+    public DistanceFields(Scenario scenario) {
+        this.grid = scenario.getTileGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int size = grid.getSize();
+        int kinds = Kind.values().length;
+        this.walkable = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        this.distances = new int[kinds][size];
+        this.counts = new byte[kinds][size];
+        this.changed = new IntList[kinds];
+        for (int kind = 0; kind < kinds; kind++) {
+            changed[kind] = new IntList();
+        }
+        rebuild();
+        grid.addListener(this);
+    }
+
+    /**
+     * Stops keeping the fields up to date. The fields must not be read afterwards.
+     */
+    public void stop() {
+        grid.removeListener(this);
+    }
+
+    /**
+     * Returns the number of steps a user at the given coordinate needs to take to collect the
+     * nearest entity of the given kind.
+     *
+     * @param from coordinate to start from, which must be on the map
+     * @param kind kind of entity to collect
+     * @return number of steps, which is 0 if an entity of the kind is next to the coordinate,
+     *         or {@link #UNREACHABLE} if no entity of the kind can be reached
+     * @throws IllegalArgumentException if the coordinate is not on the map
+     */
+    public synchronized int getDistance(Coordinate from, Kind kind) {
+        int distance = startDistance(indexOf(from), EnumSet.of(kind));
+        return distance == INFINITY ? UNREACHABLE : distance;
+    }
+
+    /**
+     * Returns every entity that a user at the given coordinate can collect within the given
+     * number of steps, ordered by the number of steps.
+     *
+     * @param from  coordinate to start from, which must be on the map
+     * @param steps largest number of steps to take
+     * @return entities in reach, nearest first
+     * @throws IllegalArgumentException if the coordinate is not on the map or steps &lt; 0
+     */
+    public List<Target> getWithin(Coordinate from, int steps) {
+        return getWithin(from, steps, EnumSet.allOf(Kind.class));
+    }
+
+    /**
+     * Returns every entity of the given kinds that a user at the given coordinate can collect
+     * within the given number of steps, ordered by the number of steps.
+     *
+     * @param from  coordinate to start from, which must be on the map
+     * @param steps largest number of steps to take
+     * @param kinds kinds of entity to find
+     * @return entities in reach, nearest first
+     * @throws IllegalArgumentException if the coordinate is not on the map or steps &lt; 0
+     */
+    public synchronized List<Target> getWithin(Coordinate from, int steps, Set<Kind> kinds) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("Can not search " + steps + " steps");
+        }
+        int start = indexOf(from);
+        List<Target> targets = new ArrayList<>();
+        if (startDistance(start, kinds) <= steps) {
+            search(start, steps, kinds, targets, false);
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the entity worth the most points per step to a user at the given coordinate.
+     * <p>
+     * An entity is worth its points ({@link Size#points}) divided by the number of steps to
+     * it plus one, for the turn spent collecting it. Of entities worth the same, the nearest
+     * is returned.
+     *
+     * @param from coordinate to start from, which must be on the map
+     * @return best entity, or null if no entity can be reached
+     * @throws IllegalArgumentException if the coordinate is not on the map
+     */
+    public Target getBest(Coordinate from) {
+        return getBest(from, EnumSet.allOf(Kind.class));
+    }
+
+    /**
+     * Returns the entity of the given kinds worth the most points per step to a user at the
+     * given coordinate, as {@link #getBest(Coordinate)} does.
+     *
+     * @param from  coordinate to start from, which must be on the map
+     * @param kinds kinds of entity to find
+     * @return best entity, or null if no entity of the kinds can be reached
+     * @throws IllegalArgumentException if the coordinate is not on the map
+     */
+    public synchronized Target getBest(Coordinate from, Set<Kind> kinds) {
+        int start = indexOf(from);
+        int nearest = startDistance(start, kinds);
+        if (nearest == INFINITY) {
+            return null;
+        }
+        // the nearest entity is worth at least 1 / (nearest + 1), which no entity further than
+        // this can beat
+        int limit = (int) Math.min(Integer.MAX_VALUE, MAX_POINTS * (nearest + 1L) - 2);
+        List<Target> targets = new ArrayList<>(1);
+        search(start, limit, kinds, targets, true);
+        return targets.get(0);
+    }
+
+    /**
+     * Returns the index of the given coordinate.
+     *
+     * @param coordinate coordinate on the map
+     * @return tile index
+     * @throws IllegalArgumentException if the coordinate is not on the map
+     */
+    private int indexOf(Coordinate coordinate) {
+        int x = coordinate.getX();
+        int y = coordinate.getY();
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException(coordinate + " is not on the map");
+        }
+        return x + y * width;
+    }
+
+    /**
+     * Returns the number of steps from the given tile to the nearest entity of the given kinds,
+     * after bringing the fields up to date. The tile need not be walkable.
+     *
+     * @param start tile to start from
+     * @param kinds kinds of entity
+     * @return number of steps, or {@link #INFINITY}
+     */
+    private int startDistance(int start, Set<Kind> kinds) {
+        update();
+        if (isWalkable(start)) {
+            return distance(start, kinds);
+        }
+        int best = INFINITY;
+        for (Kind kind : kinds) {
+            if (counts[kind.ordinal()][start] > 0) {
+                return 0;
+            }
+        }
+        int[] neighbours = new int[4];
+        int count = neighbours(start, neighbours);
+        for (int i = 0; i < count; i++) {
+            int distance = distance(neighbours[i], kinds);
+            if (distance != INFINITY) {
+                best = Math.min(best, distance + 1);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the smallest distance of the given tile in the fields of the given kinds.
+     *
+     * @param index tile index
+     * @param kinds kinds of entity
+     * @return number of steps, or {@link #INFINITY}
+     */
+    private int distance(int index, Set<Kind> kinds) {
+        int best = INFINITY;
+        for (Kind kind : kinds) {
+            best = Math.min(best, distances[kind.ordinal()][index]);
+        }
+        return best;
+    }
+
+    /**
+     * Searches breadth first from the given tile for entities of the given kinds, skipping every
+     * tile from which the fields show no entity can be reached within the limit.
+     *
+     * @param start  tile to start from
+     * @param limit  largest number of steps to take
+     * @param kinds  kinds of entity to find
+     * @param result list to add the entities found to
+     * @param best   whether to keep only the entity worth the most points per step, lowering
+     *               the limit as better entities are found
+     */
+    private void search(int start, int limit, Set<Kind> kinds, List<Target> result,
+                        boolean best) {
+        if (visited == null) {
+            visited = new int[grid.getSize()];
+            found = new int[grid.getSize()];
+        }
+        if (++search == 0) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(found, 0);
+            search = 1;
+        }
+        boolean startCollects = startDistance(start, kinds) == 0;
+        int[] neighbours = new int[4];
+        queue.clear();
+        queue.add(start, 0);
+        visited[start] = search;
+        for (int head = 0; head < queue.size(); head += 2) {
+            int index = queue.get(head);
+            int steps = queue.get(head + 1);
+            if (steps > limit) {
+                break;
+            }
+            int count = neighbours(index, neighbours);
+            if (index == start ? startCollects : distance(index, kinds) == 0) {
+                collect(index, steps, kinds, result, best);
+                for (int i = 0; i < count; i++) {
+                    collect(neighbours[i], steps, kinds, result, best);
+                }
+                if (best) {
+                    Target target = result.get(0);
+                    // an entity reached in more steps must be worth more points per step
+                    limit = Math.min(limit,
+                        (MAX_POINTS * (target.getSteps() + 1) - 1) / target.getPoints() - 1);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int next = neighbours[i];
+                if (visited[next] != search && isWalkable(next)) {
+                    visited[next] = search;
+                    long distance = (long) steps + 1 + distance(next, kinds);
+                    if (distance <= limit) {
+                        queue.add(next, steps + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the inhabitant of the given tile to the result of a search, if it is of one of the
+     * given kinds and has not been found yet.
+     *
+     * @param index  tile index
+     * @param steps  number of steps taken to reach the inhabitant
+     * @param kinds  kinds of entity to find
+     * @param result list to add the entity to
+     * @param best   whether the list only keeps the entity worth the most points per step
+     */
+    private void collect(int index, int steps, Set<Kind> kinds, List<Target> result,
+                         boolean best) {
+        Entity occupant = grid.getOccupant(index);
+        Kind kind = Kind.of(occupant);
+        if (kind == null || !kinds.contains(kind) || found[index] == search) {
+            return;
+        }
+        found[index] = search;
+        Target target = new Target(new Coordinate(index % width, index / width), kind,
+            occupant.getSize().points, steps);
+        if (!best) {
+            result.add(target);
+        } else if (result.isEmpty()) {
+            result.add(target);
+        } else {
+            Target previous = result.get(0);
+            if ((long) target.getPoints() * (previous.getSteps() + 1)
+                    > (long) previous.getPoints() * (target.getSteps() + 1)) {
+                result.set(0, target);
+            }
+        }
+    }
+
+    /**
+     * Brings the fields up to date with the changes made to the map since they were last read.
+     */
+    private void update() {
+        if (stale) {
+            rebuild();
+            return;
+        }
+        for (int kind = 0; kind < changed.length; kind++) {
+            IntList tiles = changed[kind];
+            if (tiles.size() == 0) {
+                continue;
+            }
+            int[] field = distances[kind];
+            // lower the field around new entities first, treating the tiles of entities that are
+            // gone as if they were still there, so that an animal that moved a few tiles only
+            // raises the tiles that are further from its new tiles than from its old ones
+            queue.clear();
+            for (int i = 0; i < tiles.size(); i++) {
+                int index = tiles.get(i);
+                if (isSource(kind, index)) {
+                    field[index] = 0;
+                    queue.add(index, 0);
+                }
+            }
+            lower(kind);
+            raised.clear();
+            for (int i = 0; i < tiles.size(); i++) {
+                int index = tiles.get(i);
+                if (field[index] == 0 && !isSource(kind, index)) {
+                    raised.add(index, 0);
+                    field[index] = INFINITY;
+                }
+            }
+            if (raised.size() > 0) {
+                raise(kind);
+            }
+            tiles.clear();
+        }
+    }
+
+    /**
+     * Rebuilds the walkable mask, the counts of entities and every field from the grid.
+     */
+    private void rebuild() {
+        Arrays.fill(walkable, 0);
+        for (byte[] count : counts) {
+            Arrays.fill(count, (byte) 0);
+        }
+        int[] neighbours = new int[4];
+        for (int index = 0; index < grid.getSize(); index++) {
+            TileType type = grid.getType(index);
+            if (type != TileType.OCEAN && type != TileType.MOUNTAIN) {
+                walkable[index / Long.SIZE] |= 1L << index;
+            }
+            Kind kind = Kind.of(grid.getOccupant(index));
+            if (kind != null) {
+                byte[] count = counts[kind.ordinal()];
+                count[index]++;
+                int neighbourCount = neighbours(index, neighbours);
+                for (int i = 0; i < neighbourCount; i++) {
+                    count[neighbours[i]]++;
+                }
+            }
+        }
+        for (int kind = 0; kind < distances.length; kind++) {
+            int[] field = distances[kind];
+            Arrays.fill(field, INFINITY);
+            queue.clear();
+            for (int index = 0; index < field.length; index++) {
+                if (isSource(kind, index)) {
+                    field[index] = 0;
+                    queue.add(index, 0);
+                }
+            }
+            lower(kind);
+            changed[kind].clear();
+        }
+        stale = false;
+    }
+
+    /**
+     * Lowers the field of the given kind outwards from the tiles in the queue, which must be in
+     * order of distance, until no tile gets nearer.
+     *
+     * @param kind kind of entity
+     */
+    private void lower(int kind) {
+        int[] field = distances[kind];
+        int[] neighbours = new int[4];
+        for (int head = 0; head < queue.size(); head += 2) {
+            int index = queue.get(head);
+            int distance = queue.get(head + 1);
+            if (distance != field[index]) {
+                continue;
+            }
+            int count = neighbours(index, neighbours);
+            for (int i = 0; i < count; i++) {
+                int next = neighbours[i];
+                if (isWalkable(next) && field[next] > distance + 1) {
+                    field[next] = distance + 1;
+                    queue.add(next, distance + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Raises the field of the given kind after the tiles in the raised list, which have been
+     * cleared, stopped being tiles from which an entity can be collected.
+     * <p>
+     * Every tile whose distance may have been measured through a cleared tile, which are the
+     * tiles one step further than a tile already cleared, is cleared too, and their distances
+     * are found again from the tiles around them.
+     *
+     * @param kind kind of entity
+     */
+    private void raise(int kind) {
+        int[] field = distances[kind];
+        int[] neighbours = new int[4];
+        for (int head = 0; head < raised.size(); head += 2) {
+            int distance = raised.get(head + 1);
+            int count = neighbours(raised.get(head), neighbours);
+            for (int i = 0; i < count; i++) {
+                int next = neighbours[i];
+                if (field[next] == distance + 1) {
+                    raised.add(next, field[next]);
+                    field[next] = INFINITY;
+                }
+            }
+        }
+
+        // each cleared tile starts from its nearest neighbour that was not cleared, and the
+        // tiles are then searched in order of distance
+        long[] starts = new long[raised.size() / 2];
+        int startCount = 0;
+        for (int head = 0; head < raised.size(); head += 2) {
+            int tile = raised.get(head);
+            int best = isSource(kind, tile) ? 0 : INFINITY;
+            int count = neighbours(tile, neighbours);
+            for (int i = 0; i < count && best > 0; i++) {
+                int distance = field[neighbours[i]];
+                if (distance != INFINITY) {
+                    best = Math.min(best, distance + 1);
+                }
+            }
+            if (best != INFINITY) {
+                starts[startCount++] = (long) best << 32 | tile;
+            }
+        }
+        Arrays.sort(starts, 0, startCount);
+        for (int i = 0; i < startCount; i++) {
+            field[(int) starts[i]] = (int) (starts[i] >>> 32);
+        }
+        queue.clear();
+        int next = 0;
+        int head = 0;
+        while (next < startCount || head < queue.size()) {
+            // take the nearer of the next start and the next searched tile
+            if (head < queue.size()
+                    && (next == startCount || queue.get(head + 1) <= starts[next] >>> 32)) {
+                relax(field, queue.get(head), queue.get(head + 1), neighbours);
+                head += 2;
+            } else {
+                relax(field, (int) starts[next], (int) (starts[next] >>> 32), neighbours);
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Lowers the neighbours of a tile reached at the given distance, adding those that got
+     * nearer to the queue.
+     *
+     * @param field      field to lower
+     * @param index      tile reached
+     * @param distance   distance at which the tile was reached
+     * @param neighbours array to hold the neighbours of the tile
+     */
+    private void relax(int[] field, int index, int distance, int[] neighbours) {
+        if (field[index] != distance) {
+            return;
+        }
+        int count = neighbours(index, neighbours);
+        for (int i = 0; i < count; i++) {
+            int next = neighbours[i];
+            if (isWalkable(next) && field[next] > distance + 1) {
+                field[next] = distance + 1;
+                queue.add(next, distance + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an entity of the given kind can be collected by a user standing on the
+     * given tile.
+     *
+     * @param kind  kind of entity
+     * @param index tile index
+     * @return true if the tile is walkable and next to or holding an entity of the kind
+     */
+    private boolean isSource(int kind, int index) {
+        return counts[kind][index] > 0 && isWalkable(index);
+    }
+
+    /**
+     * Returns whether a user can walk over the given tile.
+     *
+     * @param index tile index
+     * @return true if the tile is neither ocean nor mountain
+     */
+    private boolean isWalkable(int index) {
+        return (walkable[index / Long.SIZE] & 1L << index) != 0;
+    }
+
+    /**
+     * Stores the indices of the tiles horizontally or vertically next to the given tile.
+     *
+     * @param index      tile index
+     * @param neighbours array of at least four elements to store the neighbours in
+     * @return number of neighbours stored
+     */
+    private int neighbours(int index, int[] neighbours) {
+        int x = index % width;
+        int count = 0;
+        if (x > 0) {
+            neighbours[count++] = index - 1;
+        }
+        if (x < width - 1) {
+            neighbours[count++] = index + 1;
+        }
+        if (index >= width) {
+            neighbours[count++] = index - width;
+        }
+        if (index < width * (height - 1)) {
+            neighbours[count++] = index + width;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the given change to the number of entities of a kind that can be collected from the
+     * given tile and the tiles next to it, recording the tiles that started or stopped being
+     * collected from.
+     *
+     * @param kind   kind of entity
+     * @param index  tile of the entity
+     * @param change 1 if the entity was placed, or -1 if it was removed
+     */
+    private void count(Kind kind, int index, int change) {
+        byte[] count = counts[kind.ordinal()];
+        IntList tiles = changed[kind.ordinal()];
+        int[] neighbours = new int[5];
+        int neighbourCount = neighbours(index, neighbours);
+        neighbours[neighbourCount++] = index;
+        for (int i = 0; i < neighbourCount; i++) {
+            int tile = neighbours[i];
+            count[tile] += change;
+            if (count[tile] == (change > 0 ? 1 : 0)) {
+                tiles.add(tile);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void typeChanged(int index, TileType previous, TileType current) {
+        boolean walkableNow = current != TileType.OCEAN && current != TileType.MOUNTAIN;
+        if (walkableNow != isWalkable(index)) {
+            stale = true;
+        }
+    }
+
+    @Override
+    public synchronized void occupantChanged(int index, Entity previous, Entity current) {
+        Kind before = Kind.of(previous);
+        Kind after = Kind.of(current);
+        if (stale || before == after) {
+            return;
+        }
+        if (before != null) {
+            count(before, index, -1);
+        }
+        if (after != null) {
+            count(after, index, 1);
+        }
+        // if the fields are not read for a long time, rebuilding them is cheaper than keeping
+        // every change
+        long pending = 0;
+        for (IntList tiles : changed) {
+            pending += tiles.size();
+        }
+        if (pending > grid.getSize()) {
+            stale = true;
+            for (IntList tiles : changed) {
+                tiles.clear();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void tilesReplaced() {
+        stale = true;
+    }
+
+    /**
+     * An entity found by a search of the distance fields.
+     */
+    public static class Target {
+
+        /**
+         * The coordinate of the entity.
+         */
+        private final Coordinate coordinate;
+        /**
+         * The kind of the entity.
+         */
+        private final Kind kind;
+        /**
+         * The points the entity is worth.
+         */
+        private final int points;
+        /**
+         * The number of steps to collect the entity.
+         */
+        private final int steps;
+
+        /**
+         * Creates a target.
+         *
+         * @param coordinate coordinate of the entity
+         * @param kind       kind of the entity
+         * @param points     points the entity is worth
+         * @param steps      number of steps to collect the entity
+         */
+        private Target(Coordinate coordinate, Kind kind, int points, int steps) {
+            this.coordinate = coordinate;
+            this.kind = kind;
+            this.points = points;
+            this.steps = steps;
+        }
+
+        /**
+         * Returns the coordinate of the entity.
+         *
+         * @return coordinate
+         */
+        public Coordinate getCoordinate() {
+            return coordinate;
+        }
+
+        /**
+         * Returns the kind of the entity.
+         *
+         * @return kind
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the points the entity is worth when collected.
+         *
+         * @return points
+         */
+        public int getPoints() {
+            return points;
+        }
+
+        /**
+         * Returns the number of steps a user takes before it can collect the entity.
+         *
+         * @return number of steps
+         */
+        public int getSteps() {
+            return steps;
+        }
+
+        /**
+         * Returns the points the entity is worth for each step, counting the collection as a
+         * step.
+         *
+         * @return points / (steps + 1)
+         */
+        public double getPointsPerStep() {
+            return (double) points / (steps + 1);
+        }
+
+        /**
+         * Returns the string representation of the target.
+         * <p>
+         * The format of the string to return is
+         * <pre>
+         * kind at coordinate: points points in steps steps
+         * </pre>
+         * For example: <pre>FLORA at (2,3): 4 points in 5 steps</pre>
+         *
+         * @return string representation of the target
+         */
+        @Override
+        public String toString() {
+            return String.format("%s at %s: %d points in %d steps", kind, coordinate, points,
+                steps);
+        }
+    }
+
+    /**
+     * A growable list of ints.
+     */
+    private static class IntList {
+
+        /**
+         * The elements of the list, followed by unused space.
+         */
+        private int[] elements = new int[16];
+        /**
+         * The number of elements in the list.
+         */
+        private int size;
+
+        /**
+         * Returns the number of elements in the list.
+         *
+         * @return size
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Returns the element at the given position.
+         *
+         * @param position position of the element
+         * @return element
+         */
+        private int get(int position) {
+            return elements[position];
+        }
+
+        /**
+         * Adds the given element to the end of the list.
+         *
+         * @param value element to add
+         */
+        private void add(int value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = value;
+        }
+
+        /**
+         * Adds the given pair of elements to the end of the list.
+         *
+         * @param first  first element to add
+         * @param second second element to add
+         */
+        private void add(int first, int second) {
+            add(first);
+            add(second);
+        }
+
+        /**
+         * Removes every element of the list.
+         */
+        private void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
+import researchsim.map.TileType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the coordinates that entities can move to on a scenario map.
+ * <p>
+ * The engine keeps a bitmask of the tiles each kind of entity can stand on, and of the tiles
+ * that are occupied, with one bit per tile packed into {@code long} words row by row. The masks
+ * are kept up to date by listening to the scenario's {@link TileGrid}.
+ * <p>
+ * Reachable coordinates are found by extracting the rows around an entity and shifting a mask
+ * of the tiles reached so far one tile at a time, rather than by building and checking each
+ * path separately. The results are the same as those of {@link Fauna#canMove(Coordinate)} and
+ * {@link User#canMove(Coordinate)}: an entity may move horizontally then vertically (or
+ * vertically then horizontally) and every tile along the way must be passable.
+ */
+public class MovementEngine implements TileGridListener {
+
+    /**
+     * The largest movement radius that can be queried.
+     */
+    public static final int MAX_RADIUS = 31;
+
+    /**
+     * The grid the engine reads tiles from.
+     */
+    private final TileGrid grid;
+    /**
+     * Width of the map.
+     */
+    private final int width;
+    /**
+     * Height of the map.
+     */
+    private final int height;
+    /**
+     * The number of words that store a row of each mask.
+     */
+    private final int wordsPerRow;
+    /**
+     * Tiles an ocean animal can stand on.
+     */
+    private long[] ocean;
+    /**
+     * Tiles a land animal can stand on.
+     */
+    private long[] land;
+    /**
+     * Tiles a user can walk over.
+     */
+    private long[] walkable;
+    /**
+     * Tiles that are occupied by an entity.
+     */
+    private final long[] occupied;
+    /**
+     * Whether the terrain masks may be shared with the engine of a forked grid, and must be
+     * copied before they are changed.
+     */
+    private boolean terrainShared;
+
+    /**
+     * Creates a movement engine for the given grid.
+     * The engine will listen to the grid for changes.
+     *
+     * @param grid the grid to compute movement on
+     */
+    public MovementEngine(TileGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.wordsPerRow = (width + Long.SIZE - 1) / Long.SIZE;
+        this.ocean = new long[wordsPerRow * height];
+        this.land = new long[wordsPerRow * height];
+        this.walkable = new long[wordsPerRow * height];
+        this.occupied = new long[wordsPerRow * height];
+        this.terrainShared = false;
+        tilesReplaced();
+        grid.addListener(this);
+    }
+
+    /**
+     * Creates a movement engine for the given grid, which is a fork of the grid of the given
+     * engine ({@link TileGrid#fork}). The masks of the engine are copied rather than computed
+     * from the grid, and the terrain masks are shared by both engines until either grid
+     * changes a tile type. The engine will listen to the grid for changes.
+     *
+     * @param grid     the grid to compute movement on
+     * @param original engine of the grid that was forked
+     */
+    MovementEngine(TileGrid grid, MovementEngine original) {
+        this.grid = grid;
+        this.width = original.width;
+        this.height = original.height;
+        this.wordsPerRow = original.wordsPerRow;
+        original.terrainShared = true;
+        this.ocean = original.ocean;
+        this.land = original.land;
+        this.walkable = original.walkable;
+        this.terrainShared = true;
+        this.occupied = original.occupied.clone();
+        grid.addListener(this);
+    }
+
+    /**
+     * Returns a List of all the coordinates that the given animal can move to.
+     * The coordinates are in the same order as returned by {@link Fauna#checkRange}.
+     *
+     * @param animal the animal to move
+     * @return list of possible movements
+     * @throws IllegalArgumentException if the animal can move further than {@link #MAX_RADIUS}
+     */
+    public List<Coordinate> getPossibleMoves(Fauna animal) {
+        int radius = animal.getSize().moveDistance;
+        return toCoordinates(animal.getCoordinate(), radius,
+            destinations(animal.getCoordinate(), radius, habitatMask(animal), true));
+    }
+
+    /**
+     * Returns the coordinates that each of the given animals can move to.
+     * The moves of an animal are at the same index in the returned list as the animal.
+     *
+     * @param animals the animals to move
+     * @return list of possible movements for each animal
+     * @throws IllegalArgumentException if an animal can move further than {@link #MAX_RADIUS}
+     */
+    public List<List<Coordinate>> getPossibleMoves(List<? extends Fauna> animals) {
+        List<List<Coordinate>> moves = new ArrayList<>(animals.size());
+        for (Fauna animal : animals) {
+            moves.add(getPossibleMoves(animal));
+        }
+        return moves;
+    }
+
+    /**
+     * Returns the number of coordinates that the given animal can move to.
+     * This is the size of {@link #getPossibleMoves(Fauna)} without creating any coordinates.
+     *
+     * @param animal the animal to move
+     * @return number of possible movements
+     * @throws IllegalArgumentException if the animal can move further than {@link #MAX_RADIUS}
+     */
+    public int countPossibleMoves(Fauna animal) {
+        long[] rows = destinations(animal.getCoordinate(), animal.getSize().moveDistance,
+            habitatMask(animal), true);
+        int count = 0;
+        for (long row : rows) {
+            count += Long.bitCount(row);
+        }
+        return count;
+    }
+
+    /**
+     * Returns a List of all the coordinates that the given user can move to.
+     * The coordinates are in the same order as returned by {@link User#checkRange}.
+     *
+     * @param user the user to move
+     * @return list of possible movements
+     */
+    public List<Coordinate> getPossibleMoves(User user) {
+        int radius = user.getSize().moveDistance;
+        return toCoordinates(user.getCoordinate(), radius,
+            destinations(user.getCoordinate(), radius, walkable, false));
+    }
+
+    /**
+     * Returns the mask of the tiles the given animal can stand on.
+     *
+     * @param animal the animal
+     * @return habitat mask
+     */
+    private long[] habitatMask(Fauna animal) {
+        return animal.getHabitat() == TileType.OCEAN ? ocean : land;
+    }
+
+    /**
+     * Finds the tiles within the radius of the origin that can be reached by moving along one
+     * row and one column of passable tiles.
+     * <p>
+     * The result has a word for each row from {@code y - radius} to {@code y + radius}, bit
+     * {@code i} of each word is the column {@code x - radius + i}. The origin is never included.
+     *
+     * @param origin   the coordinate to move from
+     * @param radius   the maximum number of tiles to move
+     * @param passable mask of the tiles that can be moved over
+     * @param blocking whether occupied tiles can not be moved over
+     * @return the reachable tiles around the origin
+     */
+    private long[] destinations(Coordinate origin, int radius, long[] passable,
+                                boolean blocking) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Can not compute moves for a radius of " + radius);
+        }
+        int span = 2 * radius + 1;
+        int left = origin.getX() - radius;
+        int top = origin.getY() - radius;
+        long[] free = new long[span];
+        for (int row = 0; row < span; row++) {
+            free[row] = window(passable, top + row, left, span);
+            if (blocking) {
+                free[row] &= ~window(occupied, top + row, left, span);
+            }
+        }
+
+        long centre = 1L << radius;
+        long[] reached = new long[span];
+
+        // horizontal then vertical
+        long across = centre | run(centre, free[radius], radius);
+        reached[radius] = across;
+        long up = across;
+        long down = across;
+        for (int step = 1; step <= radius; step++) {
+            long budget = columnsWithin(radius, radius - step);
+            up &= free[radius - step] & budget;
+            down &= free[radius + step] & budget;
+            reached[radius - step] |= up;
+            reached[radius + step] |= down;
+        }
+
+        // vertical then horizontal
+        boolean upOpen = true;
+        boolean downOpen = true;
+        for (int step = 1; step <= radius; step++) {
+            upOpen &= (free[radius - step] & centre) != 0;
+            downOpen &= (free[radius + step] & centre) != 0;
+            if (upOpen) {
+                reached[radius - step] |= centre
+                    | run(centre, free[radius - step], radius - step);
+            }
+            if (downOpen) {
+                reached[radius + step] |= centre
+                    | run(centre, free[radius + step], radius - step);
+            }
+        }
+
+        reached[radius] &= ~centre;
+        return reached;
+    }
+
+    /**
+     * Returns the tiles reached by moving left or right from a starting tile along a row.
+     *
+     * @param start the bit of the starting tile
+     * @param free  the tiles of the row that can be moved over
+     * @param steps the maximum number of tiles to move
+     * @return the tiles reached, not including the starting tile
+     */
+    private static long run(long start, long free, int steps) {
+        long reached = 0;
+        long left = start;
+        long right = start;
+        for (int step = 0; step < steps && (left | right) != 0; step++) {
+            left = (left >>> 1) & free;
+            right = (right << 1) & free;
+            reached |= left | right;
+        }
+        return reached;
+    }
+
+    /**
+     * Returns a mask of the columns within a distance of the centre column of a window.
+     *
+     * @param radius   the radius of the window
+     * @param distance the maximum distance from the centre column
+     * @return column mask
+     */
+    private static long columnsWithin(int radius, int distance) {
+        return ((1L << (2 * distance + 1)) - 1) << (radius - distance);
+    }
+
+    /**
+     * Reads a run of bits from a row of a mask.
+     * Bits outside of the map are read as 0.
+     *
+     * @param mask   the mask to read
+     * @param y      the row to read
+     * @param x      the column of the first bit to read
+     * @param length the number of bits to read, less than 64
+     * @return the bits read, the bit for column {@code x} is the lowest bit
+     */
+    private long window(long[] mask, int y, int x, int length) {
+        if (y < 0 || y >= height) {
+            return 0;
+        }
+        int from = Math.max(x, 0);
+        int to = Math.min(x + length, width);
+        if (from >= to) {
+            return 0;
+        }
+        int word = y * wordsPerRow + from / Long.SIZE;
+        int offset = from % Long.SIZE;
+        long bits = mask[word] >>> offset;
+        if (offset != 0 && (from / Long.SIZE) + 1 < wordsPerRow) {
+            bits |= mask[word + 1] << (Long.SIZE - offset);
+        }
+        bits &= (1L << (to - from)) - 1;
+        return bits << (from - x);
+    }
+
+    /**
+     * Converts the result of {@link #destinations} into coordinates, ordered by column then row.
+     *
+     * @param origin  the coordinate moved from
+     * @param radius  the radius that was searched
+     * @param reached the reachable tiles
+     * @return the reachable coordinates
+     */
+    private static List<Coordinate> toCoordinates(Coordinate origin, int radius, long[] reached) {
+        List<Coordinate> coordinates = new ArrayList<>();
+        long any = 0;
+        for (long row : reached) {
+            any |= row;
+        }
+        while (any != 0) {
+            int column = Long.numberOfTrailingZeros(any);
+            any &= any - 1;
+            for (int row = 0; row < reached.length; row++) {
+                if ((reached[row] & (1L << column)) != 0) {
+                    coordinates.add(new Coordinate(origin.getX() - radius + column,
+                        origin.getY() - radius + row));
+                }
+            }
+        }
+        return coordinates;
+    }
+
+    @Override
+    public void typeChanged(int index, TileType previous, TileType current) {
+        ownTerrain();
+        updateType(index, current);
+    }
+
+    @Override
+    public void occupantChanged(int index, Entity previous, Entity current) {
+        setBit(occupied, index, current != null);
+    }
+
+    @Override
+    public void tilesReplaced() {
+        ownTerrain();
+        Arrays.fill(ocean, 0);
+        Arrays.fill(land, 0);
+        Arrays.fill(walkable, 0);
+        Arrays.fill(occupied, 0);
+        grid.forEachTile((index, type, occupant) -> {
+            updateType(index, type);
+            setBit(occupied, index, occupant != null);
+        });
+    }
+
+    /**
+     * Copies the terrain masks if they may be shared with another engine.
+     */
+    private void ownTerrain() {
+        if (terrainShared) {
+            ocean = ocean.clone();
+            land = land.clone();
+            walkable = walkable.clone();
+            terrainShared = false;
+        }
+    }
+
+    /**
+     * Updates the terrain masks for a tile.
+     *
+     * @param index tile index
+     * @param type  the tile's type, or null if the tile has not been set
+     */
+    private void updateType(int index, TileType type) {
+        setBit(ocean, index, type == TileType.OCEAN);
+        setBit(land, index, type != null && type != TileType.OCEAN);
+        setBit(walkable, index, type != null && type != TileType.OCEAN
+            && type != TileType.MOUNTAIN);
+    }
+
+    /**
+     * Sets or clears the bit for a tile in a mask.
+     *
+     * @param mask  the mask to update
+     * @param index tile index
+     * @param value whether the bit should be set
+     */
+    private void setBit(long[] mask, int index, boolean value) {
+        int x = index % width;
+        int word = (index / width) * wordsPerRow + x / Long.SIZE;
+        long bit = 1L << (x % Long.SIZE);
+        if (value) {
+            mask[word] |= bit;
+        } else {
+            mask[word] &= ~bit;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package researchsim.scenario;
+
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads several save files at once, parsing them concurrently.
+ * <p>
+ * Each file is read on a worker thread without touching the {@link ScenarioManager}, so the
+ * files are parsed and validated independently of one another. Once every file has been read,
+ * the scenarios are added to the manager in the order the files were given, which leaves the
+ * manager in the same state as loading the files one after another with
+ * {@link Scenario#load(Reader, boolean)}. If any file is invalid no scenario is added.
+ * <p>
+ * The time taken to parse each file is recorded and reported by {@link #toString()}.
+ */
+public class ParallelScenarioLoader {
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * The files to load, in order.
+     */
+    private final List<Path> files;
+    /**
+     * Whether the scenarios' maps should be packed.
+     */
+    private final boolean packed;
+    /**
+     * The time taken to parse each file, or -1 if it has not been parsed.
+     */
+    private final long[] parseNanos;
+    /**
+     * The time taken by the last load, from the first parse to the last registration.
+     */
+    private long totalNanos;
+
+    /**
+     * Creates a loader of the given files.
+     *
+     * @param files  the save files, read as binary saves if they end with
+     *               {@value BinaryScenarioFormat#EXTENSION} and as text saves otherwise
+     * @param packed whether the scenarios' maps should be packed
+     */
+    public ParallelScenarioLoader(List<Path> files, boolean packed) {
+        this.files = List.copyOf(files);
+        this.packed = packed;
+        this.parseNanos = new long[files.size()];
+        Arrays.fill(parseNanos, -1);
+    }
+
+    /**
+     * Reads a scenario from a save file, without registering it with the
+     * {@link ScenarioManager}.
+     *
+     * @param file   the save file, read as a binary save if it ends with
+     *               {@value BinaryScenarioFormat#EXTENSION} and as a text save otherwise
+     * @param packed whether the scenario's map should be packed
+     * @return scenario read from the file
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the save is invalid
+     */
+    public static Scenario read(Path file, boolean packed) throws IOException, BadSaveException {
+        if (BinaryScenarioFormat.isBinary(file.toString())) {
+            return BinaryScenarioFormat.read(file, packed);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return Scenario.read(reader, packed);
+        }
+    }
+
+    /**
+     * Loads the files on a new pool of up to one thread per processor, which is shut down
+     * once the files have been parsed.
+     *
+     * @return the scenarios, in the order of the files
+     * @throws IOException if a file could not be read
+     * @throws BadSaveException if a file is invalid
+     * @see #load(ExecutorService)
+     */
+    public List<Scenario> load() throws IOException, BadSaveException {
+        int threads = Math.max(1,
+            Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "scenario-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return load(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Parses the files concurrently on the given executor, then adds the scenarios to the
+     * {@link ScenarioManager} in the order of the files. The last scenario becomes the
+     * manager's current scenario, as it would if the files were loaded one after another.
+     * <p>
+     * Every file is parsed even if another is invalid. If any file could not be loaded, the
+     * exception of the first such file in order is thrown, with the exceptions of later files
+     * suppressed, and no scenario is added to the manager.
+     *
+     * @param executor executor to parse the files on
+     * @return the scenarios, in the order of the files
+     * @throws IOException if a file could not be read
+     * @throws BadSaveException if a file is invalid
+     * @throws IllegalStateException if the thread is interrupted while waiting for the executor
+     */
+    public List<Scenario> load(ExecutorService executor) throws IOException, BadSaveException {
+        long start = System.nanoTime();
+        List<Callable<Scenario>> tasks = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int file = i;
+            tasks.add(() -> {
+                long parseStart = System.nanoTime();
+                try {
+                    return read(files.get(file), packed);
+                } finally {
+                    parseNanos[file] = System.nanoTime() - parseStart;
+                }
+            });
+        }
+
+        List<Future<Scenario>> results;
+        try {
+            results = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading scenarios.", e);
+        }
+        List<Scenario> scenarios = new ArrayList<>(files.size());
+        Exception failure = null;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                scenarios.add(results.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading scenarios.", e);
+            } catch (ExecutionException e) {
+                Exception cause = describe(files.get(i), e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof BadSaveException) {
+            throw (BadSaveException) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+
+        ScenarioManager manager = ScenarioManager.getInstance();
+        for (Scenario scenario : scenarios) {
+            manager.addScenario(scenario);
+        }
+        totalNanos = System.nanoTime() - start;
+        return scenarios;
+    }
+
+    /**
+     * Returns the exception of a file that could not be loaded, naming the file if the
+     * exception is a BadSaveException.
+     *
+     * @param file  the file
+     * @param cause the exception thrown while loading the file
+     * @return exception to report
+     */
+    private static Exception describe(Path file, Throwable cause) {
+        if (cause instanceof BadSaveException) {
+            return new BadSaveException("Invalid save " + file, cause);
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        throw (Error) cause;
+    }
+
+    /**
+     * Returns the files to load, in order.
+     *
+     * @return the files
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * Returns the time taken to parse the file at the given position.
+     *
+     * @param file position of the file
+     * @return parse time in nanoseconds, or -1 if the file has not been parsed
+     */
+    public long getParseNanos(int file) {
+        return parseNanos[file];
+    }
+
+    /**
+     * Returns the time taken by the last successful load, from the start of parsing to the
+     * last scenario being added to the manager.
+     *
+     * @return load time in nanoseconds, or 0 if the files have not been loaded
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns a report of the time taken to parse each file, such as:
+     * <pre>
+     * Loaded 2 files in 41.870 ms
+     * saves/scenario1.txt: 40.118 ms
+     * saves/scenario2.txt: 12.004 ms
+     * </pre>
+     *
+     * @return load report
+     */
+    @Override
+    public String toString() {
+        StringJoiner report = new StringJoiner(System.lineSeparator());
+        report.add(String.format("Loaded %d files in %.3f ms", files.size(),
+            totalNanos / NANOS_PER_MILLI));
+        for (int i = 0; i < files.size(); i++) {
+            report.add(String.format("%s: %.3f ms", files.get(i),
+                parseNanos[i] / NANOS_PER_MILLI));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package researchsim.scenario;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes save files so that a save file is never left partly written.
+ * <p>
+ * Each file is written to a temporary file next to it, which then replaces the file in a single
+ * atomic move, or in a plain move where the file system can not move files atomically. The
+ * temporary file is deleted if it could not be written or moved.
+ */
+public final class SaveFiles {
+
+    /**
+     * Utility class, not to be instantiated.
+     */
+    private SaveFiles() {
+    }
+
+    /**
+     * Writes a snapshot of a scenario over a save file, in the binary format if the file's name
+     * ends with {@value BinaryScenarioFormat#EXTENSION} and as text otherwise.
+     *
+     * @param snapshot snapshot to save
+     * @param file     the save file to replace
+     * @throws IOException if the file could not be written or moved
+     */
+    public static void write(ScenarioSnapshot snapshot, Path file) throws IOException {
+        replace(file, temporary -> {
+            if (BinaryScenarioFormat.isBinary(file.toString())) {
+                BinaryScenarioFormat.write(snapshot, temporary);
+            } else {
+                try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    snapshot.encodeTo(out);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a file to a temporary file and moves it over the target file.
+     *
+     * @param target   the file to replace
+     * @param contents writes the contents of the file
+     * @throws IOException if the file could not be written or moved
+     */
+    public static void replace(Path target, Contents contents) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(),
+            absolute.getFileName().toString(), ".tmp");
+        try {
+            contents.writeTo(temporary);
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes the contents of a file.
+     */
+    @FunctionalInterface
+    public interface Contents {
+
+        /**
+         * Writes the contents of the file to the given path.
+         *
+         * @param file the file to write
+         * @throws IOException if the file could not be written
+         */
+        void writeTo(Path file) throws IOException;
+    }
+}
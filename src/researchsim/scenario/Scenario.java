@@ -2,19 +2,25 @@ package researchsim.scenario;
 
 import researchsim.entities.*;
 import researchsim.logging.Logger;
+import researchsim.map.ArrayTileGrid;
 import researchsim.map.Coordinate;
+import researchsim.map.PackedTileGrid;
 import researchsim.map.Tile;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
 import researchsim.map.TileType;
+import researchsim.map.TileVisitor;
 import researchsim.util.BadSaveException;
 import researchsim.util.CoordinateOutOfBoundsException;
 import researchsim.util.Encodable;
-import researchsim.util.NoSuchEntityException;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 
 /**
@@ -49,6 +55,13 @@ public class Scenario implements Encodable {
      * @ass1
      */
     public static final int MAX_TILES = MAX_SIZE * MAX_SIZE;
+    /**
+     * The maximum dimensions of the map grid of a packed scenario.
+     * The value of this constant is {@value}
+     *
+     * @see #Scenario(String, int, int, int, boolean)
+     */
+    public static final int MAX_PACKED_SIZE = 32768;
     /**
      * The name of this scenario.
      */
@@ -64,16 +77,23 @@ public class Scenario implements Encodable {
     /**
      * The tile grid for this scenario.
      */
-    private
-    Tile[] mapGrid;
+    private final TileGrid mapGrid;
     /**
-     * the random seed for this scenario
+     * Whether the tile grid is packed into primitive arrays.
      */
-    private int seed;
+    private final boolean packed;
+    /**
+     * Computes where entities can move on the map grid.
+     */
+    private final MovementEngine movementEngine;
     /**
-     * The default value of width, height and seed
+     * The hashes of the map grid, kept up to date as it changes.
      */
-    private static int defaultValue = 5;
+    private final ZobristHash hash;
+    /**
+     * the random seed for this scenario
+     */
+    private int seed;
     /**
      * The logger of this scenario
      */
@@ -81,7 +101,7 @@ public class Scenario implements Encodable {
     /**
      * The random generated in this scenario
      */
-    private Random random;
+    private CopyableRandom random;
     /**
      * The animal controller in this scenario
      */
@@ -108,13 +128,40 @@ public class Scenario implements Encodable {
      */
     public Scenario(String name, int width, int height, int seed)
         throws IllegalArgumentException {
-        if (width > MAX_SIZE || width < MIN_SIZE) {
+        this(name, width, height, seed, false);
+    }
+
+    /**
+     * Creates a new Scenario with a given name, width, height and random seed, optionally
+     * storing the board in a {@link PackedTileGrid}. <br>
+     * A packed board stores each tile in primitive arrays rather than as a {@link Tile} object,
+     * which allows for maps with a width and height of up to {@value Scenario#MAX_PACKED_SIZE}.
+     * Every tile of a packed board starts as {@link TileType#LAND}. <br>
+     * Otherwise, the scenario is created as described by
+     * {@link #Scenario(String, int, int, int)}.
+     *
+     * @param name   scenario name
+     * @param width  width of the board
+     * @param height height of the board
+     * @param seed   the random seed for this scenario
+     * @param packed whether the board should be packed
+     * @throws IllegalArgumentException if width &lt; {@value Scenario#MIN_SIZE} or width &gt; the
+     *                                  maximum size or height &lt; {@value Scenario#MIN_SIZE} or
+     *                                  height &gt; the maximum size or seed &lt; 0 or name is
+     *                                  {@code null}. The maximum size is
+     *                                  {@value Scenario#MAX_PACKED_SIZE} for a packed board,
+     *                                  otherwise {@value Scenario#MAX_SIZE}.
+     */
+    public Scenario(String name, int width, int height, int seed, boolean packed)
+        throws IllegalArgumentException {
+        int maxSize = getMaxSize(packed);
+        if (width > maxSize || width < MIN_SIZE) {
             throw new IllegalArgumentException("The given width does not conform to the "
-                + "requirement: " + MIN_SIZE + " <= width <= " + MAX_SIZE + ".");
+                + "requirement: " + MIN_SIZE + " <= width <= " + maxSize + ".");
         }
-        if (height > MAX_SIZE || height < MIN_SIZE) {
+        if (height > maxSize || height < MIN_SIZE) {
             throw new IllegalArgumentException("The given height does not conform to the "
-                + "requirement: " + MIN_SIZE + " <= height <= " + MAX_SIZE + ".");
+                + "requirement: " + MIN_SIZE + " <= height <= " + maxSize + ".");
         }
         if (name == null) {
             throw new IllegalArgumentException("The given name does not conform to the "
@@ -128,9 +175,82 @@ public class Scenario implements Encodable {
         this.height = height;
         this.seed = seed;
         this.logger = new Logger();
-        this.animalController = new AnimalController();
-        this.mapGrid = new Tile[width * height];
-        this.random = new Random(seed);
+        this.animalController = new AnimalController(this);
+        this.packed = packed;
+        this.mapGrid = packed ? new PackedTileGrid(width, height)
+            : new ArrayTileGrid(width, height);
+        this.movementEngine = new MovementEngine(mapGrid);
+        this.mapGrid.addListener(new EntityBinder());
+        this.hash = new ZobristHash(mapGrid);
+        this.random = new CopyableRandom(seed);
+    }
+
+    /**
+     * Creates a fork of the given scenario, as described by {@link #fork()}.
+     *
+     * @param original scenario to fork
+     */
+    private Scenario(Scenario original) {
+        this.name = original.name;
+        this.width = original.width;
+        this.height = original.height;
+        this.seed = original.seed;
+        this.packed = original.packed;
+        this.logger = new Logger(original.logger.getCapacity());
+        this.random = original.random.copy();
+
+        Map<Entity, Entity> copies = new IdentityHashMap<>();
+        UnaryOperator<Entity> copier = entity -> copies.computeIfAbsent(entity, Entity::copy);
+        this.mapGrid = original.mapGrid.fork(copier);
+        this.movementEngine = new MovementEngine(mapGrid, original.movementEngine);
+        this.mapGrid.addListener(new EntityBinder());
+        this.hash = new ZobristHash(mapGrid, original.hash);
+        this.animalController = new AnimalController(this, original.animalController,
+            animal -> (Fauna) copier.apply(animal));
+        for (Entity copy : copies.values()) {
+            copy.setScenario(this);
+        }
+    }
+
+    /**
+     * Returns an independent copy of this scenario, for running speculative turns without
+     * changing this scenario.
+     * <p>
+     * The fork has the same name, dimensions, seed and map as this scenario. Every entity on
+     * the map and every animal of the controller is copied, and the copies are bound to the
+     * fork, so moving an entity of the fork does not move the entity of this scenario. The fork
+     * has its own:
+     * <ul>
+     *     <li>random instance, in the same state as this scenario's, so the fork's turns
+     *     ({@link AnimalController#move()}) go as this scenario's next turns would</li>
+     *     <li>animal controller, with the same animals in the same order, the same identifiers
+     *     and the same turn number</li>
+     *     <li>empty activity log with the same capacity, without this log's sinks, so events of
+     *     the fork are never saved or journalled</li>
+     * </ul>
+     * <p>
+     * The fork is not registered with the {@link ScenarioManager}. The map of a packed scenario
+     * is shared with the fork until either changes it ({@link PackedTileGrid#fork}), so the
+     * time and memory taken by a fork grow with the number of entities rather than the size
+     * of the map. The tiles of an unpacked map are copied, as there are at most
+     * {@value #MAX_TILES} of them.
+     * <p>
+     * This must not be called while a turn is being moved in parallel.
+     *
+     * @return independent copy of this scenario
+     */
+    public Scenario fork() {
+        return new Scenario(this);
+    }
+
+    /**
+     * Returns the maximum width and height of a scenario.
+     *
+     * @param packed whether the scenario's board is packed
+     * @return maximum dimension
+     */
+    private static int getMaxSize(boolean packed) {
+        return packed ? MAX_PACKED_SIZE : MAX_SIZE;
     }
 
     /**
@@ -152,7 +272,7 @@ public class Scenario implements Encodable {
      * @ass1
      */
     public Tile[] getMapGrid() {
-        return Arrays.copyOf(mapGrid, getSize());
+        return mapGrid.toTileArray();
     }
 
     /**
@@ -169,7 +289,138 @@ public class Scenario implements Encodable {
         if (map.length != this.getSize()) {
             throw new CoordinateOutOfBoundsException();
         }
-        mapGrid = Arrays.copyOf(map, getSize());
+        mapGrid.setTiles(map);
+    }
+
+    /**
+     * Returns whether the map grid of this scenario is packed into primitive arrays.
+     *
+     * @return true if the map grid is packed, else false
+     * @see #Scenario(String, int, int, int, boolean)
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Returns the tile at the given index of the map grid without copying the grid.
+     * <p>
+     * Changes made to the contents of the returned tile are made to this scenario.
+     *
+     * @param index index in the tile grid
+     * @return tile at the index
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; {@link #getSize()}
+     */
+    public Tile tileAt(int index) {
+        return mapGrid.getTile(index);
+    }
+
+    /**
+     * Returns the tile at the given position of the map grid without copying the grid.
+     * <p>
+     * Changes made to the contents of the returned tile are made to this scenario.
+     *
+     * @param x horizontal position
+     * @param y vertical position
+     * @return tile at the position
+     * @throws IndexOutOfBoundsException if the position is not on the map
+     */
+    public Tile tileAt(int x, int y) {
+        return mapGrid.getTile(toIndex(x, y));
+    }
+
+    /**
+     * Returns the type of the tile at the given index of the map grid.
+     *
+     * @param index index in the tile grid
+     * @return tile type
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; {@link #getSize()}
+     */
+    public TileType terrainAt(int index) {
+        return mapGrid.getType(index);
+    }
+
+    /**
+     * Returns the type of the tile at the given position of the map grid.
+     *
+     * @param x horizontal position
+     * @param y vertical position
+     * @return tile type
+     * @throws IndexOutOfBoundsException if the position is not on the map
+     */
+    public TileType terrainAt(int x, int y) {
+        return mapGrid.getType(toIndex(x, y));
+    }
+
+    /**
+     * Returns the inhabitant of the tile at the given index of the map grid.
+     *
+     * @param index index in the tile grid
+     * @return tile inhabitant, or null if the tile is empty
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; {@link #getSize()}
+     */
+    public Entity occupantAt(int index) {
+        return mapGrid.getOccupant(index);
+    }
+
+    /**
+     * Returns the inhabitant of the tile at the given position of the map grid.
+     *
+     * @param x horizontal position
+     * @param y vertical position
+     * @return tile inhabitant, or null if the tile is empty
+     * @throws IndexOutOfBoundsException if the position is not on the map
+     */
+    public Entity occupantAt(int x, int y) {
+        return mapGrid.getOccupant(toIndex(x, y));
+    }
+
+    /**
+     * Performs the given action on each tile of the map grid, in index order, without copying
+     * the grid.
+     *
+     * @param visitor action to perform on each tile
+     */
+    public void forEachTile(TileVisitor visitor) {
+        mapGrid.forEachTile(visitor);
+    }
+
+    /**
+     * Updates the inhabitant of the tile at the given index of the map grid.
+     *
+     * @param index  index in the tile grid
+     * @param entity the new inhabitant, or null to empty the tile
+     * @throws IndexOutOfBoundsException if index &lt; 0 or index &ge; {@link #getSize()}
+     */
+    public void setOccupant(int index, Entity entity) {
+        mapGrid.setOccupant(index, entity);
+    }
+
+    /**
+     * Moves the inhabitant of one tile of the map grid to another tile, leaving the first tile
+     * empty. Any inhabitant of the destination tile is replaced.
+     *
+     * @param from index of the tile to move the inhabitant from
+     * @param to   index of the tile to move the inhabitant to
+     * @throws IndexOutOfBoundsException if either index is not in the tile grid
+     */
+    public void moveOccupant(int from, int to) {
+        mapGrid.moveOccupant(from, to);
+    }
+
+    /**
+     * Converts a position on the map to its index in the tile grid.
+     *
+     * @param x horizontal position
+     * @param y vertical position
+     * @return grid index
+     * @throws IndexOutOfBoundsException if the position is not on the map
+     */
+    private int toIndex(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("(" + x + "," + y + ") is not on the map.");
+        }
+        return x + y * width;
     }
 
 
@@ -204,6 +455,39 @@ public class Scenario implements Encodable {
         return width * height;
     }
 
+    /**
+     * Returns the engine that computes where entities can move on the map of this scenario.
+     *
+     * @return movement engine
+     */
+    public MovementEngine getMovementEngine() {
+        return movementEngine;
+    }
+
+    /**
+     * Returns the random seed of this scenario.
+     *
+     * @return random seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Updates the random seed of this scenario.
+     * The scenario's random instance is restarted from the new seed.
+     *
+     * @param seed the new random seed
+     * @throws IllegalArgumentException if seed &lt; 0
+     */
+    public void setSeed(int seed) {
+        if (seed < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.seed = seed;
+        this.random = new CopyableRandom(seed);
+    }
+
     /**
      * Returns the scenarios random instance.
      *
@@ -223,185 +507,31 @@ public class Scenario implements Encodable {
     }
 
     /**
-     * Returns the scenarios enemy manager.
+     * Replaces the scenario's activity log, for example with a log that keeps its events in a
+     * {@link researchsim.logging.ColumnarEventStore}.
      *
-     * @return enemy manager
+     * @param logger the new activity log
      */
-    public AnimalController getController() {
-        return this.animalController;
+    public void setLog(Logger logger) {
+        this.logger = logger;
     }
 
     /**
-     * Read the line of width, height, or seed. Return the value of it.
-     * @param line The line in the file to be read
-     * @param expectedName The expected name of value
-     * @return the value of width, height, or seed
-     * @throws BadSaveException the Width, Height or Seed lines do not contain exactly one colon.
-     * or any of the Width, Height and Seed keys (before colon) are not "Width", "Height" and
-     * "Seed" respectively. Or any of the Width, Height and Seed values (after colon)
-     * are not a valid integer (i.e. cannot be parsed by Integer.parseInt(String)).
-     * Or Width, Height and Seed values cause an IllegalArgumentException when used to create
-     * a Scenario with the constructor Scenario(String, int, int, int).
-     * Scenario(ScenarioName, Width, Height, Seed)
+     * Returns the scenarios enemy manager.
+     *
+     * @return enemy manager
      */
-    private static int widthHeightSeedReader(String line, String expectedName)
-            throws BadSaveException {
-        int stat;
-        if (line.split(":", -1).length != 2
-                || !line.split(":", -1)[0].equals(expectedName)) {
-            throw new BadSaveException();
-        }
-        try {
-            stat = Integer.parseInt(line.split(":", -1)[1]);
-        } catch (NumberFormatException e) {
-            throw new BadSaveException();
-        }
-        if (stat == -1) {
-            stat = defaultValue;
-        }
-        return stat;
+    public AnimalController getController() {
+        return this.animalController;
     }
 
     /**
-     * Read the map of scenario from the file
+     * Returns the tile grid of this scenario without copying it.
      *
-     * @param bufferedReader the buffered reader
-     * @param width the width of the scenario
-     * @param height the height of the scenario
-     * @return the list of tiles in the given scenario
-     * @throws BadSaveException if The number of characters on that line is not exactly the
-     * Width value (or its default, see below).
-     * NOTE: This includes trailing whitespace such as tabs and spaces ( "\t" and " ").
-     * If the number of characters provided is not equal to the size of the scenario created
-     * with the Width and Height values
-     * If ANY character provided can not be parsed by TileType.decode(String)
-     * @throws IOException if the file is empty or have trouble reading the file
-     */
-    private static Tile[] mapReader(BufferedReader bufferedReader, int width, int height)
-            throws BadSaveException, IOException {
-        Tile[] map = new Tile[width * height];
-        StringBuilder mapElements = new StringBuilder();
-        for (int row = 0; row < height; row++) {
-            String line = bufferedReader.readLine();
-            if (line.length() != width) {
-                throw new BadSaveException();
-            }
-            mapElements.append(line);
-        }
-
-        char[] tiles = mapElements.toString().toCharArray();
-        int count = 0;
-        for (char tile : tiles) {
-            if (tile != 'L' && tile != 'O' && tile != 'S' && tile != 'X') {
-                throw new BadSaveException();
-            }
-            map[count] = new Tile(TileType.decode(String.valueOf(tile)));
-            count++;
-        }
-        return map;
-    }
-
-    /**
-     * Read the entity in the file
-     * @param line the given line containing entity information
-     * @param map the map of the scenario
-     * @param width the width of the scenario
-     * @return The entity in the file
-     * @throws BadSaveException if The line does not contain the correct number of hyphen ("-")
-     * characters for its respective encoding (Fauna.encode(), Entity.encode(), User.encode())
-     * The line does not start with "Fauna" or "Flora" or "User"
-     * If the Coordinate component can not be decoded by Coordinate.decode(String)
-     * If the Coordinate specified already has an Entity assigned.
-     * i.e. You can not have multiple entities request the same Coordiante in the reader
-     * If line starts with "Fauna" or "Flora" AND the Size component can not be decoded by
-     * Size.valueOf(String)
-     * If line starts with "Fauna" AND the Habitat component can not be decoded by
-     * TileType.valueOf(String)
-     * If line starts with "Fauna" AND the Habitat value causes an IllegalArgumentException
-     * to be thrown
-     * If line starts with "Fauna" AND the Habitat at the Tile specified by the Coordinate
-     * is not suitable
-     * That is, if Habitat is TileType.OCEAN the Tile's type must be TileType.OCEAN.
-     * If the Habitat is TileType.LAND the Tile's type must NOT be TileType.OCEAN.
-     * If line starts with "Flora" AND the Tile specified by the Coordinate is not suitable
-     * That is, if Tile's type is TileType.OCEAN then it is INVALID.
-     * If line starts with "User" AND the Tile specified by the Coordinate is not suitable
-     * That is, if Tile's type is TileType.OCEAN or TileType.MOUNTAIN then it is INVALID.
+     * @return tile grid
      */
-    private static Entity entityReader(String line, Tile[] map, int width) throws BadSaveException {
-        String[] elements = line.split("-", -1);
-        Coordinate coordinate = null;
-        Size size;
-        TileType habitat;
-        String name;
-        Entity entity = null;
-
-        // The first element is type of Entity
-        if (elements[0].equals("Fauna")) {
-            // the expected length is 4
-            if (elements.length != 4) {
-                throw new BadSaveException();
-            }
-            // the third element is coordinate
-            coordinate = Coordinate.decode(elements[2]);
-            try {
-                // the second element is size
-                size = Size.valueOf(elements[1]);
-                // the fourth element is habitat
-                habitat = TileType.valueOf(elements[3]);
-            } catch (Exception e) {
-                throw new BadSaveException();
-            }
-            int index = coordinate.getX() + coordinate.getY() * width;
-            if (habitat.equals(TileType.OCEAN)) {
-                if (!map[index].getType().equals(TileType.OCEAN)) {
-                    throw new BadSaveException();
-                }
-            } else if (habitat.equals(TileType.LAND)) {
-                if (map[index].getType().equals(TileType.OCEAN)) {
-                    throw new BadSaveException();
-                }
-            } else {
-                throw new BadSaveException();
-            }
-
-            entity = new Fauna(size, coordinate, habitat);
-        } else if (elements[0].equals("Flora")) {
-            if (elements.length != 3) {
-                throw new BadSaveException();
-            }
-            coordinate = Coordinate.decode(elements[2]);
-            try {
-                size = Size.valueOf(elements[1]);
-            } catch (Exception e) {
-                throw new BadSaveException();
-            }
-
-            int index = coordinate.getX() + coordinate.getY() * width;
-            entity = new Flora(size, coordinate);
-            if (map[index].getType().equals(TileType.OCEAN)) {
-                throw new BadSaveException();
-            }
-        } else if (elements[0].equals("User")) {
-            if (elements.length != 3) {
-                throw new BadSaveException();
-            }
-            coordinate = Coordinate.decode(elements[1]);
-            name = String.valueOf(elements[2]);
-            int index = coordinate.getX() + coordinate.getY() * width;
-            if (map[index].getType().equals(TileType.OCEAN)
-                    || map[index].getType().equals(TileType.MOUNTAIN)) {
-                throw new BadSaveException();
-            }
-            entity = new User(coordinate, name);
-        } else {
-            throw new BadSaveException();
-        }
-
-        if (map[coordinate.getX() + coordinate.getY() * width].hasContents()) {
-            throw new BadSaveException();
-        }
-        return entity;
+    TileGrid getTileGrid() {
+        return mapGrid;
     }
 
     /**
@@ -522,87 +652,83 @@ public class Scenario implements Encodable {
      * rules above (thus indicating that the contents of the reader are invalid)
      */
     public static Scenario load(Reader reader) throws IOException, BadSaveException {
-        if (reader == null) {
-            throw new BadSaveException();
-        }
-        List<Entity> entities = new ArrayList<>();
-        BufferedReader bufferedReader = new BufferedReader(reader);
-        Object checkEmpty = null;
-
-        checkEmpty = bufferedReader.readLine();
-        if (checkEmpty == null) {
-            throw new BadSaveException();
-        }
-        int width = 0;
-        width = widthHeightSeedReader(bufferedReader.readLine(), "Width");
-        int height = 0;
-        height = widthHeightSeedReader(bufferedReader.readLine(), "Height");
-        int seed = -2;
-        seed = widthHeightSeedReader(bufferedReader.readLine(), "Seed");
-
-        StringBuilder separator = new StringBuilder();
-        separator.append("=".repeat(Math.max(0, width)));
-        if (!bufferedReader.readLine().equals(separator.toString())) {
-            throw new BadSaveException();
-        }
-        String scenarioName = String.valueOf(checkEmpty);
-        if (width > MAX_SIZE || width < MIN_SIZE
-                || height > MAX_SIZE || height < MIN_SIZE
-                || seed < 0 || scenarioName == null) {
-            throw new BadSaveException();
-        }
-        Scenario scenario = new Scenario(scenarioName, width, height, seed);
-
-        Tile[] grid = null;
-        grid = mapReader(bufferedReader, width, height);
-
-        if (!separator.toString().equals(bufferedReader.readLine())) {
-            throw new BadSaveException();
-        }
-
-        List<Coordinate> occupied = new ArrayList<>();
-        String restLine = bufferedReader.readLine();
-        while (restLine != null) {
-            Entity addedEntity = entityReader(restLine, grid, width);
-            if (occupied.contains(addedEntity.getCoordinate())) {
-                throw new BadSaveException();
-            }
-            entities.add(addedEntity);
-            occupied.add(addedEntity.getCoordinate());
-            restLine = bufferedReader.readLine();
-        }
-        bufferedReader.close();
-
-        for (Entity entity : entities) {
-            int indEntity = entity.getCoordinate().getX() + entity.getCoordinate().getY() * width;
-            Tile update = grid[indEntity];
-            update.setContents(entity);
-            grid[indEntity] = update;
-            if (entity instanceof Fauna) {
-                scenario.animalController.addAnimal((Fauna) entity);
-            }
-        }
+        return load(reader, false);
+    }
 
-        try {
-            scenario.setMapGrid(grid);
-        } catch (CoordinateOutOfBoundsException e) {
-            // Ignore it since we squash this exception
-        }
+    /**
+     * Creates a Scenario instance by reading information from the given reader, optionally
+     * storing the map in a packed grid.
+     * <p>
+     * The reader is read as described by {@link #load(Reader)}, except that the Width and Height
+     * values of a packed scenario may be up to {@value Scenario#MAX_PACKED_SIZE}.
+     *
+     * @param reader reader from which to load all info (will not be null)
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario created by reading from the given reader
+     * @throws IOException if an IOException is encountered when reading from the reader
+     * @throws BadSaveException if the reader contains a line that does not adhere to the
+     * rules of {@link #load(Reader)}
+     * @see #Scenario(String, int, int, int, boolean)
+     */
+    public static Scenario load(Reader reader, boolean packed)
+            throws IOException, BadSaveException {
+        Scenario scenario = read(reader, packed);
         ScenarioManager manager = ScenarioManager.getInstance();
         manager.addScenario(scenario);
         return scenario;
     }
 
+    /**
+     * Creates a Scenario instance by reading information from the given reader, without
+     * registering it with the {@link ScenarioManager}.
+     * <p>
+     * The reader is read as described by {@link #load(Reader, boolean)}. As the created
+     * scenario is not registered, this can be used to create scenarios that are run on other
+     * threads, such as copies of a scenario.
+     * <p>
+     * The reader is parsed in a single pass, so the time taken grows linearly with the size of
+     * the map and the number of entities. A save that ends early, or that places an entity
+     * outside of the map, is also invalid.
+     *
+     * @param reader reader from which to load all info (will not be null)
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario created by reading from the given reader
+     * @throws IOException if an IOException is encountered when reading from the reader
+     * @throws BadSaveException if the reader contains a line that does not adhere to the
+     * rules of {@link #load(Reader)}
+     */
+    public static Scenario read(Reader reader, boolean packed)
+            throws IOException, BadSaveException {
+        return ScenarioReader.read(reader, packed);
+    }
+
+    /**
+     * Returns a 64-bit hash of the state of the map: the type of every tile, and the kind,
+     * size, habitat and name of the inhabitant of every tile.
+     * <p>
+     * The hash is kept up to date as tiles change, so this takes constant time however large
+     * the map is. Two scenarios whose maps are in the same state have the same state hash,
+     * whatever their names, seeds and turns, and maps in different states almost always have
+     * different hashes. It should not be called while a turn is being moved in parallel.
+     *
+     * @return hash of the map state
+     */
+    public long stateHash() {
+        return hash.getStateHash();
+    }
+
     /**
      * Returns the hash code of this scenario.
      * Two scenarios that are equal according to the equals(Object) method should have the
      * same hash code.
+     * <p>
+     * The hash of the map is kept up to date as tiles change, so this takes constant time.
      *
      * @return hash code of this scenario.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(Arrays.hashCode(this.getMapGrid()),
+        return Objects.hash(Long.hashCode(hash.getContentsHash()),
                 this.getWidth(), this.getHeight(), this.getName());
     }
 
@@ -614,6 +740,9 @@ public class Scenario implements Encodable {
      * width
      * height
      * map contents (The tile array)
+     * <p>
+     * Scenarios whose maps have different hashes are not equal, so the tiles are only compared
+     * one by one if the hashes match.
      *
      * @param other the reference object with which to compare
      * @return true if this scenario is the same as the other argument; false otherwise
@@ -626,10 +755,36 @@ public class Scenario implements Encodable {
         }
 
         Scenario scenario = (Scenario) other;
-        return this.getName().equals(scenario.getName())
-                && this.getWidth() == scenario.getWidth()
-                && this.getHeight() == scenario.getHeight()
-                && Arrays.equals(this.getMapGrid(), scenario.getMapGrid());
+        if (!this.getName().equals(scenario.getName())
+                || this.getWidth() != scenario.getWidth()
+                || this.getHeight() != scenario.getHeight()
+                || hash.getContentsHash() != scenario.hash.getContentsHash()) {
+            return false;
+        }
+        for (int index = 0; index < getSize(); index++) {
+            if (!tilesEqual(mapGrid, scenario.mapGrid, index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the tiles at an index of two grids are equal, by the rules of
+     * {@link Tile#equals(Object)}, without creating the tiles.
+     *
+     * @param grid  first grid
+     * @param other second grid
+     * @param index tile index
+     * @return true if the tiles are equal
+     */
+    private static boolean tilesEqual(TileGrid grid, TileGrid other, int index) {
+        Entity entity = grid.getOccupant(index);
+        if (entity == null) {
+            return other.getOccupant(index) == null;
+        }
+        return entity.equals(other.getOccupant(index))
+            && grid.getType(index).equals(other.getType(index));
     }
 
 
@@ -667,8 +822,13 @@ public class Scenario implements Encodable {
         StringJoiner result = new StringJoiner(System.lineSeparator());
         result.add(name);
         result.add(String.format("Width: %d, Height: %d", width, height));
-        result.add(String.format("Entities: %d",
-            Arrays.stream(mapGrid).filter(Objects::nonNull).filter(Tile::hasContents).count()));
+        int entities = 0;
+        for (int index = 0; index < getSize(); index++) {
+            if (mapGrid.getOccupant(index) != null) {
+                entities++;
+            }
+        }
+        result.add(String.format("Entities: %d", entities));
         return result.toString();
     }
 
@@ -729,36 +889,74 @@ public class Scenario implements Encodable {
      * @return encoded string representation of this Scenario
      */
     public String encode() {
-        StringBuilder separator = new StringBuilder();
-        separator.append("=".repeat(Math.max(0, this.getWidth())));
-
-        StringBuilder map = new StringBuilder();
-        StringJoiner repEntity = new StringJoiner(System.lineSeparator());
-        for (Tile tile : this.getMapGrid()) {
-            map.append(tile.getType().encode());
-            try {
-                repEntity.add(tile.getContents().encode());
-            } catch (NoSuchEntityException e) {
-                // Ignore it since we squash it
+        StringBuilder builder = new StringBuilder(getSize() + getHeight() * 2 + 64);
+        try {
+            encodeTo(builder);
+        } catch (IOException e) {
+            // a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the machine-readable string representation of this Scenario to the given
+     * appendable, in the format returned by {@link #encode()}.
+     * <p>
+     * The representation is written as it is created, one map row or entity at a time, so the
+     * whole representation is never held in memory. The appendable is not flushed or closed.
+     *
+     * @param out appendable to write the representation to
+     * @throws IOException if the appendable could not be written to
+     */
+    public void encodeTo(Appendable out) throws IOException {
+        String lineSeparator = System.lineSeparator();
+        char[] row = new char[width];
+        CharBuffer rowView = CharBuffer.wrap(row);
+        Arrays.fill(row, '=');
+        out.append(name).append(lineSeparator)
+            .append("Width:").append(Integer.toString(width)).append(lineSeparator)
+            .append("Height:").append(Integer.toString(height)).append(lineSeparator)
+            .append("Seed:").append(Integer.toString(seed)).append(lineSeparator)
+            .append(rowView).append(lineSeparator);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = mapGrid.getType(x + y * width).encode().charAt(0);
             }
+            out.append(rowView).append(lineSeparator);
         }
+        Arrays.fill(row, '=');
+        out.append(rowView);
 
-        StringJoiner repMap = new StringJoiner(System.lineSeparator());
-        for (int cut = 0; cut < this.getSize(); cut += this.getWidth()) {
-            repMap.add(map.substring(cut, cut + this.getWidth()));
+        for (int index = 0; index < getSize(); index++) {
+            Entity occupant = mapGrid.getOccupant(index);
+            if (occupant != null) {
+                out.append(lineSeparator).append(occupant.encode());
+            }
         }
+    }
 
-        StringJoiner scenarioRep = new StringJoiner(System.lineSeparator());
-        scenarioRep.add(this.getName());
-        scenarioRep.add("Width:" + this.getWidth());
-        scenarioRep.add("Height:" + this.getHeight());
-        scenarioRep.add("Seed:" + this.seed);
-        scenarioRep.add(separator.toString());
-        scenarioRep.add(repMap.toString());
-        scenarioRep.add(separator.toString());
-        if (repEntity.toString().length() != 0) {
-            scenarioRep.add(repEntity.toString());
+    /**
+     * Binds every entity placed on the map grid to this scenario, so that the entity acts in
+     * this scenario rather than the current scenario of the {@link ScenarioManager}.
+     */
+    private class EntityBinder implements TileGridListener {
+
+        @Override
+        public void occupantChanged(int index, Entity previous, Entity current) {
+            if (current != null) {
+                current.setScenario(Scenario.this);
+            }
+        }
+
+        @Override
+        public void tilesReplaced() {
+            mapGrid.forEachTile((index, type, occupant) -> {
+                if (occupant != null) {
+                    occupant.setScenario(Scenario.this);
+                }
+            });
         }
-        return scenarioRep.toString();
     }
 }
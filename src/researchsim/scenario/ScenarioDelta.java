@@ -0,0 +1,438 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The tiles of a scenario's map that changed over a range of turns, saved in a compact binary
+ * delta file with the extension {@value #EXTENSION}.
+ * <p>
+ * A delta is captured from the tiles marked by a {@link DirtyTracker}, and holds the type and
+ * inhabitant of each of those tiles at the end of its range of turns. Applying the deltas of a
+ * scenario in order to a save of the scenario made at the start of the first delta's range
+ * gives the scenario at the end of the last delta's range. Each delta records the generation of
+ * the save it applies to and its position in the sequence of deltas of that save, so that
+ * deltas are not applied to the wrong save or out of order; see {@link DeltaSaveChain}.
+ * <p>
+ * A delta file holds, with every integer written big-endian: the magic number {@code RSD1},
+ * the format version, the width and height of the map, the generation, the sequence number,
+ * the first and last turns of the range, and the number of tiles, followed by one record per
+ * tile. A record is the tile's index and an integer holding the tile's type, whether it is
+ * occupied, the kind, size and habitat of the inhabitant, and the length of the name of a
+ * user inhabitant, which follows the record in UTF-8 padded to a multiple of four bytes.
+ */
+public final class ScenarioDelta {
+
+    /**
+     * The file extension of delta files.
+     */
+    public static final String EXTENSION = ".rsd";
+    /**
+     * The first four bytes of a delta file, "RSD1".
+     */
+    public static final int MAGIC = 0x52534431;
+    /**
+     * The version of the format written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of bytes in the header.
+     */
+    private static final int HEADER_BYTES = 9 * Integer.BYTES;
+    /**
+     * The bit of a record that is set if the tile is occupied.
+     */
+    private static final int OCCUPIED = 1 << 2;
+    /**
+     * The largest length of a user's name, in UTF-8 bytes.
+     */
+    private static final int MAX_NAME_BYTES = (1 << 22) - 1;
+    /**
+     * The tile types in the order of their ordinals.
+     */
+    private static final TileType[] TYPES = TileType.values();
+    /**
+     * The sizes in the order of their ordinals.
+     */
+    private static final Size[] SIZES = Size.values();
+
+    /**
+     * The width of the map.
+     */
+    private final int width;
+    /**
+     * The height of the map.
+     */
+    private final int height;
+    /**
+     * The generation of the save the delta applies to.
+     */
+    private final int generation;
+    /**
+     * The position of the delta in the sequence of deltas of its save, starting from 1.
+     */
+    private final int sequence;
+    /**
+     * The turn of the scenario's controller at the start of the range.
+     */
+    private final int fromTurn;
+    /**
+     * The turn of the scenario's controller at the end of the range.
+     */
+    private final int toTurn;
+    /**
+     * The index of each changed tile, in increasing order.
+     */
+    private final int[] indices;
+    /**
+     * The record of each changed tile, without the name length.
+     */
+    private final int[] cells;
+    /**
+     * The name of the user on each changed tile, or null.
+     */
+    private final String[] names;
+
+    /**
+     * Creates a delta.
+     *
+     * @param width      width of the map
+     * @param height     height of the map
+     * @param generation generation of the save the delta applies to
+     * @param sequence   position of the delta in its sequence
+     * @param fromTurn   turn at the start of the range
+     * @param toTurn     turn at the end of the range
+     * @param indices    index of each changed tile
+     * @param cells      record of each changed tile
+     * @param names      name of the user on each changed tile, or null
+     */
+    private ScenarioDelta(int width, int height, int generation, int sequence, int fromTurn,
+            int toTurn, int[] indices, int[] cells, String[] names) {
+        this.width = width;
+        this.height = height;
+        this.generation = generation;
+        this.sequence = sequence;
+        this.fromTurn = fromTurn;
+        this.toTurn = toTurn;
+        this.indices = indices;
+        this.cells = cells;
+        this.names = names;
+    }
+
+    /**
+     * Captures the tiles of the scenario marked as dirty by the tracker, and clears the
+     * tracker. The range of the delta ends at the current turn of the scenario's controller.
+     * <p>
+     * The scenario must not be changed while the delta is captured, so deltas should be
+     * captured on the thread that runs the scenario's turns.
+     *
+     * @param scenario   scenario to capture changes of
+     * @param tracker    tracker of the scenario's changed tiles
+     * @param generation generation of the save the delta applies to
+     * @param sequence   position of the delta in the sequence of deltas of the save
+     * @param fromTurn   turn at the start of the range
+     * @return the changes
+     * @throws IllegalArgumentException if a changed tile holds an entity that is not a
+     *                                  {@link Fauna}, {@link Flora} or {@link User}
+     */
+    public static ScenarioDelta capture(Scenario scenario, DirtyTracker tracker, int generation,
+            int sequence, int fromTurn) {
+        TileGrid grid = scenario.getTileGrid();
+        int count = tracker.getDirtyCount();
+        int[] indices = new int[count];
+        int[] cells = new int[count];
+        String[] names = new String[count];
+        int[] position = new int[1];
+        tracker.forEachDirty(index -> {
+            int i = position[0]++;
+            if (i >= indices.length) {
+                // a tile was marked while counting, which only happens if the scenario changed
+                throw new IllegalStateException("The scenario changed during capture");
+            }
+            indices[i] = index;
+            cells[i] = grid.getType(index).ordinal();
+            Entity entity = grid.getOccupant(index);
+            if (entity != null) {
+                int descriptor = ScenarioSnapshot.describe(entity);
+                if ((descriptor & 3) == ScenarioSnapshot.OTHER) {
+                    throw new IllegalArgumentException("Can not save a "
+                        + entity.getClass().getSimpleName());
+                }
+                cells[i] |= OCCUPIED | descriptor << 3;
+                if ((descriptor & 3) == ScenarioSnapshot.USER) {
+                    names[i] = entity.getName();
+                }
+            }
+        });
+        tracker.clear();
+        return new ScenarioDelta(scenario.getWidth(), scenario.getHeight(), generation,
+            sequence, fromTurn, scenario.getController().getTurn(),
+            Arrays.copyOf(indices, position[0]), Arrays.copyOf(cells, position[0]),
+            Arrays.copyOf(names, position[0]));
+    }
+
+    /**
+     * Returns the width of the map.
+     *
+     * @return map width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     *
+     * @return map height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the generation of the save the delta applies to.
+     *
+     * @return save generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the position of the delta in the sequence of deltas of its save, starting from 1.
+     *
+     * @return sequence number
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the turn of the scenario's controller at the start of the range of the delta.
+     *
+     * @return first turn
+     */
+    public int getFromTurn() {
+        return fromTurn;
+    }
+
+    /**
+     * Returns the turn of the scenario's controller at the end of the range of the delta.
+     *
+     * @return last turn
+     */
+    public int getToTurn() {
+        return toTurn;
+    }
+
+    /**
+     * Returns the number of changed tiles.
+     *
+     * @return changed tiles
+     */
+    public int getTileCount() {
+        return indices.length;
+    }
+
+    /**
+     * Writes the delta to the given file, replacing the file if it exists.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file could not be written
+     * @throws IllegalArgumentException if a user's name is longer than 4 MiB
+     */
+    public void write(Path file) throws IOException {
+        int size = HEADER_BYTES + 2 * Integer.BYTES * indices.length;
+        byte[][] encodedNames = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+                if (encodedNames[i].length > MAX_NAME_BYTES) {
+                    throw new IllegalArgumentException("User name is too long to save");
+                }
+                size += (encodedNames[i].length + 3) & ~3;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(generation)
+            .putInt(sequence).putInt(fromTurn).putInt(toTurn).putInt(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            byte[] name = encodedNames[i];
+            buffer.putInt(indices[i]).putInt(name == null ? cells[i] : cells[i] | name.length << 9);
+            if (name != null) {
+                buffer.put(name);
+                buffer.position(buffer.position() + (-name.length & 3));
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the delta in the given file.
+     *
+     * @param file the delta file
+     * @return the delta
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the file is not a delta of a known version, ends early, or
+     *                          holds a record that is invalid
+     */
+    public static ScenarioDelta read(Path file) throws IOException, BadSaveException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new BadSaveException();
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int generation = buffer.getInt();
+            int sequence = buffer.getInt();
+            int fromTurn = buffer.getInt();
+            int toTurn = buffer.getInt();
+            int count = buffer.getInt();
+            if (width < 1 || height < 1 || count < 0
+                    || count > buffer.remaining() / (2 * Integer.BYTES)) {
+                throw new BadSaveException();
+            }
+            int[] indices = new int[count];
+            int[] cells = new int[count];
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                indices[i] = buffer.getInt();
+                int cell = buffer.getInt();
+                if (indices[i] < 0 || indices[i] >= width * height
+                        || (i > 0 && indices[i] <= indices[i - 1])) {
+                    throw new BadSaveException();
+                }
+                if ((cell & OCCUPIED) != 0 && (cell >> 3 & 3) == ScenarioSnapshot.USER) {
+                    byte[] name = new byte[cell >>> 9];
+                    buffer.get(name);
+                    buffer.position(buffer.position() + (-name.length & 3));
+                    names[i] = new String(name, StandardCharsets.UTF_8);
+                }
+                cells[i] = cell & ((1 << 9) - 1);
+            }
+            return new ScenarioDelta(width, height, generation, sequence, fromTurn, toTurn,
+                indices, cells, names);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new BadSaveException("Delta file ended early", e);
+        }
+    }
+
+    /**
+     * Sets the tiles of the scenario's map to the changed tiles of this delta.
+     * <p>
+     * Inhabitants are replaced by new entities. Animals removed from the map are removed from
+     * the scenario's controller, and new animals are added to it. The delta is checked before
+     * any tile is changed, so if it can not be applied the scenario is left unchanged.
+     *
+     * @param scenario scenario to change
+     * @throws BadSaveException if the scenario's map is not the size of the delta's map, or a
+     *                          changed tile is not suitable for its inhabitant under the rules
+     *                          of {@link Scenario#load(java.io.Reader)}
+     */
+    public void applyTo(Scenario scenario) throws BadSaveException {
+        if (scenario.getWidth() != width || scenario.getHeight() != height) {
+            throw new BadSaveException("Delta is of a " + width + "x" + height + " map");
+        }
+        for (int i = 0; i < indices.length; i++) {
+            check(i);
+        }
+        TileGrid grid = scenario.getTileGrid();
+        AnimalController controller = scenario.getController();
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i];
+            Entity previous = grid.getOccupant(index);
+            if (previous instanceof Fauna) {
+                controller.removeAnimal((Fauna) previous);
+            }
+            grid.setType(index, TYPES[cells[i] & 3]);
+            Entity entity = createEntity(i);
+            grid.setOccupant(index, entity);
+            if (entity instanceof Fauna) {
+                controller.addAnimal((Fauna) entity);
+            }
+        }
+    }
+
+    /**
+     * Checks that the inhabitant of a changed tile is suitable for the tile.
+     *
+     * @param i position of the tile in the delta
+     * @throws BadSaveException if the inhabitant is not suitable
+     */
+    private void check(int i) throws BadSaveException {
+        int cell = cells[i];
+        if ((cell & OCCUPIED) == 0) {
+            return;
+        }
+        TileType type = TYPES[cell & 3];
+        TileType habitat = TYPES[cell >> 7 & 3];
+        switch (cell >> 3 & 3) {
+            case ScenarioSnapshot.FAUNA:
+                if (habitat == TileType.OCEAN ? type != TileType.OCEAN
+                        : habitat != TileType.LAND || type == TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+                break;
+            case ScenarioSnapshot.FLORA:
+                if (type == TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+                break;
+            case ScenarioSnapshot.USER:
+                if (type == TileType.OCEAN || type == TileType.MOUNTAIN) {
+                    throw new BadSaveException();
+                }
+                break;
+            default:
+                throw new BadSaveException();
+        }
+    }
+
+    /**
+     * Creates the inhabitant of a changed tile.
+     *
+     * @param i position of the tile in the delta
+     * @return the inhabitant, or null if the tile is empty
+     */
+    private Entity createEntity(int i) {
+        int cell = cells[i];
+        if ((cell & OCCUPIED) == 0) {
+            return null;
+        }
+        Coordinate coordinate = new Coordinate(indices[i] % width, indices[i] / width);
+        Size size = SIZES[cell >> 5 & 3];
+        switch (cell >> 3 & 3) {
+            case ScenarioSnapshot.FAUNA:
+                return new Fauna(size, coordinate, TYPES[cell >> 7 & 3]);
+            case ScenarioSnapshot.FLORA:
+                return new Flora(size, coordinate);
+            default:
+                return new User(coordinate, names[i]);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package researchsim.scenario;
+
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The name, dimensions and seed of a scenario save, read from the first lines of a text save
+ * or the header of a binary save without reading the map or the entities.
+ * <p>
+ * A header that was read from a file can read the whole scenario from the file later
+ * ({@link #readScenario()}), which lets the {@link ScenarioManager} register many large saves
+ * cheaply and only load the ones that are used.
+ */
+public final class ScenarioHeader {
+
+    /**
+     * The estimated number of bytes each tile of a map takes.
+     */
+    private static final int TILE_BYTES = 32;
+    /**
+     * The estimated number of bytes each tile of a packed map takes.
+     */
+    private static final int PACKED_TILE_BYTES = 5;
+
+    /**
+     * The file the save is in, or null.
+     */
+    private final Path file;
+    /**
+     * The name of the scenario.
+     */
+    private final String name;
+    /**
+     * The width of the map.
+     */
+    private final int width;
+    /**
+     * The height of the map.
+     */
+    private final int height;
+    /**
+     * The seed of the scenario.
+     */
+    private final int seed;
+    /**
+     * Whether the scenario's map is to be packed.
+     */
+    private final boolean packed;
+
+    /**
+     * Creates a header.
+     *
+     * @param file   the file the save is in, or null
+     * @param name   name of the scenario
+     * @param width  width of the map
+     * @param height height of the map
+     * @param seed   seed of the scenario
+     * @param packed whether the scenario's map is to be packed
+     */
+    ScenarioHeader(Path file, String name, int width, int height, int seed, boolean packed) {
+        this.file = file;
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.packed = packed;
+    }
+
+    /**
+     * Reads the header of the save in the given file. Files with the extension
+     * {@value BinaryScenarioFormat#EXTENSION} are read as binary saves and all other files as
+     * text saves. Only the start of the file is read.
+     *
+     * @param file   the save file
+     * @param packed whether the scenario's map is to be packed, which allows larger maps
+     * @return header of the save
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the header of the save is invalid according to
+     *                          {@link Scenario#load(Reader)}
+     */
+    public static ScenarioHeader read(Path file, boolean packed)
+            throws IOException, BadSaveException {
+        if (BinaryScenarioFormat.isBinary(file.toString())) {
+            return BinaryScenarioFormat.readHeader(file, packed);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return ScenarioReader.readHeader(reader, file, packed);
+        }
+    }
+
+    /**
+     * Reads the whole scenario from the file of this header, without registering it with the
+     * {@link ScenarioManager}.
+     *
+     * @return scenario read from the file
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the save is invalid, or its header has changed since this
+     *                          header was read
+     * @throws IllegalStateException if the header was not read from a file
+     */
+    public Scenario readScenario() throws IOException, BadSaveException {
+        if (file == null) {
+            throw new IllegalStateException("The header was not read from a file");
+        }
+        Scenario scenario;
+        if (BinaryScenarioFormat.isBinary(file.toString())) {
+            scenario = BinaryScenarioFormat.read(file, packed);
+        } else {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                scenario = Scenario.read(reader, packed);
+            }
+        }
+        if (!scenario.getName().equals(name) || scenario.getWidth() != width
+                || scenario.getHeight() != height) {
+            throw new BadSaveException("The save " + file + " has changed");
+        }
+        return scenario;
+    }
+
+    /**
+     * Returns the file the save is in.
+     *
+     * @return save file, or null if the header was not read from a file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the name of the scenario.
+     *
+     * @return scenario name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the width of the map.
+     *
+     * @return map width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     *
+     * @return map height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the seed of the scenario.
+     *
+     * @return scenario seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns whether the scenario's map is to be packed.
+     *
+     * @return true if the map is packed
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Returns an estimate of the memory taken by the map of the scenario once it is loaded.
+     *
+     * @return estimated size in bytes
+     */
+    public long estimateBytes() {
+        return estimateBytes(width, height, packed, 0);
+    }
+
+    /**
+     * Returns an estimate of the memory taken by a loaded scenario: its map and its animals.
+     *
+     * @param width   width of the map
+     * @param height  height of the map
+     * @param packed  whether the map is packed
+     * @param animals number of animals
+     * @return estimated size in bytes
+     */
+    static long estimateBytes(int width, int height, boolean packed, int animals) {
+        return (long) width * height * (packed ? PACKED_TILE_BYTES : TILE_BYTES)
+            + 64L * animals;
+    }
+
+    /**
+     * Returns the header as "name (width x height, seed S)".
+     *
+     * @return header description
+     */
+    @Override
+    public String toString() {
+        return name + " (" + width + " x " + height + ", seed " + seed + ")";
+    }
+}
@@ -2,9 +2,18 @@ package researchsim.scenario;
 
 import researchsim.util.BadSaveException;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Singleton class which manages all the scenarios items.
@@ -19,6 +28,24 @@ import java.util.Map;
  * <a href="https://www.geeksforgeeks.org/singleton-class-java/">GeeksForGeeks</a>
  * OR
  * <a href="https://www.baeldung.com/java-singleton">Baeldung</a>
+ * <p>
+ * The manager is safe to use from multiple threads. Its "current" scenario is shared by the
+ * whole process and is intended for the GUI; scenarios that run on their own threads should be
+ * used directly, as their entities and animal controller are bound to them (see
+ * {@link researchsim.entities.Entity#getScenario()}).
+ * <p>
+ * Save files can also be registered by their header alone ({@link #register(Path, boolean)}),
+ * which reads only the first lines of the file. The whole scenario is loaded from its file the
+ * first time it is set as the current scenario. Scenarios that were registered by file are
+ * kept in memory within a budget ({@link #setMemoryBudget(long)}): when the loaded scenarios
+ * are estimated to take more than the budget, the least recently used are evicted, and are
+ * loaded again from their files when next used. Evicted scenarios are saved back to their
+ * files first if {@link #setSaveOnEvict(boolean)} is set, otherwise changes to them are lost.
+ * The current scenario and scenarios without a file are never evicted.
+ * <p>
+ * Save files are read and written without holding the manager's lock, so threads that use the
+ * manager are not held up while a scenario is loaded or saved. A scenario that is saved when it
+ * is evicted is saved as it was when it was chosen for eviction.
  *
  * @ass1_partial
  */
@@ -34,6 +61,41 @@ public class ScenarioManager {
      */
     private final Map<String, Scenario> scenarios;
 
+    /**
+     * The headers of the scenarios registered by file.
+     */
+    private final Map<String, ScenarioHeader> headers;
+
+    /**
+     * The name of every scenario, in the order they were first added or registered.
+     */
+    private final Set<String> names;
+
+    /**
+     * The names of the loaded scenarios, from least to most recently used.
+     */
+    private final Set<String> recent;
+
+    /**
+     * The estimated number of bytes the loaded scenarios may take before some are evicted.
+     */
+    private long memoryBudget;
+
+    /**
+     * Whether scenarios are saved to their files before they are evicted.
+     */
+    private boolean saveOnEvict;
+
+    /**
+     * The names of the scenarios chosen for eviction that are being saved to their files.
+     */
+    private final Set<String> saving;
+
+    /**
+     * The number of scenarios evicted.
+     */
+    private int evictions;
+
     /**
      * The currently loaded scenario.
      */
@@ -46,7 +108,12 @@ public class ScenarioManager {
      * @ass1
      */
     private ScenarioManager() {
-        this.scenarios = new LinkedHashMap<>();
+        this.scenarios = new HashMap<>();
+        this.headers = new HashMap<>();
+        this.names = new LinkedHashSet<>();
+        this.recent = new LinkedHashSet<>();
+        this.saving = new HashSet<>();
+        this.memoryBudget = Long.MAX_VALUE;
         this.current = null;
         instance = this;
     }
@@ -57,7 +124,7 @@ public class ScenarioManager {
      * @return singleton instance
      * @ass1
      */
-    public static ScenarioManager getInstance() {
+    public static synchronized ScenarioManager getInstance() {
         if (instance == null) {
             instance = new ScenarioManager();
         }
@@ -71,7 +138,7 @@ public class ScenarioManager {
      * @throws NullPointerException if no scenario exists yet - helpful addition
      * @ass1
      */
-    public Scenario getScenario() {
+    public synchronized Scenario getScenario() {
         Scenario s = scenarios.get(current);
         if (s == null) {
             throw new NullPointerException("Tried to access a scenario from the manager when none"
@@ -82,16 +149,247 @@ public class ScenarioManager {
 
     /**
      * Sets the current scenario from the manager.
+     * <p>
+     * A scenario that was registered by file and is not loaded is loaded from its file, which
+     * may evict other scenarios.
      *
      * @param scenarioName the name of the scenario to set
-     * @throws BadSaveException if the scenario has not been added to the manager previously.
+     * @throws BadSaveException if the scenario has not been added to the manager previously,
+     * or it could not be loaded from its file.
      * @ass1_partial
      */
     public void setScenario(String scenarioName) throws BadSaveException {
-        if (!scenarios.containsKey(scenarioName)) {
-            throw new BadSaveException();
+        ScenarioHeader header;
+        synchronized (this) {
+            header = headers.get(scenarioName);
+            if (scenarios.containsKey(scenarioName)) {
+                header = null;
+            } else if (header == null) {
+                throw new BadSaveException();
+            }
+        }
+        Scenario loaded = null;
+        if (header != null) {
+            try {
+                loaded = header.readScenario();
+            } catch (IOException e) {
+                throw new BadSaveException("Could not load " + header.getFile(), e);
+            }
+        }
+        List<Eviction> evicted;
+        synchronized (this) {
+            // another thread may have loaded the scenario while it was being read
+            if (loaded != null && !scenarios.containsKey(scenarioName)) {
+                scenarios.put(scenarioName, loaded);
+            }
+            current = scenarioName;
+            touch(scenarioName);
+            evicted = evict();
+        }
+        finishEvictions(evicted);
+    }
+
+    /**
+     * Registers the save in the given file with the manager by reading only its header. The
+     * scenario is loaded from the file when it is first set as the current scenario
+     * ({@link #setScenario(String)}).
+     * <p>
+     * If a scenario with the same name has been added, it is not replaced, but may now be
+     * evicted and reloaded from the given file.
+     *
+     * @param file   the save file, read as a binary save if its name ends with
+     *               {@value BinaryScenarioFormat#EXTENSION}
+     * @param packed whether the scenario's map is to be packed
+     * @return the header of the save
+     * @throws IOException if the file could not be read
+     * @throws BadSaveException if the header of the save is invalid
+     */
+    public synchronized ScenarioHeader register(Path file, boolean packed)
+            throws IOException, BadSaveException {
+        ScenarioHeader header = ScenarioHeader.read(file, packed);
+        headers.put(header.getName(), header);
+        names.add(header.getName());
+        return header;
+    }
+
+    /**
+     * Returns the names of every scenario added to or registered with the manager, whether or
+     * not it is loaded, in the order they were first added or registered.
+     *
+     * @return scenario names
+     */
+    public synchronized List<String> getScenarioNames() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns whether the scenario with the given name is loaded.
+     *
+     * @param scenarioName name of the scenario
+     * @return true if the scenario is in memory
+     */
+    public synchronized boolean isLoaded(String scenarioName) {
+        return scenarios.containsKey(scenarioName);
+    }
+
+    /**
+     * Returns the estimated number of bytes the loaded scenarios may take before the least
+     * recently used are evicted.
+     *
+     * @return memory budget in bytes
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the estimated number of bytes the loaded scenarios may take before the least
+     * recently used are evicted, and evicts scenarios until they fit if possible.
+     *
+     * @param memoryBudget memory budget in bytes, or {@link Long#MAX_VALUE} to never evict
+     * @throws IllegalArgumentException if memoryBudget is negative
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget can not be negative");
+        }
+        List<Eviction> evicted;
+        synchronized (this) {
+            this.memoryBudget = memoryBudget;
+            evicted = evict();
+        }
+        finishEvictions(evicted);
+    }
+
+    /**
+     * Sets whether scenarios are saved to their files before they are evicted.
+     *
+     * @param saveOnEvict true to save evicted scenarios
+     */
+    public synchronized void setSaveOnEvict(boolean saveOnEvict) {
+        this.saveOnEvict = saveOnEvict;
+    }
+
+    /**
+     * Returns the number of scenarios evicted.
+     *
+     * @return evictions
+     */
+    public synchronized int getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the estimated number of bytes taken by the loaded scenarios.
+     *
+     * @return estimated memory of the loaded scenarios
+     */
+    public synchronized long getLoadedBytes() {
+        long total = 0;
+        for (Scenario scenario : scenarios.values()) {
+            total += estimateBytes(scenario);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the estimated number of bytes taken by a loaded scenario.
+     *
+     * @param scenario loaded scenario
+     * @return estimated size in bytes
+     */
+    private static long estimateBytes(Scenario scenario) {
+        return ScenarioHeader.estimateBytes(scenario.getWidth(), scenario.getHeight(),
+            scenario.isPacked(), scenario.getController().getRegistry().size());
+    }
+
+    /**
+     * Marks a scenario as the most recently used.
+     *
+     * @param scenarioName name of the scenario
+     */
+    private void touch(String scenarioName) {
+        recent.remove(scenarioName);
+        recent.add(scenarioName);
+    }
+
+    /**
+     * Evicts the least recently used scenarios that have a file, other than the current
+     * scenario, until the loaded scenarios fit in the memory budget.
+     * <p>
+     * If scenarios are saved before they are evicted, the chosen scenarios are only snapshotted
+     * here, and are evicted by {@link #finishEvictions(List)} once they have been saved, which
+     * must be called without holding the manager's lock.
+     *
+     * @return the scenarios to save and then evict
+     */
+    private List<Eviction> evict() {
+        List<Eviction> evicted = new ArrayList<>();
+        if (memoryBudget == Long.MAX_VALUE) {
+            return evicted;
+        }
+        long total = 0;
+        for (Map.Entry<String, Scenario> entry : scenarios.entrySet()) {
+            if (!saving.contains(entry.getKey())) {
+                total += estimateBytes(entry.getValue());
+            }
+        }
+        Iterator<String> candidates = recent.iterator();
+        while (total > memoryBudget && candidates.hasNext()) {
+            String name = candidates.next();
+            ScenarioHeader header = headers.get(name);
+            if (name.equals(current) || header == null || saving.contains(name)) {
+                continue;
+            }
+            Scenario scenario = scenarios.get(name);
+            if (saveOnEvict) {
+                saving.add(name);
+                evicted.add(new Eviction(name, scenario, header,
+                    ScenarioSnapshot.of(scenario)));
+            } else {
+                candidates.remove();
+                scenarios.remove(name);
+                evictions++;
+            }
+            total -= estimateBytes(scenario);
+        }
+        return evicted;
+    }
+
+    /**
+     * Saves the scenarios chosen for eviction to their files, and evicts those that were saved
+     * and have not been set as the current scenario since. A scenario that could not be saved
+     * is kept.
+     * <p>
+     * This must not be called while holding the manager's lock.
+     *
+     * @param evicted the scenarios to save and then evict
+     */
+    private void finishEvictions(List<Eviction> evicted) {
+        for (Eviction eviction : evicted) {
+            boolean saved;
+            try {
+                SaveFiles.write(eviction.snapshot, eviction.header.getFile());
+                saved = true;
+            } catch (IOException | RuntimeException e) {
+                saved = false;
+            }
+            synchronized (this) {
+                saving.remove(eviction.name);
+                if (saved && headers.get(eviction.name) == eviction.header) {
+                    headers.put(eviction.name, new ScenarioHeader(eviction.header.getFile(),
+                        eviction.name, eviction.snapshot.getWidth(),
+                        eviction.snapshot.getHeight(), eviction.snapshot.getSeed(),
+                        eviction.header.isPacked()));
+                }
+                if (saved && scenarios.get(eviction.name) == eviction.scenario
+                        && !eviction.name.equals(current)) {
+                    recent.remove(eviction.name);
+                    scenarios.remove(eviction.name);
+                    evictions++;
+                }
+            }
         }
-        current = scenarioName;
     }
 
     /**
@@ -105,8 +403,15 @@ public class ScenarioManager {
      * @return all the scenarios that have been loaded
      * @ass1
      */
-    public Map<String, Scenario> getLoadedScenarios() {
-        return new LinkedHashMap<>(scenarios);
+    public synchronized Map<String, Scenario> getLoadedScenarios() {
+        Map<String, Scenario> loaded = new LinkedHashMap<>();
+        for (String name : names) {
+            Scenario scenario = scenarios.get(name);
+            if (scenario != null) {
+                loaded.put(name, scenario);
+            }
+        }
+        return loaded;
     }
 
     /**
@@ -124,21 +429,73 @@ public class ScenarioManager {
      * @ass1_partial
      */
     public void addScenario(Scenario scenario) {
-        if (scenarios.containsKey(scenario.getName())) {
-            scenarios.replace(scenario.getName(), scenario);
-        } else {
-            this.scenarios.put(scenario.getName(), scenario);
+        List<Eviction> evicted;
+        synchronized (this) {
+            if (scenarios.containsKey(scenario.getName())) {
+                scenarios.replace(scenario.getName(), scenario);
+            } else {
+                this.scenarios.put(scenario.getName(), scenario);
+            }
+            names.add(scenario.getName());
+            current = scenario.getName();
+            touch(current);
+            evicted = evict();
         }
-        current = scenario.getName();
+        finishEvictions(evicted);
     }
 
     /**
      * Resets the singleton by clearing all recorded scenarios.
      * <p>
      * That is, the Map of all scenarios that have been loaded should be empty ({@code size()}
-     * returns 0).
+     * returns 0). Registered files are forgotten, and the memory budget is removed.
      */
-    public void reset() {
+    public synchronized void reset() {
         this.scenarios.clear();
+        this.headers.clear();
+        this.names.clear();
+        this.recent.clear();
+        this.memoryBudget = Long.MAX_VALUE;
+        this.saveOnEvict = false;
+        this.evictions = 0;
+    }
+
+    /**
+     * A scenario chosen for eviction, to be saved to its file before it is evicted.
+     */
+    private static final class Eviction {
+
+        /**
+         * The name of the scenario.
+         */
+        private final String name;
+        /**
+         * The scenario.
+         */
+        private final Scenario scenario;
+        /**
+         * The header of the scenario's file.
+         */
+        private final ScenarioHeader header;
+        /**
+         * The snapshot of the scenario to save.
+         */
+        private final ScenarioSnapshot snapshot;
+
+        /**
+         * Creates an eviction of a scenario.
+         *
+         * @param name     the name of the scenario
+         * @param scenario the scenario
+         * @param header   the header of the scenario's file
+         * @param snapshot the snapshot of the scenario to save
+         */
+        private Eviction(String name, Scenario scenario, ScenarioHeader header,
+                         ScenarioSnapshot snapshot) {
+            this.name = name;
+            this.scenario = scenario;
+            this.header = header;
+            this.snapshot = snapshot;
+        }
     }
 }
@@ -0,0 +1,522 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+/**
+ * Reads a scenario from the text format created by {@link Scenario#encode()} in a single pass.
+ * <p>
+ * The reader is read in blocks into a buffer and each line is parsed in place, without creating
+ * a string per line or splitting lines into parts. Map rows are written to the tile grid as they
+ * are read and each entity is placed as soon as its line is read. The tiles that are occupied
+ * are tracked in a bit set, so checking for two entities on the same tile takes constant time.
+ * <p>
+ * The rules for a valid save are those of {@link Scenario#load(Reader)}. In addition, a save is
+ * invalid if it ends before the separator after the map, or if an entity is placed outside of
+ * the map.
+ */
+final class ScenarioReader {
+
+    /**
+     * The value of a Width, Height or Seed line that is replaced by the default value.
+     */
+    private static final int DEFAULT_MARKER = -1;
+    /**
+     * The number of characters read from the reader at once.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The reader of the save.
+     */
+    private final Reader reader;
+    /**
+     * Characters read from the reader that have not yet been parsed.
+     */
+    private final char[] buffer;
+    /**
+     * Position of the next character to parse in the buffer.
+     */
+    private int position;
+    /**
+     * Number of characters in the buffer.
+     */
+    private int limit;
+    /**
+     * Whether a line feed directly after the last line should be skipped, as the last line
+     * ended with a carriage return.
+     */
+    private boolean skipLineFeed;
+    /**
+     * The characters of the current line.
+     */
+    private char[] line;
+    /**
+     * The current line as a sequence of characters, for parsing integers.
+     */
+    private CharBuffer lineView;
+    /**
+     * The number of characters in the current line.
+     */
+    private int length;
+
+    /**
+     * Creates a new scenario reader.
+     *
+     * @param reader reader of the save
+     */
+    private ScenarioReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.line = new char[128];
+        this.lineView = CharBuffer.wrap(line);
+    }
+
+    /**
+     * Creates a Scenario instance by reading information from the given reader, without
+     * registering it with the {@link ScenarioManager}. The reader is closed when the scenario
+     * has been read.
+     *
+     * @param reader reader from which to load all info
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario created by reading from the given reader
+     * @throws IOException if an IOException is encountered when reading from the reader
+     * @throws BadSaveException if the reader contains a line that does not adhere to the
+     * rules of {@link Scenario#load(Reader)}
+     */
+    static Scenario read(Reader reader, boolean packed) throws IOException, BadSaveException {
+        if (reader == null) {
+            throw new BadSaveException();
+        }
+        Scenario scenario = new ScenarioReader(reader).read(packed);
+        reader.close();
+        return scenario;
+    }
+
+    /**
+     * Reads a scenario from the save.
+     *
+     * @param packed whether the created scenario's map should be packed
+     * @return scenario that was read
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if the save is invalid
+     */
+    private Scenario read(boolean packed) throws IOException, BadSaveException {
+        ScenarioHeader header = readHeader(null, packed);
+        int width = header.getWidth();
+        Scenario scenario = new Scenario(header.getName(), width, header.getHeight(),
+            header.getSeed(), packed);
+        TileGrid grid = scenario.getTileGrid();
+        readMap(grid);
+        readSeparator(width);
+
+        BitSet occupied = new BitSet(grid.getSize());
+        while (nextLine()) {
+            Entity entity = readEntity(grid);
+            int index = entity.getCoordinate().getX() + entity.getCoordinate().getY() * width;
+            if (occupied.get(index)) {
+                throw new BadSaveException();
+            }
+            occupied.set(index);
+            grid.setOccupant(index, entity);
+            if (entity instanceof Fauna) {
+                scenario.getController().addAnimal((Fauna) entity);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Reads the header of a save from the given reader: the name, Width, Height and Seed lines
+     * and the separator after them. The rest of the save is not read. The reader is not closed.
+     *
+     * @param reader reader of the save
+     * @param file   the file the save is in, or null
+     * @param packed whether the scenario's map would be packed
+     * @return header of the save
+     * @throws IOException if an IOException is encountered when reading from the reader
+     * @throws BadSaveException if the header does not adhere to the rules of
+     * {@link Scenario#load(Reader)}
+     */
+    static ScenarioHeader readHeader(Reader reader, Path file, boolean packed)
+            throws IOException, BadSaveException {
+        if (reader == null) {
+            throw new BadSaveException();
+        }
+        return new ScenarioReader(reader).readHeader(file, packed);
+    }
+
+    /**
+     * Reads the header of the save.
+     *
+     * @param file   the file the save is in, or null
+     * @param packed whether the scenario's map would be packed
+     * @return header of the save
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if the header is invalid
+     */
+    private ScenarioHeader readHeader(Path file, boolean packed)
+            throws IOException, BadSaveException {
+        requireLine();
+        String name = new String(line, 0, length);
+        int width = readValue("Width");
+        int height = readValue("Height");
+        int seed = readValue("Seed");
+        readSeparator(width);
+        int maxSize = packed ? Scenario.MAX_PACKED_SIZE : Scenario.MAX_SIZE;
+        if (width > maxSize || width < Scenario.MIN_SIZE
+                || height > maxSize || height < Scenario.MIN_SIZE || seed < 0) {
+            throw new BadSaveException();
+        }
+        return new ScenarioHeader(file, name, width, height, seed, packed);
+    }
+
+    /**
+     * Reads a Width, Height or Seed line and returns its value.
+     *
+     * @param key the expected key before the colon
+     * @return the value after the colon, or the default value if it is -1
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if there is no line, the line does not contain exactly one
+     * colon, the key is not the expected key or the value is not a valid integer
+     */
+    private int readValue(String key) throws IOException, BadSaveException {
+        requireLine();
+        int colon = key.length();
+        if (length <= colon || line[colon] != ':' || !matches(0, colon, key)
+                || indexOf(':', colon + 1, length) != -1) {
+            throw new BadSaveException();
+        }
+        int value = parseInt(colon + 1, length);
+        return value == DEFAULT_MARKER ? Scenario.MIN_SIZE : value;
+    }
+
+    /**
+     * Reads a separator line.
+     *
+     * @param width the width of the map, which is the number of equals characters expected
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if there is no line or it is not a separator
+     */
+    private void readSeparator(int width) throws IOException, BadSaveException {
+        requireLine();
+        if (length != Math.max(0, width)) {
+            throw new BadSaveException();
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[i] != '=') {
+                throw new BadSaveException();
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of the map into the given grid.
+     *
+     * @param grid the grid of the scenario
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if there are too few rows, a row is not exactly the width of the
+     * grid or a character is not the encoding of a tile type
+     */
+    private void readMap(TileGrid grid) throws IOException, BadSaveException {
+        int width = grid.getWidth();
+        int index = 0;
+        for (int row = 0; row < grid.getHeight(); row++) {
+            requireLine();
+            if (length != width) {
+                throw new BadSaveException();
+            }
+            for (int column = 0; column < width; column++) {
+                grid.setType(index++, decodeType(line[column]));
+            }
+        }
+    }
+
+    /**
+     * Returns the tile type with the given encoding.
+     *
+     * @param encoded encoding of a tile type
+     * @return the tile type
+     * @throws BadSaveException if the character is not the encoding of a tile type
+     */
+    private static TileType decodeType(char encoded) throws BadSaveException {
+        switch (encoded) {
+            case 'L':
+                return TileType.LAND;
+            case 'O':
+                return TileType.OCEAN;
+            case 'S':
+                return TileType.SAND;
+            case 'X':
+                return TileType.MOUNTAIN;
+            default:
+                throw new BadSaveException();
+        }
+    }
+
+    /**
+     * Reads the entity on the current line, checking that the tile it is placed on suits it.
+     *
+     * @param grid the grid of the scenario
+     * @return the entity on the line
+     * @throws BadSaveException if the line is not the encoding of an entity, the coordinate is
+     * not on the map, or the entity can not be placed on the tile at the coordinate
+     */
+    private Entity readEntity(TileGrid grid) throws BadSaveException {
+        int first = indexOf('-', 0, length);
+        if (first == -1) {
+            throw new BadSaveException();
+        }
+        int second = indexOf('-', first + 1, length);
+        if (second == -1) {
+            throw new BadSaveException();
+        }
+        int third = indexOf('-', second + 1, length);
+        if (third != -1 && indexOf('-', third + 1, length) != -1) {
+            throw new BadSaveException();
+        }
+
+        if (matches(0, first, "Fauna")) {
+            if (third == -1) {
+                throw new BadSaveException();
+            }
+            Coordinate coordinate = readCoordinate(second + 1, third, grid);
+            Size size = match(Size.values(), first + 1, second);
+            TileType habitat = match(TileType.values(), third + 1, length);
+            TileType type = grid.getType(toIndex(coordinate, grid));
+            if (habitat == TileType.OCEAN) {
+                if (type != TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+            } else if (habitat == TileType.LAND) {
+                if (type == TileType.OCEAN) {
+                    throw new BadSaveException();
+                }
+            } else {
+                throw new BadSaveException();
+            }
+            return new Fauna(size, coordinate, habitat);
+        }
+        if (third != -1) {
+            throw new BadSaveException();
+        }
+        if (matches(0, first, "Flora")) {
+            Coordinate coordinate = readCoordinate(second + 1, length, grid);
+            Size size = match(Size.values(), first + 1, second);
+            if (grid.getType(toIndex(coordinate, grid)) == TileType.OCEAN) {
+                throw new BadSaveException();
+            }
+            return new Flora(size, coordinate);
+        }
+        if (matches(0, first, "User")) {
+            Coordinate coordinate = readCoordinate(first + 1, second, grid);
+            TileType type = grid.getType(toIndex(coordinate, grid));
+            if (type == TileType.OCEAN || type == TileType.MOUNTAIN) {
+                throw new BadSaveException();
+            }
+            return new User(coordinate, new String(line, second + 1, length - second - 1));
+        }
+        throw new BadSaveException();
+    }
+
+    /**
+     * Reads a coordinate from part of the current line.
+     *
+     * @param start index of the first character of the coordinate
+     * @param end   index after the last character of the coordinate
+     * @param grid  the grid of the scenario
+     * @return the coordinate
+     * @throws BadSaveException if the part does not contain exactly one comma, either side of the
+     * comma is not a valid integer or the coordinate is not on the map
+     */
+    private Coordinate readCoordinate(int start, int end, TileGrid grid) throws BadSaveException {
+        int comma = indexOf(',', start, end);
+        if (comma == -1 || indexOf(',', comma + 1, end) != -1) {
+            throw new BadSaveException();
+        }
+        int x = parseInt(start, comma);
+        int y = parseInt(comma + 1, end);
+        if (x < 0 || x >= grid.getWidth() || y < 0 || y >= grid.getHeight()) {
+            throw new BadSaveException();
+        }
+        return new Coordinate(x, y);
+    }
+
+    /**
+     * Returns the index of a coordinate in the grid.
+     *
+     * @param coordinate coordinate on the map
+     * @param grid       the grid of the scenario
+     * @return grid index
+     */
+    private static int toIndex(Coordinate coordinate, TileGrid grid) {
+        return coordinate.getX() + coordinate.getY() * grid.getWidth();
+    }
+
+    /**
+     * Returns the constant whose name is part of the current line.
+     *
+     * @param values the constants of an enum
+     * @param start  index of the first character of the name
+     * @param end    index after the last character of the name
+     * @param <E>    the type of the enum
+     * @return the constant with the name
+     * @throws BadSaveException if no constant has the name
+     */
+    private <E extends Enum<E>> E match(E[] values, int start, int end)
+            throws BadSaveException {
+        for (E value : values) {
+            if (matches(start, end, value.name())) {
+                return value;
+            }
+        }
+        throw new BadSaveException();
+    }
+
+    /**
+     * Returns whether part of the current line is equal to the given string.
+     *
+     * @param start    index of the first character of the part
+     * @param end      index after the last character of the part
+     * @param expected the expected characters
+     * @return true if the part is equal to expected
+     */
+    private boolean matches(int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (line[i] != expected.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first occurrence of a character in part of the current line.
+     *
+     * @param character the character to find
+     * @param start     index to start searching from
+     * @param end       index to stop searching at
+     * @return the index of the character, or -1 if it does not occur
+     */
+    private int indexOf(char character, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == character) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses part of the current line as an integer, as Integer.parseInt(String) does.
+     *
+     * @param start index of the first character of the integer
+     * @param end   index after the last character of the integer
+     * @return the integer
+     * @throws BadSaveException if the part is not a valid integer
+     */
+    private int parseInt(int start, int end) throws BadSaveException {
+        try {
+            return Integer.parseInt(lineView, start, end, 10);
+        } catch (NumberFormatException e) {
+            throw new BadSaveException();
+        }
+    }
+
+    /**
+     * Reads the next line, which must exist.
+     *
+     * @throws IOException if the reader could not be read
+     * @throws BadSaveException if the end of the save has been reached
+     */
+    private void requireLine() throws IOException, BadSaveException {
+        if (!nextLine()) {
+            throw new BadSaveException();
+        }
+    }
+
+    /**
+     * Reads the next line into the line buffer. As with BufferedReader.readLine(), a line ends
+     * at a line feed, a carriage return, or a carriage return followed by a line feed.
+     *
+     * @return true if a line was read, false if the end of the save has been reached
+     * @throws IOException if the reader could not be read
+     */
+    private boolean nextLine() throws IOException {
+        length = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                return read;
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                position++;
+            }
+            append(start, position);
+            if (position < limit) {
+                skipLineFeed = buffer[position] == '\r';
+                position++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads more characters into the buffer.
+     *
+     * @return true if any characters were read, false at the end of the reader
+     * @throws IOException if the reader could not be read
+     */
+    private boolean fill() throws IOException {
+        int count = reader.read(buffer, 0, buffer.length);
+        while (count == 0) {
+            count = reader.read(buffer, 0, buffer.length);
+        }
+        position = 0;
+        limit = Math.max(count, 0);
+        return count > 0;
+    }
+
+    /**
+     * Appends characters of the buffer to the current line.
+     *
+     * @param start index of the first character in the buffer
+     * @param end   index after the last character in the buffer
+     */
+    private void append(int start, int end) {
+        int count = end - start;
+        if (length + count > line.length) {
+            char[] larger = new char[Math.max(line.length * 2, length + count)];
+            System.arraycopy(line, 0, larger, 0, length);
+            line = larger;
+            lineView = CharBuffer.wrap(line);
+        }
+        System.arraycopy(buffer, start, line, length, count);
+        length += count;
+    }
+}
@@ -0,0 +1,357 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.TileGrid;
+import researchsim.map.TileType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * An unchanging copy of the saved state of a scenario: its name, dimensions, seed, map and the
+ * entities on the map.
+ * <p>
+ * The copy is held in primitive arrays, with one byte per tile and one integer of kind, size
+ * and habitat per entity, so taking a snapshot is a single pass over the map that does not
+ * create an object per tile or per entity. A snapshot can be taken between two turns of a
+ * scenario and then saved on another thread while the scenario continues to run, as the
+ * snapshot shares no mutable state with the scenario.
+ */
+public final class ScenarioSnapshot {
+
+    /**
+     * The kind of a {@link Fauna}.
+     */
+    static final int FAUNA = 0;
+    /**
+     * The kind of a {@link Flora}.
+     */
+    static final int FLORA = 1;
+    /**
+     * The kind of a {@link User}.
+     */
+    static final int USER = 2;
+    /**
+     * The kind of any other entity, which is saved by its encoding.
+     */
+    static final int OTHER = 3;
+
+    /**
+     * The tile types in the order of their ordinals.
+     */
+    private static final TileType[] TYPES = TileType.values();
+    /**
+     * The sizes in the order of their ordinals.
+     */
+    private static final Size[] SIZES = Size.values();
+
+    /**
+     * The name of the scenario.
+     */
+    private final String name;
+    /**
+     * The width of the map.
+     */
+    private final int width;
+    /**
+     * The height of the map.
+     */
+    private final int height;
+    /**
+     * The seed of the scenario.
+     */
+    private final int seed;
+    /**
+     * The turn of the scenario's controller.
+     */
+    private final int turn;
+    /**
+     * The ordinal of the type of each tile.
+     */
+    private final byte[] terrain;
+    /**
+     * The number of entities on the map.
+     */
+    private final int entityCount;
+    /**
+     * The tile index of each entity, in increasing order.
+     */
+    private final int[] indices;
+    /**
+     * The kind, size and habitat of each entity, as {@code kind | size << 2 | habitat << 4}.
+     */
+    private final int[] descriptors;
+    /**
+     * The name of each user, the encoding of each entity of another kind, and null for every
+     * other entity.
+     */
+    private final String[] texts;
+
+    /**
+     * Takes a snapshot of the given scenario.
+     *
+     * @param scenario scenario to copy
+     */
+    private ScenarioSnapshot(Scenario scenario) {
+        TileGrid grid = scenario.getTileGrid();
+        int size = grid.getSize();
+        this.name = scenario.getName();
+        this.width = scenario.getWidth();
+        this.height = scenario.getHeight();
+        this.seed = scenario.getSeed();
+        this.turn = scenario.getController().getTurn();
+        this.terrain = new byte[size];
+
+        int count = 0;
+        int[] indices = new int[Math.min(size, 1024)];
+        int[] descriptors = new int[indices.length];
+        String[] texts = new String[indices.length];
+        for (int index = 0; index < size; index++) {
+            terrain[index] = (byte) grid.getType(index).ordinal();
+            Entity entity = grid.getOccupant(index);
+            if (entity == null) {
+                continue;
+            }
+            if (count == indices.length) {
+                int capacity = Math.min(size, count * 2);
+                indices = Arrays.copyOf(indices, capacity);
+                descriptors = Arrays.copyOf(descriptors, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            indices[count] = index;
+            descriptors[count] = describe(entity);
+            if (entity.getClass() == User.class) {
+                texts[count] = entity.getName();
+            } else if (entity.getClass() != Fauna.class && entity.getClass() != Flora.class) {
+                texts[count] = entity.encode();
+            }
+            count++;
+        }
+        this.entityCount = count;
+        this.indices = indices;
+        this.descriptors = descriptors;
+        this.texts = texts;
+    }
+
+    /**
+     * Takes a snapshot of the given scenario.
+     * <p>
+     * The scenario must not be changed while the snapshot is taken, so snapshots should be
+     * taken on the thread that runs the scenario's turns.
+     *
+     * @param scenario scenario to copy
+     * @return snapshot of the scenario
+     */
+    public static ScenarioSnapshot of(Scenario scenario) {
+        return new ScenarioSnapshot(scenario);
+    }
+
+    /**
+     * Returns the kind, size and habitat of an entity, as
+     * {@code kind | size << 2 | habitat << 4}.
+     *
+     * @param entity entity to describe
+     * @return descriptor of the entity
+     */
+    static int describe(Entity entity) {
+        int descriptor = entity.getSize().ordinal() << 2;
+        if (entity.getClass() == Fauna.class) {
+            return descriptor | FAUNA | ((Fauna) entity).getHabitat().ordinal() << 4;
+        }
+        if (entity.getClass() == Flora.class) {
+            return descriptor | FLORA;
+        }
+        if (entity.getClass() == User.class) {
+            return descriptor | USER;
+        }
+        return descriptor | OTHER;
+    }
+
+    /**
+     * Returns the name of the scenario.
+     *
+     * @return scenario name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the width of the map.
+     *
+     * @return map width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     *
+     * @return map height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the seed of the scenario.
+     *
+     * @return scenario seed
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the turn of the scenario's controller when the snapshot was taken, see
+     * {@link AnimalController#getTurn()}.
+     *
+     * @return turn of the snapshot
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns the type of the tile at the given index.
+     *
+     * @param index tile index
+     * @return tile type
+     * @throws IndexOutOfBoundsException if index is not in the map
+     */
+    public TileType getType(int index) {
+        return TYPES[terrain[index]];
+    }
+
+    /**
+     * Returns the number of entities on the map.
+     *
+     * @return entity count
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Returns the tile index of the entity with the given position in the snapshot. Entities
+     * are in order of their tile index.
+     *
+     * @param entity position of the entity, from 0 to {@link #getEntityCount()} - 1
+     * @return tile index
+     */
+    int getIndex(int entity) {
+        return indices[entity];
+    }
+
+    /**
+     * Returns the kind of the entity with the given position in the snapshot.
+     *
+     * @param entity position of the entity
+     * @return {@link #FAUNA}, {@link #FLORA}, {@link #USER} or {@link #OTHER}
+     */
+    int getKind(int entity) {
+        return descriptors[entity] & 3;
+    }
+
+    /**
+     * Returns the size of the entity with the given position in the snapshot.
+     *
+     * @param entity position of the entity
+     * @return entity size
+     */
+    Size getSize(int entity) {
+        return SIZES[descriptors[entity] >> 2 & 3];
+    }
+
+    /**
+     * Returns the habitat of the fauna with the given position in the snapshot.
+     *
+     * @param entity position of the fauna
+     * @return fauna habitat
+     */
+    TileType getHabitat(int entity) {
+        return TYPES[descriptors[entity] >> 4 & 3];
+    }
+
+    /**
+     * Returns the name of the user, or the encoding of the entity of another kind, with the
+     * given position in the snapshot.
+     *
+     * @param entity position of the entity
+     * @return name or encoding, or null for a fauna or flora
+     */
+    String getText(int entity) {
+        return texts[entity];
+    }
+
+    /**
+     * Returns the encoding of the scenario at the time of the snapshot.
+     *
+     * @return encoded string representation of the snapshot
+     * @see Scenario#encode()
+     */
+    public String encode() {
+        StringBuilder builder = new StringBuilder(terrain.length + height * 2 + 64);
+        try {
+            encodeTo(builder);
+        } catch (IOException e) {
+            // a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the encoding of the scenario at the time of the snapshot to the given appendable,
+     * in the format of {@link Scenario#encode()}. The appendable is not flushed or closed.
+     *
+     * @param out appendable to write the encoding to
+     * @throws IOException if the appendable could not be written to
+     */
+    public void encodeTo(Appendable out) throws IOException {
+        String lineSeparator = System.lineSeparator();
+        char[] row = new char[width];
+        CharBuffer rowView = CharBuffer.wrap(row);
+        Arrays.fill(row, '=');
+        out.append(name).append(lineSeparator)
+            .append("Width:").append(Integer.toString(width)).append(lineSeparator)
+            .append("Height:").append(Integer.toString(height)).append(lineSeparator)
+            .append("Seed:").append(Integer.toString(seed)).append(lineSeparator)
+            .append(rowView).append(lineSeparator);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = TYPES[terrain[x + y * width]].encode().charAt(0);
+            }
+            out.append(rowView).append(lineSeparator);
+        }
+        Arrays.fill(row, '=');
+        out.append(rowView);
+
+        for (int i = 0; i < entityCount; i++) {
+            out.append(lineSeparator);
+            String coordinate = indices[i] % width + "," + indices[i] / width;
+            switch (getKind(i)) {
+                case FAUNA:
+                    out.append("Fauna-").append(getSize(i).name()).append('-').append(coordinate)
+                        .append('-').append(getHabitat(i).name());
+                    break;
+                case FLORA:
+                    out.append("Flora-").append(getSize(i).name()).append('-').append(coordinate);
+                    break;
+                case USER:
+                    out.append("User-").append(coordinate).append('-').append(texts[i]);
+                    break;
+                default:
+                    out.append(texts[i]);
+            }
+        }
+    }
+}
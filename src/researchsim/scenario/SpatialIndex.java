@@ -0,0 +1,571 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Indexes the entities on a scenario's map by where they are, so that the entities near a
+ * coordinate can be found without reading every tile around it.
+ * <p>
+ * The map is divided into square buckets of {@value #BUCKET_SIZE} by {@value #BUCKET_SIZE}
+ * tiles. Each bucket that has held an entity keeps one bit for each of its tiles, set if the
+ * tile is occupied, and the number of entities of each kind and {@link Size} on its tiles.
+ * A query reads only the buckets it overlaps, and only the occupied tiles of those buckets,
+ * and a count over a whole bucket is read from its numbers without reading any tile. Buckets
+ * that have never held an entity take no memory beyond a reference.
+ * <p>
+ * The index listens to the map, so it is kept up to date by every change made to the map,
+ * including the moves of users ({@link User#move(Coordinate)}) and animals
+ * ({@link Fauna#move(Coordinate)}) and the collection of entities. Distances are measured
+ * along rows and columns, as entities move. The index is read and changed under its lock, so
+ * it may be notified by the threads of a parallel turn
+ * ({@link AnimalController#moveParallel(java.util.concurrent.ExecutorService)}).
+ */
+public class SpatialIndex implements TileGridListener {
+
+    /**
+     * The number of bits of a coordinate within its bucket.
+     */
+    private static final int BUCKET_BITS = 4;
+
+    /**
+     * The width and height of a bucket in tiles.
+     */
+    public static final int BUCKET_SIZE = 1 << BUCKET_BITS;
+
+    /**
+     * The kinds of entity that buckets count separately. Entities of any other class are
+     * counted as a kind of their own, after these.
+     */
+    private static final List<Class<? extends Entity>> KINDS =
+        List.of(User.class, Flora.class, Fauna.class);
+
+    /**
+     * The number of kinds counted, including the kind of entities of any other class.
+     */
+    private static final int KIND_COUNT = KINDS.size() + 1;
+
+    /**
+     * The number of sizes of entity.
+     */
+    private static final int SIZE_COUNT = Size.values().length;
+
+    /**
+     * Orders entities found by a query by their distance, then by their tile index.
+     */
+    private static final Comparator<Found> NEAREST_FIRST =
+        Comparator.comparingInt((Found found) -> found.distance)
+            .thenComparingInt(found -> found.index);
+
+    /**
+     * The grid that is indexed.
+     */
+    private final TileGrid grid;
+    /**
+     * Width of the map.
+     */
+    private final int width;
+    /**
+     * Height of the map.
+     */
+    private final int height;
+    /**
+     * The number of buckets in each row of buckets.
+     */
+    private final int bucketColumns;
+    /**
+     * The number of rows of buckets.
+     */
+    private final int bucketRows;
+    /**
+     * The buckets, row by row, or null for buckets that have never held an entity.
+     */
+    private final Bucket[] buckets;
+
+    /**
+     * Indexes the entities on the map of the given scenario, and keeps the index up to date as
+     * the map changes.
+     *
+     * @param scenario scenario whose map to index
+     */
+    public SpatialIndex(Scenario scenario) {
+        this.grid = scenario.getTileGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.bucketColumns = (width + BUCKET_SIZE - 1) >> BUCKET_BITS;
+        this.bucketRows = (height + BUCKET_SIZE - 1) >> BUCKET_BITS;
+        this.buckets = new Bucket[bucketColumns * bucketRows];
+        tilesReplaced();
+        grid.addListener(this);
+    }
+
+    /**
+     * Stops keeping the index up to date. The index must not be read afterwards.
+     */
+    public void stop() {
+        grid.removeListener(this);
+    }
+
+    /**
+     * Returns every entity within the given distance of the given coordinate, nearest first.
+     *
+     * @param centre coordinate to search around
+     * @param radius largest number of tiles along rows and columns from the centre
+     * @return entities within the distance, nearest first, then in index order
+     * @throws IllegalArgumentException if radius &lt; 0
+     */
+    public List<Entity> getWithin(Coordinate centre, int radius) {
+        return getWithin(centre, radius, Entity.class, EnumSet.allOf(Size.class));
+    }
+
+    /**
+     * Returns every entity of the given class and sizes within the given distance of the given
+     * coordinate, nearest first.
+     *
+     * @param centre coordinate to search around
+     * @param radius largest number of tiles along rows and columns from the centre
+     * @param type   class of the entities to find
+     * @param sizes  sizes of the entities to find
+     * @return entities within the distance, nearest first, then in index order
+     * @throws IllegalArgumentException if radius &lt; 0
+     */
+    public synchronized List<Entity> getWithin(Coordinate centre, int radius,
+                                               Class<? extends Entity> type, Set<Size> sizes) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Can not search a radius of " + radius);
+        }
+        int x = centre.getX();
+        int y = centre.getY();
+        // no tile is further than this, which keeps the corners from overflowing
+        int reach = Math.min(radius, width + height);
+        List<Found> found = new ArrayList<>();
+        forEachIn(x - reach, y - reach, x + reach, y + reach, (index, entity) -> {
+            int distance = distance(index, x, y);
+            if (distance <= radius && matches(entity, type, sizes)) {
+                found.add(new Found(entity, index, distance));
+            }
+        });
+        found.sort(NEAREST_FIRST);
+        List<Entity> entities = new ArrayList<>(found.size());
+        for (Found entity : found) {
+            entities.add(entity.entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Returns the given number of entities nearest to the given coordinate, nearest first.
+     *
+     * @param centre coordinate to search around
+     * @param count  largest number of entities to return
+     * @return nearest entities, nearest first, then in index order
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public List<Entity> getNearest(Coordinate centre, int count) {
+        return getNearest(centre, count, Entity.class, EnumSet.allOf(Size.class));
+    }
+
+    /**
+     * Returns the given number of entities of the given class and sizes nearest to the given
+     * coordinate, nearest first.
+     * <p>
+     * The buckets are searched in rings around the bucket of the centre, until no bucket that
+     * has not been searched can hold an entity nearer than those found.
+     *
+     * @param centre coordinate to search around
+     * @param count  largest number of entities to return
+     * @param type   class of the entities to find
+     * @param sizes  sizes of the entities to find
+     * @return nearest entities, nearest first, then in index order
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public synchronized List<Entity> getNearest(Coordinate centre, int count,
+                                                Class<? extends Entity> type, Set<Size> sizes) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Can not find " + count + " entities");
+        }
+        int x = centre.getX();
+        int y = centre.getY();
+        // the furthest entity found so far is at the head, to be replaced by nearer ones
+        PriorityQueue<Found> nearest = new PriorityQueue<>(NEAREST_FIRST.reversed());
+        int column = Math.max(0, Math.min(bucketColumns - 1, x >> BUCKET_BITS));
+        int row = Math.max(0, Math.min(bucketRows - 1, y >> BUCKET_BITS));
+        // the distance from the centre to the nearest tile outside its bucket
+        int edge = Math.max(0, Math.min(
+            Math.min(x - (column << BUCKET_BITS), ((column + 1) << BUCKET_BITS) - 1 - x),
+            Math.min(y - (row << BUCKET_BITS), ((row + 1) << BUCKET_BITS) - 1 - y)));
+        int rings = Math.max(Math.max(column, bucketColumns - 1 - column),
+            Math.max(row, bucketRows - 1 - row));
+        for (int ring = 0; ring <= rings && count > 0; ring++) {
+            if (ring > 0 && nearest.size() == count
+                    && nearest.peek().distance < (long) (ring - 1) * BUCKET_SIZE + edge + 1) {
+                break;
+            }
+            for (int bucketRow = row - ring; bucketRow <= row + ring; bucketRow++) {
+                if (bucketRow < 0 || bucketRow >= bucketRows) {
+                    continue;
+                }
+                boolean edgeRow = bucketRow == row - ring || bucketRow == row + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int bucketColumn = column - ring; bucketColumn <= column + ring;
+                        bucketColumn += Math.max(1, step)) {
+                    if (bucketColumn < 0 || bucketColumn >= bucketColumns) {
+                        continue;
+                    }
+                    int left = bucketColumn << BUCKET_BITS;
+                    int top = bucketRow << BUCKET_BITS;
+                    forEachIn(left, top, left + BUCKET_SIZE - 1, top + BUCKET_SIZE - 1,
+                        (index, entity) -> {
+                            if (!matches(entity, type, sizes)) {
+                                return;
+                            }
+                            Found found = new Found(entity, index, distance(index, x, y));
+                            if (nearest.size() < count) {
+                                nearest.add(found);
+                            } else if (NEAREST_FIRST.compare(found, nearest.peek()) < 0) {
+                                nearest.poll();
+                                nearest.add(found);
+                            }
+                        });
+                }
+            }
+        }
+        List<Found> found = new ArrayList<>(nearest);
+        found.sort(NEAREST_FIRST);
+        List<Entity> entities = new ArrayList<>(found.size());
+        for (Found entity : found) {
+            entities.add(entity.entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Returns the number of entities in the rectangle between the given corners.
+     *
+     * @param from top left corner of the rectangle
+     * @param to   bottom right corner of the rectangle
+     * @return number of entities in the rectangle, which is 0 if the rectangle is empty
+     */
+    public int count(Coordinate from, Coordinate to) {
+        return count(from, to, Entity.class, EnumSet.allOf(Size.class));
+    }
+
+    /**
+     * Returns the number of entities of the given class and sizes in the rectangle between the
+     * given corners.
+     * <p>
+     * The numbers of the buckets that lie inside the rectangle are added up, so only the
+     * entities of buckets on the edges of the rectangle are read. The entities of a bucket are
+     * also read if the class is a subclass of {@link User}, {@link Flora} or {@link Fauna}, or
+     * of another class of entity, that the bucket holds.
+     *
+     * @param from  top left corner of the rectangle
+     * @param to    bottom right corner of the rectangle
+     * @param type  class of the entities to count
+     * @param sizes sizes of the entities to count
+     * @return number of entities in the rectangle, which is 0 if the rectangle is empty
+     */
+    public synchronized int count(Coordinate from, Coordinate to, Class<? extends Entity> type,
+                                  Set<Size> sizes) {
+        int left = Math.max(0, from.getX());
+        int top = Math.max(0, from.getY());
+        int right = Math.min(width - 1, to.getX());
+        int bottom = Math.min(height - 1, to.getY());
+        if (left > right || top > bottom) {
+            return 0;
+        }
+        // whether every entity of each kind is of the class, and whether some may be
+        boolean[] every = new boolean[KIND_COUNT];
+        boolean[] some = new boolean[KIND_COUNT];
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            Class<? extends Entity> kindType = kind < KINDS.size() ? KINDS.get(kind)
+                : Entity.class;
+            every[kind] = type.isAssignableFrom(kindType);
+            some[kind] = every[kind] || kindType.isAssignableFrom(type);
+        }
+        int[] total = new int[1];
+        for (int row = top >> BUCKET_BITS; row <= bottom >> BUCKET_BITS; row++) {
+            for (int column = left >> BUCKET_BITS; column <= right >> BUCKET_BITS; column++) {
+                Bucket bucket = buckets[column + row * bucketColumns];
+                if (bucket == null || bucket.total == 0) {
+                    continue;
+                }
+                int bucketLeft = column << BUCKET_BITS;
+                int bucketTop = row << BUCKET_BITS;
+                // buckets on the right and bottom edges of the map are cut short by the map
+                boolean inside = left <= bucketLeft
+                    && Math.min(bucketLeft + BUCKET_SIZE, width) - 1 <= right
+                    && top <= bucketTop
+                    && Math.min(bucketTop + BUCKET_SIZE, height) - 1 <= bottom;
+                if (inside && bucket.canCount(every, some)) {
+                    for (int kind = 0; kind < KIND_COUNT; kind++) {
+                        if (every[kind]) {
+                            for (Size size : sizes) {
+                                total[0] += bucket.counts[kind * SIZE_COUNT + size.ordinal()];
+                            }
+                        }
+                    }
+                    continue;
+                }
+                forEachInBucket(bucket, column, row, left, top, right, bottom,
+                    (index, entity) -> {
+                        if (matches(entity, type, sizes)) {
+                            total[0]++;
+                        }
+                    });
+            }
+        }
+        return total[0];
+    }
+
+    /**
+     * Performs the given action on every entity in the rectangle between the given corners,
+     * which may reach past the edges of the map.
+     *
+     * @param left   leftmost column of the rectangle
+     * @param top    top row of the rectangle
+     * @param right  rightmost column of the rectangle
+     * @param bottom bottom row of the rectangle
+     * @param action action to perform on each entity and its tile index
+     */
+    private void forEachIn(int left, int top, int right, int bottom, EntityVisitor action) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(width - 1, right);
+        bottom = Math.min(height - 1, bottom);
+        if (left > right || top > bottom) {
+            return;
+        }
+        for (int row = top >> BUCKET_BITS; row <= bottom >> BUCKET_BITS; row++) {
+            for (int column = left >> BUCKET_BITS; column <= right >> BUCKET_BITS; column++) {
+                Bucket bucket = buckets[column + row * bucketColumns];
+                if (bucket != null && bucket.total > 0) {
+                    forEachInBucket(bucket, column, row, left, top, right, bottom, action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the given action on every entity of a bucket that is in the rectangle between
+     * the given corners, which must be on the map.
+     *
+     * @param bucket bucket to read
+     * @param column column of the bucket
+     * @param row    row of the bucket
+     * @param left   leftmost column of the rectangle
+     * @param top    top row of the rectangle
+     * @param right  rightmost column of the rectangle
+     * @param bottom bottom row of the rectangle
+     * @param action action to perform on each entity and its tile index
+     */
+    private void forEachInBucket(Bucket bucket, int column, int row, int left, int top,
+                                 int right, int bottom, EntityVisitor action) {
+        int bucketLeft = column << BUCKET_BITS;
+        int bucketTop = row << BUCKET_BITS;
+        int first = Math.max(left, bucketLeft) - bucketLeft;
+        int last = Math.min(right, bucketLeft + BUCKET_SIZE - 1) - bucketLeft;
+        long columns = ((1L << (last - first + 1)) - 1) << first;
+        int fromRow = Math.max(top, bucketTop) - bucketTop;
+        int toRow = Math.min(bottom, bucketTop + BUCKET_SIZE - 1) - bucketTop;
+        for (int bucketY = fromRow; bucketY <= toRow; bucketY++) {
+            int bit = bucketY * BUCKET_SIZE;
+            long occupied = bucket.occupied[bit / Long.SIZE] >>> (bit % Long.SIZE) & columns;
+            while (occupied != 0) {
+                int x = bucketLeft + Long.numberOfTrailingZeros(occupied);
+                int index = x + (bucketTop + bucketY) * width;
+                action.visit(index, grid.getOccupant(index));
+                occupied &= occupied - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the distance along rows and columns from the given tile to the given coordinate.
+     *
+     * @param index tile index
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return distance in tiles
+     */
+    private int distance(int index, int x, int y) {
+        return Math.abs(index % width - x) + Math.abs(index / width - y);
+    }
+
+    /**
+     * Returns whether the given entity is of the given class and one of the given sizes.
+     *
+     * @param entity entity to check
+     * @param type   class of entity
+     * @param sizes  sizes of entity
+     * @return true if the entity matches
+     */
+    private static boolean matches(Entity entity, Class<? extends Entity> type,
+                                   Set<Size> sizes) {
+        return type.isInstance(entity) && sizes.contains(entity.getSize());
+    }
+
+    /**
+     * Returns the kind of the given entity, which is its position in {@link #KINDS}, or the
+     * number of kinds for an entity of any other class.
+     *
+     * @param entity entity to classify
+     * @return kind of the entity
+     */
+    private static int kindOf(Entity entity) {
+        for (int kind = 0; kind < KINDS.size(); kind++) {
+            if (KINDS.get(kind).isInstance(entity)) {
+                return kind;
+            }
+        }
+        return KINDS.size();
+    }
+
+    /**
+     * Adds or removes the given entity to or from the bucket of the given tile.
+     *
+     * @param index  tile index
+     * @param entity entity on the tile
+     * @param change 1 to add the entity, or -1 to remove it
+     */
+    private void update(int index, Entity entity, int change) {
+        int x = index % width;
+        int y = index / width;
+        int position = (x >> BUCKET_BITS) + (y >> BUCKET_BITS) * bucketColumns;
+        Bucket bucket = buckets[position];
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets[position] = bucket;
+        }
+        int bit = (y & (BUCKET_SIZE - 1)) * BUCKET_SIZE + (x & (BUCKET_SIZE - 1));
+        if (change > 0) {
+            bucket.occupied[bit / Long.SIZE] |= 1L << bit;
+        } else {
+            bucket.occupied[bit / Long.SIZE] &= ~(1L << bit);
+        }
+        bucket.counts[kindOf(entity) * SIZE_COUNT + entity.getSize().ordinal()] += change;
+        bucket.total += change;
+    }
+
+    @Override
+    public synchronized void occupantChanged(int index, Entity previous, Entity current) {
+        if (previous != null) {
+            update(index, previous, -1);
+        }
+        if (current != null) {
+            update(index, current, 1);
+        }
+    }
+
+    @Override
+    public synchronized void tilesReplaced() {
+        Arrays.fill(buckets, null);
+        grid.forEachTile((index, type, occupant) -> {
+            if (occupant != null) {
+                update(index, occupant, 1);
+            }
+        });
+    }
+
+    /**
+     * An action performed on an entity found by a query.
+     */
+    @FunctionalInterface
+    private interface EntityVisitor {
+
+        /**
+         * Performs this action on an entity.
+         *
+         * @param index  tile index of the entity
+         * @param entity the entity
+         */
+        void visit(int index, Entity entity);
+    }
+
+    /**
+     * The entities on a square of tiles.
+     */
+    private static class Bucket {
+
+        /**
+         * One bit per tile of the bucket, row by row, set if the tile is occupied.
+         */
+        private final long[] occupied = new long[BUCKET_SIZE * BUCKET_SIZE / Long.SIZE];
+        /**
+         * The number of entities of each kind and size, by kind then size.
+         */
+        private final int[] counts = new int[KIND_COUNT * SIZE_COUNT];
+        /**
+         * The number of entities in the bucket.
+         */
+        private int total;
+
+        /**
+         * Returns whether the number of entities of a class in this bucket can be found from the
+         * numbers of each kind, because no kind that only some entities of the class belong to
+         * is in this bucket.
+         *
+         * @param every whether every entity of each kind is of the class
+         * @param some  whether some entities of each kind may be of the class
+         * @return true if the numbers can be used
+         */
+        private boolean canCount(boolean[] every, boolean[] some) {
+            for (int kind = 0; kind < KIND_COUNT; kind++) {
+                if (some[kind] && !every[kind]) {
+                    for (int size = 0; size < SIZE_COUNT; size++) {
+                        if (counts[kind * SIZE_COUNT + size] > 0) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * An entity found by a query, with its tile index and distance from the centre.
+     */
+    private static class Found {
+
+        /**
+         * The entity found.
+         */
+        private final Entity entity;
+        /**
+         * The tile index of the entity.
+         */
+        private final int index;
+        /**
+         * The distance of the entity from the centre of the query.
+         */
+        private final int distance;
+
+        /**
+         * Creates a found entity.
+         *
+         * @param entity   the entity found
+         * @param index    tile index of the entity
+         * @param distance distance of the entity from the centre of the query
+         */
+        private Found(Entity entity, int index, int distance) {
+            this.entity = entity;
+            this.index = index;
+            this.distance = distance;
+        }
+    }
+}
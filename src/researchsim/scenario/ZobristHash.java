@@ -0,0 +1,201 @@
+package researchsim.scenario;
+
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.map.TileGrid;
+import researchsim.map.TileGridListener;
+import researchsim.map.TileType;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Keeps 64-bit Zobrist hashes of the state of a tile grid up to date as the grid changes.
+ * <p>
+ * Every possible feature of a tile, such as "tile 12 is sand" or "tile 12 holds a small land
+ * animal", has a pseudo-random 64-bit key, and the hash of a grid is the exclusive or of the
+ * keys of the features it has. When a tile changes, the key of its old feature is removed and
+ * the key of its new feature added by two exclusive ors, so keeping the hash costs a constant
+ * amount of work per change rather than a pass over the grid. The keys are computed from the
+ * tile index and the feature by a mixing function, so no table of keys is stored.
+ * <p>
+ * Two hashes are kept:
+ * <ul>
+ * <li>the state hash, of the type of every tile and the kind, size, habitat and name of every
+ * inhabitant. Land tiles have no key, so a new grid, which is all land, has a state hash of
+ * 0</li>
+ * <li>the contents hash, of the index, type and size of every occupied tile, which are the
+ * parts of a tile that {@link researchsim.map.Tile#equals(Object)} always compares, so that
+ * grids with equal tiles have equal contents hashes</li>
+ * </ul>
+ * The hashes are combined with accumulators rather than locks, as the grid may be changed by
+ * the threads of a parallel turn at once. They should be read between turns.
+ */
+class ZobristHash implements TileGridListener {
+
+    /**
+     * The seed of the keys of tile types.
+     */
+    private static final long TYPE_SEED = 0x9E3779B97F4A7C15L;
+    /**
+     * The seed of the keys of inhabitants.
+     */
+    private static final long OCCUPANT_SEED = 0xC2B2AE3D27D4EB4FL;
+    /**
+     * The seed of the keys of occupied tiles in the contents hash.
+     */
+    private static final long CONTENTS_SEED = 0x165667B19E3779F9L;
+
+    /**
+     * The grid that is hashed.
+     */
+    private final TileGrid grid;
+    /**
+     * The exclusive or of the keys of the state of every tile.
+     */
+    private final LongAccumulator state;
+    /**
+     * The exclusive or of the keys of every occupied tile.
+     */
+    private final LongAccumulator contents;
+
+    /**
+     * Creates the hashes of the given new grid, whose tiles are all land or unset and empty,
+     * and keeps them up to date as the grid changes.
+     *
+     * @param grid new grid to hash
+     */
+    ZobristHash(TileGrid grid) {
+        this.grid = grid;
+        this.state = new LongAccumulator((a, b) -> a ^ b, 0);
+        this.contents = new LongAccumulator((a, b) -> a ^ b, 0);
+        grid.addListener(this);
+    }
+
+    /**
+     * Creates the hashes of a fork of the grid of the given hashes ({@link TileGrid#fork}),
+     * which starts with the same hashes, and keeps them up to date as the fork changes.
+     *
+     * @param grid     fork of the grid of the original hashes
+     * @param original hashes of the grid that was forked
+     */
+    ZobristHash(TileGrid grid, ZobristHash original) {
+        this(grid);
+        state.accumulate(original.getStateHash());
+        contents.accumulate(original.getContentsHash());
+    }
+
+    /**
+     * Returns the state hash of the grid.
+     *
+     * @return state hash
+     */
+    long getStateHash() {
+        return state.get();
+    }
+
+    /**
+     * Returns the contents hash of the grid.
+     *
+     * @return contents hash
+     */
+    long getContentsHash() {
+        return contents.get();
+    }
+
+    /**
+     * Mixes the bits of a value, using the finaliser of the SplitMix64 generator.
+     *
+     * @param value value to mix
+     * @return mixed value
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Returns the key of a tile's type in the state hash.
+     *
+     * @param index tile index
+     * @param type  tile type, or null if it has not been set
+     * @return key, which is 0 for land and unset tiles
+     */
+    private static long typeKey(int index, TileType type) {
+        if (type == null || type == TileType.LAND) {
+            return 0;
+        }
+        return mix(mix(index + TYPE_SEED) + type.ordinal());
+    }
+
+    /**
+     * Returns the key of a tile's inhabitant in the state hash.
+     *
+     * @param index  tile index
+     * @param entity inhabitant, or null if the tile is empty
+     * @return key, which is 0 for an empty tile
+     */
+    private static long occupantKey(int index, Entity entity) {
+        if (entity == null) {
+            return 0;
+        }
+        long descriptor = entity.getSize().ordinal();
+        if (entity instanceof Fauna) {
+            descriptor |= (((Fauna) entity).getHabitat().ordinal() + 1) << 2;
+        }
+        descriptor |= (long) entity.getClass().getName().hashCode() << 8;
+        String name = entity.getName();
+        if (name != null) {
+            descriptor = mix(descriptor) + name.hashCode();
+        }
+        return mix(mix(index + OCCUPANT_SEED) + descriptor);
+    }
+
+    /**
+     * Returns the key of an occupied tile in the contents hash.
+     *
+     * @param index  tile index
+     * @param type   tile type
+     * @param entity inhabitant, or null if the tile is empty
+     * @return key, which is 0 for an empty tile
+     */
+    private static long contentsKey(int index, TileType type, Entity entity) {
+        if (entity == null) {
+            return 0;
+        }
+        long features = (type == null ? 0 : type.ordinal() + 1)
+            | (long) entity.getSize().ordinal() << 3;
+        return mix(mix(index + CONTENTS_SEED) + features);
+    }
+
+    @Override
+    public void typeChanged(int index, TileType previous, TileType current) {
+        state.accumulate(typeKey(index, previous) ^ typeKey(index, current));
+        Entity occupant = grid.getOccupant(index);
+        if (occupant != null) {
+            contents.accumulate(contentsKey(index, previous, occupant)
+                ^ contentsKey(index, current, occupant));
+        }
+    }
+
+    @Override
+    public void occupantChanged(int index, Entity previous, Entity current) {
+        state.accumulate(occupantKey(index, previous) ^ occupantKey(index, current));
+        TileType type = grid.getType(index);
+        contents.accumulate(contentsKey(index, type, previous)
+            ^ contentsKey(index, type, current));
+    }
+
+    @Override
+    public void tilesReplaced() {
+        long[] hashes = new long[2];
+        grid.forEachTile((index, type, occupant) -> {
+            hashes[0] ^= typeKey(index, type) ^ occupantKey(index, occupant);
+            hashes[1] ^= contentsKey(index, type, occupant);
+        });
+        state.reset();
+        state.accumulate(hashes[0]);
+        contents.reset();
+        contents.accumulate(hashes[1]);
+    }
+}
@@ -0,0 +1,416 @@
+package researchsim.simulation;
+
+import researchsim.logging.Event;
+import researchsim.logging.EventSink;
+import researchsim.scenario.BinaryScenarioFormat;
+import researchsim.scenario.SaveFiles;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves a scenario in the background while it runs.
+ * <p>
+ * A save takes a {@link ScenarioSnapshot} of the scenario on the thread that runs its turns,
+ * which copies the scenario without touching the disk, and then writes the snapshot on a
+ * worker thread with {@link SaveFiles#write(ScenarioSnapshot, Path)}, so the save file always
+ * holds a complete save. A save file whose name ends with
+ * {@value BinaryScenarioFormat#EXTENSION} is written as a binary save, any other as text.
+ * <p>
+ * The service is attached to the scenario's log as an {@link EventSink}, and saves
+ * automatically at the end of a turn once a number of turns ({@link #setTurnInterval(int)}) or
+ * an amount of time ({@link #setIntervalMillis(long)}) has passed since the last automatic
+ * save. An automatic save is skipped if the previous save is still being written, so turns
+ * never wait for the disk. Saves can also be requested directly with {@link #save()} and
+ * {@link #save(Path)}.
+ * <p>
+ * The time taken to snapshot and to write each save is recorded and reported by
+ * {@link #toString()}.
+ */
+public class AutosaveService implements EventSink, Closeable {
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * The scenario to save.
+     */
+    private final Scenario scenario;
+    /**
+     * The file automatic saves are written to.
+     */
+    private final Path file;
+    /**
+     * The thread saves are written on.
+     */
+    private final ExecutorService writer;
+    /**
+     * The number of saves that have been requested but not yet written.
+     */
+    private final AtomicInteger pending;
+    /**
+     * The number of turns between automatic saves, or 0 to not save by turns.
+     */
+    private int turnInterval;
+    /**
+     * The time between automatic saves in milliseconds, or 0 to not save by time.
+     */
+    private long intervalMillis;
+    /**
+     * The turn of the last automatic save.
+     */
+    private int lastSaveTurn;
+    /**
+     * The time of the last automatic save, from {@link System#nanoTime()}.
+     */
+    private long lastSaveTime;
+
+    /**
+     * The number of saves requested.
+     */
+    private int requests;
+    /**
+     * The number of saves written.
+     */
+    private volatile int saves;
+    /**
+     * The number of saves that failed.
+     */
+    private volatile int failures;
+    /**
+     * The number of automatic saves skipped as the previous save was still being written.
+     */
+    private int skipped;
+    /**
+     * The total time spent taking snapshots, in nanoseconds.
+     */
+    private long snapshotNanos;
+    /**
+     * The longest time spent taking a snapshot, in nanoseconds.
+     */
+    private long maxSnapshotNanos;
+    /**
+     * The total time spent writing saves, in nanoseconds.
+     */
+    private volatile long writeNanos;
+    /**
+     * The longest time spent writing a save, in nanoseconds.
+     */
+    private volatile long maxWriteNanos;
+
+    /**
+     * Creates a service that saves the given scenario to the given file, and attaches it to the
+     * scenario's log. The service does not save automatically until an interval is set.
+     *
+     * @param scenario scenario to save
+     * @param file     file to save automatically to
+     */
+    public AutosaveService(Scenario scenario, Path file) {
+        this.scenario = scenario;
+        this.file = file;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave-" + scenario.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new AtomicInteger();
+        this.lastSaveTurn = scenario.getController().getTurn();
+        this.lastSaveTime = System.nanoTime();
+        scenario.getLog().addSink(this);
+    }
+
+    /**
+     * Returns the scenario that is saved.
+     *
+     * @return saved scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the file that automatic saves are written to.
+     *
+     * @return save file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of turns between automatic saves.
+     *
+     * @return turns between saves, 0 if saves are not made by turns
+     */
+    public int getTurnInterval() {
+        return turnInterval;
+    }
+
+    /**
+     * Sets the number of turns between automatic saves.
+     *
+     * @param turnInterval turns between saves, 0 to not save by turns
+     * @throws IllegalArgumentException if turnInterval &lt; 0
+     */
+    public void setTurnInterval(int turnInterval) {
+        if (turnInterval < 0) {
+            throw new IllegalArgumentException("Interval can not be negative: " + turnInterval);
+        }
+        this.turnInterval = turnInterval;
+    }
+
+    /**
+     * Returns the time between automatic saves.
+     *
+     * @return time between saves in milliseconds, 0 if saves are not made by time
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Sets the time between automatic saves. Saves are only made at the end of a turn, so the
+     * time between saves may be longer.
+     *
+     * @param intervalMillis time between saves in milliseconds, 0 to not save by time
+     * @throws IllegalArgumentException if intervalMillis &lt; 0
+     */
+    public void setIntervalMillis(long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Interval can not be negative: "
+                + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Does nothing, as saves are only made at the end of a turn.
+     *
+     * @param event the new event
+     * @param turn  the turn the event occurred in
+     */
+    @Override
+    public void eventAdded(Event event, int turn) {
+    }
+
+    /**
+     * Saves the scenario to the save file if an interval has passed since the last automatic
+     * save, unless the previous save is still being written, in which case the save is skipped.
+     *
+     * @param turn the turn that ended
+     */
+    @Override
+    public void turnEnded(int turn) {
+        int currentTurn = scenario.getController().getTurn();
+        long now = System.nanoTime();
+        boolean due = turnInterval > 0 && currentTurn - lastSaveTurn >= turnInterval
+            || intervalMillis > 0 && now - lastSaveTime >= intervalMillis * 1_000_000L;
+        if (!due) {
+            return;
+        }
+        lastSaveTurn = currentTurn;
+        lastSaveTime = now;
+        if (pending.get() > 0) {
+            skipped++;
+            return;
+        }
+        save();
+    }
+
+    /**
+     * Saves the scenario to the save file in the background.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns, between turns.
+     *
+     * @return a future completed with the save file once it has been written, or completed
+     *         exceptionally with the IOException if it could not be written
+     */
+    public CompletableFuture<Path> save() {
+        return save(file);
+    }
+
+    /**
+     * Saves the scenario to the given file in the background.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns, between turns.
+     *
+     * @param target the file to save to
+     * @return a future completed with the file once it has been written, or completed
+     *         exceptionally with the IOException if it could not be written
+     */
+    public CompletableFuture<Path> save(Path target) {
+        long start = System.nanoTime();
+        ScenarioSnapshot snapshot = ScenarioSnapshot.of(scenario);
+        long elapsed = System.nanoTime() - start;
+        requests++;
+        snapshotNanos += elapsed;
+        maxSnapshotNanos = Math.max(maxSnapshotNanos, elapsed);
+
+        pending.incrementAndGet();
+        CompletableFuture<Path> result = new CompletableFuture<>();
+        writer.execute(() -> {
+            long writeStart = System.nanoTime();
+            try {
+                SaveFiles.write(snapshot, target);
+                saves++;
+            } catch (IOException | RuntimeException e) {
+                failures++;
+                pending.decrementAndGet();
+                result.completeExceptionally(e);
+                return;
+            }
+            long writeElapsed = System.nanoTime() - writeStart;
+            writeNanos += writeElapsed;
+            maxWriteNanos = Math.max(maxWriteNanos, writeElapsed);
+            pending.decrementAndGet();
+            result.complete(target);
+        });
+        return result;
+    }
+
+    /**
+     * Returns whether a save has been requested that has not yet been written.
+     *
+     * @return true if a save is being written
+     */
+    public boolean isSaving() {
+        return pending.get() > 0;
+    }
+
+    /**
+     * Returns the number of saves requested, automatically or directly.
+     *
+     * @return saves requested
+     */
+    public int getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of saves written.
+     *
+     * @return saves written
+     */
+    public int getSaveCount() {
+        return saves;
+    }
+
+    /**
+     * Returns the number of saves that could not be written.
+     *
+     * @return failed saves
+     */
+    public int getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Returns the number of automatic saves skipped as the previous save was still being
+     * written.
+     *
+     * @return skipped saves
+     */
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Returns the total time spent taking snapshots on the turn thread.
+     *
+     * @return snapshot time in nanoseconds
+     */
+    public long getSnapshotNanos() {
+        return snapshotNanos;
+    }
+
+    /**
+     * Returns the longest time spent taking a snapshot on the turn thread.
+     *
+     * @return longest snapshot time in nanoseconds
+     */
+    public long getMaxSnapshotNanos() {
+        return maxSnapshotNanos;
+    }
+
+    /**
+     * Returns the total time spent writing saves on the worker thread.
+     *
+     * @return write time in nanoseconds
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Returns the longest time spent writing a save on the worker thread.
+     *
+     * @return longest write time in nanoseconds
+     */
+    public long getMaxWriteNanos() {
+        return maxWriteNanos;
+    }
+
+    /**
+     * Detaches the service from the scenario's log and stops its worker thread once every
+     * requested save has been written, without waiting for the saves.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns.
+     */
+    public void shutdown() {
+        scenario.getLog().removeSink(this);
+        writer.shutdown();
+    }
+
+    /**
+     * Detaches the service from the scenario's log, waits for every requested save to be
+     * written and stops its worker thread.
+     * <p>
+     * This must be called on the thread that runs the scenario's turns.
+     *
+     * @throws IOException if interrupted while waiting for saves to be written
+     */
+    @Override
+    public void close() throws IOException {
+        shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for saves", e);
+        }
+    }
+
+    /**
+     * Returns a report of the saves made, such as:
+     * <pre>
+     * Saves: 12 (0 failed, 3 skipped)
+     * Snapshot: 1.204 ms average, 2.310 ms longest
+     * Write: 40.118 ms average, 52.907 ms longest
+     * </pre>
+     *
+     * @return save report
+     */
+    @Override
+    public String toString() {
+        int written = Math.max(1, saves + failures);
+        StringJoiner report = new StringJoiner(System.lineSeparator());
+        report.add("Saves: " + saves + " (" + failures + " failed, " + skipped + " skipped)");
+        report.add(String.format("Snapshot: %.3f ms average, %.3f ms longest",
+            snapshotNanos / NANOS_PER_MILLI / Math.max(1, requests),
+            maxSnapshotNanos / NANOS_PER_MILLI));
+        report.add(String.format("Write: %.3f ms average, %.3f ms longest",
+            writeNanos / NANOS_PER_MILLI / written, maxWriteNanos / NANOS_PER_MILLI));
+        return report.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package researchsim.simulation;
+
+import researchsim.logging.Logger;
+import researchsim.scenario.Scenario;
+
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs a scenario for a number of turns without a display and measures its throughput.
+ * <p>
+ * Each turn is a single call to {@link researchsim.scenario.AnimalController#move()}, the same
+ * as pressing "End Turn" in the GUI, or to
+ * {@link researchsim.scenario.AnimalController#moveParallel(ExecutorService)} if the run was
+ * given an executor.
+ */
+public class BatchRun {
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * The scenario to run.
+     */
+    private final Scenario scenario;
+    /**
+     * The number of turns to run.
+     */
+    private final int turns;
+    /**
+     * The executor to move animals on, or null if turns are run sequentially.
+     */
+    private final ExecutorService executor;
+    /**
+     * The number of turns that have been run.
+     */
+    private int turnsRun;
+    /**
+     * The time taken to run the turns, in nanoseconds.
+     */
+    private long elapsedNanos;
+    /**
+     * The number of move events logged while running.
+     */
+    private int moves;
+    /**
+     * The number of collect events logged while running.
+     */
+    private int collects;
+
+    /**
+     * Creates a new batch run of the given scenario.
+     *
+     * @param scenario scenario to run
+     * @param turns    number of turns to run
+     * @throws IllegalArgumentException if turns &lt; 0
+     */
+    public BatchRun(Scenario scenario, int turns) {
+        this(scenario, turns, null);
+    }
+
+    /**
+     * Creates a new batch run of the given scenario that moves the animals of each turn in
+     * parallel on the given executor.
+     *
+     * @param scenario scenario to run
+     * @param turns    number of turns to run
+     * @param executor executor to move animals on, or null to run turns sequentially
+     * @throws IllegalArgumentException if turns &lt; 0
+     */
+    public BatchRun(Scenario scenario, int turns, ExecutorService executor) {
+        if (turns < 0) {
+            throw new IllegalArgumentException("Can not run a negative number of turns: " + turns);
+        }
+        this.scenario = scenario;
+        this.turns = turns;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the scenario for the number of turns given to this run.
+     * <p>
+     * The current scenario of the {@link researchsim.scenario.ScenarioManager} is not used or
+     * changed, so batch runs of different scenarios can be run on separate threads.
+     */
+    public void run() {
+        Logger log = scenario.getLog();
+        int eventsBefore = log.getEventCount();
+        int collectsBefore = log.getEntitiesCollected();
+
+        long start = System.nanoTime();
+        for (int turn = 0; turn < turns; turn++) {
+            if (executor == null) {
+                scenario.getController().move();
+            } else {
+                scenario.getController().moveParallel(executor);
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        turnsRun = turns;
+        collects = log.getEntitiesCollected() - collectsBefore;
+        moves = log.getEventCount() - eventsBefore - collects;
+    }
+
+    /**
+     * Returns the scenario being run.
+     *
+     * @return scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the number of turns that have been run.
+     *
+     * @return turns run
+     */
+    public int getTurnsRun() {
+        return turnsRun;
+    }
+
+    /**
+     * Returns the time taken to run the turns.
+     *
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of moves made while running.
+     *
+     * @return moves made
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the number of collect events logged while running.
+     *
+     * @return collect events
+     */
+    public int getCollects() {
+        return collects;
+    }
+
+    /**
+     * Returns the number of turns run per second.
+     *
+     * @return turns per second, or 0 if no time has elapsed
+     */
+    public double getTurnsPerSecond() {
+        return perSecond(turnsRun);
+    }
+
+    /**
+     * Returns the number of moves made per second.
+     *
+     * @return moves per second, or 0 if no time has elapsed
+     */
+    public double getMovesPerSecond() {
+        return perSecond(moves);
+    }
+
+    /**
+     * Returns the rate of the given count over the elapsed time.
+     *
+     * @param count count to convert to a rate
+     * @return count per second
+     */
+    private double perSecond(long count) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return count * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * Returns the human-readable report of this run.
+     * <p>
+     * The format of the string to return is:
+     * <pre>
+     * name (widthxheight, seed seed)
+     * Turns: turns in seconds s (rate turns/sec)
+     * Moves: moves (rate moves/sec)
+     * Collect Events: collects
+     * Entities Collected: entitiesCollected
+     * Tiles Traversed: tilesTraversed
+     * Points Earned: pointsEarned</pre>
+     * Where the last three lines are the final statistics of the scenario's log.
+     * Each line is separated by a system-dependent line separator.
+     *
+     * @return human-readable report
+     */
+    @Override
+    public String toString() {
+        Logger log = scenario.getLog();
+        StringJoiner report = new StringJoiner(System.lineSeparator());
+        report.add(String.format("%s (%dx%d, seed %d)", scenario.getName(),
+            scenario.getWidth(), scenario.getHeight(), scenario.getSeed()));
+        report.add(String.format("Turns: %d in %.3f s (%.1f turns/sec)",
+            turnsRun, elapsedNanos / NANOS_PER_SECOND, getTurnsPerSecond()));
+        report.add(String.format("Moves: %d (%.1f moves/sec)", moves, getMovesPerSecond()));
+        report.add("Collect Events: " + collects);
+        report.add("Entities Collected: " + log.getEntitiesCollected());
+        report.add("Tiles Traversed: " + log.getTilesTraversed());
+        report.add("Points Earned: " + log.getPointsEarned());
+        return report.toString();
+    }
+}
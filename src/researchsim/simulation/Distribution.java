@@ -0,0 +1,177 @@
+package researchsim.simulation;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Summary statistics of a metric measured over many simulation runs.
+ */
+public class Distribution {
+
+    /**
+     * The name of the metric.
+     */
+    private final String name;
+    /**
+     * The measured values, in ascending order.
+     */
+    private final long[] sorted;
+
+    /**
+     * Creates a distribution of the given values.
+     *
+     * @param name   name of the metric
+     * @param values the measured values, the array is not modified
+     * @throws IllegalArgumentException if there are no values
+     */
+    public Distribution(String name, long[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("A distribution must have at least one value.");
+        }
+        this.name = name;
+        this.sorted = values.clone();
+        Arrays.sort(this.sorted);
+    }
+
+    /**
+     * Returns the name of the metric.
+     *
+     * @return metric name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of values measured.
+     *
+     * @return number of values
+     */
+    public int getCount() {
+        return sorted.length;
+    }
+
+    /**
+     * Returns the smallest value measured.
+     *
+     * @return minimum value
+     */
+    public long getMin() {
+        return sorted[0];
+    }
+
+    /**
+     * Returns the largest value measured.
+     *
+     * @return maximum value
+     */
+    public long getMax() {
+        return sorted[sorted.length - 1];
+    }
+
+    /**
+     * Returns the mean of the values measured.
+     *
+     * @return mean value
+     */
+    public double getMean() {
+        double total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        return total / sorted.length;
+    }
+
+    /**
+     * Returns the value at the given percentile, using the nearest-rank method.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the smallest value that is greater than or equal to the given percent of values
+     * @throws IllegalArgumentException if percentile &lt; 0 or percentile &gt; 100
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be from 0 to 100: " + percentile);
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * Returns the number of values that fall in each of the given number of equal width bins
+     * between {@link #getMin()} and {@link #getMax()} (inclusive).
+     * <p>
+     * Bin {@code i} covers the values from {@code getMin() + i * width} up to (not including)
+     * {@code getMin() + (i + 1) * width}, where {@code width} is the smallest whole number that
+     * fits every value in the bins. If every value is the same then all values are in the first
+     * bin.
+     *
+     * @param bins the number of bins
+     * @return the number of values in each bin
+     * @throws IllegalArgumentException if bins &lt; 1
+     */
+    public int[] getHistogram(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("A histogram must have at least one bin.");
+        }
+        long width = getBinWidth(bins);
+        int[] counts = new int[bins];
+        for (long value : sorted) {
+            counts[(int) ((value - getMin()) / width)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the width of each bin of a histogram with the given number of bins.
+     *
+     * @param bins the number of bins
+     * @return bin width, at least 1
+     */
+    public long getBinWidth(int bins) {
+        long range = getMax() - getMin() + 1;
+        return Math.max((range + bins - 1) / bins, 1);
+    }
+
+    /**
+     * Returns the human-readable summary of this distribution, with a histogram of the given
+     * number of bins.
+     * <p>
+     * The format of the string to return is:
+     * <pre>
+     * name: mean mean, min min, p50 p50, p90 p90, p99 p99, max max
+     *   [from, to): count
+     *   ...</pre>
+     * Where there is one histogram line for each non-empty bin.
+     * Each line is separated by a system-dependent line separator.
+     *
+     * @param bins the number of histogram bins
+     * @return human-readable summary
+     */
+    public String toString(int bins) {
+        StringJoiner summary = new StringJoiner(System.lineSeparator());
+        summary.add(String.format("%s: mean %.2f, min %d, p50 %d, p90 %d, p99 %d, max %d",
+            name, getMean(), getMin(), getPercentile(50), getPercentile(90),
+            getPercentile(99), getMax()));
+        int[] histogram = getHistogram(bins);
+        long width = getBinWidth(bins);
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                long from = getMin() + i * width;
+                summary.add(String.format("  [%d, %d): %d", from, from + width, histogram[i]));
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Returns the human-readable summary of this distribution with a ten bin histogram.
+     *
+     * @return human-readable summary
+     * @see #toString(int)
+     */
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+}
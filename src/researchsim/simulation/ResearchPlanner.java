@@ -0,0 +1,576 @@
+package researchsim.simulation;
+
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.scenario.Scenario;
+import researchsim.util.CoordinateOutOfBoundsException;
+import researchsim.util.NoSuchEntityException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plans the moves of a {@link User} to earn as many points as possible over the next turns,
+ * using Monte Carlo tree search.
+ * <p>
+ * Each turn of the plan is played the way {@link #playTurn(User, Coordinate)} plays it: the user
+ * collects every entity next to it, moves to a coordinate (or stays where it is), collects
+ * every entity next to it again, and then the animals move ({@link
+ * researchsim.scenario.AnimalController#move()}). As collecting is always worth points, the
+ * only decision of a turn is where the user moves to.
+ * <p>
+ * Every rollout plays a fork of the scenario ({@link Scenario#fork()}) for the planned number
+ * of turns, with its own random seed, so the rollouts sample the randomness of the animals'
+ * moves. The moves of the first turns are chosen from a tree of the moves tried so far, by the
+ * UCB1 rule, and the moves after the tree are chosen at random. The points earned by the user
+ * in the fork ({@link researchsim.logging.Logger#getPointsEarned()}) are the rollout's reward.
+ * As the animals move at random, the tree is a tree of moves rather than of scenario states:
+ * a move that can not be made in a rollout, for example because an animal is in the way, is
+ * not considered in that rollout.
+ * <p>
+ * The search runs on several workers at once, each growing its own tree until the time budget
+ * of the decision has been used. The visits of the first moves of every tree are then added up,
+ * and the move visited most often is suggested.
+ */
+public class ResearchPlanner {
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    /**
+     * The weight of exploration in the UCB1 rule.
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * The number of turns planned ahead.
+     */
+    private final int horizon;
+    /**
+     * The time each decision may take, in nanoseconds.
+     */
+    private final long budgetNanos;
+    /**
+     * The largest number of rollouts each worker plays for a decision, or 0 for no limit.
+     */
+    private int rolloutLimit;
+    /**
+     * The seed of the random streams of the workers.
+     */
+    private long seed;
+
+    /**
+     * Creates a planner that plans the given number of turns ahead and may take the given time
+     * for each decision.
+     *
+     * @param horizon      number of turns to plan ahead
+     * @param budgetMillis time each decision may take, in milliseconds
+     * @throws IllegalArgumentException if horizon &lt; 1 or budgetMillis &lt; 0
+     */
+    public ResearchPlanner(int horizon, long budgetMillis) {
+        if (horizon < 1 || budgetMillis < 0) {
+            throw new IllegalArgumentException("Can not plan " + horizon + " turns in "
+                + budgetMillis + " ms");
+        }
+        this.horizon = horizon;
+        this.budgetNanos = budgetMillis * NANOS_PER_MILLI;
+        this.rolloutLimit = 0;
+        this.seed = 0;
+    }
+
+    /**
+     * Returns the number of turns planned ahead.
+     *
+     * @return planning horizon in turns
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Limits the number of rollouts each worker plays for a decision. The search stops when
+     * either the limit is reached or the time budget is used. With a limit and a single worker,
+     * the same scenario is always given the same suggestion for the same seed.
+     *
+     * @param rolloutLimit largest number of rollouts per worker, or 0 for no limit
+     * @throws IllegalArgumentException if rolloutLimit &lt; 0
+     */
+    public void setRolloutLimit(int rolloutLimit) {
+        if (rolloutLimit < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.rolloutLimit = rolloutLimit;
+    }
+
+    /**
+     * Sets the seed that the random streams of the workers are derived from.
+     *
+     * @param seed the new seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plans the next move of the given user on a new pool of one worker per processor, which
+     * is shut down once the decision has been made.
+     *
+     * @param user the user to plan for, which must be on the map of its scenario
+     * @return suggested move
+     * @throws IllegalArgumentException if the user is not on the map of its scenario
+     * @see #plan(User, ExecutorService, int)
+     */
+    public Suggestion plan(User user) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "research-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return plan(user, executor, workers);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Plans the next move of the given user with the given number of workers on the given
+     * executor.
+     * <p>
+     * The user's scenario is forked once for each worker before this method waits for the
+     * executor, and is not changed, so the scenario must not be changed while it is being
+     * forked but may be changed once the workers have started.
+     *
+     * @param user     the user to plan for, which must be on the map of its scenario
+     * @param executor executor to run the workers on
+     * @param workers  number of workers
+     * @return suggested move
+     * @throws IllegalArgumentException if the user is not on the map of its scenario or
+     *                                  workers &lt; 1
+     * @throws IllegalStateException if the thread is interrupted while waiting for the executor
+     */
+    public Suggestion plan(User user, ExecutorService executor, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Can not plan with " + workers + " workers");
+        }
+        Scenario scenario = user.getScenario();
+        Coordinate position = user.getCoordinate();
+        if (!position.isInBounds(scenario)
+                || scenario.occupantAt(position.getX(), position.getY()) != user) {
+            throw new IllegalArgumentException(user + " is not on the map of its scenario");
+        }
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Worker> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(new Worker(scenario.fork(), position, random.split(), start + budgetNanos));
+        }
+
+        Map<Coordinate, Node> moves = new HashMap<>();
+        try {
+            for (Future<Node> result : executor.invokeAll(tasks)) {
+                for (Map.Entry<Coordinate, Node> move : result.get().children.entrySet()) {
+                    Node total = moves.computeIfAbsent(move.getKey(), key -> new Node());
+                    total.visits += move.getValue().visits;
+                    total.points += move.getValue().points;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while planning.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        Coordinate best = position;
+        Node bestNode = null;
+        long rollouts = 0;
+        for (Map.Entry<Coordinate, Node> move : moves.entrySet()) {
+            Node node = move.getValue();
+            rollouts += node.visits;
+            if (bestNode == null || node.visits > bestNode.visits
+                    || (node.visits == bestNode.visits && node.mean() > bestNode.mean())) {
+                best = move.getKey();
+                bestNode = node;
+            }
+        }
+        return new Suggestion(best.equals(position) ? null : best,
+            user.getPossibleCollection(), bestNode == null ? 0 : bestNode.mean(), horizon,
+            rollouts, workers, System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the user's part of a turn as the planner does: the user collects every entity next
+     * to it, moves to the given coordinate, and collects every entity next to it again.
+     * The animals are not moved.
+     *
+     * @param user   the user to play
+     * @param target the coordinate to move to, or null (or the user's coordinate) to stay
+     */
+    public static void playTurn(User user, Coordinate target) {
+        collectAll(user);
+        if (target != null && !target.equals(user.getCoordinate())) {
+            user.move(target);
+            collectAll(user);
+        }
+    }
+
+    /**
+     * Collects every entity next to the user.
+     *
+     * @param user the user to collect with
+     */
+    private static void collectAll(User user) {
+        for (Coordinate coordinate : user.getPossibleCollection()) {
+            try {
+                user.collect(coordinate);
+            } catch (NoSuchEntityException | CoordinateOutOfBoundsException e) {
+                // the entity was collected already
+            }
+        }
+    }
+
+    /**
+     * The statistics of a move in a search tree, and of the moves tried after it.
+     */
+    private static class Node {
+
+        /**
+         * The moves tried after this move, by their coordinate.
+         */
+        private final Map<Coordinate, Node> children = new HashMap<>();
+        /**
+         * The number of rollouts that made this move.
+         */
+        private long visits;
+        /**
+         * The points earned by the rollouts that made this move.
+         */
+        private double points;
+
+        /**
+         * Returns the mean points earned by the rollouts that made this move.
+         *
+         * @return mean points, or 0 if there were none
+         */
+        private double mean() {
+            return visits == 0 ? 0 : points / visits;
+        }
+    }
+
+    /**
+     * Grows a search tree from a fork of the scenario.
+     */
+    private class Worker implements Callable<Node> {
+
+        /**
+         * The fork of the scenario that every rollout forks again.
+         */
+        private final Scenario base;
+        /**
+         * The coordinate of the user at the start of the plan.
+         */
+        private final Coordinate position;
+        /**
+         * The random stream of the worker.
+         */
+        private final SplittableRandom random;
+        /**
+         * The value of {@link System#nanoTime()} at which the worker stops.
+         */
+        private final long deadline;
+        /**
+         * The root of the tree, whose children are the moves of the first turn.
+         */
+        private final Node root = new Node();
+        /**
+         * The nodes visited by the current rollout.
+         */
+        private final List<Node> path = new ArrayList<>();
+        /**
+         * The largest number of points earned by a rollout, which scales the exploration.
+         */
+        private double maxPoints = 1;
+
+        /**
+         * Creates a worker.
+         *
+         * @param base     fork of the scenario to plan in
+         * @param position coordinate of the user
+         * @param random   random stream of the worker
+         * @param deadline value of {@link System#nanoTime()} at which to stop
+         */
+        private Worker(Scenario base, Coordinate position, SplittableRandom random,
+                       long deadline) {
+            this.base = base;
+            this.position = position;
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Node call() {
+            int rollouts = 0;
+            do {
+                rollout();
+                rollouts++;
+            } while ((rolloutLimit == 0 || rollouts < rolloutLimit)
+                && System.nanoTime() < deadline);
+            return root;
+        }
+
+        /**
+         * Plays one rollout in a new fork of the base scenario and adds its reward to the
+         * nodes of the tree it visited.
+         */
+        private void rollout() {
+            Scenario scenario = base.fork();
+            scenario.getRandom().setSeed(random.nextLong());
+            // only the points of the log are needed, which count every event
+            scenario.getLog().setCapacity(1);
+            User user = (User) scenario.occupantAt(position.getX(), position.getY());
+
+            Node node = root;
+            path.clear();
+            path.add(root);
+            for (int turn = 0; turn < horizon; turn++) {
+                collectAll(user);
+                List<Coordinate> moves = user.getPossibleMoves();
+                moves.add(user.getCoordinate());
+                Coordinate target;
+                if (node != null) {
+                    target = select(node, moves);
+                    Node child = node.children.get(target);
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(target, child);
+                        path.add(child);
+                        // the rest of the rollout is played at random
+                        node = null;
+                    } else {
+                        path.add(child);
+                        node = child;
+                    }
+                } else {
+                    target = moves.get(random.nextInt(moves.size()));
+                }
+                playTurn(user, target);
+                scenario.getController().move();
+            }
+
+            double points = scenario.getLog().getPointsEarned();
+            maxPoints = Math.max(maxPoints, points);
+            for (Node visited : path) {
+                visited.visits++;
+                visited.points += points;
+            }
+        }
+
+        /**
+         * Chooses the move to make from a node of the tree, out of the moves that can be made
+         * in this rollout. A move that has not been tried is chosen first, otherwise the move
+         * with the highest UCB1 score.
+         *
+         * @param node  node to choose a move from
+         * @param moves moves that can be made
+         * @return chosen move
+         */
+        private Coordinate select(Node node, List<Coordinate> moves) {
+            Coordinate untried = null;
+            int untriedCount = 0;
+            for (Coordinate move : moves) {
+                if (!node.children.containsKey(move) && random.nextInt(++untriedCount) == 0) {
+                    untried = move;
+                }
+            }
+            if (untried != null) {
+                return untried;
+            }
+            double logVisits = Math.log(node.visits);
+            Coordinate best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (Coordinate move : moves) {
+                Node child = node.children.get(move);
+                double score = child.mean() / maxPoints
+                    + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (score > bestScore) {
+                    best = move;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A move suggested by the planner.
+     */
+    public static class Suggestion {
+
+        /**
+         * The coordinate to move to, or null to stay.
+         */
+        private final Coordinate move;
+        /**
+         * The coordinates of the entities that can be collected before moving.
+         */
+        private final List<Coordinate> collections;
+        /**
+         * The mean points earned over the horizon by rollouts that made the move.
+         */
+        private final double expectedPoints;
+        /**
+         * The number of turns planned ahead.
+         */
+        private final int horizon;
+        /**
+         * The number of rollouts played.
+         */
+        private final long rollouts;
+        /**
+         * The number of workers that played rollouts.
+         */
+        private final int workers;
+        /**
+         * The time taken to make the decision, in nanoseconds.
+         */
+        private final long elapsedNanos;
+
+        /**
+         * Creates a suggestion.
+         *
+         * @param move           coordinate to move to, or null to stay
+         * @param collections    coordinates of entities that can be collected before moving
+         * @param expectedPoints mean points earned by rollouts that made the move
+         * @param horizon        number of turns planned ahead
+         * @param rollouts       number of rollouts played
+         * @param workers        number of workers
+         * @param elapsedNanos   time taken, in nanoseconds
+         */
+        private Suggestion(Coordinate move, List<Coordinate> collections,
+                           double expectedPoints, int horizon, long rollouts, int workers,
+                           long elapsedNanos) {
+            this.move = move;
+            this.collections = List.copyOf(collections);
+            this.expectedPoints = expectedPoints;
+            this.horizon = horizon;
+            this.rollouts = rollouts;
+            this.workers = workers;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the coordinate the user should move to.
+         *
+         * @return coordinate to move to, or null if the user should stay where it is
+         */
+        public Coordinate getMove() {
+            return move;
+        }
+
+        /**
+         * Returns the coordinates of the entities next to the user that it should collect
+         * before it moves.
+         *
+         * @return coordinates to collect from
+         */
+        public List<Coordinate> getCollections() {
+            return collections;
+        }
+
+        /**
+         * Returns the mean number of points earned over the planned turns by the rollouts that
+         * made the suggested move.
+         *
+         * @return expected points
+         */
+        public double getExpectedPoints() {
+            return expectedPoints;
+        }
+
+        /**
+         * Returns the number of rollouts played to make the decision.
+         *
+         * @return rollouts
+         */
+        public long getRollouts() {
+            return rollouts;
+        }
+
+        /**
+         * Returns the time taken to make the decision.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the number of rollouts played per second.
+         *
+         * @return rollouts per second, or 0 if no time has elapsed
+         */
+        public double getRolloutsPerSecond() {
+            if (elapsedNanos <= 0) {
+                return 0;
+            }
+            return rollouts * NANOS_PER_SECOND / elapsedNanos;
+        }
+
+        /**
+         * Plays the suggestion for the given user, as
+         * {@link ResearchPlanner#playTurn(User, Coordinate)} does. The animals are not moved.
+         *
+         * @param user the user to play
+         */
+        public void apply(User user) {
+            playTurn(user, move);
+        }
+
+        /**
+         * Returns the human-readable description of this suggestion, such as:
+         * <pre>
+         * Collect (2,3) then move to (4,3): 6.25 expected points over 10 turns
+         * (41870 rollouts in 1.000 s on 4 threads)
+         * </pre>
+         *
+         * @return human-readable description
+         */
+        @Override
+        public String toString() {
+            StringBuilder description = new StringBuilder();
+            if (!collections.isEmpty()) {
+                description.append("Collect ");
+                for (int i = 0; i < collections.size(); i++) {
+                    description.append(i == 0 ? "" : ", ").append(collections.get(i));
+                }
+                description.append(" then ");
+            }
+            description.append(move == null ? "stay" : "move to " + move);
+            description.setCharAt(0, Character.toUpperCase(description.charAt(0)));
+            return description.append(String.format(": %.2f expected points over %d turns "
+                    + "(%d rollouts in %.3f s on %d threads)", expectedPoints, horizon,
+                rollouts, elapsedNanos / NANOS_PER_SECOND, workers)).toString();
+        }
+    }
+}
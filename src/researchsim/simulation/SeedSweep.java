@@ -0,0 +1,332 @@
+package researchsim.simulation;
+
+import researchsim.logging.Logger;
+import researchsim.scenario.Scenario;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs copies of a scenario under a range of random seeds in parallel and summarises the
+ * results.
+ * <p>
+ * Each run starts from a copy of the scenario, read from its encoding ({@link Scenario#encode()})
+ * with its seed replaced. The runs are split between the threads of a {@link ForkJoinPool}.
+ * As every run has its own copy of the scenario the runs share no state, and the results for a
+ * seed are the same no matter how many threads are used.
+ */
+public class SeedSweep {
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * The largest number of seeds run by a single task before it is split.
+     */
+    private static final int SEEDS_PER_TASK = 4;
+
+    /**
+     * The name of the scenario being swept.
+     */
+    private final String name;
+    /**
+     * The encoding of the scenario being swept.
+     */
+    private final String encoding;
+    /**
+     * Whether the copies of the scenario should have packed maps.
+     */
+    private final boolean packed;
+    /**
+     * The number of turns to run each copy for.
+     */
+    private final int turns;
+    /**
+     * The first seed to run.
+     */
+    private final int firstSeed;
+    /**
+     * The number of seeds to run.
+     */
+    private final int seeds;
+
+    /**
+     * Points earned in the run of each seed.
+     */
+    private long[] points;
+    /**
+     * Tiles traversed in the run of each seed.
+     */
+    private long[] tiles;
+    /**
+     * Entities collected in the run of each seed.
+     */
+    private long[] collected;
+    /**
+     * Moves made in the run of each seed.
+     */
+    private long[] moves;
+    /**
+     * The time taken to run every seed, in nanoseconds.
+     */
+    private long elapsedNanos;
+    /**
+     * The number of threads used for the last sweep.
+     */
+    private int parallelism;
+
+    /**
+     * Creates a new sweep of the given scenario over the seeds
+     * {@code firstSeed, firstSeed + 1, ..., firstSeed + seeds - 1}.
+     * <p>
+     * The scenario is encoded when the sweep is created, later changes to the scenario do not
+     * affect the sweep.
+     *
+     * @param scenario  scenario to sweep
+     * @param turns     number of turns to run each seed for
+     * @param firstSeed the first seed to run
+     * @param seeds     the number of seeds to run
+     * @throws IllegalArgumentException if turns &lt; 0, firstSeed &lt; 0, seeds &lt; 1 or the
+     *                                  last seed is larger than {@link Integer#MAX_VALUE}
+     */
+    public SeedSweep(Scenario scenario, int turns, int firstSeed, int seeds) {
+        if (turns < 0 || firstSeed < 0 || seeds < 1
+                || (long) firstSeed + seeds - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        this.name = scenario.getName();
+        this.encoding = scenario.encode();
+        this.packed = scenario.isPacked();
+        this.turns = turns;
+        this.firstSeed = firstSeed;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Runs every seed on a new pool that uses all available processors.
+     *
+     * @throws BadSaveException if the scenario could not be copied
+     */
+    public void run() throws BadSaveException {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            run(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs every seed on the given pool.
+     *
+     * @param pool the pool to run the seeds on
+     * @throws BadSaveException if the scenario could not be copied
+     */
+    public void run(ForkJoinPool pool) throws BadSaveException {
+        points = new long[seeds];
+        tiles = new long[seeds];
+        collected = new long[seeds];
+        moves = new long[seeds];
+        parallelism = pool.getParallelism();
+
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new SweepTask(0, seeds));
+        } catch (IllegalStateException e) {
+            // the pool may wrap the exception thrown by a task again
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof BadSaveException) {
+                    throw (BadSaveException) cause;
+                }
+            }
+            throw e;
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Runs a single seed, recording its results.
+     *
+     * @param run index of the seed to run, from 0
+     * @throws BadSaveException if the scenario could not be copied
+     */
+    private void runSeed(int run) throws BadSaveException {
+        Scenario copy;
+        try {
+            copy = Scenario.read(new StringReader(encoding), packed);
+        } catch (IOException e) {
+            // reading from a string can not fail
+            throw new UncheckedIOException(e);
+        }
+        copy.setSeed(firstSeed + run);
+        // only the statistics of the log are needed, which count every event
+        copy.getLog().setCapacity(1);
+        BatchRun batch = new BatchRun(copy, turns);
+        batch.run();
+
+        Logger log = copy.getLog();
+        points[run] = log.getPointsEarned();
+        tiles[run] = log.getTilesTraversed();
+        collected[run] = log.getEntitiesCollected();
+        moves[run] = batch.getMoves();
+    }
+
+    /**
+     * Returns the distribution of the points earned in each run.
+     *
+     * @return points earned
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    public Distribution getPointsEarned() {
+        return distribution("Points Earned", points);
+    }
+
+    /**
+     * Returns the distribution of the tiles traversed in each run.
+     *
+     * @return tiles traversed
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    public Distribution getTilesTraversed() {
+        return distribution("Tiles Traversed", tiles);
+    }
+
+    /**
+     * Returns the distribution of the entities collected in each run.
+     *
+     * @return entities collected
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    public Distribution getEntitiesCollected() {
+        return distribution("Entities Collected", collected);
+    }
+
+    /**
+     * Returns the distribution of the moves made in each run.
+     *
+     * @return moves made
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    public Distribution getMoves() {
+        return distribution("Moves", moves);
+    }
+
+    /**
+     * Creates a distribution of the results of a metric.
+     *
+     * @param metric name of the metric
+     * @param values results of each run
+     * @return distribution of the results
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    private Distribution distribution(String metric, long[] values) {
+        if (values == null) {
+            throw new IllegalStateException("The sweep has not been run.");
+        }
+        return new Distribution(metric, values);
+    }
+
+    /**
+     * Returns the time taken to run every seed.
+     *
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of seeds run per second.
+     *
+     * @return runs per second, or 0 if no time has elapsed
+     */
+    public double getRunsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return seeds * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * Returns the human-readable report of this sweep.
+     * <p>
+     * The format of the string to return is:
+     * <pre>
+     * name: seeds seeds (first-last) x turns turns in seconds s on threads threads (rate runs/sec)
+     * metric
+     * metric...</pre>
+     * Where each {@code metric} is a {@link Distribution#toString()} of the points earned, tiles
+     * traversed, entities collected and moves made.
+     * Each line is separated by a system-dependent line separator.
+     *
+     * @return human-readable report
+     * @throws IllegalStateException if the sweep has not been run
+     */
+    @Override
+    public String toString() {
+        StringJoiner report = new StringJoiner(System.lineSeparator());
+        report.add(String.format("%s: %d seeds (%d-%d) x %d turns in %.3f s on %d threads "
+                + "(%.1f runs/sec)", name, seeds, firstSeed, firstSeed + seeds - 1, turns,
+            elapsedNanos / NANOS_PER_SECOND, parallelism, getRunsPerSecond()));
+        report.add(getPointsEarned().toString());
+        report.add(getTilesTraversed().toString());
+        report.add(getEntitiesCollected().toString());
+        report.add(getMoves().toString());
+        return report.toString();
+    }
+
+    /**
+     * A task that runs a range of seeds, splitting the range in half until it is small enough.
+     */
+    private class SweepTask extends RecursiveAction {
+
+        /**
+         * The version of the serialized form. Tasks are never serialized, but
+         * {@link RecursiveAction} is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Index of the first seed to run.
+         */
+        private final int from;
+        /**
+         * Index after the last seed to run.
+         */
+        private final int to;
+
+        /**
+         * Creates a task to run the seeds from (inclusive) and to (exclusive) the given indices.
+         *
+         * @param from index of the first seed to run
+         * @param to   index after the last seed to run
+         */
+        private SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEEDS_PER_TASK) {
+                for (int run = from; run < to; run++) {
+                    try {
+                        runSeed(run);
+                    } catch (BadSaveException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(from, middle), new SweepTask(middle, to));
+        }
+    }
+}
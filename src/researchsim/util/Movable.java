@@ -88,16 +88,11 @@ public interface Movable {
     default List<Coordinate> checkRange(int radius, Coordinate initialCoordinate) {
         int coordinateX = initialCoordinate.getX();
         int coordinateY = initialCoordinate.getY();
-        List<Coordinate> coordinatesInRange = new ArrayList<>();
-        for (int adderX = -radius; adderX <= radius; adderX++) {
-            int inRangeX = coordinateX + adderX;
-            for (int adderY = -radius; adderY <= radius; adderY++) {
-                int inRangeY = coordinateY + adderY;
-                Coordinate distant = new Coordinate(inRangeX, inRangeY).distance(initialCoordinate);
-                if (distant.getAbsX() + distant.getAbsY() <= radius) {
-                    coordinatesInRange.add(new Coordinate(inRangeX, inRangeY));
-                }
-            }
+        MoveStencil stencil = MoveStencil.of(radius);
+        List<Coordinate> coordinatesInRange = new ArrayList<>(stencil.size());
+        for (int offset = 0; offset < stencil.size(); offset++) {
+            coordinatesInRange.add(new Coordinate(coordinateX + stencil.getDx(offset),
+                coordinateY + stencil.getDy(offset)));
         }
         return coordinatesInRange;
     }
@@ -0,0 +1,242 @@
+package researchsim.util;
+
+/**
+ * An immutable table of the offsets within a movement radius, and of the paths to each of them.
+ * <p>
+ * The offsets are every (dx, dy) with {@code |dx| + |dy| <= radius}, in the order used by
+ * {@link Movable#checkRange(int, researchsim.map.Coordinate)} (by dx, then by dy). For each
+ * offset the table stores the two paths a {@link Movable} entity can take to reach it:
+ * horizontally then vertically, or vertically then horizontally. A path lists the offset of each
+ * tile stepped on, from the tile next to the start through to the destination.
+ * <p>
+ * Stencils for the radii used by entities are built once and shared, see {@link #of(int)}.
+ */
+public final class MoveStencil {
+
+    /**
+     * The largest radius whose stencil is built in advance. This covers every
+     * {@link researchsim.entities.Size#moveDistance} and the distance a user can move.
+     */
+    public static final int MAX_CACHED_RADIUS = 4;
+
+    /**
+     * Stencils for each radius up to {@link #MAX_CACHED_RADIUS}.
+     */
+    private static final MoveStencil[] STENCILS = new MoveStencil[MAX_CACHED_RADIUS + 1];
+
+    static {
+        for (int radius = 0; radius <= MAX_CACHED_RADIUS; radius++) {
+            STENCILS[radius] = new MoveStencil(radius);
+        }
+    }
+
+    /**
+     * The radius of the stencil.
+     */
+    private final int radius;
+    /**
+     * The horizontal part of each offset.
+     */
+    private final int[] dx;
+    /**
+     * The vertical part of each offset.
+     */
+    private final int[] dy;
+    /**
+     * The index of each offset, indexed by {@code (dx + radius) * span + (dy + radius)}, or -1 if
+     * the position is not in the stencil.
+     */
+    private final int[] lookup;
+    /**
+     * Where the path steps of each offset start in the step arrays. The steps of offset
+     * {@code i} are from {@code pathStart[i]} up to (not including) {@code pathStart[i + 1]}.
+     */
+    private final int[] pathStart;
+    /**
+     * Horizontal part of each step when moving horizontally first.
+     */
+    private final int[] horizontalFirstDx;
+    /**
+     * Vertical part of each step when moving horizontally first.
+     */
+    private final int[] horizontalFirstDy;
+    /**
+     * Horizontal part of each step when moving vertically first.
+     */
+    private final int[] verticalFirstDx;
+    /**
+     * Vertical part of each step when moving vertically first.
+     */
+    private final int[] verticalFirstDy;
+
+    /**
+     * Builds the stencil for a radius.
+     *
+     * @param radius the radius of the stencil, a negative radius contains no offsets
+     */
+    private MoveStencil(int radius) {
+        this.radius = radius;
+        int span = Math.max(2 * radius + 1, 0);
+        int count = 0;
+        int steps = 0;
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = -radius; y <= radius; y++) {
+                int distance = Math.abs(x) + Math.abs(y);
+                if (distance <= radius) {
+                    count++;
+                    steps += distance;
+                }
+            }
+        }
+        this.dx = new int[count];
+        this.dy = new int[count];
+        this.lookup = new int[span * span];
+        this.pathStart = new int[count + 1];
+        this.horizontalFirstDx = new int[steps];
+        this.horizontalFirstDy = new int[steps];
+        this.verticalFirstDx = new int[steps];
+        this.verticalFirstDy = new int[steps];
+
+        int offset = 0;
+        int step = 0;
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = -radius; y <= radius; y++) {
+                int cell = (x + radius) * span + (y + radius);
+                if (Math.abs(x) + Math.abs(y) > radius) {
+                    lookup[cell] = -1;
+                    continue;
+                }
+                lookup[cell] = offset;
+                dx[offset] = x;
+                dy[offset] = y;
+                pathStart[offset] = step;
+                // steps along the first leg
+                for (int i = 1; i <= Math.abs(x); i++) {
+                    horizontalFirstDx[step + i - 1] = i * Integer.signum(x);
+                    horizontalFirstDy[step + i - 1] = 0;
+                }
+                for (int i = 1; i <= Math.abs(y); i++) {
+                    verticalFirstDx[step + i - 1] = 0;
+                    verticalFirstDy[step + i - 1] = i * Integer.signum(y);
+                }
+                // steps along the second leg
+                for (int i = 1; i <= Math.abs(y); i++) {
+                    horizontalFirstDx[step + Math.abs(x) + i - 1] = x;
+                    horizontalFirstDy[step + Math.abs(x) + i - 1] = i * Integer.signum(y);
+                }
+                for (int i = 1; i <= Math.abs(x); i++) {
+                    verticalFirstDx[step + Math.abs(y) + i - 1] = i * Integer.signum(x);
+                    verticalFirstDy[step + Math.abs(y) + i - 1] = y;
+                }
+                step += Math.abs(x) + Math.abs(y);
+                offset++;
+            }
+        }
+        pathStart[count] = step;
+    }
+
+    /**
+     * Returns the stencil for the given radius.
+     * Stencils up to {@link #MAX_CACHED_RADIUS} are shared, larger stencils are built on each
+     * call.
+     *
+     * @param radius the number of tiles that can be moved
+     * @return stencil for the radius, a negative radius has no offsets
+     */
+    public static MoveStencil of(int radius) {
+        if (radius >= 0 && radius <= MAX_CACHED_RADIUS) {
+            return STENCILS[radius];
+        }
+        return new MoveStencil(radius);
+    }
+
+    /**
+     * Returns the radius of this stencil.
+     *
+     * @return stencil radius
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the number of offsets in this stencil.
+     *
+     * @return number of offsets
+     */
+    public int size() {
+        return dx.length;
+    }
+
+    /**
+     * Returns the horizontal part of an offset.
+     *
+     * @param offset index of the offset
+     * @return horizontal distance
+     */
+    public int getDx(int offset) {
+        return dx[offset];
+    }
+
+    /**
+     * Returns the vertical part of an offset.
+     *
+     * @param offset index of the offset
+     * @return vertical distance
+     */
+    public int getDy(int offset) {
+        return dy[offset];
+    }
+
+    /**
+     * Returns the index of the offset (dx, dy).
+     *
+     * @param dx horizontal distance
+     * @param dy vertical distance
+     * @return index of the offset, or -1 if it is further away than the radius
+     */
+    public int indexOf(int dx, int dy) {
+        if (Math.abs(dx) + Math.abs(dy) > radius) {
+            return -1;
+        }
+        int span = 2 * radius + 1;
+        return lookup[(dx + radius) * span + (dy + radius)];
+    }
+
+    /**
+     * Returns the number of tiles stepped on when moving to an offset.
+     * Both paths to an offset have the same length.
+     *
+     * @param offset index of the offset
+     * @return path length
+     */
+    public int getPathLength(int offset) {
+        return pathStart[offset + 1] - pathStart[offset];
+    }
+
+    /**
+     * Returns the horizontal distance from the start of a tile on the path to an offset.
+     *
+     * @param offset          index of the offset
+     * @param step            index of the tile on the path, from 0
+     * @param horizontalFirst true for the path that moves horizontally first, false for the path
+     *                        that moves vertically first
+     * @return horizontal distance of the tile
+     */
+    public int getPathDx(int offset, int step, boolean horizontalFirst) {
+        return (horizontalFirst ? horizontalFirstDx : verticalFirstDx)[pathStart[offset] + step];
+    }
+
+    /**
+     * Returns the vertical distance from the start of a tile on the path to an offset.
+     *
+     * @param offset          index of the offset
+     * @param step            index of the tile on the path, from 0
+     * @param horizontalFirst true for the path that moves horizontally first, false for the path
+     *                        that moves vertically first
+     * @return vertical distance of the tile
+     */
+    public int getPathDy(int offset, int step, boolean horizontalFirst) {
+        return (horizontalFirst ? horizontalFirstDy : verticalFirstDy)[pathStart[offset] + step];
+    }
+}
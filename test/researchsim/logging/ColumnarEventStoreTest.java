@@ -0,0 +1,152 @@
+package researchsim.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+import researchsim.simulation.BatchRun;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ColumnarEventStoreTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "columns",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "Fauna-SMALL-0,0-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN",
+        "Fauna-LARGE-2,3-LAND",
+        "Flora-GIANT-5,0");
+
+    private ColumnarEventStore store;
+    private User user;
+    private Fauna animal;
+
+    @Before
+    public void setUp() {
+        store = new ColumnarEventStore(10);
+        user = new User(new Coordinate(1, 1), "Bob");
+        animal = new Fauna(Size.LARGE, new Coordinate(2, 1), TileType.OCEAN);
+        animal.setId(7);
+    }
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    @Test
+    public void moveEventTest() {
+        MoveEvent event = new MoveEvent(animal, new Coordinate(4, 3));
+        store.add(event, 5);
+
+        assertEquals(1, store.size());
+        assertEquals(5, store.getTurn(0));
+        assertEquals(ColumnarEventStore.MOVE, store.getType(0));
+        assertEquals(7, store.getEntityId(0));
+        assertEquals(12, store.getFromIndex(0));
+        assertEquals(34, store.getToIndex(0));
+        assertEquals(-1, store.getTargetId(0));
+        assertEquals(0, store.getPoints(0));
+
+        animal.setCoordinate(new Coordinate(4, 3));
+        Event materialised = store.get(0);
+        assertTrue(materialised instanceof MoveEvent);
+        assertEquals(animal, materialised.getEntity());
+        assertEquals(7, materialised.getEntity().getId());
+        assertEquals(new Coordinate(2, 1), materialised.getInitialCoordinate());
+        assertEquals(new Coordinate(4, 3), materialised.getCoordinate());
+        assertEquals(event.toString(), materialised.toString());
+    }
+
+    @Test
+    public void collectEventTest() {
+        Flora flora = new Flora(Size.GIANT, new Coordinate(1, 2));
+        CollectEvent event = new CollectEvent(user, flora);
+        store.add(event, 2);
+
+        assertEquals(ColumnarEventStore.COLLECT, store.getType(0));
+        assertEquals(4, store.getPoints(0));
+        Event materialised = store.get(0);
+        assertTrue(materialised instanceof CollectEvent);
+        assertEquals(flora, ((CollectEvent) materialised).getTarget());
+        assertEquals("Bob", materialised.getEntity().getName());
+        assertEquals(event.toString(), materialised.toString());
+    }
+
+    @Test
+    public void capacityTest() {
+        ColumnarEventStore bounded = new ColumnarEventStore(10, 3);
+        for (int i = 0; i < 20_000; i++) {
+            bounded.add(new MoveEvent(user, new Coordinate(i % 10, i % 7)), i);
+        }
+        assertEquals(3, bounded.size());
+        assertEquals(19_997, bounded.getTurn(0));
+        assertEquals(19_999, bounded.getTurn(2));
+        assertEquals(new Coordinate(19_999 % 10, 19_999 % 7), bounded.get(2).getCoordinate());
+
+        bounded.setCapacity(1);
+        assertEquals(1, bounded.size());
+        assertEquals(19_999, bounded.getTurn(0));
+    }
+
+    @Test
+    public void growsInChunksTest() {
+        for (int i = 0; i < 20_000; i++) {
+            store.add(new MoveEvent(user, new Coordinate(i % 10, i % 9)), i);
+        }
+        assertEquals(20_000, store.size());
+        for (int i = 0; i < 20_000; i += 999) {
+            assertEquals(i, store.getTurn(i));
+            assertEquals((i % 9) * 10 + i % 10, store.getToIndex(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outsideMapTest() {
+        store.add(new MoveEvent(user, new Coordinate(10, 0)), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBoundsTest() {
+        store.get(0);
+    }
+
+    @Test
+    public void scenarioLogTest() throws Exception {
+        Scenario objects = Scenario.load(new StringReader(SAVE));
+        new BatchRun(objects, 60).run();
+
+        Scenario columns = Scenario.load(new StringReader(SAVE));
+        columns.setLog(new Logger(new ColumnarEventStore(columns.getWidth())));
+        new BatchRun(columns, 60).run();
+
+        Logger expected = objects.getLog();
+        Logger actual = columns.getLog();
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getEventCount(), actual.getEventCount());
+        assertEquals(expected.getTilesTraversed(), actual.getTilesTraversed());
+        assertEquals(60, actual.getTurn());
+        for (int i = 0; i < actual.getKeptEventCount(); i++) {
+            assertEquals(expected.getStore().getTurn(i), actual.getStore().getTurn(i));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package researchsim.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+import researchsim.simulation.BatchRun;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class EventJournalTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "journal",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "User-1,1-Dave",
+        "Flora-SMALL-2,1",
+        "Fauna-SMALL-0,4-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN",
+        "Fauna-LARGE-2,3-LAND",
+        "Flora-GIANT-5,0");
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("events", ".journal");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        ScenarioManager.getInstance().reset();
+    }
+
+    private Scenario read(String save) throws Exception {
+        return Scenario.read(new StringReader(save), false);
+    }
+
+    private void moveUser(Scenario scenario, int x, int y) {
+        User user = (User) scenario.occupantAt(1, 1);
+        user.setScenario(scenario);
+        user.move(new Coordinate(x, y));
+    }
+
+    @Test
+    public void replayStatisticsTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (EventJournal journal = new EventJournal(file, 6, 5)) {
+            scenario.getLog().addSink(journal);
+            moveUser(scenario, 2, 1);
+            new BatchRun(scenario, 40).run();
+            assertEquals(scenario.getLog().getEventCount(), journal.getRecordCount());
+        }
+
+        try (JournalReader reader = new JournalReader(file)) {
+            assertEquals(6, reader.getWidth());
+            assertEquals(5, reader.getHeight());
+            assertEquals(scenario.getLog().getEventCount(), reader.getRecordCount());
+            assertEquals(EventJournal.MOVE, reader.getType(0));
+            assertEquals(7, reader.getFromIndex(0));
+            assertEquals(8, reader.getToIndex(0));
+            assertEquals(EventJournal.COLLECT, reader.getType(1));
+            assertEquals(1, reader.getPoints(1));
+
+            Logger replayed = reader.replayStatistics();
+            Logger log = scenario.getLog();
+            assertEquals(log.getEventCount(), replayed.getEventCount());
+            assertEquals(log.getTilesTraversed(), replayed.getTilesTraversed());
+            assertEquals(log.getEntitiesCollected(), replayed.getEntitiesCollected());
+            assertEquals(log.getPointsEarned(), replayed.getPointsEarned());
+            assertEquals(reader.getTurn(reader.getRecordCount() - 1), replayed.getTurn());
+            assertEquals(0, replayed.getKeptEventCount());
+        }
+    }
+
+    @Test
+    public void rollForwardTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        String snapshot;
+        long snapshotRecord;
+        try (EventJournal journal = new EventJournal(file, 6, 5)) {
+            scenario.getLog().addSink(journal);
+            new BatchRun(scenario, 20).run();
+            snapshot = scenario.encode();
+            snapshotRecord = journal.getRecordCount();
+            moveUser(scenario, 2, 1);
+            new BatchRun(scenario, 20).run();
+        }
+
+        Scenario restored = read(snapshot);
+        try (JournalReader reader = new JournalReader(file)) {
+            assertEquals(reader.getRecordCount() - snapshotRecord,
+                reader.rollForward(restored, snapshotRecord));
+        }
+        assertEquals(scenario.encode(), restored.encode());
+        assertEquals(scenario.getController().getAnimals().size(),
+            restored.getController().getAnimals().size());
+        // the controller is advanced with the log, to the turn of the last record
+        assertTrue(restored.getLog().getTurn() >= 20);
+        assertEquals(restored.getLog().getTurn(), restored.getController().getTurn());
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void rollForwardMismatchTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (EventJournal journal = new EventJournal(file, 6, 5)) {
+            scenario.getLog().addSink(journal);
+            new BatchRun(scenario, 20).run();
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            // the animals of the scenario have already moved
+            reader.rollForward(scenario, 0);
+        }
+    }
+
+    @Test
+    public void tornRecordTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        long records;
+        try (EventJournal journal = new EventJournal(file, 6, 5)) {
+            scenario.getLog().addSink(journal);
+            new BatchRun(scenario, 20).run();
+            records = journal.getRecordCount();
+        }
+        assertTrue(records > 1);
+        // damage the last record and leave part of another after it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            long last = EventJournal.HEADER_BYTES + (records - 1) * EventJournal.RECORD_BYTES;
+            channel.write(ByteBuffer.wrap(new byte[] {9, 9, 9}), last + 13);
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}),
+                last + EventJournal.RECORD_BYTES);
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            assertEquals(records - 1, reader.getRecordCount());
+        }
+
+        // appending removes the damaged records
+        try (EventJournal journal = new EventJournal(file, 6, 5)) {
+            assertEquals(records - 1, journal.getRecordCount());
+            journal.eventAdded(new MoveEvent(new User(new Coordinate(1, 1), "Dave"),
+                new Coordinate(1, 2)), 99);
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            assertEquals(records, reader.getRecordCount());
+            assertEquals(99, reader.getTurn(records - 1));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void differentMapTest() throws Exception {
+        new EventJournal(file, 6, 5).close();
+        new EventJournal(file, 7, 5);
+    }
+}
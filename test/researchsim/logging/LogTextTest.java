@@ -0,0 +1,85 @@
+package researchsim.logging;
+
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Fauna;
+import researchsim.entities.Size;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+
+import static org.junit.Assert.*;
+
+public class LogTextTest {
+
+    private Logger logger;
+    private LogText text;
+    private Fauna animal;
+
+    @Before
+    public void setUp() {
+        logger = new Logger();
+        text = new LogText(3);
+        animal = new Fauna(Size.SMALL, new Coordinate(0, 0), TileType.LAND);
+    }
+
+    private Event move(int x) {
+        Event event = new MoveEvent(animal, new Coordinate(x, 0));
+        animal.setCoordinate(new Coordinate(x, 0));
+        logger.add(event);
+        return event;
+    }
+
+    @Test
+    public void matchesLoggerTest() {
+        assertFalse(text.update(logger));
+        assertEquals("", text.getText());
+        move(1);
+        move(2);
+        assertTrue(text.update(logger));
+        assertEquals(logger.toString(), text.getText());
+        assertFalse(text.update(logger));
+        assertEquals(2, text.size());
+    }
+
+    @Test
+    public void keepsHistoryTest() {
+        move(1);
+        text.update(logger);
+        Event second = move(2);
+        Event third = move(3);
+        Event fourth = move(4);
+        assertTrue(text.update(logger));
+        assertEquals(3, text.size());
+        assertEquals(String.join(System.lineSeparator(), second.toString(), third.toString(),
+            fourth.toString()), text.getText());
+
+        for (int i = 5; i < 100; i++) {
+            move(i);
+        }
+        assertTrue(text.update(logger));
+        assertEquals(logger.getLastEvents(3).get(0) + System.lineSeparator()
+            + logger.getLastEvents(3).get(1) + System.lineSeparator()
+            + logger.getLastEvents(3).get(2), text.getText());
+    }
+
+    @Test
+    public void newLogTest() {
+        move(1);
+        text.update(logger);
+        Logger other = new Logger();
+        assertTrue(text.update(other));
+        assertEquals("", text.getText());
+        other.add(new MoveEvent(animal, new Coordinate(5, 5)));
+        assertTrue(text.update(other));
+        assertEquals(other.toString(), text.getText());
+    }
+
+    @Test
+    public void moveEventTextStableTest() {
+        Event event = move(1);
+        String before = event.toString();
+        animal.setCoordinate(new Coordinate(7, 7));
+        assertEquals(before, event.toString());
+        assertSame(event.toString(), event.toString());
+    }
+}
@@ -8,9 +8,13 @@ import researchsim.entities.User;
 import researchsim.map.Coordinate;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class LoggerTest {
 
@@ -50,6 +54,87 @@ public class LoggerTest {
         assertEquals(List.of(move1, collect1, collect2, move2, move2), logger.getEvents());
     }
 
+    @Test
+    public void boundedKeepsRecentEventsTest() {
+        Logger bounded = new Logger(2);
+        bounded.add(move1);
+        bounded.add(collect1);
+        bounded.add(collect2);
+        bounded.add(move2);
+
+        assertEquals(List.of(collect2, move2), bounded.getEvents());
+        assertEquals(4, bounded.getEventCount());
+        assertEquals(2, bounded.getKeptEventCount());
+        assertEquals(2, bounded.getEntitiesCollected());
+        assertEquals(1 + 3, bounded.getPointsEarned());
+        assertEquals(5 + 4, bounded.getTilesTraversed());
+        assertEquals(collect2 + System.lineSeparator() + move2, bounded.toString());
+    }
+
+    @Test
+    public void statisticsMatchUnboundedTest() {
+        Logger bounded = new Logger(3);
+        Event[] events = {move1, collect1, move2, collect2};
+        for (int i = 0; i < 100; i++) {
+            bounded.add(events[i % events.length]);
+            logger.add(events[i % events.length]);
+        }
+        assertEquals(logger.getEventCount(), bounded.getEventCount());
+        assertEquals(logger.getEntitiesCollected(), bounded.getEntitiesCollected());
+        assertEquals(logger.getPointsEarned(), bounded.getPointsEarned());
+        assertEquals(logger.getTilesTraversed(), bounded.getTilesTraversed());
+        assertEquals(logger.getEvents().subList(97, 100), bounded.getEvents());
+        assertEquals(100, logger.getKeptEventCount());
+    }
+
+    @Test
+    public void lastEventsTest() {
+        List<Event> last = logger.getLastEvents(2);
+        assertTrue(last.isEmpty());
+        logger.add(move1);
+        assertEquals(List.of(move1), last);
+        logger.add(collect1);
+        logger.add(move2);
+        assertEquals(List.of(collect1, move2), last);
+        assertEquals(List.of(move1, collect1, move2), logger.getLastEvents(5));
+    }
+
+    @Test
+    public void tailIteratorTest() {
+        Logger bounded = new Logger(3);
+        assertFalse(bounded.tailIterator().hasNext());
+        bounded.add(move1);
+        bounded.add(collect1);
+        bounded.add(collect2);
+        bounded.add(move2);
+
+        Iterator<Event> tail = bounded.tailIterator();
+        assertSame(move2, tail.next());
+        assertSame(collect2, tail.next());
+        assertSame(collect1, tail.next());
+        assertFalse(tail.hasNext());
+    }
+
+    @Test
+    public void setCapacityTest() {
+        logger.add(move1);
+        logger.add(collect1);
+        logger.add(collect2);
+        logger.setCapacity(2);
+        assertEquals(List.of(collect1, collect2), logger.getEvents());
+        logger.add(move2);
+        assertEquals(List.of(collect2, move2), logger.getEvents());
+        logger.setCapacity(Logger.UNBOUNDED);
+        logger.add(move1);
+        assertEquals(List.of(collect2, move2, move1), logger.getEvents());
+        assertEquals(5, logger.getEventCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCapacityTest() {
+        new Logger(-1);
+    }
+
     private static class DummyEntity extends Entity {
 
         /**
@@ -0,0 +1,155 @@
+package researchsim.map;
+
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.util.NoSuchEntityException;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PackedTileGridTest {
+
+    private PackedTileGrid grid;
+    private Fauna animal;
+    private Flora plant;
+
+    @Before
+    public void setUp() {
+        grid = new PackedTileGrid(6, 5);
+        animal = new Fauna(Size.SMALL, new Coordinate(1, 0), TileType.LAND);
+        plant = new Flora(Size.GIANT, new Coordinate(2, 3));
+    }
+
+    @Test
+    public void defaultTilesTest() {
+        assertEquals(30, grid.getSize());
+        for (int i = 0; i < grid.getSize(); i++) {
+            assertEquals(TileType.LAND, grid.getType(i));
+            assertNull(grid.getOccupant(i));
+            assertEquals(PackedTileGrid.EMPTY, grid.getOccupantId(i));
+        }
+    }
+
+    @Test
+    public void typeTest() {
+        grid.setType(4, TileType.OCEAN);
+        grid.setType(29, TileType.MOUNTAIN);
+        assertEquals(TileType.OCEAN, grid.getType(4));
+        assertEquals(TileType.MOUNTAIN, grid.getType(29));
+        assertEquals(TileType.OCEAN, grid.getTile(4).getType());
+    }
+
+    @Test
+    public void occupantTest() {
+        grid.setOccupant(1, animal);
+        grid.setOccupant(20, plant);
+        assertSame(animal, grid.getOccupant(1));
+        assertSame(plant, grid.getOccupant(20));
+        assertNotEquals(grid.getOccupantId(1), grid.getOccupantId(20));
+
+        grid.setOccupant(1, null);
+        assertNull(grid.getOccupant(1));
+        assertSame(plant, grid.getOccupant(20));
+    }
+
+    @Test
+    public void reusedIdTest() {
+        grid.setOccupant(1, animal);
+        int id = grid.getOccupantId(1);
+        grid.setOccupant(7, animal);
+        assertEquals(id, grid.getOccupantId(7));
+        grid.setOccupant(1, null);
+        grid.setOccupant(7, null);
+        grid.setOccupant(3, plant);
+        assertEquals(id, grid.getOccupantId(3));
+        assertSame(plant, grid.getOccupant(3));
+    }
+
+    @Test
+    public void tileViewTest() throws NoSuchEntityException {
+        Tile tile = grid.getTile(9);
+        assertFalse(tile.hasContents());
+        tile.setContents(animal);
+        assertSame(animal, grid.getOccupant(9));
+        assertSame(animal, grid.toTileArray()[9].getContents());
+        assertEquals(grid.getTile(9), tile);
+    }
+
+    @Test
+    public void setTilesTest() {
+        Tile[] tiles = new Tile[grid.getSize()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(i % 2 == 0 ? TileType.SAND : TileType.OCEAN);
+        }
+        tiles[5].setContents(plant);
+        grid.setTiles(tiles);
+        assertEquals(TileType.SAND, grid.getType(0));
+        assertEquals(TileType.OCEAN, grid.getType(5));
+        assertSame(plant, grid.getOccupant(5));
+
+        // the given tiles are copied, not kept
+        tiles[5].setContents(null);
+        assertSame(plant, grid.getOccupant(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTilesNullTest() {
+        grid.setTiles(new Tile[grid.getSize()]);
+    }
+
+    @Test
+    public void forkTest() {
+        grid.setType(4, TileType.OCEAN);
+        grid.setOccupant(1, animal);
+        grid.setOccupant(20, plant);
+        Map<Entity, Entity> copies = new IdentityHashMap<>();
+        PackedTileGrid fork = grid.fork(entity -> copies.computeIfAbsent(entity, Entity::copy));
+        assertEquals(2, copies.size());
+        assertSame(copies.get(animal), fork.getOccupant(1));
+        assertSame(copies.get(plant), fork.getOccupant(20));
+        assertEquals(grid.getOccupantId(1), fork.getOccupantId(1));
+        assertEquals(TileType.OCEAN, fork.getType(4));
+
+        // changes to either grid are not seen by the other
+        fork.setType(4, TileType.SAND);
+        fork.moveOccupant(1, 2);
+        grid.setOccupant(20, null);
+        grid.setType(5, TileType.MOUNTAIN);
+        assertEquals(TileType.OCEAN, grid.getType(4));
+        assertEquals(TileType.SAND, fork.getType(4));
+        assertEquals(TileType.LAND, fork.getType(5));
+        assertSame(animal, grid.getOccupant(1));
+        assertNull(grid.getOccupant(2));
+        assertNull(fork.getOccupant(1));
+        assertSame(copies.get(animal), fork.getOccupant(2));
+        assertSame(copies.get(plant), fork.getOccupant(20));
+
+        // ids released by one grid are not released by the other
+        fork.setOccupant(3, plant);
+        assertSame(plant, fork.getOccupant(3));
+        assertSame(copies.get(plant), fork.getOccupant(20));
+    }
+
+    @Test
+    public void forkPagesTest() {
+        PackedTileGrid large = new PackedTileGrid(200, 100);
+        large.setOccupant(0, animal);
+        large.setOccupant(PackedTileGrid.PAGE_SIZE + 1, plant);
+        PackedTileGrid fork = large.fork(Entity::copy);
+        PackedTileGrid second = fork.fork(Entity::copy);
+        fork.moveOccupant(PackedTileGrid.PAGE_SIZE + 1, large.getSize() - 1);
+        assertSame(plant, large.getOccupant(PackedTileGrid.PAGE_SIZE + 1));
+        assertNotNull(second.getOccupant(PackedTileGrid.PAGE_SIZE + 1));
+        assertNull(fork.getOccupant(PackedTileGrid.PAGE_SIZE + 1));
+        assertNull(large.getOccupant(large.getSize() - 1));
+        assertNull(second.getOccupant(large.getSize() - 1));
+        assertNotNull(fork.getOccupant(large.getSize() - 1));
+        assertSame(animal, large.getOccupant(0));
+    }
+}
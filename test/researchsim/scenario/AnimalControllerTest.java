@@ -1,16 +1,24 @@
 package researchsim.scenario;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import researchsim.entities.Fauna;
 import researchsim.entities.Size;
+import researchsim.logging.Event;
+import researchsim.logging.EventSink;
 import researchsim.map.Coordinate;
+import researchsim.map.Tile;
 import researchsim.map.TileType;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class AnimalControllerTest {
 
@@ -25,6 +33,102 @@ public class AnimalControllerTest {
         a2 = new Fauna(Size.GIANT,new Coordinate(2,2), TileType.LAND);
     }
 
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    /**
+     * Creates a scenario spanning several parallel blocks, filled with animals.
+     */
+    private Scenario createWideScenario(String name) throws Exception {
+        int width = 300;
+        int height = 40;
+        Scenario scenario = new Scenario(name, width, height, 7, true);
+        Random random = new Random(11);
+        Tile[] tiles = new Tile[width * height];
+        List<Fauna> animals = new ArrayList<>();
+        for (int i = 0; i < tiles.length; i++) {
+            TileType type = random.nextInt(3) == 0 ? TileType.OCEAN : TileType.LAND;
+            tiles[i] = new Tile(type);
+            if (random.nextInt(4) == 0) {
+                Fauna animal = new Fauna(Size.values()[random.nextInt(Size.values().length)],
+                    new Coordinate(i % width, i / width),
+                    type == TileType.OCEAN ? TileType.OCEAN : TileType.LAND);
+                tiles[i].setContents(animal);
+                animals.add(animal);
+            }
+        }
+        scenario.setMapGrid(tiles);
+        for (Fauna animal : animals) {
+            scenario.getController().addAnimal(animal);
+        }
+        return scenario;
+    }
+
+    private List<String> runParallel(Scenario scenario, int threads, int turns) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int turn = 0; turn < turns; turn++) {
+                scenario.getController().moveParallel(pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        List<String> events = new ArrayList<>();
+        for (Event event : scenario.getLog().getEvents()) {
+            events.add(event.toString());
+        }
+        return events;
+    }
+
+    @Test
+    public void moveParallelSameForAnyThreadsTest() throws Exception {
+        Scenario single = createWideScenario("Wide");
+        Scenario many = createWideScenario("Wide");
+        List<String> singleEvents = runParallel(single, 1, 5);
+        List<String> manyEvents = runParallel(many, 4, 5);
+
+        assertTrue(singleEvents.size() > 0);
+        assertEquals(singleEvents, manyEvents);
+        assertEquals(single.encode(), many.encode());
+        assertEquals(5, many.getController().getTurn());
+        for (Fauna animal : many.getController().getAnimals()) {
+            assertEquals(animal, many.occupantAt(animal.getCoordinate().getIndex(many)));
+        }
+    }
+
+    @Test
+    public void moveParallelDependsOnSeedTest() throws Exception {
+        Scenario first = createWideScenario("Wide");
+        Scenario second = createWideScenario("Wide");
+        second.setSeed(8);
+        assertNotEquals(runParallel(first, 2, 3), runParallel(second, 2, 3));
+    }
+
+    @Test
+    public void turnEndsAfterAnimalsMoveTest() throws Exception {
+        Scenario scenario = createWideScenario("Wide");
+        List<String> ended = new ArrayList<>();
+        scenario.getLog().addSink(new EventSink() {
+            @Override
+            public void eventAdded(Event event, int turn) {
+            }
+
+            @Override
+            public void turnEnded(int turn) {
+                ended.add(turn + " " + scenario.getController().getTurn() + " "
+                    + scenario.getLog().getEventCount() + " " + scenario.encode());
+            }
+        });
+        scenario.getController().move();
+        assertEquals(List.of("0 1 " + scenario.getLog().getEventCount() + " "
+            + scenario.encode()), ended);
+        scenario.getController().moveParallel();
+        assertEquals("1 2 " + scenario.getLog().getEventCount() + " " + scenario.encode(),
+            ended.get(1));
+    }
+
     @Deprecated
     @Test
     public void testGetAnimalsModifiable() {
@@ -0,0 +1,119 @@
+package researchsim.scenario;
+
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Fauna;
+import researchsim.entities.Size;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AnimalRegistryTest {
+
+    private AnimalRegistry registry;
+    private Fauna a1;
+    private Fauna a2;
+    private Fauna a3;
+
+    @Before
+    public void setUp() {
+        registry = new AnimalRegistry();
+        a1 = new Fauna(Size.SMALL, new Coordinate(1, 1), TileType.LAND);
+        a2 = new Fauna(Size.MEDIUM, new Coordinate(2, 2), TileType.LAND);
+        a3 = new Fauna(Size.LARGE, new Coordinate(3, 3), TileType.OCEAN);
+    }
+
+    @Test
+    public void addGivesIdsTest() {
+        assertEquals(-1, a1.getId());
+        assertEquals(0, registry.add(a1));
+        assertEquals(1, registry.add(a2));
+        assertEquals(0, a1.getId());
+        assertEquals(1, a2.getId());
+        assertEquals(2, registry.size());
+        assertSame(a2, registry.getById(1));
+        assertSame(a1, registry.get(0));
+        assertEquals(1, registry.getId(1));
+        assertNull(registry.getById(2));
+    }
+
+    @Test
+    public void addTwiceTest() {
+        registry.add(a1);
+        assertEquals(0, registry.add(a1));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void removeSwapsLastTest() {
+        registry.add(a1);
+        registry.add(a2);
+        registry.add(a3);
+        assertTrue(registry.remove(a1));
+
+        assertEquals(List.of(a3, a2), registry.toList());
+        assertEquals(-1, a1.getId());
+        assertNull(registry.getById(0));
+        assertSame(a3, registry.getById(2));
+        assertFalse(registry.remove(a1));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void removeReusesIdsTest() {
+        registry.add(a1);
+        registry.add(a2);
+        registry.remove(a1);
+        registry.remove(a2);
+        assertEquals(1, registry.add(a3));
+        assertEquals(0, registry.add(a1));
+        assertEquals(2, registry.add(a2));
+    }
+
+    @Test
+    public void removeEqualAnimalTest() {
+        registry.add(a1);
+        Fauna copy = new Fauna(Size.SMALL, new Coordinate(1, 1), TileType.LAND);
+        assertTrue(registry.contains(copy));
+        assertTrue(registry.remove(copy));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void growTest() {
+        List<Fauna> animals = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Fauna animal = new Fauna(Size.SMALL, new Coordinate(i, 0), TileType.LAND);
+            animals.add(animal);
+            assertEquals(i, registry.add(animal));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(registry.remove(animals.get(i)));
+        }
+        assertEquals(500, registry.size());
+        for (int i = 1; i < 1000; i += 2) {
+            assertSame(animals.get(i), registry.getById(i));
+            assertTrue(registry.contains(animals.get(i)));
+        }
+        List<Fauna> visited = new ArrayList<>();
+        registry.forEach(visited::add);
+        assertEquals(registry.toList(), visited);
+    }
+
+    @Test
+    public void randomTest() {
+        registry.add(a1);
+        registry.add(a2);
+        registry.add(a3);
+        Random expected = new Random(5);
+        Random actual = new Random(5);
+        for (int i = 0; i < 20; i++) {
+            assertSame(registry.get(expected.nextInt(3)), registry.random(actual));
+        }
+    }
+}
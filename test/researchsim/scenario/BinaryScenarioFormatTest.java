@@ -0,0 +1,144 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class BinaryScenarioFormatTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "binary é",
+        "Width:7",
+        "Height:5",
+        "Seed:3",
+        "=======",
+        "LLLLLLX",
+        "LLSLLLX",
+        "LLLOOOX",
+        "LSLOOOX",
+        "LLLOOOS",
+        "=======",
+        "User-1,1-Dave",
+        "Flora-SMALL-2,1",
+        "Fauna-SMALL-0,4-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN",
+        "Fauna-LARGE-2,3-LAND",
+        "Flora-GIANT-5,0");
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("scenario", BinaryScenarioFormat.EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        ScenarioManager.getInstance().reset();
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        BinaryScenarioFormat.write(scenario, file);
+        Scenario loaded = BinaryScenarioFormat.read(file, false);
+        assertEquals(scenario.encode(), loaded.encode());
+        assertEquals(3, loaded.getController().getAnimals().size());
+        assertSame(loaded, loaded.occupantAt(1, 1).getScenario());
+        // 7 header ints, 9 name bytes and 9 map bytes padded to 12, 6 records and 4 name bytes
+        assertEquals(28 + 12 + 12 + 6 * 8 + 4, Files.size(file));
+    }
+
+    @Test
+    public void packedRoundTripTest() throws Exception {
+        Scenario scenario = new Scenario("large", 301, 203, 9, true);
+        for (int index = 0; index < scenario.getSize(); index++) {
+            Coordinate coordinate = new Coordinate(index % 301, index / 301);
+            if (index % 5 == 0) {
+                scenario.getTileGrid().setType(index, TileType.OCEAN);
+                scenario.setOccupant(index, new Fauna(Size.GIANT, coordinate, TileType.OCEAN));
+            } else if (index % 5 == 1) {
+                scenario.getTileGrid().setType(index, TileType.MOUNTAIN);
+            } else if (index % 5 == 2) {
+                scenario.setOccupant(index, new Flora(Size.MEDIUM, coordinate));
+            }
+        }
+        scenario.setOccupant(3, new User(new Coordinate(3, 0), "Ann"));
+        BinaryScenarioFormat.write(scenario, file);
+        Scenario loaded = BinaryScenarioFormat.read(file, true);
+        assertTrue(loaded.isPacked());
+        assertEquals(scenario.encode(), loaded.encode());
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void badMagicTest() throws Exception {
+        Files.write(file, new byte[] {'R', 'S', 'I', 'X', 0, 0, 0, 1});
+        BinaryScenarioFormat.read(file, false);
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void emptyTest() throws Exception {
+        BinaryScenarioFormat.read(file, false);
+    }
+
+    @Test
+    public void truncatedTest() throws Exception {
+        BinaryScenarioFormat.write(Scenario.read(new StringReader(SAVE), false), file);
+        long size = Files.size(file);
+        for (long end = size - 1; end >= 0; end -= 3) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+            try {
+                BinaryScenarioFormat.read(file, false);
+                fail("Expected a save of " + end + " bytes to be invalid");
+            } catch (BadSaveException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void unsuitableTileTest() throws Exception {
+        BinaryScenarioFormat.write(Scenario.read(new StringReader(SAVE), false), file);
+        // move the user, the second record after the flora at (5,0), onto the mountain at (6,0)
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 6), 28 + 12 + 12 + 8 + 4);
+        }
+        BinaryScenarioFormat.read(file, false);
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void hugeNameLengthTest() throws Exception {
+        BinaryScenarioFormat.write(Scenario.read(new StringReader(SAVE), false), file);
+        // a name length whose padded length overflows an int
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 24);
+        }
+        BinaryScenarioFormat.read(file, false);
+    }
+
+    @Test
+    public void isBinaryTest() {
+        assertTrue(BinaryScenarioFormat.isBinary("saves/world.rsim"));
+        assertFalse(BinaryScenarioFormat.isBinary("saves/world.txt"));
+    }
+}
@@ -0,0 +1,244 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Size;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeltaSaveChainTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "chain",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "Fauna-SMALL-0,0-LAND",
+        "User-1,1-Dave",
+        "Flora-MEDIUM-2,1",
+        "Fauna-LARGE-2,3-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN");
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chain");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        ScenarioManager.getInstance().reset();
+    }
+
+    private static Scenario read(String save) throws Exception {
+        return Scenario.read(new StringReader(save), false);
+    }
+
+    private static void assertSameAnimals(Scenario expected, Scenario actual) {
+        List<Fauna> expectedAnimals = expected.getController().getAnimals();
+        List<Fauna> actualAnimals = actual.getController().getAnimals();
+        assertEquals(expectedAnimals.size(), actualAnimals.size());
+        for (int i = 0; i < expectedAnimals.size(); i++) {
+            assertEquals(expectedAnimals.get(i).encode(), actualAnimals.get(i).encode());
+        }
+    }
+
+    @Test
+    public void dirtyTrackerTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        DirtyTracker tracker = new DirtyTracker(scenario);
+        assertEquals(0, tracker.getDirtyCount());
+        scenario.moveOccupant(0, 6);
+        scenario.getTileGrid().setType(29, TileType.SAND);
+        assertEquals(3, tracker.getDirtyCount());
+        int[] dirty = new int[3];
+        int[] count = new int[1];
+        tracker.forEachDirty(index -> dirty[count[0]++] = index);
+        assertArrayEquals(new int[] {0, 6, 29}, dirty);
+        tracker.clear();
+        assertFalse(tracker.isDirty(6));
+        tracker.stop();
+        scenario.moveOccupant(6, 0);
+        assertEquals(0, tracker.getDirtyCount());
+    }
+
+    @Test
+    public void chainTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            chain.setTurnInterval(3);
+            for (int turn = 0; turn < 20; turn++) {
+                scenario.getController().move();
+            }
+            assertEquals(6, chain.getDeltaCount());
+            assertEquals(6, chain.getSequence());
+            assertEquals(0, chain.getFailureCount());
+            chain.saveDelta();
+
+            Scenario loaded = DeltaSaveChain.read(directory, false);
+            assertEquals(scenario.encode(), loaded.encode());
+            assertSameAnimals(read(scenario.encode()), loaded);
+        }
+    }
+
+    @Test
+    public void binaryChainTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, true)) {
+            Path base = directory.resolve("base.1" + BinaryScenarioFormat.EXTENSION);
+            assertTrue(Files.exists(base));
+            scenario.getController().move();
+            scenario.getController().move();
+            chain.saveDelta();
+            scenario.getTileGrid().setType(5, TileType.MOUNTAIN);
+            chain.saveDelta();
+            assertEquals(scenario.encode(), DeltaSaveChain.read(directory, false).encode());
+        }
+    }
+
+    @Test
+    public void checkpointTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            scenario.getController().move();
+            chain.saveDelta();
+            chain.checkpoint();
+            assertEquals(2, chain.getGeneration());
+            assertEquals(0, chain.getSequence());
+            assertFalse(Files.exists(directory.resolve("base.1.txt")));
+            assertFalse(Files.exists(directory.resolve("delta.1.1" + ScenarioDelta.EXTENSION)));
+            scenario.getController().move();
+            chain.saveDelta();
+            assertEquals(scenario.encode(), DeltaSaveChain.read(directory, false).encode());
+        }
+    }
+
+    @Test
+    public void compactTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            for (int turn = 0; turn < 5; turn++) {
+                scenario.getController().move();
+                chain.saveDelta();
+            }
+        }
+        Path base = DeltaSaveChain.compact(directory, false);
+        assertEquals(directory.resolve("base.2.txt"), base);
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(scenario.encode(), Files.readString(base));
+        assertEquals(scenario.encode(), DeltaSaveChain.read(directory, false).encode());
+    }
+
+    @Test
+    public void deltaSizeTest() throws Exception {
+        int width = 400;
+        int height = 300;
+        Scenario scenario = new Scenario("large", width, height, 5, true);
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(width * height);
+            if (scenario.occupantAt(index) == null) {
+                Fauna animal = new Fauna(Size.SMALL,
+                    new Coordinate(index % width, index / width), TileType.LAND);
+                scenario.setOccupant(index, animal);
+                scenario.getController().addAnimal(animal);
+            }
+        }
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            scenario.getController().move();
+            chain.saveDelta();
+            assertTrue(chain.getDeltaBytes() * 10 < chain.getBaseBytes());
+        }
+        assertEquals(scenario.encode(), DeltaSaveChain.read(directory, true).encode());
+    }
+
+    @Test
+    public void missingDeltaTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            for (int turn = 0; turn < 3; turn++) {
+                scenario.getController().move();
+                chain.saveDelta();
+            }
+        }
+        Files.delete(directory.resolve("delta.1.2" + ScenarioDelta.EXTENSION));
+        try {
+            DeltaSaveChain.read(directory, false);
+            fail("A chain with a missing delta should not load");
+        } catch (BadSaveException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void unsaveableEntityTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            chain.setTurnInterval(1);
+            scenario.setOccupant(3, new Entity(Size.SMALL, new Coordinate(3, 0)) {
+                @Override
+                public String getName() {
+                    return "Rock";
+                }
+            });
+            // the failed save is counted, and does not stop the turn
+            scenario.getController().move();
+            assertEquals(1, scenario.getController().getTurn());
+            assertEquals(1, chain.getFailureCount());
+
+            // the next save is a base save, as the failed save's changes are missing
+            scenario.setOccupant(3, null);
+            scenario.getController().move();
+            assertEquals(1, chain.getFailureCount());
+            assertEquals(2, chain.getGeneration());
+            assertEquals(scenario.encode(), DeltaSaveChain.read(directory, false).encode());
+        }
+    }
+
+    @Test
+    public void invalidDeltaTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (DeltaSaveChain chain = new DeltaSaveChain(scenario, directory, false)) {
+            scenario.getTileGrid().setType(0, TileType.OCEAN);
+            chain.saveDelta();
+        }
+        String before = read(SAVE).encode();
+        Scenario base = read(SAVE);
+        try {
+            ScenarioDelta.read(directory.resolve("delta.1.1" + ScenarioDelta.EXTENSION))
+                .applyTo(base);
+            fail("A land animal should not be put in the ocean");
+        } catch (BadSaveException expected) {
+            assertEquals(before, base.encode());
+        }
+    }
+}
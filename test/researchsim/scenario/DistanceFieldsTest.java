@@ -0,0 +1,215 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.TileType;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DistanceFieldsTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "fields",
+        "Width:7",
+        "Height:5",
+        "Seed:3",
+        "=======",
+        "LLLLXLL",
+        "LLLLXLL",
+        "LLLLXLL",
+        "LLLLXLL",
+        "OOOOOOO",
+        "=======",
+        "User-0,0-Dave",
+        "Fauna-MEDIUM-2,4-OCEAN",
+        "Flora-GIANT-6,2");
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    /**
+     * Creates a save of the given size with random terrain, a user and random entities.
+     */
+    private static String randomSave(int size, long seed) {
+        Random random = new Random(seed);
+        String separator = System.lineSeparator();
+        char[] types = new char[size * size];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = "LLLSSOOX".charAt(random.nextInt(8));
+        }
+        types[0] = 'L';
+        StringBuilder save = new StringBuilder("random").append(separator)
+            .append("Width:").append(size).append(separator)
+            .append("Height:").append(size).append(separator)
+            .append("Seed:").append(seed).append(separator)
+            .append("=".repeat(size)).append(separator);
+        for (int y = 0; y < size; y++) {
+            save.append(types, y * size, size).append(separator);
+        }
+        save.append("=".repeat(size)).append(separator).append("User-0,0-Dave");
+        String[] sizes = {"SMALL", "MEDIUM", "LARGE", "GIANT"};
+        for (int i = 1; i < types.length; i++) {
+            if (random.nextInt(6) != 0) {
+                continue;
+            }
+            String entity = types[i] == 'O' ? "Fauna-%s-%d,%d-OCEAN"
+                : random.nextBoolean() ? "Fauna-%s-%d,%d-LAND" : "Flora-%s-%d,%d";
+            save.append(separator).append(String.format(entity, sizes[random.nextInt(4)],
+                i % size, i / size));
+        }
+        return save.toString();
+    }
+
+    /**
+     * Asserts that the given fields give the same answers as fields built from scratch.
+     */
+    private static void assertFresh(Scenario scenario, DistanceFields fields) {
+        DistanceFields fresh = new DistanceFields(scenario);
+        fresh.stop();
+        for (int index = 0; index < scenario.getSize(); index++) {
+            Coordinate coordinate = new Coordinate(index, scenario);
+            for (DistanceFields.Kind kind : DistanceFields.Kind.values()) {
+                assertEquals(coordinate + " " + kind, fresh.getDistance(coordinate, kind),
+                    fields.getDistance(coordinate, kind));
+            }
+            assertEquals(String.valueOf(fresh.getWithin(coordinate, 6)),
+                String.valueOf(fields.getWithin(coordinate, 6)));
+            assertEquals(String.valueOf(fresh.getBest(coordinate)),
+                String.valueOf(fields.getBest(coordinate)));
+        }
+    }
+
+    @Test
+    public void distanceTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        DistanceFields fields = new DistanceFields(scenario);
+        Coordinate user = new Coordinate(0, 0);
+        // the ocean animal can be collected from the land above it
+        assertEquals(5, fields.getDistance(user, DistanceFields.Kind.OCEAN_FAUNA));
+        assertEquals(0, fields.getDistance(new Coordinate(2, 3),
+            DistanceFields.Kind.OCEAN_FAUNA));
+        // the plant is behind the mountains
+        assertEquals(DistanceFields.UNREACHABLE,
+            fields.getDistance(user, DistanceFields.Kind.FLORA));
+        assertEquals(0, fields.getDistance(new Coordinate(5, 2), DistanceFields.Kind.FLORA));
+        assertEquals(DistanceFields.UNREACHABLE,
+            fields.getDistance(user, DistanceFields.Kind.LAND_FAUNA));
+        // a tile that can not be walked over is one step further than its nearest neighbour
+        assertEquals(3, fields.getDistance(new Coordinate(0, 4),
+            DistanceFields.Kind.OCEAN_FAUNA));
+    }
+
+    @Test
+    public void withinTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        DistanceFields fields = new DistanceFields(scenario);
+        assertEquals(List.of(), fields.getWithin(new Coordinate(0, 0), 4));
+        List<DistanceFields.Target> targets = fields.getWithin(new Coordinate(0, 0), 5);
+        assertEquals(1, targets.size());
+        assertEquals(new Coordinate(2, 4), targets.get(0).getCoordinate());
+        assertEquals(DistanceFields.Kind.OCEAN_FAUNA, targets.get(0).getKind());
+        assertEquals(2, targets.get(0).getPoints());
+        assertEquals(5, targets.get(0).getSteps());
+        assertEquals("OCEAN_FAUNA at (2,4): 2 points in 5 steps", targets.get(0).toString());
+
+        targets = fields.getWithin(new Coordinate(5, 0), 3);
+        assertEquals("[FLORA at (6,2): 4 points in 2 steps]", targets.toString());
+        assertEquals(List.of(), fields.getWithin(new Coordinate(5, 0), 3,
+            EnumSet.of(DistanceFields.Kind.OCEAN_FAUNA)));
+    }
+
+    @Test
+    public void bestTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        DistanceFields fields = new DistanceFields(scenario);
+        DistanceFields.Target best = fields.getBest(new Coordinate(0, 0));
+        assertEquals(new Coordinate(2, 4), best.getCoordinate());
+        assertEquals(2.0 / 6, best.getPointsPerStep(), 1e-9);
+        assertNull(fields.getBest(new Coordinate(0, 0),
+            EnumSet.of(DistanceFields.Kind.LAND_FAUNA)));
+
+        // opening the mountains makes the plant, which is further away but worth more, best
+        scenario.getTileGrid().setType(4, TileType.LAND);
+        assertEquals(7, fields.getDistance(new Coordinate(0, 0), DistanceFields.Kind.FLORA));
+        best = fields.getBest(new Coordinate(0, 0));
+        assertEquals(new Coordinate(6, 2), best.getCoordinate());
+        assertEquals(0.5, best.getPointsPerStep(), 1e-9);
+    }
+
+    @Test
+    public void collectTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        DistanceFields fields = new DistanceFields(scenario);
+        User user = (User) scenario.occupantAt(0, 0);
+        user.move(new Coordinate(2, 3));
+        assertEquals(0, fields.getDistance(user.getCoordinate(),
+            DistanceFields.Kind.OCEAN_FAUNA));
+        user.collect(new Coordinate(2, 4));
+        assertEquals(DistanceFields.UNREACHABLE, fields.getDistance(user.getCoordinate(),
+            DistanceFields.Kind.OCEAN_FAUNA));
+        assertNull(fields.getBest(user.getCoordinate()));
+        assertFresh(scenario, fields);
+    }
+
+    @Test
+    public void incrementalTest() throws Exception {
+        for (boolean packed : new boolean[] {false, true}) {
+            Scenario scenario = Scenario.read(new StringReader(randomSave(15, 11)), packed);
+            DistanceFields fields = new DistanceFields(scenario);
+            User user = (User) scenario.occupantAt(0, 0);
+            Random random = new Random(5);
+            for (int turn = 0; turn < 30; turn++) {
+                List<Coordinate> moves = new ArrayList<>(user.getPossibleMoves());
+                if (!moves.isEmpty()) {
+                    user.move(moves.get(random.nextInt(moves.size())));
+                }
+                for (Coordinate coordinate : user.getPossibleCollection()) {
+                    if (random.nextBoolean()) {
+                        user.collect(coordinate);
+                    }
+                }
+                scenario.getController().move();
+                assertFresh(scenario, fields);
+            }
+            ScenarioManager.getInstance().reset();
+        }
+    }
+
+    @Test
+    public void unreadTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(randomSave(15, 13)), false);
+        DistanceFields fields = new DistanceFields(scenario);
+        // more changes than tiles are made before the fields are read again
+        for (int turn = 0; turn < 100; turn++) {
+            scenario.getController().move();
+        }
+        assertFresh(scenario, fields);
+    }
+
+    @Test
+    public void parallelTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(randomSave(15, 12)), true);
+        DistanceFields fields = new DistanceFields(scenario);
+        for (int turn = 0; turn < 10; turn++) {
+            scenario.getController().moveParallel();
+        }
+        assertFresh(scenario, fields);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfBoundsTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        new DistanceFields(scenario).getDistance(new Coordinate(7, 0),
+            DistanceFields.Kind.FLORA);
+    }
+}
@@ -0,0 +1,160 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.Tile;
+import researchsim.map.TileType;
+import researchsim.util.CoordinateOutOfBoundsException;
+import researchsim.util.Movable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MovementEngineTest {
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    /**
+     * Creates a scenario with random terrain and entities and makes it the current scenario.
+     */
+    private Scenario createRandomScenario(String name, int width, int height, boolean packed,
+                                          long seed) throws Exception {
+        Scenario scenario = new Scenario(name, width, height, 0, packed);
+        ScenarioManager.getInstance().addScenario(scenario);
+        ScenarioManager.getInstance().setScenario(name);
+        Random random = new Random(seed);
+        TileType[] types = TileType.values();
+        Tile[] tiles = new Tile[width * height];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(types[random.nextInt(types.length)]);
+            if (random.nextInt(5) == 0) {
+                tiles[i].setContents(new Flora(Size.SMALL,
+                    new Coordinate(i % width, i / width)));
+            }
+        }
+        scenario.setMapGrid(tiles);
+        return scenario;
+    }
+
+    /**
+     * Returns the moves of the given entity found by checking every coordinate in range.
+     */
+    private List<Coordinate> expectedMoves(Movable entity, Coordinate origin, int radius) {
+        List<Coordinate> moves = new ArrayList<>();
+        for (Coordinate coordinate : entity.checkRange(radius, origin)) {
+            try {
+                if (entity.canMove(coordinate)) {
+                    moves.add(coordinate);
+                }
+            } catch (CoordinateOutOfBoundsException ignored) {
+                // not on the map
+            }
+        }
+        return moves;
+    }
+
+    private void assertSameMoves(Scenario scenario) {
+        MovementEngine engine = scenario.getMovementEngine();
+        for (int y = 0; y < scenario.getHeight(); y++) {
+            for (int x = 0; x < scenario.getWidth(); x++) {
+                Coordinate origin = new Coordinate(x, y);
+                for (Size size : Size.values()) {
+                    for (TileType habitat : new TileType[]{TileType.LAND, TileType.OCEAN}) {
+                        Fauna animal = new Fauna(size, origin, habitat);
+                        List<Coordinate> expected =
+                            expectedMoves(animal, origin, size.moveDistance);
+                        assertEquals(expected, engine.getPossibleMoves(animal));
+                        assertEquals(expected.size(), engine.countPossibleMoves(animal));
+                    }
+                }
+                User user = new User(origin, "Bob");
+                assertEquals(expectedMoves(user, origin, Size.MEDIUM.moveDistance),
+                    engine.getPossibleMoves(user));
+            }
+        }
+    }
+
+    @Test
+    public void matchesCanMoveTest() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            assertSameMoves(createRandomScenario("random" + seed, 12, 9, false, seed));
+        }
+    }
+
+    @Test
+    public void matchesCanMoveAcrossWordsTest() throws Exception {
+        // wider than a word so that windows are read across word boundaries
+        assertSameMoves(createRandomScenario("wide", 150, 7, true, 42));
+    }
+
+    @Test
+    public void entityApiTest() throws Exception {
+        Scenario scenario = createRandomScenario("api", 10, 10, false, 7);
+        Fauna animal = new Fauna(Size.LARGE, new Coordinate(4, 5), TileType.LAND);
+        assertEquals(expectedMoves(animal, animal.getCoordinate(), Size.LARGE.moveDistance),
+            animal.getPossibleMoves());
+        User user = new User(new Coordinate(2, 2), "Bob");
+        assertEquals(expectedMoves(user, user.getCoordinate(), Size.MEDIUM.moveDistance),
+            user.getPossibleMoves());
+        assertSame(scenario.getMovementEngine(), scenario.getMovementEngine());
+    }
+
+    @Test
+    public void followsGridChangesTest() throws Exception {
+        Scenario scenario = new Scenario("changes", 5, 5, 0);
+        ScenarioManager.getInstance().addScenario(scenario);
+        ScenarioManager.getInstance().setScenario("changes");
+        Tile[] tiles = new Tile[25];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(TileType.LAND);
+        }
+        scenario.setMapGrid(tiles);
+
+        MovementEngine engine = scenario.getMovementEngine();
+        Fauna animal = new Fauna(Size.GIANT, new Coordinate(2, 2), TileType.LAND);
+        scenario.setOccupant(animal.getCoordinate().getIndex(), animal);
+        assertEquals(4, engine.countPossibleMoves(animal));
+
+        Flora plant = new Flora(Size.SMALL, new Coordinate(3, 2));
+        scenario.tileAt(3, 2).setContents(plant);
+        assertEquals(3, engine.countPossibleMoves(animal));
+
+        animal.move(new Coordinate(2, 1));
+        assertTrue(engine.getPossibleMoves(animal).contains(new Coordinate(2, 2)));
+        Fauna other = new Fauna(Size.GIANT, new Coordinate(1, 1), TileType.LAND);
+        assertFalse(engine.getPossibleMoves(other).contains(new Coordinate(2, 1)));
+
+        scenario.setOccupant(new Coordinate(3, 2).getIndex(), null);
+        assertTrue(engine.getPossibleMoves(new Fauna(Size.GIANT, new Coordinate(2, 2),
+            TileType.LAND)).contains(new Coordinate(3, 2)));
+
+        scenario.getMapGrid()[new Coordinate(2, 1).getIndex()].setContents(null);
+        scenario.setMapGrid(scenario.getMapGrid());
+        assertEquals(4, engine.countPossibleMoves(other));
+    }
+
+    @Test
+    public void bulkMovesTest() throws Exception {
+        createRandomScenario("bulk", 10, 10, true, 3);
+        MovementEngine engine = ScenarioManager.getInstance().getScenario().getMovementEngine();
+        List<Fauna> animals = new ArrayList<>();
+        animals.add(new Fauna(Size.SMALL, new Coordinate(0, 0), TileType.LAND));
+        animals.add(new Fauna(Size.GIANT, new Coordinate(5, 5), TileType.OCEAN));
+        List<List<Coordinate>> moves = engine.getPossibleMoves(animals);
+        assertEquals(2, moves.size());
+        for (int i = 0; i < animals.size(); i++) {
+            assertEquals(engine.getPossibleMoves(animals.get(i)), moves.get(i));
+        }
+    }
+}
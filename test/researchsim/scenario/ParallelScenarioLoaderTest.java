@@ -0,0 +1,125 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ParallelScenarioLoaderTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("loader");
+        ScenarioManager.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        ScenarioManager.getInstance().reset();
+    }
+
+    private static String save(String name, int size) {
+        String separator = System.lineSeparator();
+        StringBuilder save = new StringBuilder(name).append(separator)
+            .append("Width:").append(size).append(separator)
+            .append("Height:").append(size).append(separator)
+            .append("Seed:").append(size).append(separator)
+            .append("=".repeat(size)).append(separator);
+        for (int y = 0; y < size; y++) {
+            save.append("L".repeat(size - 1)).append('O').append(separator);
+        }
+        return save.append("=".repeat(size)).append(separator)
+            .append("Fauna-SMALL-1,1-LAND").append(separator)
+            .append("User-2,2-Dave").toString();
+    }
+
+    private List<Path> write(int count) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "scenario" + i;
+            Path file;
+            if (i % 3 == 2) {
+                file = directory.resolve(name + BinaryScenarioFormat.EXTENSION);
+                BinaryScenarioFormat.write(
+                    Scenario.read(new StringReader(save(name, 5 + i)), false), file);
+            } else {
+                file = directory.resolve(name + ".txt");
+                Files.writeString(file, save(name, 5 + i));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void loadTest() throws Exception {
+        List<Path> files = write(8);
+        ParallelScenarioLoader loader = new ParallelScenarioLoader(files, false);
+        List<Scenario> scenarios = loader.load();
+
+        ScenarioManager manager = ScenarioManager.getInstance();
+        assertEquals(8, scenarios.size());
+        assertEquals(List.of("scenario0", "scenario1", "scenario2", "scenario3", "scenario4",
+            "scenario5", "scenario6", "scenario7"),
+            List.copyOf(manager.getLoadedScenarios().keySet()));
+        assertEquals("scenario7", manager.getScenario().getName());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(save("scenario" + i, 5 + i), scenarios.get(i).encode());
+            assertSame(scenarios.get(i), manager.getLoadedScenarios().get("scenario" + i));
+            assertTrue(loader.getParseNanos(i) > 0);
+        }
+        assertTrue(loader.getTotalNanos() > 0);
+        assertTrue(loader.toString().startsWith("Loaded 8 files in "));
+    }
+
+    @Test
+    public void singleThreadTest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<Scenario> scenarios =
+                new ParallelScenarioLoader(write(3), true).load(executor);
+            assertTrue(scenarios.get(0).isPacked());
+            assertEquals("scenario2", ScenarioManager.getInstance().getScenario().getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidFileTest() throws Exception {
+        List<Path> files = write(4);
+        Files.writeString(files.get(1), "invalid");
+        files.add(directory.resolve("missing.txt"));
+        ParallelScenarioLoader loader = new ParallelScenarioLoader(files, false);
+        try {
+            loader.load();
+            fail("Invalid files should not load");
+        } catch (BadSaveException e) {
+            assertTrue(e.getMessage().contains(files.get(1).toString()));
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0] instanceof NoSuchFileException);
+        }
+        assertTrue(ScenarioManager.getInstance().getLoadedScenarios().isEmpty());
+        assertTrue(loader.getParseNanos(3) > 0);
+    }
+}
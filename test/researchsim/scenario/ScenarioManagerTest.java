@@ -0,0 +1,203 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.map.TileType;
+import researchsim.util.BadSaveException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScenarioManagerTest {
+
+    private Path directory;
+    private ScenarioManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("manager");
+        manager = ScenarioManager.getInstance();
+        manager.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        manager.reset();
+    }
+
+    private static String save(String name, int size, int seed) {
+        StringBuilder save = new StringBuilder();
+        String separator = System.lineSeparator();
+        save.append(name).append(separator)
+            .append("Width:").append(size).append(separator)
+            .append("Height:").append(size).append(separator)
+            .append("Seed:").append(seed).append(separator)
+            .append("=".repeat(size)).append(separator);
+        for (int y = 0; y < size; y++) {
+            save.append("L".repeat(size)).append(separator);
+        }
+        save.append("=".repeat(size)).append(separator)
+            .append("Fauna-SMALL-0,0-LAND");
+        return save.toString();
+    }
+
+    private Path write(String name, int size, int seed) throws IOException {
+        Path file = directory.resolve(name + ".txt");
+        Files.writeString(file, save(name, size, seed));
+        return file;
+    }
+
+    @Test
+    public void registerTest() throws Exception {
+        ScenarioHeader header = manager.register(write("first", 10, 4), false);
+        assertEquals("first", header.getName());
+        assertEquals(10, header.getWidth());
+        assertEquals(10, header.getHeight());
+        assertEquals(4, header.getSeed());
+        manager.register(write("second", 8, 2), false);
+
+        assertEquals(List.of("first", "second"), manager.getScenarioNames());
+        assertTrue(manager.getLoadedScenarios().isEmpty());
+        assertFalse(manager.isLoaded("second"));
+
+        manager.setScenario("second");
+        assertTrue(manager.isLoaded("second"));
+        assertFalse(manager.isLoaded("first"));
+        assertEquals(save("second", 8, 2), manager.getScenario().encode());
+        assertSame(manager.getScenario(), manager.getScenario().occupantAt(0).getScenario());
+    }
+
+    @Test
+    public void binaryHeaderTest() throws Exception {
+        Scenario scenario = Scenario.read(new java.io.StringReader(save("binary", 6, 1)), true);
+        Path file = directory.resolve("binary" + BinaryScenarioFormat.EXTENSION);
+        BinaryScenarioFormat.write(scenario, file);
+        ScenarioHeader header = manager.register(file, true);
+        assertEquals("binary", header.getName());
+        assertTrue(header.isPacked());
+        manager.setScenario("binary");
+        assertEquals(scenario.encode(), manager.getScenario().encode());
+    }
+
+    @Test(expected = BadSaveException.class)
+    public void registerInvalidTest() throws Exception {
+        Path file = directory.resolve("invalid.txt");
+        Files.writeString(file, "invalid" + System.lineSeparator() + "Width:3");
+        manager.register(file, false);
+    }
+
+    @Test
+    public void unknownScenarioTest() throws Exception {
+        manager.register(write("known", 5, 0), false);
+        try {
+            manager.setScenario("unknown");
+            fail("Unknown scenarios can not be set");
+        } catch (BadSaveException expected) {
+            assertFalse(manager.isLoaded("known"));
+        }
+    }
+
+    @Test
+    public void evictTest() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            manager.register(write("scenario" + i, 10, i), false);
+        }
+        long scenarioBytes = manager.register(write("scenario0", 10, 0), false).estimateBytes();
+        manager.setMemoryBudget(scenarioBytes * 5 / 2);
+
+        manager.setScenario("scenario0");
+        manager.setScenario("scenario1");
+        manager.setScenario("scenario0");
+        manager.setScenario("scenario2");
+        // scenario1 is the least recently used
+        assertEquals(1, manager.getEvictionCount());
+        assertFalse(manager.isLoaded("scenario1"));
+        assertTrue(manager.isLoaded("scenario0"));
+        assertTrue(manager.getLoadedBytes() <= manager.getMemoryBudget());
+        assertEquals(List.of("scenario0", "scenario2"),
+            List.copyOf(manager.getLoadedScenarios().keySet()));
+
+        manager.setScenario("scenario1");
+        assertEquals(save("scenario1", 10, 1), manager.getScenario().encode());
+        assertFalse(manager.isLoaded("scenario0"));
+
+        // the current scenario is never evicted
+        manager.setMemoryBudget(0);
+        assertEquals(List.of("scenario1"), List.copyOf(manager.getLoadedScenarios().keySet()));
+    }
+
+    @Test
+    public void evictUnsavedTest() throws Exception {
+        Path file = write("changed", 10, 0);
+        manager.register(file, false);
+        manager.register(write("other", 10, 0), false);
+        manager.setMemoryBudget(0);
+        manager.setScenario("changed");
+        manager.getScenario().getTileGrid().setType(1, TileType.SAND);
+        manager.setScenario("other");
+        assertEquals(save("changed", 10, 0), Files.readString(file));
+        manager.setScenario("changed");
+        assertEquals(TileType.LAND, manager.getScenario().terrainAt(1));
+    }
+
+    @Test
+    public void saveOnEvictTest() throws Exception {
+        Path file = write("changed", 10, 0);
+        manager.register(file, false);
+        manager.register(write("other", 10, 0), false);
+        manager.setMemoryBudget(0);
+        manager.setSaveOnEvict(true);
+        manager.setScenario("changed");
+        manager.getScenario().getTileGrid().setType(1, TileType.SAND);
+        manager.getScenario().setSeed(9);
+        manager.setScenario("other");
+        assertFalse(manager.isLoaded("changed"));
+        manager.setScenario("changed");
+        assertEquals(TileType.SAND, manager.getScenario().terrainAt(1));
+        assertEquals(9, manager.getScenario().getSeed());
+    }
+
+    @Test
+    public void saveOnEvictFailureTest() throws Exception {
+        Path file = write("unsaved", 10, 0);
+        manager.register(file, false);
+        manager.register(write("other", 10, 0), false);
+        manager.setSaveOnEvict(true);
+        manager.setScenario("unsaved");
+        Files.delete(file);
+        Path inside = Files.createDirectory(file).resolve("inside.txt");
+        Files.writeString(inside, "");
+        try {
+            // the save can not replace a directory, so the scenario is kept
+            manager.setMemoryBudget(0);
+            manager.setScenario("other");
+            assertTrue(manager.isLoaded("unsaved"));
+            assertEquals(0, manager.getEvictionCount());
+        } finally {
+            Files.delete(inside);
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void addedScenariosNotEvictedTest() throws Exception {
+        manager.register(write("file", 10, 0), false);
+        Scenario added = new Scenario("added", 10, 10, 0);
+        manager.addScenario(added);
+        manager.setMemoryBudget(0);
+        manager.setScenario("file");
+        assertTrue(manager.isLoaded("added"));
+        assertEquals(List.of("file", "added"), manager.getScenarioNames());
+    }
+}
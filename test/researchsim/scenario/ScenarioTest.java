@@ -3,12 +3,18 @@ package researchsim.scenario;
 import org.junit.After;
 import org.junit.Test;
 import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
 import researchsim.entities.Size;
 import researchsim.map.Coordinate;
+import researchsim.map.TileType;
 import researchsim.util.BadSaveException;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -490,6 +496,305 @@ public class ScenarioTest {
         }
     }
 
+    @Test
+    public void tileAccessTest() {
+        Scenario scenario = TestUtil.createSafeTestScenario("tileAccess");
+        Flora plant = new Flora(Size.SMALL, new Coordinate(3, 1));
+        scenario.setOccupant(8, plant);
+        assertSame(plant, scenario.occupantAt(8));
+        assertSame(plant, scenario.occupantAt(3, 1));
+        assertTrue(scenario.tileAt(3, 1).hasContents());
+        assertTrue(scenario.getMapGrid()[8].hasContents());
+        assertEquals(TileType.LAND, scenario.terrainAt(3, 1));
+
+        scenario.moveOccupant(8, 9);
+        assertNull(scenario.occupantAt(8));
+        assertSame(plant, scenario.occupantAt(9));
+
+        scenario.tileAt(9).setContents(null);
+        assertNull(scenario.occupantAt(9));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void tileAccessOutOfBoundsTest() {
+        TestUtil.createSafeTestScenario("tileAccess").occupantAt(5, 0);
+    }
+
+    @Test
+    public void packedTileAccessTest() {
+        Scenario scenario = new Scenario("packed", 40, 30, 0, true);
+        Flora plant = new Flora(Size.SMALL, new Coordinate(39, 29));
+        scenario.getMapGrid()[scenario.getSize() - 1].setContents(plant);
+        assertSame(plant, scenario.occupantAt(39, 29));
+        assertEquals(TileType.LAND, scenario.terrainAt(0));
+        int[] occupied = new int[1];
+        scenario.forEachTile((index, type, occupant) -> {
+            if (occupant != null) {
+                occupied[0]++;
+            }
+        });
+        assertEquals(1, occupied[0]);
+    }
+
+    private static final String LOAD_SAVE = String.join(System.lineSeparator(),
+        "load",
+        "Width:-1",
+        "Height:6",
+        "Seed:20",
+        "=====",
+        "LLLLS",
+        "LLSSO",
+        "LLSOO",
+        "LLSSX",
+        "LLLLL",
+        "LLLLL",
+        "=====",
+        "Fauna-SMALL-1,1-LAND",
+        "Fauna-MEDIUM-4,1-OCEAN",
+        "User-0,5-Dave",
+        "Flora-LARGE-2,5");
+
+    @Test
+    public void loadTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), false);
+        assertEquals(5, scenario.getWidth());
+        assertEquals(6, scenario.getHeight());
+        assertEquals(TileType.MOUNTAIN, scenario.terrainAt(4, 3));
+        assertEquals(2, scenario.getController().getAnimals().size());
+        assertEquals("Dave", scenario.occupantAt(0, 5).getName());
+        assertEquals(new Coordinate(2, 5), scenario.occupantAt(2, 5).getCoordinate());
+    }
+
+    @Test
+    public void loadLineEndingsTest() throws Exception {
+        Scenario expected = Scenario.read(new StringReader(LOAD_SAVE), false);
+        String[] lines = LOAD_SAVE.split(System.lineSeparator());
+        for (String separator : new String[] {"\n", "\r", "\r\n"}) {
+            String save = String.join(separator, lines) + separator;
+            assertEquals(expected.encode(),
+                Scenario.read(new StringReader(save), false).encode());
+        }
+    }
+
+    @Test
+    public void loadInvalidTest() throws Exception {
+        String[] lines = LOAD_SAVE.split(System.lineSeparator());
+        String[][] replacements = {
+            {"Width:-1", "Width:5:"}, {"Height:6", "height:6"}, {"Seed:20", "Seed:2x"},
+            {"LLSSO", "LLSS"}, {"LLLLS", "LLLLG"}, {"Fauna-SMALL-1,1-LAND", "Fauna-SMALL-1,1"},
+            {"Fauna-SMALL-1,1-LAND", "Fauna-TINY-1,1-LAND"},
+            {"Fauna-SMALL-1,1-LAND", "Fauna-SMALL-1,1-SAND"},
+            {"Fauna-SMALL-1,1-LAND", "Fauna-SMALL-5,1-LAND"},
+            {"Fauna-SMALL-1,1-LAND", "Fauna-SMALL-1,1,1-LAND"},
+            {"Fauna-MEDIUM-4,1-OCEAN", "Fauna-MEDIUM-3,1-OCEAN"},
+            {"Flora-LARGE-2,5", "Flora-LARGE-1,1"}, {"Flora-LARGE-2,5", "Plant-LARGE-2,5"},
+            {"User-0,5-Dave", "User-4,3-Dave"}, {"User-0,5-Dave", "User-0,5-Dave-Smith"}
+        };
+        for (String[] replacement : replacements) {
+            String save = String.join(System.lineSeparator(), lines)
+                .replace(replacement[0], replacement[1]);
+            try {
+                Scenario.read(new StringReader(save), false);
+                fail("Expected " + replacement[1] + " to be invalid");
+            } catch (BadSaveException expected) {
+                // expected
+            }
+        }
+        for (int end = 1; end < 12; end++) {
+            String save = String.join(System.lineSeparator(),
+                Arrays.copyOf(lines, end));
+            try {
+                Scenario.read(new StringReader(save), false);
+                fail("Expected a save of " + end + " lines to be invalid");
+            } catch (BadSaveException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void loadManyEntitiesTest() throws Exception {
+        int width = 400;
+        int height = 250;
+        Scenario scenario = new Scenario("many", width, height, 3, true);
+        for (int index = 0; index < width * height; index++) {
+            Coordinate coordinate = new Coordinate(index % width, index / width);
+            scenario.setOccupant(index, index % 2 == 0
+                ? new Flora(Size.SMALL, coordinate)
+                : new Fauna(Size.LARGE, coordinate, TileType.LAND));
+        }
+        String save = scenario.encode();
+        Scenario loaded = Scenario.read(new StringReader(save), true);
+        assertEquals(width * height / 2, loaded.getController().getAnimals().size());
+        assertEquals(save, loaded.encode());
+    }
+
+    @Test
+    public void encodeToTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), false);
+        StringWriter writer = new StringWriter();
+        scenario.encodeTo(writer);
+        assertEquals(LOAD_SAVE.replace("Width:-1", "Width:5"), writer.toString());
+        assertEquals(writer.toString(), scenario.encode());
+    }
+
+    @Test
+    public void stateHashTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), false);
+        Scenario packed = Scenario.read(new StringReader(LOAD_SAVE), true);
+        long initial = scenario.stateHash();
+        assertNotEquals(0, initial);
+        assertEquals(initial, packed.stateHash());
+        assertEquals(0, new Scenario("empty", 5, 5, 0).stateHash());
+
+        scenario.getTileGrid().setType(0, TileType.SAND);
+        assertNotEquals(initial, scenario.stateHash());
+        scenario.getTileGrid().setType(0, TileType.LAND);
+        assertEquals(initial, scenario.stateHash());
+
+        // moving and moving back restores the hash
+        int from = 6;
+        int to = 0;
+        scenario.moveOccupant(from, to);
+        assertNotEquals(initial, scenario.stateHash());
+        scenario.moveOccupant(to, from);
+        assertEquals(initial, scenario.stateHash());
+
+        // the kind and habitat of an inhabitant are part of the state
+        scenario.setOccupant(to, new Flora(Size.SMALL, new Coordinate(0, 0)));
+        long flora = scenario.stateHash();
+        scenario.setOccupant(to, new Fauna(Size.SMALL, new Coordinate(0, 0), TileType.LAND));
+        assertNotEquals(flora, scenario.stateHash());
+    }
+
+    @Test
+    public void stateHashAfterTurnsTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), true);
+        for (int turn = 0; turn < 50; turn++) {
+            scenario.getController().moveParallel();
+            Scenario copy = Scenario.read(new StringReader(scenario.encode()), false);
+            assertEquals(copy.stateHash(), scenario.stateHash());
+            assertEquals(copy.hashCode(), scenario.hashCode());
+            assertEquals(copy, scenario);
+        }
+    }
+
+    @Test
+    public void equalsHashTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), false);
+        Scenario packed = Scenario.read(new StringReader(LOAD_SAVE), true);
+        assertEquals(scenario, packed);
+        assertEquals(scenario.hashCode(), packed.hashCode());
+
+        Scenario other = Scenario.read(new StringReader(LOAD_SAVE), false);
+
+        other.getTileGrid().setOccupant(27, null);
+        assertNotEquals(scenario, other);
+        other.getTileGrid().setOccupant(27,
+            new Flora(Size.LARGE, new Coordinate(2, 5)));
+        assertEquals(scenario, other);
+
+        // empty tiles are equal whatever their type
+        other.getTileGrid().setType(15, TileType.SAND);
+        assertEquals(scenario, other);
+        assertEquals(scenario.hashCode(), other.hashCode());
+        assertNotEquals(scenario.stateHash(), other.stateHash());
+
+        scenario.setMapGrid(other.getMapGrid());
+        assertEquals(other.stateHash(), scenario.stateHash());
+    }
+
+    @Test
+    public void forkTest() throws Exception {
+        for (boolean packed : new boolean[]{false, true}) {
+            Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), packed);
+            scenario.getController().move();
+            Scenario fork = scenario.fork();
+            assertEquals(scenario.encode(), fork.encode());
+            assertEquals(scenario, fork);
+            assertEquals(scenario.stateHash(), fork.stateHash());
+            assertEquals(scenario.getController().getTurn(), fork.getController().getTurn());
+            assertEquals(0, fork.getLog().getEventCount());
+            assertTrue(ScenarioManager.getInstance().getLoadedScenarios().isEmpty());
+
+            // the entities are copies bound to the fork
+            Entity user = scenario.occupantAt(0, 5);
+            Entity copy = fork.occupantAt(0, 5);
+            assertNotSame(user, copy);
+            assertEquals(user, copy);
+            assertSame(fork, copy.getScenario());
+            assertSame(scenario, user.getScenario());
+            Fauna animal = fork.getController().getRegistry().get(0);
+            assertSame(fork, animal.getScenario());
+            assertSame(animal, fork.occupantAt(animal.getCoordinate().getX(),
+                animal.getCoordinate().getY()));
+            assertEquals(scenario.getController().getRegistry().getId(0), animal.getId());
+
+            // changing the fork does not change the original
+            String before = scenario.encode();
+            int events = scenario.getLog().getEventCount();
+            fork.getTileGrid().setType(0, TileType.SAND);
+            fork.getTileGrid().setType(12, TileType.MOUNTAIN);
+            fork.setOccupant(27, null);
+            for (int turn = 0; turn < 20; turn++) {
+                fork.getController().move();
+            }
+            assertEquals(before, scenario.encode());
+            assertEquals(events, scenario.getLog().getEventCount());
+            Scenario copyOfOriginal = Scenario.read(new StringReader(before), packed);
+            assertEquals(copyOfOriginal.stateHash(), scenario.stateHash());
+            Scenario copyOfFork = Scenario.read(new StringReader(fork.encode()), packed);
+            assertEquals(copyOfFork.stateHash(), fork.stateHash());
+            assertEquals(copyOfFork, fork);
+            assertSameMoves(copyOfOriginal, scenario);
+            assertSameMoves(copyOfFork, fork);
+        }
+    }
+
+    private static void assertSameMoves(Scenario expected, Scenario actual) {
+        for (Fauna animal : actual.getController().getAnimals()) {
+            Coordinate coordinate = animal.getCoordinate();
+            Fauna same = (Fauna) expected.occupantAt(coordinate.getX(), coordinate.getY());
+            assertEquals(expected.getMovementEngine().getPossibleMoves(same),
+                actual.getMovementEngine().getPossibleMoves(animal));
+        }
+    }
+
+    @Test
+    public void forkTurnsTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(LOAD_SAVE), true);
+        scenario.getRandom().nextInt();
+        Scenario fork = scenario.fork();
+        Scenario parallelFork = scenario.fork();
+        // a fork moves as the original would have
+        for (int turn = 0; turn < 20; turn++) {
+            scenario.getController().move();
+            fork.getController().move();
+            assertEquals(scenario.encode(), fork.encode());
+        }
+        assertEquals(scenario.getRandom().nextLong(), fork.getRandom().nextLong());
+        assertEquals(scenario.getLog().getTilesTraversed(), fork.getLog().getTilesTraversed());
+
+        Scenario other = Scenario.read(new StringReader(LOAD_SAVE), true);
+        for (int turn = 0; turn < 20; turn++) {
+            other.getController().moveParallel();
+            parallelFork.getController().moveParallel();
+        }
+        assertEquals(other.encode(), parallelFork.encode());
+    }
+
+    @Test
+    public void forkRandomTest() {
+        Scenario scenario = new Scenario("random", 5, 5, 42);
+        Random expected = new Random(42);
+        assertEquals(expected.nextInt(100), scenario.getRandom().nextInt(100));
+        assertEquals(expected.nextGaussian(), scenario.getRandom().nextGaussian(), 0);
+        Scenario fork = scenario.fork();
+        assertEquals(expected.nextGaussian(), fork.getRandom().nextGaussian(), 0);
+        assertEquals(expected.nextLong(), fork.getRandom().nextLong());
+        assertEquals(expected.nextDouble(), fork.getRandom().nextDouble(), 0);
+    }
+
     private static class DummyEntity extends Entity {
 
         /**
@@ -0,0 +1,278 @@
+package researchsim.scenario;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.entities.Entity;
+import researchsim.entities.Fauna;
+import researchsim.entities.Flora;
+import researchsim.entities.Size;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.map.Tile;
+import researchsim.map.TileType;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "index",
+        "Width:7",
+        "Height:5",
+        "Seed:3",
+        "=======",
+        "LLLLLLL",
+        "LLLLLLL",
+        "LLLLLLL",
+        "LLLLLLL",
+        "OOOOOOO",
+        "=======",
+        "User-0,0-Dave",
+        "Flora-SMALL-1,0",
+        "Fauna-LARGE-0,2-LAND",
+        "Flora-GIANT-3,3",
+        "Fauna-MEDIUM-6,4-OCEAN");
+
+    private static final List<Class<? extends Entity>> TYPES =
+        List.of(Entity.class, User.class, Flora.class, Fauna.class, DummyEntity.class);
+
+    private static final List<Set<Size>> SIZES = List.of(EnumSet.allOf(Size.class),
+        EnumSet.of(Size.SMALL), EnumSet.of(Size.MEDIUM, Size.GIANT));
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    /**
+     * Creates a packed scenario of the given size with random terrain, users, animals and
+     * plants, and an entity of a class the index does not know.
+     */
+    private static Scenario randomScenario(int size, long seed) throws Exception {
+        Scenario scenario = new Scenario("random", size, size, (int) seed, true);
+        Random random = new Random(seed);
+        Tile[] tiles = new Tile[size * size];
+        for (int i = 0; i < tiles.length; i++) {
+            Coordinate coordinate = new Coordinate(i % size, i / size);
+            boolean ocean = random.nextInt(4) == 0;
+            tiles[i] = new Tile(ocean ? TileType.OCEAN : TileType.LAND);
+            Size entitySize = Size.values()[random.nextInt(Size.values().length)];
+            switch (random.nextInt(12)) {
+                case 0:
+                    tiles[i].setContents(new Fauna(entitySize, coordinate,
+                        ocean ? TileType.OCEAN : TileType.LAND));
+                    break;
+                case 1:
+                    if (!ocean) {
+                        tiles[i].setContents(new Flora(entitySize, coordinate));
+                    }
+                    break;
+                case 2:
+                    if (!ocean && random.nextInt(10) == 0) {
+                        tiles[i].setContents(new User(coordinate, "User" + i));
+                    }
+                    break;
+                default:
+            }
+        }
+        tiles[size + 1].setContents(new DummyEntity(new Coordinate(1, 1)));
+        scenario.setMapGrid(tiles);
+        for (Tile tile : tiles) {
+            if (tile.hasContents() && tile.getContents() instanceof Fauna) {
+                scenario.getController().addAnimal((Fauna) tile.getContents());
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Returns every entity of the scenario matching the given class and sizes, found by reading
+     * every tile, with the tile index of each.
+     */
+    private static List<int[]> expected(Scenario scenario, Coordinate centre,
+                                        Class<? extends Entity> type, Set<Size> sizes) {
+        List<int[]> found = new ArrayList<>();
+        for (int index = 0; index < scenario.getSize(); index++) {
+            Entity entity = scenario.occupantAt(index);
+            if (type.isInstance(entity) && sizes.contains(entity.getSize())) {
+                int distance = Math.abs(index % scenario.getWidth() - centre.getX())
+                    + Math.abs(index / scenario.getWidth() - centre.getY());
+                found.add(new int[] {distance, index});
+            }
+        }
+        found.sort(Comparator.<int[]>comparingInt(entry -> entry[0])
+            .thenComparingInt(entry -> entry[1]));
+        return found;
+    }
+
+    /**
+     * Asserts that the queries of the index give the same entities as reading every tile.
+     */
+    private static void assertQueries(Scenario scenario, SpatialIndex index, Random random) {
+        for (int query = 0; query < 20; query++) {
+            Coordinate centre = new Coordinate(random.nextInt(scenario.getWidth()),
+                random.nextInt(scenario.getHeight()));
+            Class<? extends Entity> type = TYPES.get(random.nextInt(TYPES.size()));
+            Set<Size> sizes = SIZES.get(random.nextInt(SIZES.size()));
+            List<int[]> expected = expected(scenario, centre, type, sizes);
+
+            int radius = random.nextInt(40);
+            List<Entity> within = new ArrayList<>();
+            for (int[] entry : expected) {
+                if (entry[0] <= radius) {
+                    within.add(scenario.occupantAt(entry[1]));
+                }
+            }
+            assertEquals(within, index.getWithin(centre, radius, type, sizes));
+
+            int count = random.nextInt(30);
+            List<Entity> nearest = new ArrayList<>();
+            for (int i = 0; i < Math.min(count, expected.size()); i++) {
+                nearest.add(scenario.occupantAt(expected.get(i)[1]));
+            }
+            assertEquals(nearest, index.getNearest(centre, count, type, sizes));
+
+            Coordinate to = new Coordinate(centre.getX() + random.nextInt(50) - 10,
+                centre.getY() + random.nextInt(50) - 10);
+            int inside = 0;
+            for (int[] entry : expected) {
+                int x = entry[1] % scenario.getWidth();
+                int y = entry[1] / scenario.getWidth();
+                if (x >= centre.getX() && x <= to.getX() && y >= centre.getY()
+                        && y <= to.getY()) {
+                    inside++;
+                }
+            }
+            assertEquals(inside, index.count(centre, to, type, sizes));
+        }
+    }
+
+    @Test
+    public void withinTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SpatialIndex index = new SpatialIndex(scenario);
+        Coordinate centre = new Coordinate(0, 0);
+        assertEquals(List.of(scenario.occupantAt(0, 0), scenario.occupantAt(1, 0),
+            scenario.occupantAt(0, 2)), index.getWithin(centre, 2));
+        assertEquals(List.of(scenario.occupantAt(1, 0), scenario.occupantAt(3, 3)),
+            index.getWithin(centre, 6, Flora.class, EnumSet.allOf(Size.class)));
+        assertEquals(List.of(), index.getWithin(centre, 100, Fauna.class,
+            EnumSet.of(Size.SMALL)));
+    }
+
+    @Test
+    public void nearestTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SpatialIndex index = new SpatialIndex(scenario);
+        assertEquals(List.of(scenario.occupantAt(3, 3), scenario.occupantAt(6, 4)),
+            index.getNearest(new Coordinate(5, 3), 2));
+        assertEquals(List.of(scenario.occupantAt(0, 2)),
+            index.getNearest(new Coordinate(6, 4), 1, Fauna.class,
+                EnumSet.of(Size.LARGE)));
+        assertEquals(5, index.getNearest(new Coordinate(3, 2), 10).size());
+        assertEquals(List.of(), index.getNearest(new Coordinate(3, 2), 0));
+    }
+
+    @Test
+    public void countTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SpatialIndex index = new SpatialIndex(scenario);
+        assertEquals(5, index.count(new Coordinate(0, 0), new Coordinate(6, 4)));
+        assertEquals(5, index.count(new Coordinate(-5, -5), new Coordinate(50, 50)));
+        assertEquals(2, index.count(new Coordinate(0, 0), new Coordinate(1, 2),
+            Entity.class, EnumSet.of(Size.MEDIUM, Size.LARGE)));
+        assertEquals(1, index.count(new Coordinate(0, 0), new Coordinate(6, 4),
+            Flora.class, EnumSet.of(Size.GIANT)));
+        assertEquals(0, index.count(new Coordinate(3, 3), new Coordinate(2, 4)));
+
+        // entities of other classes are counted by reading the bucket
+        scenario.setOccupant(5, new DummyEntity(new Coordinate(5, 0)));
+        assertEquals(1, index.count(new Coordinate(0, 0), new Coordinate(6, 4),
+            DummyEntity.class, EnumSet.allOf(Size.class)));
+        assertEquals(6, index.count(new Coordinate(0, 0), new Coordinate(20, 20)));
+        assertEquals(2, index.count(new Coordinate(0, 0), new Coordinate(20, 20),
+            Fauna.class, EnumSet.allOf(Size.class)));
+    }
+
+    @Test
+    public void moveAndCollectTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SpatialIndex index = new SpatialIndex(scenario);
+        User user = (User) scenario.occupantAt(0, 0);
+        Entity plant = scenario.occupantAt(3, 3);
+        // moving collects the plant at the destination
+        user.move(new Coordinate(3, 3));
+        assertEquals(List.of(user), index.getWithin(new Coordinate(3, 3), 0));
+        assertEquals(List.of(), index.getWithin(new Coordinate(0, 0), 0));
+        assertEquals(0, index.count(new Coordinate(0, 0), new Coordinate(6, 4),
+            Flora.class, EnumSet.of(Size.GIANT)));
+        assertFalse(index.getWithin(new Coordinate(3, 3), 10).contains(plant));
+
+        Fauna animal = (Fauna) scenario.occupantAt(0, 2);
+        animal.move(new Coordinate(1, 2));
+        assertEquals(List.of(animal), index.getNearest(new Coordinate(1, 2), 1));
+        assertEquals(List.of(scenario.occupantAt(1, 0), animal),
+            index.getWithin(new Coordinate(0, 0), 3));
+
+        user.move(new Coordinate(2, 2));
+        user.collect(new Coordinate(1, 2));
+        assertEquals(List.of(user), index.getWithin(new Coordinate(1, 2), 1));
+        assertEquals(0, index.count(new Coordinate(0, 0), new Coordinate(6, 4),
+            Fauna.class, EnumSet.of(Size.LARGE)));
+    }
+
+    @Test
+    public void randomTest() throws Exception {
+        Scenario scenario = randomScenario(70, 4);
+        SpatialIndex index = new SpatialIndex(scenario);
+        Random random = new Random(9);
+        assertQueries(scenario, index, random);
+        for (int turn = 0; turn < 5; turn++) {
+            scenario.getController().move();
+            assertQueries(scenario, index, random);
+        }
+        scenario.getController().moveParallel();
+        assertQueries(scenario, index, random);
+    }
+
+    @Test
+    public void replacedTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SpatialIndex index = new SpatialIndex(scenario);
+        Tile[] tiles = new Tile[scenario.getSize()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(TileType.SAND);
+        }
+        tiles[8].setContents(new Flora(Size.SMALL, new Coordinate(1, 1)));
+        scenario.setMapGrid(tiles);
+        assertEquals(List.of(scenario.occupantAt(1, 1)),
+            index.getNearest(new Coordinate(0, 0), 5));
+        index.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeRadiusTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        new SpatialIndex(scenario).getWithin(new Coordinate(0, 0), -1);
+    }
+
+    private static class DummyEntity extends Entity {
+
+        DummyEntity(Coordinate coordinate) {
+            super(Size.MEDIUM, coordinate);
+        }
+
+        @Override
+        public String getName() {
+            return "Dummy";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package researchsim.simulation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import researchsim.scenario.BinaryScenarioFormat;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+import researchsim.scenario.ScenarioSnapshot;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class AutosaveServiceTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "autosave",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "Fauna-SMALL-0,0-LAND",
+        "User-1,1-Dave",
+        "Fauna-LARGE-2,3-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN");
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("autosave");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        ScenarioManager.getInstance().reset();
+    }
+
+    private Scenario read(String save) throws Exception {
+        return Scenario.read(new StringReader(save), false);
+    }
+
+    @Test
+    public void snapshotTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        ScenarioSnapshot snapshot = ScenarioSnapshot.of(scenario);
+        String encoding = scenario.encode();
+        assertEquals(encoding, snapshot.encode());
+        new BatchRun(scenario, 20).run();
+        assertNotEquals(encoding, scenario.encode());
+        assertEquals(encoding, snapshot.encode());
+        assertEquals(0, snapshot.getTurn());
+        assertEquals(4, snapshot.getEntityCount());
+    }
+
+    @Test
+    public void saveTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        Path text = directory.resolve("save.txt");
+        Path binary = directory.resolve("save" + BinaryScenarioFormat.EXTENSION);
+        try (AutosaveService autosave = new AutosaveService(scenario, text)) {
+            String encoding = scenario.encode();
+            assertEquals(text, autosave.save().get());
+            assertEquals(binary, autosave.save(binary).get());
+            assertEquals(encoding, Files.readString(text));
+            assertEquals(encoding, BinaryScenarioFormat.read(binary, false).encode());
+            assertEquals(2, autosave.getSaveCount());
+            assertEquals(2, autosave.getRequestCount());
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals("temporary files should be moved or removed", 2, files.count());
+        }
+    }
+
+    @Test
+    public void turnIntervalTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        Path file = directory.resolve("save.txt");
+        AutosaveService autosave = new AutosaveService(scenario, file);
+        autosave.setTurnInterval(5);
+        new BatchRun(scenario, 22).run();
+        // closing waits for the saves to be written
+        autosave.close();
+        assertEquals(4, autosave.getRequestCount() + autosave.getSkippedCount());
+        assertEquals(autosave.getRequestCount(), autosave.getSaveCount());
+        assertEquals(0, autosave.getFailureCount());
+        assertTrue(autosave.getWriteNanos() > 0);
+        assertTrue(autosave.toString().startsWith("Saves: " + autosave.getSaveCount()));
+        // the last save was of a complete scenario
+        assertEquals("autosave", read(Files.readString(file)).getName());
+    }
+
+    @Test
+    public void failedSaveTest() throws Exception {
+        Scenario scenario = read(SAVE);
+        try (AutosaveService autosave = new AutosaveService(scenario,
+                directory.resolve("missing").resolve("save.txt"))) {
+            try {
+                autosave.save().get();
+                fail("Expected the save to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(1, autosave.getFailureCount());
+            assertFalse(autosave.isSaving());
+        }
+    }
+}
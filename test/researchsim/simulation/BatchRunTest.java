@@ -0,0 +1,108 @@
+package researchsim.simulation;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class BatchRunTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "batch",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "Fauna-SMALL-0,0-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN",
+        "Fauna-LARGE-2,3-LAND",
+        "Flora-GIANT-5,0");
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    @Test
+    public void runTest() throws Exception {
+        Scenario scenario = Scenario.load(new StringReader(SAVE));
+        BatchRun run = new BatchRun(scenario, 50);
+        run.run();
+        assertEquals(50, run.getTurnsRun());
+        assertEquals(scenario.getLog().getEventCount(), run.getMoves());
+        assertTrue(run.getMoves() > 0);
+        assertEquals(0, run.getCollects());
+        assertTrue(run.getElapsedNanos() > 0);
+        assertTrue(run.getTurnsPerSecond() > 0);
+        assertTrue(run.toString().startsWith("batch (6x5, seed 3)"));
+    }
+
+    @Test
+    public void sameSeedTest() throws Exception {
+        Scenario first = Scenario.load(new StringReader(SAVE));
+        first.setSeed(11);
+        new BatchRun(first, 40).run();
+
+        Scenario second = Scenario.load(new StringReader(SAVE));
+        second.setSeed(11);
+        new BatchRun(second, 40).run();
+
+        assertEquals(first.getLog().toString(), second.getLog().toString());
+        assertEquals(first.encode(), second.encode());
+    }
+
+    @Test
+    public void concurrentRunsTest() throws Exception {
+        Scenario expected = Scenario.load(new StringReader(SAVE));
+        new BatchRun(expected, 200).run();
+
+        Scenario[] scenarios = new Scenario[4];
+        Thread[] threads = new Thread[scenarios.length];
+        for (int i = 0; i < scenarios.length; i++) {
+            scenarios[i] = Scenario.load(new StringReader(SAVE.replace("batch", "batch" + i)));
+            BatchRun run = new BatchRun(scenarios[i], 200);
+            threads[i] = new Thread(run::run);
+        }
+        // the current scenario is not the one being run
+        ScenarioManager.getInstance().addScenario(expected);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Scenario scenario : scenarios) {
+            assertEquals(expected.getLog().toString(), scenario.getLog().toString());
+            assertEquals(expected.encode().replace("batch", ""),
+                scenario.encode().replaceFirst("batch\\d", ""));
+        }
+    }
+
+    @Test
+    public void noTurnsTest() throws Exception {
+        BatchRun run = new BatchRun(Scenario.load(new StringReader(SAVE)), 0);
+        run.run();
+        assertEquals(0, run.getTurnsRun());
+        assertEquals(0, run.getMoves());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTurnsTest() throws Exception {
+        new BatchRun(Scenario.load(new StringReader(SAVE)), -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSeedTest() throws Exception {
+        Scenario.load(new StringReader(SAVE)).setSeed(-1);
+    }
+}
@@ -0,0 +1,113 @@
+package researchsim.simulation;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.entities.User;
+import researchsim.map.Coordinate;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ResearchPlannerTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "planner",
+        "Width:7",
+        "Height:5",
+        "Seed:3",
+        "=======",
+        "LLLLLLL",
+        "LLLLXLL",
+        "LLLLXLL",
+        "LLLLXLL",
+        "OOOOOOO",
+        "=======",
+        "User-0,0-Dave",
+        "Flora-SMALL-0,1",
+        "Flora-GIANT-4,0",
+        "Fauna-MEDIUM-2,4-OCEAN");
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    private static User user(Scenario scenario) {
+        return (User) scenario.occupantAt(0, 0);
+    }
+
+    @Test
+    public void planTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        String before = scenario.encode();
+        ResearchPlanner planner = new ResearchPlanner(1, 10_000);
+        planner.setRolloutLimit(200);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ResearchPlanner.Suggestion suggestion;
+        try {
+            suggestion = planner.plan(user(scenario), executor, 1);
+        } finally {
+            executor.shutdown();
+        }
+        // the small plant can be collected straight away, and the giant plant by moving onto
+        // or next to it
+        assertEquals(List.of(new Coordinate(0, 1)), suggestion.getCollections());
+        assertNotNull(suggestion.getMove());
+        assertEquals(5.0, suggestion.getExpectedPoints(), 1e-9);
+        assertEquals(200, suggestion.getRollouts());
+        assertTrue(suggestion.toString().startsWith("Collect (0,1) then move to "));
+        assertEquals(before, scenario.encode());
+        assertEquals(0, scenario.getLog().getEventCount());
+
+        suggestion.apply(user(scenario));
+        assertEquals(5, scenario.getLog().getPointsEarned());
+        assertEquals(2, scenario.getLog().getEntitiesCollected());
+    }
+
+    @Test
+    public void deterministicTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), true);
+        ResearchPlanner planner = new ResearchPlanner(4, 10_000);
+        planner.setRolloutLimit(300);
+        planner.setSeed(7);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ResearchPlanner.Suggestion first = planner.plan(user(scenario), executor, 2);
+            ResearchPlanner.Suggestion second = planner.plan(user(scenario), executor, 2);
+            assertEquals(first.getMove(), second.getMove());
+            assertEquals(first.getExpectedPoints(), second.getExpectedPoints(), 0);
+            assertEquals(600, first.getRollouts());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void budgetTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        ResearchPlanner.Suggestion suggestion = new ResearchPlanner(10, 100)
+            .plan(user(scenario));
+        assertTrue(suggestion.getRollouts() > 0);
+        assertTrue(suggestion.getElapsedNanos() >= 100_000_000);
+        assertTrue(suggestion.getRolloutsPerSecond() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void userNotOnMapTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        User user = user(scenario);
+        scenario.setOccupant(0, null);
+        new ResearchPlanner(1, 10).plan(user);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidHorizonTest() {
+        new ResearchPlanner(0, 10);
+    }
+}
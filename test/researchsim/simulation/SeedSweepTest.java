@@ -0,0 +1,98 @@
+package researchsim.simulation;
+
+import org.junit.After;
+import org.junit.Test;
+import researchsim.scenario.Scenario;
+import researchsim.scenario.ScenarioManager;
+
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SeedSweepTest {
+
+    private static final String SAVE = String.join(System.lineSeparator(),
+        "sweep",
+        "Width:6",
+        "Height:5",
+        "Seed:3",
+        "======",
+        "LLLLLL",
+        "LLSLLL",
+        "LLLOOO",
+        "LSLOOO",
+        "LLLOOO",
+        "======",
+        "Fauna-SMALL-0,0-LAND",
+        "Fauna-MEDIUM-4,4-OCEAN",
+        "Fauna-LARGE-2,3-LAND");
+
+    @After
+    public void tearDown() {
+        ScenarioManager.getInstance().reset();
+    }
+
+    @Test
+    public void matchesSingleRunsTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        SeedSweep sweep = new SeedSweep(scenario, 30, 5, 10);
+        sweep.run(new ForkJoinPool(3));
+
+        // copies are read from the encoding, which lists animals in map order
+        long[] tiles = new long[10];
+        for (int i = 0; i < tiles.length; i++) {
+            Scenario copy = Scenario.read(new StringReader(scenario.encode()), false);
+            copy.setSeed(5 + i);
+            new BatchRun(copy, 30).run();
+            tiles[i] = copy.getLog().getTilesTraversed();
+        }
+        Distribution expected = new Distribution("Tiles Traversed", tiles);
+        assertEquals(expected.getMean(), sweep.getTilesTraversed().getMean(), 1e-9);
+        assertEquals(expected.getMin(), sweep.getTilesTraversed().getMin());
+        assertEquals(expected.getMax(), sweep.getTilesTraversed().getMax());
+        assertEquals(10, sweep.getPointsEarned().getCount());
+        assertEquals(0, sweep.getEntitiesCollected().getMax());
+    }
+
+    @Test
+    public void scenarioUnchangedTest() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(SAVE), false);
+        String before = scenario.encode();
+        new SeedSweep(scenario, 20, 0, 8).run();
+        assertEquals(before, scenario.encode());
+        assertEquals(0, scenario.getLog().getEventCount());
+    }
+
+    @Test
+    public void readDoesNotRegisterTest() throws Exception {
+        Scenario.read(new StringReader(SAVE), false);
+        assertTrue(ScenarioManager.getInstance().getLoadedScenarios().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notRunTest() throws Exception {
+        new SeedSweep(Scenario.read(new StringReader(SAVE), false), 1, 0, 1).getMoves();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSeedsTest() throws Exception {
+        new SeedSweep(Scenario.read(new StringReader(SAVE), false), 1, 0, 0);
+    }
+
+    @Test
+    public void distributionTest() {
+        Distribution distribution = new Distribution("test", new long[]{5, 1, 3, 2, 4, 10});
+        assertEquals(6, distribution.getCount());
+        assertEquals(1, distribution.getMin());
+        assertEquals(10, distribution.getMax());
+        assertEquals(25.0 / 6, distribution.getMean(), 1e-9);
+        assertEquals(3, distribution.getPercentile(50));
+        assertEquals(10, distribution.getPercentile(90));
+        assertEquals(1, distribution.getPercentile(0));
+        assertEquals(5, distribution.getBinWidth(2));
+        assertArrayEquals(new int[]{5, 1}, distribution.getHistogram(2));
+        assertArrayEquals(new int[]{3, 0, 0},
+            new Distribution("same", new long[]{7, 7, 7}).getHistogram(3));
+    }
+}
@@ -0,0 +1,65 @@
+package researchsim.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MoveStencilTest {
+
+    @Test
+    public void offsetsTest() {
+        for (int radius = 0; radius <= 6; radius++) {
+            MoveStencil stencil = MoveStencil.of(radius);
+            assertEquals(radius, stencil.getRadius());
+            List<int[]> expected = new ArrayList<>();
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dy = -radius; dy <= radius; dy++) {
+                    if (Math.abs(dx) + Math.abs(dy) <= radius) {
+                        expected.add(new int[]{dx, dy});
+                    }
+                }
+            }
+            assertEquals(expected.size(), stencil.size());
+            for (int offset = 0; offset < stencil.size(); offset++) {
+                assertEquals(expected.get(offset)[0], stencil.getDx(offset));
+                assertEquals(expected.get(offset)[1], stencil.getDy(offset));
+                assertEquals(offset, stencil.indexOf(stencil.getDx(offset),
+                    stencil.getDy(offset)));
+            }
+        }
+    }
+
+    @Test
+    public void sharedTest() {
+        assertSame(MoveStencil.of(3), MoveStencil.of(3));
+        assertEquals(0, MoveStencil.of(-1).size());
+    }
+
+    @Test
+    public void indexOfOutsideTest() {
+        MoveStencil stencil = MoveStencil.of(2);
+        assertEquals(-1, stencil.indexOf(2, 1));
+        assertEquals(-1, stencil.indexOf(0, -3));
+        assertEquals(-1, stencil.indexOf(5, 5));
+    }
+
+    @Test
+    public void pathTest() {
+        MoveStencil stencil = MoveStencil.of(4);
+        int offset = stencil.indexOf(2, -1);
+        assertEquals(3, stencil.getPathLength(offset));
+
+        int[][] horizontal = {{1, 0}, {2, 0}, {2, -1}};
+        int[][] vertical = {{0, -1}, {1, -1}, {2, -1}};
+        for (int step = 0; step < 3; step++) {
+            assertEquals(horizontal[step][0], stencil.getPathDx(offset, step, true));
+            assertEquals(horizontal[step][1], stencil.getPathDy(offset, step, true));
+            assertEquals(vertical[step][0], stencil.getPathDx(offset, step, false));
+            assertEquals(vertical[step][1], stencil.getPathDy(offset, step, false));
+        }
+        assertEquals(0, stencil.getPathLength(stencil.indexOf(0, 0)));
+    }
+}